@@ -190,6 +190,20 @@ public class AffineCRIF extends CRIFImpl {
                 || interp instanceof javax.media.jai.InterpolationBicubic
                 || interp instanceof javax.media.jai.InterpolationBicubic2;
 
+        //
+        // Check and see if the affine transform maps each pixel exactly
+        // onto another pixel (90 degrees rotations, flips and integer
+        // translations). With nearest interpolation the output is a pure
+        // re-indexing of the source samples, so no interpolation is needed.
+        // Only layouts which do not change the SampleModel can be used.
+        //
+        if (nearestInterp && !isBinary && AffineTransposeOpImage.isTranspose(transform)
+                && (layout == null || !layout.isValid(ImageLayout.SAMPLE_MODEL_MASK))) {
+            ROI transposeROI = roi != null && roi.contains(sourceBounds) ? null : roi;
+            return new AffineTransposeOpImage(source, renderHints, layout, transform,
+                    transposeROI, nodata, backgroundValues, setDestinationNoData);
+        }
+
         // Transformation of the interpolators JAI-->JAI-EXT
         int dataType = source.getSampleModel().getDataType();
         double destinationNoData = (backgroundValues != null && backgroundValues.length > 0) ? backgroundValues[0]
@@ -527,6 +527,9 @@ public class AffineGeneralOpImage extends AffineOpImage {
         // Fractional array initialization
         Number[] fracValues = new Number[2];
 
+        // Without ROI the interpolators are called through their primitive methods
+        final boolean noROI = roiAccessor == null && roiIter == null;
+
         // Cycle on the destination image y bounds
         for (int y = dst_min_y; y < dst_max_y; y++) {
             // update of the destination pixel offset
@@ -559,13 +562,16 @@ public class AffineGeneralOpImage extends AffineOpImage {
             xfrac = (int) (fracx * shiftvalue);
             yfrac = (int) (fracy * shiftvalue);
 
-            // Store of the fractional value inside an array
-            if (dataType < DataBuffer.TYPE_FLOAT) {
-                fracValues[0] = xfrac;
-                fracValues[1] = yfrac;
-            } else {
-                fracValues[0] = fracx;
-                fracValues[1] = fracy;
+            // Store of the fractional value inside an array, only needed by the interpolators
+            // called through the Number based methods
+            if (!noROI || interpBN != null) {
+                if (dataType < DataBuffer.TYPE_FLOAT) {
+                    fracValues[0] = xfrac;
+                    fracValues[1] = yfrac;
+                } else {
+                    fracValues[0] = fracx;
+                    fracValues[1] = fracy;
+                }
             }
 
             // Translate to/from SampleModel space & Raster space
@@ -599,11 +605,20 @@ public class AffineGeneralOpImage extends AffineOpImage {
 
                         // Control for using the defined interpolator
                         if (interpN != null) {
-                            result = interpN.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    posyROI, roiAccessor, roiIter, false).intValue();
+                            if (noROI) {
+                                result = interpN.interpolateByte(srcDataArrays[k2], posx + posyy, null, 0);
+                            } else {
+                                result = interpN.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        posyROI, roiAccessor, roiIter, false).intValue();
+                            }
                         } else if (interpB != null) {
-                            result = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    fracValues, posyROI, roiAccessor, roiIter, false).intValue();
+                            if (noROI) {
+                                result = interpB.interpolateByte(srcDataArrays[k2], posx + posyy,
+                                        srcPixelStride, srcScanlineStride, xfrac, yfrac, null, 0, 0);
+                            } else {
+                                result = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        fracValues, posyROI, roiAccessor, roiIter, false).intValue();
+                            }
                         } else if (interpBN != null) {
                             result = interpBN.interpolate(src, k2, dst_num_bands, posx, posyy,
                                     fracValues, posyROI, roiAccessor, roiIter, false).intValue();
@@ -991,6 +1006,9 @@ public class AffineGeneralOpImage extends AffineOpImage {
         // Fractional array initialization
         Number[] fracValues = new Number[2];
 
+        // Without ROI the interpolators are called through their primitive methods
+        final boolean noROI = roiAccessor == null && roiIter == null;
+
         // Cycle on the destination image y bounds
         for (int y = dst_min_y; y < dst_max_y; y++) {
             // update of the destination pixel offset
@@ -1023,13 +1041,16 @@ public class AffineGeneralOpImage extends AffineOpImage {
             xfrac = (int) (fracx * shiftvalue);
             yfrac = (int) (fracy * shiftvalue);
 
-            // Store of the fractional value inside an array
-            if (dataType < DataBuffer.TYPE_FLOAT) {
-                fracValues[0] = xfrac;
-                fracValues[1] = yfrac;
-            } else {
-                fracValues[0] = fracx;
-                fracValues[1] = fracy;
+            // Store of the fractional value inside an array, only needed by the interpolators
+            // called through the Number based methods
+            if (!noROI || interpBN != null) {
+                if (dataType < DataBuffer.TYPE_FLOAT) {
+                    fracValues[0] = xfrac;
+                    fracValues[1] = yfrac;
+                } else {
+                    fracValues[0] = fracx;
+                    fracValues[1] = fracy;
+                }
             }
 
             // Translate to/from SampleModel space & Raster space
@@ -1063,11 +1084,20 @@ public class AffineGeneralOpImage extends AffineOpImage {
 
                         // Control for using the defined interpolator
                         if (interpN != null) {
-                            result = interpN.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    posyROI, roiAccessor, roiIter, false).intValue();
+                            if (noROI) {
+                                result = interpN.interpolateUShort(srcDataArrays[k2], posx + posyy, null, 0);
+                            } else {
+                                result = interpN.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        posyROI, roiAccessor, roiIter, false).intValue();
+                            }
                         } else if (interpB != null) {
-                            result = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    fracValues, posyROI, roiAccessor, roiIter, false).intValue();
+                            if (noROI) {
+                                result = interpB.interpolateUShort(srcDataArrays[k2], posx + posyy,
+                                        srcPixelStride, srcScanlineStride, xfrac, yfrac, null, 0, 0);
+                            } else {
+                                result = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        fracValues, posyROI, roiAccessor, roiIter, false).intValue();
+                            }
                         } else if (interpBN != null) {
                             result = interpBN.interpolate(src, k2, dst_num_bands, posx, posyy,
                                     fracValues, posyROI, roiAccessor, roiIter, false).intValue();
@@ -1456,6 +1486,9 @@ public class AffineGeneralOpImage extends AffineOpImage {
         // Fractional array initialization
         Number[] fracValues = new Number[2];
 
+        // Without ROI the interpolators are called through their primitive methods
+        final boolean noROI = roiAccessor == null && roiIter == null;
+
         // Cycle on the destination image y bounds
         for (int y = dst_min_y; y < dst_max_y; y++) {
             // update of the destination pixel offset
@@ -1488,13 +1521,16 @@ public class AffineGeneralOpImage extends AffineOpImage {
             xfrac = (int) (fracx * shiftvalue);
             yfrac = (int) (fracy * shiftvalue);
 
-            // Store of the fractional value inside an array
-            if (dataType < DataBuffer.TYPE_FLOAT) {
-                fracValues[0] = xfrac;
-                fracValues[1] = yfrac;
-            } else {
-                fracValues[0] = fracx;
-                fracValues[1] = fracy;
+            // Store of the fractional value inside an array, only needed by the interpolators
+            // called through the Number based methods
+            if (!noROI || interpBN != null) {
+                if (dataType < DataBuffer.TYPE_FLOAT) {
+                    fracValues[0] = xfrac;
+                    fracValues[1] = yfrac;
+                } else {
+                    fracValues[0] = fracx;
+                    fracValues[1] = fracy;
+                }
             }
 
             // Translate to/from SampleModel space & Raster space
@@ -1528,11 +1564,20 @@ public class AffineGeneralOpImage extends AffineOpImage {
 
                         // Control for using the defined interpolator
                         if (interpN != null) {
-                            result = interpN.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    posyROI, roiAccessor, roiIter, false).intValue();
+                            if (noROI) {
+                                result = interpN.interpolateShort(srcDataArrays[k2], posx + posyy, null, 0);
+                            } else {
+                                result = interpN.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        posyROI, roiAccessor, roiIter, false).intValue();
+                            }
                         } else if (interpB != null) {
-                            result = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    fracValues, posyROI, roiAccessor, roiIter, false).intValue();
+                            if (noROI) {
+                                result = interpB.interpolateShort(srcDataArrays[k2], posx + posyy,
+                                        srcPixelStride, srcScanlineStride, xfrac, yfrac, null, 0, 0);
+                            } else {
+                                result = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        fracValues, posyROI, roiAccessor, roiIter, false).intValue();
+                            }
                         } else if (interpBN != null) {
                             result = interpBN.interpolate(src, k2, dst_num_bands, posx, posyy,
                                     fracValues, posyROI, roiAccessor, roiIter, false).intValue();
@@ -1707,6 +1752,9 @@ public class AffineGeneralOpImage extends AffineOpImage {
         // Fractional array initialization
         Number[] fracValues = new Number[2];
 
+        // Without ROI the interpolators are called through their primitive methods
+        final boolean noROI = roiAccessor == null && roiIter == null;
+
         // Cycle on the destination image y bounds
         for (int y = dst_min_y; y < dst_max_y; y++) {
             // update of the destination pixel offset
@@ -1739,13 +1787,16 @@ public class AffineGeneralOpImage extends AffineOpImage {
             xfrac = (int) (fracx * shiftvalue);
             yfrac = (int) (fracy * shiftvalue);
 
-            // Store of the fractional value inside an array
-            if (dataType < DataBuffer.TYPE_FLOAT) {
-                fracValues[0] = xfrac;
-                fracValues[1] = yfrac;
-            } else {
-                fracValues[0] = fracx;
-                fracValues[1] = fracy;
+            // Store of the fractional value inside an array, only needed by the interpolators
+            // called through the Number based methods
+            if (!noROI || interpBN != null) {
+                if (dataType < DataBuffer.TYPE_FLOAT) {
+                    fracValues[0] = xfrac;
+                    fracValues[1] = yfrac;
+                } else {
+                    fracValues[0] = fracx;
+                    fracValues[1] = fracy;
+                }
             }
 
             // Translate to/from SampleModel space & Raster space
@@ -1779,11 +1830,20 @@ public class AffineGeneralOpImage extends AffineOpImage {
 
                         // Control for using the defined interpolator
                         if (interpN != null) {
-                            result = interpN.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    posyROI, roiAccessor, roiIter, false).intValue();
+                            if (noROI) {
+                                result = interpN.interpolateInt(srcDataArrays[k2], posx + posyy, null, 0);
+                            } else {
+                                result = interpN.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        posyROI, roiAccessor, roiIter, false).intValue();
+                            }
                         } else if (interpB != null) {
-                            result = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    fracValues, posyROI, roiAccessor, roiIter, false).intValue();
+                            if (noROI) {
+                                result = interpB.interpolateInt(srcDataArrays[k2], posx + posyy,
+                                        srcPixelStride, srcScanlineStride, xfrac, yfrac, null, 0, 0);
+                            } else {
+                                result = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        fracValues, posyROI, roiAccessor, roiIter, false).intValue();
+                            }
                         } else if (interpBN != null) {
                             result = interpBN.interpolate(src, k2, dst_num_bands, posx, posyy,
                                     fracValues, posyROI, roiAccessor, roiIter, false).intValue();
@@ -2166,6 +2226,9 @@ public class AffineGeneralOpImage extends AffineOpImage {
         // Fractional array initialization
         Number[] fracValues = new Number[2];
 
+        // Without ROI the interpolators are called through their primitive methods
+        final boolean noROI = roiAccessor == null && roiIter == null;
+
         // Cycle on the destination image y bounds
         for (int y = dst_min_y; y < dst_max_y; y++) {
             // update of the destination pixel offset
@@ -2194,18 +2257,24 @@ public class AffineGeneralOpImage extends AffineOpImage {
             // Calculation of the fractional values
             float fracx = s_x - (float) s_ix;
             float fracy = s_y - (float) s_iy;
+            // Fractional values used by the bilinear interpolator along the row
+            final float rowFracx = fracx;
+            final float rowFracy = fracy;
 
             // Get the new frac values
             xfrac = (int) (fracx * shiftvalue);
             yfrac = (int) (fracy * shiftvalue);
 
-            // Store of the fractional value inside an array
-            if (dataType < DataBuffer.TYPE_FLOAT) {
-                fracValues[0] = xfrac;
-                fracValues[1] = yfrac;
-            } else {
-                fracValues[0] = fracx;
-                fracValues[1] = fracy;
+            // Store of the fractional value inside an array, only needed by the interpolators
+            // called through the Number based methods
+            if (!noROI || interpBN != null) {
+                if (dataType < DataBuffer.TYPE_FLOAT) {
+                    fracValues[0] = xfrac;
+                    fracValues[1] = yfrac;
+                } else {
+                    fracValues[0] = fracx;
+                    fracValues[1] = fracy;
+                }
             }
 
             // Translate to/from SampleModel space & Raster space
@@ -2238,11 +2307,20 @@ public class AffineGeneralOpImage extends AffineOpImage {
 
                         // Control for using the defined interpolator
                         if (interpN != null) {
-                            s = interpN.interpolate(src, k2, dst_num_bands, posx, posyy, posyROI,
-                                    roiAccessor, roiIter, false).floatValue();
+                            if (noROI) {
+                                s = interpN.interpolateFloat(srcDataArrays[k2], posx + posyy, null, 0);
+                            } else {
+                                s = interpN.interpolate(src, k2, dst_num_bands, posx, posyy, posyROI,
+                                        roiAccessor, roiIter, false).floatValue();
+                            }
                         } else if (interpB != null) {
-                            s = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    fracValues, posyROI, roiAccessor, roiIter, false).floatValue();
+                            if (noROI) {
+                                s = interpB.interpolateFloat(srcDataArrays[k2], posx + posyy,
+                                        srcPixelStride, srcScanlineStride, rowFracx, rowFracy, null, 0, 0);
+                            } else {
+                                s = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        fracValues, posyROI, roiAccessor, roiIter, false).floatValue();
+                            }
                         } else if (interpBN != null) {
                             s = interpBN.interpolate(src, k2, dst_num_bands, posx, posyy,
                                     fracValues, posyROI, roiAccessor, roiIter, false).floatValue();
@@ -2403,6 +2481,9 @@ public class AffineGeneralOpImage extends AffineOpImage {
         // Fractional array initialization
         Number[] fracValues = new Number[2];
 
+        // Without ROI the interpolators are called through their primitive methods
+        final boolean noROI = roiAccessor == null && roiIter == null;
+
         // Cycle on the destination image y bounds
         for (int y = dst_min_y; y < dst_max_y; y++) {
             // update of the destination pixel offset
@@ -2431,18 +2512,24 @@ public class AffineGeneralOpImage extends AffineOpImage {
             // Calculation of the fractional values
             float fracx = s_x - (float) s_ix;
             float fracy = s_y - (float) s_iy;
+            // Fractional values used by the bilinear interpolator along the row
+            final float rowFracx = fracx;
+            final float rowFracy = fracy;
 
             // Get the new frac values
             xfrac = (int) (fracx * shiftvalue);
             yfrac = (int) (fracy * shiftvalue);
 
-            // Store of the fractional value inside an array
-            if (dataType < DataBuffer.TYPE_FLOAT) {
-                fracValues[0] = xfrac;
-                fracValues[1] = yfrac;
-            } else {
-                fracValues[0] = fracx;
-                fracValues[1] = fracy;
+            // Store of the fractional value inside an array, only needed by the interpolators
+            // called through the Number based methods
+            if (!noROI || interpBN != null) {
+                if (dataType < DataBuffer.TYPE_FLOAT) {
+                    fracValues[0] = xfrac;
+                    fracValues[1] = yfrac;
+                } else {
+                    fracValues[0] = fracx;
+                    fracValues[1] = fracy;
+                }
             }
 
             // Translate to/from SampleModel space & Raster space
@@ -2475,11 +2562,20 @@ public class AffineGeneralOpImage extends AffineOpImage {
 
                         // Control for using the defined interpolator
                         if (interpN != null) {
-                            s = interpN.interpolate(src, k2, dst_num_bands, posx, posyy, posyROI,
-                                    roiAccessor, roiIter, false).doubleValue();
+                            if (noROI) {
+                                s = interpN.interpolateDouble(srcDataArrays[k2], posx + posyy, null, 0);
+                            } else {
+                                s = interpN.interpolate(src, k2, dst_num_bands, posx, posyy, posyROI,
+                                        roiAccessor, roiIter, false).doubleValue();
+                            }
                         } else if (interpB != null) {
-                            s = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
-                                    fracValues, posyROI, roiAccessor, roiIter, false).doubleValue();
+                            if (noROI) {
+                                s = interpB.interpolateDouble(srcDataArrays[k2], posx + posyy,
+                                        srcPixelStride, srcScanlineStride, rowFracx, rowFracy, null, 0, 0);
+                            } else {
+                                s = interpB.interpolate(src, k2, dst_num_bands, posx, posyy,
+                                        fracValues, posyROI, roiAccessor, roiIter, false).doubleValue();
+                            }
                         } else if (interpBN != null) {
                             s = interpBN.interpolate(src, k2, dst_num_bands, posx, posyy,
                                     fracValues, posyROI, roiAccessor, roiIter, false).doubleValue();
@@ -0,0 +1,504 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+package it.geosolutions.jaiext.affine;
+
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.utilities.ROITileMask;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.OpImage;
+import javax.media.jai.ROI;
+import javax.media.jai.RasterAccessor;
+import javax.media.jai.RasterFormatTag;
+
+import com.sun.media.jai.util.ImageUtil;
+
+/**
+ * An <code>OpImage</code> executing the nearest-neighbour affine transform of an image when the transform maps each source pixel
+ * exactly onto a destination pixel: a rotation by a multiple of 90 degrees, an axis flip or a combination of them, followed by an
+ * integer translation. No interpolation is needed in this case, so each destination tile is a pure re-indexing of the source samples,
+ * copied by square blocks in order to keep the strided source reads within a few cache lines. ROI and NoData are handled with the
+ * same semantics of {@link AffineNearestOpImage}.
+ */
+public class AffineTransposeOpImage extends OpImage {
+
+    /** Tolerance used for checking that the translation is integer */
+    private static final double TOLERANCE = 0.01d;
+
+    /** Size of the square blocks copied at once */
+    private static final int BLOCK_SIZE = 32;
+
+    /** Forward matrix coefficients, each one in {-1, 0, 1} */
+    private final int m00, m01, m10, m11;
+
+    /** Integer translation of the transform */
+    private final int tx, ty;
+
+    /** Translation of the inverse transform */
+    private final int itx, ity;
+
+    /** Source pixel indices of the destination pixel (0, 0) */
+    private final int cx, cy;
+
+    /** ROI on the source image, may be null */
+    private final ROI roi;
+
+    /** NoData Range, may be null */
+    private final Range noData;
+
+    /** Values written for the pixels outside the ROI or flagged as NoData */
+    private final double[] fillValues;
+
+    /**
+     * Checks if the input transform is supported by this class, that is if its linear part only contains 0 and &#177;1 values and
+     * its translation is integer.
+     * 
+     * @param transform the transform to check
+     * @return <code>true</code> if the transform maps pixels onto pixels
+     */
+    public static boolean isTranspose(AffineTransform transform) {
+        double[] tr = new double[6];
+        transform.getMatrix(tr);
+        boolean swapped = tr[0] == 0.0;
+        if (swapped) {
+            if (tr[3] != 0.0 || Math.abs(tr[1]) != 1.0 || Math.abs(tr[2]) != 1.0) {
+                return false;
+            }
+        } else if (Math.abs(tr[0]) != 1.0 || Math.abs(tr[3]) != 1.0 || tr[1] != 0.0
+                || tr[2] != 0.0) {
+            return false;
+        }
+        return Math.abs(tr[4] - Math.round(tr[4])) < TOLERANCE
+                && Math.abs(tr[5] - Math.round(tr[5])) < TOLERANCE;
+    }
+
+    /**
+     * Constructs an AffineTransposeOpImage.
+     * 
+     * @param source a RenderedImage.
+     * @param config a Map object possibly holding tile cache information
+     * @param layout an ImageLayout optionally containing the tile grid layout and the ColorModel. The bounds are always computed from
+     *        the transform.
+     * @param transform the affine transform, which must satisfy {@link #isTranspose(AffineTransform)}
+     * @param roi ROI on the source image, may be null
+     * @param noData NoData Range, may be null
+     * @param backgroundValues destination values for the pixels outside the ROI or flagged as NoData
+     * @param setDestinationNoData if false, the pixels outside the ROI or flagged as NoData are set to 0
+     */
+    public AffineTransposeOpImage(RenderedImage source, Map config, ImageLayout layout,
+            AffineTransform transform, ROI roi, Range noData, double[] backgroundValues,
+            boolean setDestinationNoData) {
+        super(vectorize(source), layoutHelper(source, layout, transform), config, true);
+
+        double[] tr = new double[6];
+        transform.getMatrix(tr);
+        m00 = (int) tr[0];
+        m10 = (int) tr[1];
+        m01 = (int) tr[2];
+        m11 = (int) tr[3];
+        tx = (int) Math.round(tr[4]);
+        ty = (int) Math.round(tr[5]);
+        // The inverse of the linear part is its transpose
+        itx = -(m00 * tx + m10 * ty);
+        ity = -(m01 * tx + m11 * ty);
+        // The center of a destination pixel is mapped on the center of a source pixel, so the
+        // pixel indices are shifted by half a pixel along the flipped axes
+        cx = itx + (m00 + m10 - 1) / 2;
+        cy = ity + (m01 + m11 - 1) / 2;
+
+        this.roi = roi;
+        this.noData = noData;
+
+        int numBands = getSampleModel().getNumBands();
+        fillValues = new double[numBands];
+        if (setDestinationNoData && backgroundValues != null && backgroundValues.length > 0) {
+            if (backgroundValues.length < numBands) {
+                Arrays.fill(fillValues, backgroundValues[0]);
+            } else {
+                System.arraycopy(backgroundValues, 0, fillValues, 0, numBands);
+            }
+        }
+    }
+
+    /** Sets the destination bounds to the forward mapping of the source bounds */
+    private static ImageLayout layoutHelper(RenderedImage source, ImageLayout layout,
+            AffineTransform transform) {
+        double[] tr = new double[6];
+        transform.getMatrix(tr);
+        Rectangle bounds = mapRect(new Rectangle(source.getMinX(), source.getMinY(),
+                source.getWidth(), source.getHeight()), (int) tr[0], (int) tr[2], (int) tr[1],
+                (int) tr[3], (int) Math.round(tr[4]), (int) Math.round(tr[5]));
+
+        ImageLayout il = layout == null ? new ImageLayout() : (ImageLayout) layout.clone();
+        il.setMinX(bounds.x);
+        il.setMinY(bounds.y);
+        il.setWidth(bounds.width);
+        il.setHeight(bounds.height);
+        return il;
+    }
+
+    /**
+     * Maps a rectangle through the transform x' = a00 * x + a01 * y + b0, y' = a10 * x + a11 * y + b1, whose linear part is a signed
+     * permutation.
+     */
+    private static Rectangle mapRect(Rectangle rect, int a00, int a01, int a10, int a11, int b0,
+            int b1) {
+        int x0 = a00 * rect.x + a01 * rect.y + b0;
+        int y0 = a10 * rect.x + a11 * rect.y + b1;
+        int x1 = a00 * (rect.x + rect.width) + a01 * (rect.y + rect.height) + b0;
+        int y1 = a10 * (rect.x + rect.width) + a11 * (rect.y + rect.height) + b1;
+        return new Rectangle(Math.min(x0, x1), Math.min(y0, y1), Math.abs(x1 - x0),
+                Math.abs(y1 - y0));
+    }
+
+    @Override
+    public Rectangle mapSourceRect(Rectangle sourceRect, int sourceIndex) {
+        if (sourceRect == null) {
+            throw new IllegalArgumentException("sourceRect == null");
+        }
+        if (sourceIndex != 0) {
+            throw new IllegalArgumentException("sourceIndex != 0");
+        }
+        return mapRect(sourceRect, m00, m01, m10, m11, tx, ty).intersection(getBounds());
+    }
+
+    @Override
+    public Rectangle mapDestRect(Rectangle destRect, int sourceIndex) {
+        if (destRect == null) {
+            throw new IllegalArgumentException("destRect == null");
+        }
+        if (sourceIndex != 0) {
+            throw new IllegalArgumentException("sourceIndex != 0");
+        }
+        Rectangle sourceBounds = getSourceImage(0).getBounds();
+        return mapRect(destRect, m00, m10, m01, m11, itx, ity).intersection(sourceBounds);
+    }
+
+    @Override
+    protected void computeRect(Raster[] sources, WritableRaster dest, Rectangle destRect) {
+        RasterFormatTag[] formatTags = getFormatTags();
+        Rectangle srcRect = mapDestRect(destRect, 0);
+
+        ROITileMask mask = null;
+        if (roi != null) {
+            mask = ROITileMask.getMask(roi, srcRect);
+            if (mask.isEmpty()) {
+                ImageUtil.fillBackground(dest, destRect, fillValues);
+                return;
+            }
+            if (mask.isFull()) {
+                mask = null;
+            }
+        }
+
+        RasterAccessor src = new RasterAccessor(sources[0], srcRect, formatTags[0],
+                getSourceImage(0).getColorModel());
+        RasterAccessor dst = new RasterAccessor(dest, destRect, formatTags[1], getColorModel());
+
+        switch (dst.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            byteLoop(src, dst, mask);
+            break;
+        case DataBuffer.TYPE_USHORT:
+        case DataBuffer.TYPE_SHORT:
+            shortLoop(src, dst, mask);
+            break;
+        case DataBuffer.TYPE_INT:
+            intLoop(src, dst, mask);
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            floatLoop(src, dst, mask);
+            break;
+        case DataBuffer.TYPE_DOUBLE:
+            doubleLoop(src, dst, mask);
+            break;
+        default:
+            throw new IllegalArgumentException("Wrong Data Type");
+        }
+
+        if (dst.isDataCopy()) {
+            dst.clampDataArrays();
+            dst.copyDataToRaster();
+        }
+    }
+
+    /**
+     * Returns the walk of the destination rectangle over the source data: the source data offset of the first destination pixel, the
+     * source data steps for a move along the destination x and y axes, and the source pixel indices of the first destination pixel.
+     */
+    private int[] walk(RasterAccessor src, RasterAccessor dst) {
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+        int sx0 = m00 * dst.getX() + m10 * dst.getY() + cx;
+        int sy0 = m01 * dst.getX() + m11 * dst.getY() + cy;
+        return new int[] {
+                (sy0 - src.getY()) * srcScanlineStride + (sx0 - src.getX()) * srcPixelStride,
+                m00 * srcPixelStride + m01 * srcScanlineStride,
+                m10 * srcPixelStride + m11 * srcScanlineStride, sx0, sy0 };
+    }
+
+    private void byteLoop(RasterAccessor src, RasterAccessor dst, ROITileMask mask) {
+        final int dwidth = dst.getWidth();
+        final int dheight = dst.getHeight();
+        final int numBands = dst.getNumBands();
+        final int dstPixelStride = dst.getPixelStride();
+        final int dstScanlineStride = dst.getScanlineStride();
+        final int[] dstBandOffsets = dst.getBandOffsets();
+        final int[] srcBandOffsets = src.getBandOffsets();
+        final byte[][] srcData = src.getByteDataArrays();
+        final byte[][] dstData = dst.getByteDataArrays();
+
+        final int[] walk = walk(src, dst);
+        final int stepX = walk[1];
+        final int stepY = walk[2];
+        final boolean hasNoData = noData != null;
+        final byte[] fill = new byte[numBands];
+        for (int b = 0; b < numBands; b++) {
+            fill[b] = (byte) ((int) fillValues[b] & 0xFF);
+        }
+
+        for (int by = 0; by < dheight; by += BLOCK_SIZE) {
+            final int byEnd = Math.min(by + BLOCK_SIZE, dheight);
+            for (int bx = 0; bx < dwidth; bx += BLOCK_SIZE) {
+                final int bxEnd = Math.min(bx + BLOCK_SIZE, dwidth);
+                for (int y = by; y < byEnd; y++) {
+                    int dstPixelOffset = y * dstScanlineStride + bx * dstPixelStride;
+                    int srcPixelOffset = walk[0] + y * stepY + bx * stepX;
+                    for (int x = bx; x < bxEnd; x++) {
+                        if (mask != null
+                                && !mask.contains(walk[3] + m00 * x + m10 * y, walk[4] + m01 * x
+                                        + m11 * y)) {
+                            for (int b = 0; b < numBands; b++) {
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = fill[b];
+                            }
+                        } else {
+                            for (int b = 0; b < numBands; b++) {
+                                byte value = srcData[b][srcPixelOffset + srcBandOffsets[b]];
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = hasNoData
+                                        && noData.contains(value) ? fill[b] : value;
+                            }
+                        }
+                        srcPixelOffset += stepX;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                }
+            }
+        }
+    }
+
+    private void shortLoop(RasterAccessor src, RasterAccessor dst, ROITileMask mask) {
+        final int dwidth = dst.getWidth();
+        final int dheight = dst.getHeight();
+        final int numBands = dst.getNumBands();
+        final int dstPixelStride = dst.getPixelStride();
+        final int dstScanlineStride = dst.getScanlineStride();
+        final int[] dstBandOffsets = dst.getBandOffsets();
+        final int[] srcBandOffsets = src.getBandOffsets();
+        final short[][] srcData = src.getShortDataArrays();
+        final short[][] dstData = dst.getShortDataArrays();
+
+        final int[] walk = walk(src, dst);
+        final int stepX = walk[1];
+        final int stepY = walk[2];
+        final boolean hasNoData = noData != null;
+        final short[] fill = new short[numBands];
+        for (int b = 0; b < numBands; b++) {
+            fill[b] = (short) (int) fillValues[b];
+        }
+
+        for (int by = 0; by < dheight; by += BLOCK_SIZE) {
+            final int byEnd = Math.min(by + BLOCK_SIZE, dheight);
+            for (int bx = 0; bx < dwidth; bx += BLOCK_SIZE) {
+                final int bxEnd = Math.min(bx + BLOCK_SIZE, dwidth);
+                for (int y = by; y < byEnd; y++) {
+                    int dstPixelOffset = y * dstScanlineStride + bx * dstPixelStride;
+                    int srcPixelOffset = walk[0] + y * stepY + bx * stepX;
+                    for (int x = bx; x < bxEnd; x++) {
+                        if (mask != null
+                                && !mask.contains(walk[3] + m00 * x + m10 * y, walk[4] + m01 * x
+                                        + m11 * y)) {
+                            for (int b = 0; b < numBands; b++) {
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = fill[b];
+                            }
+                        } else {
+                            for (int b = 0; b < numBands; b++) {
+                                short value = srcData[b][srcPixelOffset + srcBandOffsets[b]];
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = hasNoData
+                                        && noData.contains(value) ? fill[b] : value;
+                            }
+                        }
+                        srcPixelOffset += stepX;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                }
+            }
+        }
+    }
+
+    private void intLoop(RasterAccessor src, RasterAccessor dst, ROITileMask mask) {
+        final int dwidth = dst.getWidth();
+        final int dheight = dst.getHeight();
+        final int numBands = dst.getNumBands();
+        final int dstPixelStride = dst.getPixelStride();
+        final int dstScanlineStride = dst.getScanlineStride();
+        final int[] dstBandOffsets = dst.getBandOffsets();
+        final int[] srcBandOffsets = src.getBandOffsets();
+        final int[][] srcData = src.getIntDataArrays();
+        final int[][] dstData = dst.getIntDataArrays();
+
+        final int[] walk = walk(src, dst);
+        final int stepX = walk[1];
+        final int stepY = walk[2];
+        final boolean hasNoData = noData != null;
+        final int[] fill = new int[numBands];
+        for (int b = 0; b < numBands; b++) {
+            fill[b] = (int) fillValues[b];
+        }
+
+        for (int by = 0; by < dheight; by += BLOCK_SIZE) {
+            final int byEnd = Math.min(by + BLOCK_SIZE, dheight);
+            for (int bx = 0; bx < dwidth; bx += BLOCK_SIZE) {
+                final int bxEnd = Math.min(bx + BLOCK_SIZE, dwidth);
+                for (int y = by; y < byEnd; y++) {
+                    int dstPixelOffset = y * dstScanlineStride + bx * dstPixelStride;
+                    int srcPixelOffset = walk[0] + y * stepY + bx * stepX;
+                    for (int x = bx; x < bxEnd; x++) {
+                        if (mask != null
+                                && !mask.contains(walk[3] + m00 * x + m10 * y, walk[4] + m01 * x
+                                        + m11 * y)) {
+                            for (int b = 0; b < numBands; b++) {
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = fill[b];
+                            }
+                        } else {
+                            for (int b = 0; b < numBands; b++) {
+                                int value = srcData[b][srcPixelOffset + srcBandOffsets[b]];
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = hasNoData
+                                        && noData.contains(value) ? fill[b] : value;
+                            }
+                        }
+                        srcPixelOffset += stepX;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                }
+            }
+        }
+    }
+
+    private void floatLoop(RasterAccessor src, RasterAccessor dst, ROITileMask mask) {
+        final int dwidth = dst.getWidth();
+        final int dheight = dst.getHeight();
+        final int numBands = dst.getNumBands();
+        final int dstPixelStride = dst.getPixelStride();
+        final int dstScanlineStride = dst.getScanlineStride();
+        final int[] dstBandOffsets = dst.getBandOffsets();
+        final int[] srcBandOffsets = src.getBandOffsets();
+        final float[][] srcData = src.getFloatDataArrays();
+        final float[][] dstData = dst.getFloatDataArrays();
+
+        final int[] walk = walk(src, dst);
+        final int stepX = walk[1];
+        final int stepY = walk[2];
+        final boolean hasNoData = noData != null;
+        final float[] fill = new float[numBands];
+        for (int b = 0; b < numBands; b++) {
+            fill[b] = (float) fillValues[b];
+        }
+
+        for (int by = 0; by < dheight; by += BLOCK_SIZE) {
+            final int byEnd = Math.min(by + BLOCK_SIZE, dheight);
+            for (int bx = 0; bx < dwidth; bx += BLOCK_SIZE) {
+                final int bxEnd = Math.min(bx + BLOCK_SIZE, dwidth);
+                for (int y = by; y < byEnd; y++) {
+                    int dstPixelOffset = y * dstScanlineStride + bx * dstPixelStride;
+                    int srcPixelOffset = walk[0] + y * stepY + bx * stepX;
+                    for (int x = bx; x < bxEnd; x++) {
+                        if (mask != null
+                                && !mask.contains(walk[3] + m00 * x + m10 * y, walk[4] + m01 * x
+                                        + m11 * y)) {
+                            for (int b = 0; b < numBands; b++) {
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = fill[b];
+                            }
+                        } else {
+                            for (int b = 0; b < numBands; b++) {
+                                float value = srcData[b][srcPixelOffset + srcBandOffsets[b]];
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = hasNoData
+                                        && noData.contains(value) ? fill[b] : value;
+                            }
+                        }
+                        srcPixelOffset += stepX;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                }
+            }
+        }
+    }
+
+    private void doubleLoop(RasterAccessor src, RasterAccessor dst, ROITileMask mask) {
+        final int dwidth = dst.getWidth();
+        final int dheight = dst.getHeight();
+        final int numBands = dst.getNumBands();
+        final int dstPixelStride = dst.getPixelStride();
+        final int dstScanlineStride = dst.getScanlineStride();
+        final int[] dstBandOffsets = dst.getBandOffsets();
+        final int[] srcBandOffsets = src.getBandOffsets();
+        final double[][] srcData = src.getDoubleDataArrays();
+        final double[][] dstData = dst.getDoubleDataArrays();
+
+        final int[] walk = walk(src, dst);
+        final int stepX = walk[1];
+        final int stepY = walk[2];
+        final boolean hasNoData = noData != null;
+        final double[] fill = fillValues;
+
+        for (int by = 0; by < dheight; by += BLOCK_SIZE) {
+            final int byEnd = Math.min(by + BLOCK_SIZE, dheight);
+            for (int bx = 0; bx < dwidth; bx += BLOCK_SIZE) {
+                final int bxEnd = Math.min(bx + BLOCK_SIZE, dwidth);
+                for (int y = by; y < byEnd; y++) {
+                    int dstPixelOffset = y * dstScanlineStride + bx * dstPixelStride;
+                    int srcPixelOffset = walk[0] + y * stepY + bx * stepX;
+                    for (int x = bx; x < bxEnd; x++) {
+                        if (mask != null
+                                && !mask.contains(walk[3] + m00 * x + m10 * y, walk[4] + m01 * x
+                                        + m11 * y)) {
+                            for (int b = 0; b < numBands; b++) {
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = fill[b];
+                            }
+                        } else {
+                            for (int b = 0; b < numBands; b++) {
+                                double value = srcData[b][srcPixelOffset + srcBandOffsets[b]];
+                                dstData[b][dstPixelOffset + dstBandOffsets[b]] = hasNoData
+                                        && noData.contains(value) ? fill[b] : value;
+                            }
+                        }
+                        srcPixelOffset += stepX;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                }
+            }
+        }
+    }
+}
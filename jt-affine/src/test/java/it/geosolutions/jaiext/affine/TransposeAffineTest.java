@@ -0,0 +1,126 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+package it.geosolutions.jaiext.affine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.range.RangeFactory;
+import it.geosolutions.jaiext.testclasses.TestBase;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+
+import javax.media.jai.InterpolationNearest;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.ROI;
+import javax.media.jai.ROIShape;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.RenderedOp;
+import javax.media.jai.TiledImage;
+
+import org.junit.Test;
+
+/**
+ * This test-class checks that the affine transforms mapping pixels onto pixels (90 degrees rotations, flips and integer translations)
+ * are executed by the {@link AffineTransposeOpImage} and that each destination pixel takes the value of the source pixel containing
+ * its center, with ROI and NoData handled like the other nearest-neighbour affine operations.
+ */
+public class TransposeAffineTest extends TestBase {
+
+    private static final byte NODATA = 50;
+
+    private static final double BACKGROUND = 11;
+
+    @Test
+    public void testRightAngleTransforms() {
+        TiledImage source = createSource();
+        ROI roi = new ROIShape(new Rectangle(source.getMinX() + 4, source.getMinY() + 6, 30, 25));
+        Range noData = RangeFactory.create(NODATA, true, NODATA, true);
+
+        for (int quadrants = 0; quadrants < 4; quadrants++) {
+            for (int flip = 0; flip < 2; flip++) {
+                AffineTransform transform = AffineTransform.getTranslateInstance(-3, 8);
+                transform.quadrantRotate(quadrants);
+                if (flip == 1) {
+                    transform.scale(-1, 1);
+                }
+                checkTranspose(source, transform, roi, noData, true);
+                checkTranspose(source, transform, null, noData, false);
+            }
+        }
+    }
+
+    private void checkTranspose(RenderedImage source, AffineTransform transform, ROI roi,
+            Range noData, boolean setDestinationNoData) {
+        assertTrue(AffineTransposeOpImage.isTranspose(transform));
+        RenderedOp affine = AffineDescriptor.create(source, transform, new InterpolationNearest(),
+                new double[] { BACKGROUND }, roi, false, setDestinationNoData, noData, null);
+        assertTrue(affine.getRendering() instanceof AffineTransposeOpImage);
+
+        Rectangle expectedBounds = transform.createTransformedShape(
+                new Rectangle(source.getMinX(), source.getMinY(), source.getWidth(),
+                        source.getHeight())).getBounds();
+        assertEquals(expectedBounds, affine.getBounds());
+
+        double fill = setDestinationNoData ? BACKGROUND : 0;
+        Raster result = affine.getData();
+        Raster input = source.getData();
+        Point2D point = new Point2D.Double();
+        try {
+            for (int y = affine.getMinY(); y < affine.getMinY() + affine.getHeight(); y++) {
+                for (int x = affine.getMinX(); x < affine.getMinX() + affine.getWidth(); x++) {
+                    point.setLocation(x + 0.5, y + 0.5);
+                    transform.inverseTransform(point, point);
+                    int sx = (int) Math.floor(point.getX());
+                    int sy = (int) Math.floor(point.getY());
+                    for (int b = 0; b < source.getSampleModel().getNumBands(); b++) {
+                        int value = input.getSample(sx, sy, b);
+                        double expected = (roi != null && !roi.contains(sx, sy))
+                                || value == NODATA ? fill : value;
+                        assertEquals(expected, result.getSample(x, y, b), 0);
+                    }
+                }
+            }
+        } catch (NoninvertibleTransformException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /** Creates a tiled two bands byte image whose origin is not on the tile grid */
+    private TiledImage createSource() {
+        int width = 53;
+        int height = 41;
+        SampleModel sm = RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_BYTE,
+                16, 16, 2);
+        TiledImage image = new TiledImage(5, -7, width, height, 3, 2, sm,
+                PlanarImage.createColorModel(sm));
+        for (int y = image.getMinY(); y < image.getMinY() + height; y++) {
+            for (int x = image.getMinX(); x < image.getMinX() + width; x++) {
+                image.setSample(x, y, 0, (x * 7 + y * 13) & 0xFF);
+                image.setSample(x, y, 1, (x * 3 - y * 5) & 0xFF);
+            }
+        }
+        return image;
+    }
+}
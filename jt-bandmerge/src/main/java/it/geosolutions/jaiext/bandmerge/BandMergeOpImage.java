@@ -20,13 +20,21 @@ package it.geosolutions.jaiext.bandmerge;
 import com.sun.media.imageioimpl.common.BogusColorSpace;
 import it.geosolutions.jaiext.range.Range;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Transparency;
 import java.awt.color.ColorSpace;
+import java.awt.image.BandedSampleModel;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.ComponentSampleModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
 import java.awt.image.IndexColorModel;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
@@ -62,6 +70,13 @@ import com.sun.media.jai.util.JDKWorkarounds;
  * 
  * If No Data are present, they can be handled if the user provides an array of No Data Range objects and a double value for the destination No Data.
  * 
+ * <p>
+ * If the destination layout defines a {@link BandedSampleModel} with a bank per band and the sources are single banded images with the same data
+ * type and tile grid, and neither ROI nor No Data are used, the destination tiles are assembled by referencing the source data banks, without
+ * copying any sample. Such tiles share their data with the source tiles: they are returned as read-only {@link Raster}s and must not be written,
+ * even through their {@link DataBuffer}. They also keep the source data buffers reachable, so that the arrays are not reused by a recycling tile
+ * factory while the merged tile is alive.
+ * 
  */
 public class BandMergeOpImage extends PointOpImage {
 
@@ -105,6 +120,9 @@ public class BandMergeOpImage extends PointOpImage {
 
     private ROI roi;
 
+    /** Boolean indicating if the destination tiles can reference the source data banks */
+    private final boolean shareSourceBanks;
+
     /**
      * Constructs a <code>BandMergeOpImage</code>.
      * 
@@ -212,6 +230,185 @@ public class BandMergeOpImage extends PointOpImage {
         caseA = !hasROI && !hasNoData;
         caseB = hasROI && !hasNoData;
         caseC = !hasROI && hasNoData;
+
+        shareSourceBanks = caseA && canShareSourceBanks(sources);
+    }
+
+    /**
+     * Checks if the destination tiles can be assembled from the source data banks: the destination must use a {@link BandedSampleModel} with a
+     * bank per band and no band offset, while the sources must be single banded, with the destination data type and tile grid.
+     */
+    private boolean canShareSourceBanks(List sources) {
+        SampleModel sm = getSampleModel();
+        if (!(sm instanceof BandedSampleModel)) {
+            return false;
+        }
+        int[] bankIndices = ((BandedSampleModel) sm).getBankIndices();
+        int[] bandOffsets = ((BandedSampleModel) sm).getBandOffsets();
+        for (int b = 0; b < bankIndices.length; b++) {
+            if (bankIndices[b] != b || bandOffsets[b] != 0) {
+                return false;
+            }
+        }
+        if (sources.size() != sm.getNumBands()) {
+            return false;
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            RenderedImage source = (RenderedImage) sources.get(i);
+            SampleModel srcSM = source.getSampleModel();
+            if (colorModels[i] instanceof IndexColorModel
+                    || !(srcSM instanceof ComponentSampleModel) || srcSM.getNumBands() != 1
+                    || srcSM.getDataType() != sm.getDataType()
+                    || source.getTileGridXOffset() != getTileGridXOffset()
+                    || source.getTileGridYOffset() != getTileGridYOffset()
+                    || source.getTileWidth() != getTileWidth()
+                    || source.getTileHeight() != getTileHeight()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the tile, referencing the source data banks when possible.
+     */
+    @Override
+    public Raster computeTile(int tileX, int tileY) {
+        if (shareSourceBanks) {
+            Raster tile = mergeSourceBanks(tileX, tileY);
+            if (tile != null) {
+                return tile;
+            }
+        }
+        return super.computeTile(tileX, tileY);
+    }
+
+    /**
+     * Creates a read-only destination tile whose banks are the data banks of the source tiles. Returns <code>null</code> if the source tiles are
+     * not laid out as required (e.g. child rasters with a different scanline stride) and the data must be copied.
+     */
+    private Raster mergeSourceBanks(int tileX, int tileY) {
+        SampleModel sm = getSampleModel();
+        int numSources = getNumSources();
+        int minX = tileXToX(tileX);
+        int minY = tileYToY(tileY);
+        int scanlineStride = ((BandedSampleModel) sm).getScanlineStride();
+        // Number of elements of each bank covered by the tile
+        int size = scanlineStride * (sm.getHeight() - 1) + sm.getWidth();
+
+        DataBuffer[] buffers = new DataBuffer[numSources];
+        Object[] banks = new Object[numSources];
+        int[] offsets = new int[numSources];
+        for (int i = 0; i < numSources; i++) {
+            Raster tile = getSourceImage(i).getTile(tileX, tileY);
+            if (tile == null || tile.getMinX() != minX || tile.getMinY() != minY
+                    || !(tile.getSampleModel() instanceof ComponentSampleModel)) {
+                return null;
+            }
+            ComponentSampleModel csm = (ComponentSampleModel) tile.getSampleModel();
+            if (csm.getPixelStride() != 1 || csm.getScanlineStride() != scanlineStride) {
+                return null;
+            }
+            buffers[i] = tile.getDataBuffer();
+            int bank = csm.getBankIndices()[0];
+            banks[i] = getBank(buffers[i], bank);
+            int bankOffset = buffers[i].getOffsets()[bank];
+            offsets[i] = bankOffset
+                    + csm.getOffset(minX - tile.getSampleModelTranslateX(),
+                            minY - tile.getSampleModelTranslateY(), 0);
+            // The tile must lie inside the usable part of the bank
+            if (banks[i] == null || buffers[i].getDataType() != sm.getDataType()
+                    || offsets[i] < bankOffset
+                    || offsets[i] + size > bankOffset + buffers[i].getSize()) {
+                return null;
+            }
+        }
+
+        // All the banks have been checked, the merged buffer can be created
+        DataBuffer merged;
+        switch (sm.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            byte[][] byteBanks = new byte[numSources][];
+            for (int i = 0; i < numSources; i++) {
+                byteBanks[i] = (byte[]) banks[i];
+            }
+            merged = new DataBufferByte(byteBanks, size, offsets);
+            break;
+        case DataBuffer.TYPE_USHORT:
+            short[][] ushortBanks = new short[numSources][];
+            for (int i = 0; i < numSources; i++) {
+                ushortBanks[i] = (short[]) banks[i];
+            }
+            merged = new DataBufferUShort(ushortBanks, size, offsets);
+            break;
+        case DataBuffer.TYPE_SHORT:
+            short[][] shortBanks = new short[numSources][];
+            for (int i = 0; i < numSources; i++) {
+                shortBanks[i] = (short[]) banks[i];
+            }
+            merged = new DataBufferShort(shortBanks, size, offsets);
+            break;
+        case DataBuffer.TYPE_INT:
+            int[][] intBanks = new int[numSources][];
+            for (int i = 0; i < numSources; i++) {
+                intBanks[i] = (int[]) banks[i];
+            }
+            merged = new DataBufferInt(intBanks, size, offsets);
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            float[][] floatBanks = new float[numSources][];
+            for (int i = 0; i < numSources; i++) {
+                floatBanks[i] = (float[]) banks[i];
+            }
+            merged = new DataBufferFloat(floatBanks, size, offsets);
+            break;
+        case DataBuffer.TYPE_DOUBLE:
+            double[][] doubleBanks = new double[numSources][];
+            for (int i = 0; i < numSources; i++) {
+                doubleBanks[i] = (double[]) banks[i];
+            }
+            merged = new DataBufferDouble(doubleBanks, size, offsets);
+            break;
+        default:
+            return null;
+        }
+        return new SharedBanksRaster(sm, merged, new Point(minX, minY), buffers);
+    }
+
+    /**
+     * Returns the array of the given bank of a standard {@link DataBuffer}, or <code>null</code> for other implementations.
+     */
+    private static Object getBank(DataBuffer buffer, int bank) {
+        if (buffer instanceof DataBufferByte) {
+            return ((DataBufferByte) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferUShort) {
+            return ((DataBufferUShort) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferShort) {
+            return ((DataBufferShort) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferInt) {
+            return ((DataBufferInt) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferFloat) {
+            return ((DataBufferFloat) buffer).getData(bank);
+        } else if (buffer instanceof DataBufferDouble) {
+            return ((DataBufferDouble) buffer).getData(bank);
+        }
+        return null;
+    }
+
+    /**
+     * Read-only {@link Raster} referencing the data banks of the source tiles. The source data buffers are referenced as well, so that they stay
+     * reachable, and their arrays are not recycled, as long as this raster or any child of it is in use.
+     */
+    private static final class SharedBanksRaster extends Raster {
+
+        /** Data buffers of the source tiles owning the shared banks */
+        private final DataBuffer[] sourceBuffers;
+
+        SharedBanksRaster(SampleModel sampleModel, DataBuffer dataBuffer, Point origin,
+                DataBuffer[] sourceBuffers) {
+            super(sampleModel, dataBuffer, origin);
+            this.sourceBuffers = sourceBuffers;
+        }
     }
 
     /**
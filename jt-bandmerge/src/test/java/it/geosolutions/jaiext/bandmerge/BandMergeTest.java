@@ -41,16 +41,21 @@ import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BandedSampleModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -831,6 +836,59 @@ public class BandMergeTest extends TestBase {
         }
     }
 
+    @Test
+    public void testZeroCopyBandMerge() {
+        // single banded sources sharing the same tile grid
+        TiledImage[] sources = new TiledImage[3];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = (TiledImage) createTestImage(DataBuffer.TYPE_BYTE, IMAGE_WIDTH,
+                    IMAGE_HEIGHT, (byte) 50, false, 1, (byte) (10 * (i + 1)));
+        }
+        int tileWidth = sources[0].getTileWidth();
+        int tileHeight = sources[0].getTileHeight();
+
+        // banded destination layout, one bank per band
+        ImageLayout layout = new ImageLayout();
+        layout.setTileGridXOffset(sources[0].getTileGridXOffset());
+        layout.setTileGridYOffset(sources[0].getTileGridYOffset());
+        layout.setTileWidth(tileWidth);
+        layout.setTileHeight(tileHeight);
+        layout.setSampleModel(new BandedSampleModel(DataBuffer.TYPE_BYTE, tileWidth, tileHeight,
+                sources.length));
+        RenderingHints hints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT, layout);
+
+        RenderedOp merged = BandMergeDescriptor.create(null, 0d, false, hints, sources);
+        try {
+            Raster tile = merged.getTile(1, 1);
+            // the merged tile references the source banks and is read-only
+            assertFalse(tile instanceof WritableRaster);
+            assertTrue(tile.getDataBuffer() instanceof DataBufferByte);
+            DataBufferByte mergedData = (DataBufferByte) tile.getDataBuffer();
+            int[][] expected = new int[sources.length][];
+            for (int b = 0; b < sources.length; b++) {
+                Raster sourceTile = sources[b].getTile(1, 1);
+                assertSame(((DataBufferByte) sourceTile.getDataBuffer()).getData(),
+                        mergedData.getData(b));
+                expected[b] = sourceTile.getSamples(tile.getMinX(), tile.getMinY(),
+                        tile.getWidth(), tile.getHeight(), 0, (int[]) null);
+                assertArrayEquals(expected[b], tile.getSamples(tile.getMinX(), tile.getMinY(),
+                        tile.getWidth(), tile.getHeight(), b, (int[]) null));
+            }
+
+            // evicting the cached tiles does not change the merged tile
+            JAI.getDefaultInstance().getTileCache().flush();
+            for (int b = 0; b < sources.length; b++) {
+                assertArrayEquals(expected[b], tile.getSamples(tile.getMinX(), tile.getMinY(),
+                        tile.getWidth(), tile.getHeight(), b, (int[]) null));
+            }
+        } finally {
+            merged.dispose();
+            for (int i = 0; i < sources.length; i++) {
+                sources[i].dispose();
+            }
+        }
+    }
+
     @Test
     public void testExtendedWithIdentityTransform() {
         assertBandMergeImplementation(AffineTransform.getScaleInstance(1 + 1e-12, 1 + 1e-12), BandMergeOpImage.class);
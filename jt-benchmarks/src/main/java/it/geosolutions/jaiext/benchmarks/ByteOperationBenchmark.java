@@ -0,0 +1,104 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.jaiext.colorconvert.ColorConvertDescriptor;
+import it.geosolutions.jaiext.colorindexer.ColorIndexer;
+import it.geosolutions.jaiext.colorindexer.ColorIndexerDescriptor;
+import it.geosolutions.jaiext.colorindexer.Quantizer;
+import it.geosolutions.jaiext.contrastenhancement.SquareRootStretchDescriptor;
+import it.geosolutions.jaiext.errordiffusion.ErrorDiffusionDescriptor;
+import it.geosolutions.jaiext.lookup.LookupDescriptor;
+import it.geosolutions.jaiext.lookup.LookupTableFactory;
+import it.geosolutions.jaiext.orderdither.OrderedDitherDescriptor;
+import it.geosolutions.jaiext.range.Range;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+
+import javax.media.jai.ColorCube;
+import javax.media.jai.KernelJAI;
+import javax.media.jai.ROI;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Tile computation benchmark of the JAI-EXT operations working on byte images, on three band sources.
+ */
+@State(Scope.Thread)
+public class ByteOperationBenchmark extends TileBenchmark {
+
+    @Param({ "ColorConvert", "ColorIndexer", "ErrorDiffusion", "Lookup", "OrderedDither",
+            "SquareRootStretch" })
+    public String operation;
+
+    @Setup
+    public void setup() {
+        setImage(createOperation(createSource(DataBuffer.TYPE_BYTE, 3)));
+    }
+
+    @Benchmark
+    public Raster computeTile() {
+        return computeNextTile();
+    }
+
+    private RenderedImage createOperation(RenderedImage source) {
+        Range nodata = getNoData(DataBuffer.TYPE_BYTE);
+        ROI roi = getROI();
+        double[] background = new double[] { DEST_NO_DATA, DEST_NO_DATA, DEST_NO_DATA };
+
+        if ("ColorConvert".equals(operation)) {
+            ComponentColorModel linearRGB = new ComponentColorModel(
+                    ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB), false, false,
+                    Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+            return ColorConvertDescriptor.create(source, linearRGB, roi, nodata, background, null);
+        } else if ("ColorIndexer".equals(operation)) {
+            ColorIndexer indexer = new Quantizer(256).subsample().buildColorIndexer(source);
+            return ColorIndexerDescriptor.create(source, indexer, roi, nodata, (int) DEST_NO_DATA,
+                    null);
+        } else if ("ErrorDiffusion".equals(operation)) {
+            return ErrorDiffusionDescriptor.create(source, ColorCube.BYTE_496,
+                    KernelJAI.ERROR_FILTER_FLOYD_STEINBERG, roi, nodata,
+                    new double[] { DEST_NO_DATA }, null);
+        } else if ("Lookup".equals(operation)) {
+            // negative of the source
+            byte[] data = new byte[256];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (255 - i);
+            }
+            return LookupDescriptor.create(source, LookupTableFactory.create(data), DEST_NO_DATA,
+                    roi, nodata, false, null);
+        } else if ("OrderedDither".equals(operation)) {
+            return OrderedDitherDescriptor.create(source, ColorCube.BYTE_496,
+                    KernelJAI.DITHER_MASK_443, null, roi, nodata, DEST_NO_DATA);
+        } else if ("SquareRootStretch".equals(operation)) {
+            int[] zero = new int[] { 0, 0, 0 };
+            int[] max = new int[] { 255, 255, 255 };
+            return SquareRootStretchDescriptor.create(source, zero, max, zero, max, null);
+        }
+        throw new IllegalArgumentException("Unknown operation: " + operation);
+    }
+}
@@ -0,0 +1,86 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.jaiext.convolve.ConvolveDescriptor;
+
+import java.awt.image.Raster;
+
+import javax.media.jai.KernelJAI;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the separable and the general convolution of large Gaussian kernels. The general path is forced by building the kernel from its
+ * full matrix, which {@link KernelJAI} does not report as separable.
+ */
+@State(Scope.Thread)
+public class ConvolveBenchmark extends TileBenchmark {
+
+    @Param({ "15", "31" })
+    public int kernelSize;
+
+    @Param({ "separable", "general" })
+    public String kernel;
+
+    @Param({ "BYTE", "USHORT", "SHORT", "INT", "FLOAT", "DOUBLE" })
+    public String dataType;
+
+    @Setup
+    public void setup() {
+        int type = getDataType(dataType);
+        KernelJAI gaussian = createGaussian(kernelSize, "separable".equals(kernel));
+        setImage(ConvolveDescriptor.create(createSource(type, 1), gaussian, getROI(),
+                getNoData(type), DEST_NO_DATA, false, null));
+    }
+
+    @Benchmark
+    public Raster computeTile() {
+        return computeNextTile();
+    }
+
+    /** Creates a normalized Gaussian kernel, with sigma a third of its radius */
+    private static KernelJAI createGaussian(int size, boolean separable) {
+        int radius = size / 2;
+        float sigma = radius / 3f;
+        float[] data = new float[size];
+        float sum = 0;
+        for (int i = 0; i < size; i++) {
+            float d = i - radius;
+            data[i] = (float) Math.exp(-d * d / (2 * sigma * sigma));
+            sum += data[i];
+        }
+        for (int i = 0; i < size; i++) {
+            data[i] /= sum;
+        }
+        if (separable) {
+            return new KernelJAI(size, size, radius, radius, data, data);
+        }
+        float[] matrix = new float[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                matrix[y * size + x] = data[y] * data[x];
+            }
+        }
+        return new KernelJAI(size, size, radius, radius, matrix);
+    }
+}
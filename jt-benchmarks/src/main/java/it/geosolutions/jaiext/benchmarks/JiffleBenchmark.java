@@ -0,0 +1,101 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.jaiext.jiffle.Jiffle;
+import it.geosolutions.jaiext.jiffle.JiffleException;
+import it.geosolutions.jaiext.jiffle.runtime.AbstractDirectRuntime;
+import it.geosolutions.jaiext.testclasses.TestBase;
+import it.geosolutions.jaiext.utilities.ImageUtilities;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.media.jai.TiledImage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Evaluates a Jiffle script reading three source images, with the image handles bound to fields of the generated runtime or looked up by name
+ * for each sample (see {@link NamedImageRuntime}), serially or in parallel row bands.
+ */
+@State(Scope.Thread)
+public class JiffleBenchmark {
+
+    private static final String SCRIPT = "dest = con(a > b, a - c, b + c * 0.5);";
+
+    private static final String[] SOURCES = new String[] { "a", "b", "c" };
+
+    /** Width and height of the images */
+    @Param({ "1024" })
+    public int size;
+
+    /** Whether the images are bound to fields or looked up by name */
+    @Param({ "field", "name" })
+    public String binding;
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    private AbstractDirectRuntime runtime;
+
+    @Setup
+    public void setup() throws JiffleException {
+        Map<String, Jiffle.ImageRole> params = new HashMap<String, Jiffle.ImageRole>();
+        for (String source : SOURCES) {
+            params.put(source, Jiffle.ImageRole.SOURCE);
+        }
+        params.put("dest", Jiffle.ImageRole.DEST);
+        Jiffle jiffle = new Jiffle(SCRIPT, params);
+
+        if ("name".equals(binding)) {
+            runtime = jiffle.getRuntimeInstance(NamedImageRuntime.class);
+        } else {
+            runtime = (AbstractDirectRuntime) jiffle.getRuntimeInstance();
+        }
+
+        TestBase.IMAGE_FILLER = true;
+        try {
+            for (int i = 0; i < SOURCES.length; i++) {
+                RenderedImage source = TestBase.createTestImage(DataBuffer.TYPE_FLOAT, size,
+                        size, null, false, 1, Float.valueOf(i * 10));
+                runtime.setSourceImage(SOURCES[i], source);
+            }
+        } finally {
+            TestBase.IMAGE_FILLER = false;
+        }
+        TiledImage dest = ImageUtilities.createConstantImage(size, size, 0d);
+        runtime.setDestinationImage("dest", dest);
+    }
+
+    @Benchmark
+    public AbstractDirectRuntime evaluate() {
+        if (parallel) {
+            runtime.evaluateAll(null, null);
+        } else {
+            runtime.evaluateAll(null);
+        }
+        return runtime;
+    }
+}
@@ -0,0 +1,41 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.jaiext.jiffle.runtime.AbstractDirectRuntime;
+
+/**
+ * A direct runtime base class overriding the image access methods, so that the generated runtimes look up the images by name for each sample
+ * instead of binding them to fields. Used by {@link JiffleBenchmark} as the baseline.
+ */
+public abstract class NamedImageRuntime extends AbstractDirectRuntime {
+
+    public NamedImageRuntime(String[] variableNames) {
+        super(variableNames);
+    }
+
+    @Override
+    public double readFromImage(String srcImageName, double x, double y, int band) {
+        return super.readFromImage(srcImageName, x, y, band);
+    }
+
+    @Override
+    public void writeToImage(String destImageName, double x, double y, int band, double value) {
+        super.writeToImage(destImageName, x, y, band, value);
+    }
+}
@@ -0,0 +1,215 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.jaiext.affine.AffineDescriptor;
+import it.geosolutions.jaiext.algebra.AlgebraDescriptor;
+import it.geosolutions.jaiext.algebra.AlgebraDescriptor.Operator;
+import it.geosolutions.jaiext.algebra.constant.OperationConstDescriptor;
+import it.geosolutions.jaiext.artifacts.ArtifactsFilterDescriptor;
+import it.geosolutions.jaiext.bandcombine.BandCombineDescriptor;
+import it.geosolutions.jaiext.bandmerge.BandMergeDescriptor;
+import it.geosolutions.jaiext.bandselect.BandSelectDescriptor;
+import it.geosolutions.jaiext.binarize.BinarizeDescriptor;
+import it.geosolutions.jaiext.border.BorderDescriptor;
+import it.geosolutions.jaiext.clamp.ClampDescriptor;
+import it.geosolutions.jaiext.convolve.ConvolveDescriptor;
+import it.geosolutions.jaiext.crop.CropDescriptor;
+import it.geosolutions.jaiext.format.FormatDescriptor;
+import it.geosolutions.jaiext.interpolators.InterpolationBilinear;
+import it.geosolutions.jaiext.interpolators.InterpolationNearest;
+import it.geosolutions.jaiext.mosaic.MosaicDescriptor;
+import it.geosolutions.jaiext.nullop.NullDescriptor;
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.range.RangeFactory;
+import it.geosolutions.jaiext.rescale.RescaleDescriptor;
+import it.geosolutions.jaiext.rlookup.RangeLookupDescriptor;
+import it.geosolutions.jaiext.rlookup.RangeLookupTable;
+import it.geosolutions.jaiext.scale.Scale2Descriptor;
+import it.geosolutions.jaiext.scale.ScaleDescriptor;
+import it.geosolutions.jaiext.shadedrelief.ShadedReliefAlgorithm;
+import it.geosolutions.jaiext.shadedrelief.ShadedReliefDescriptor;
+import it.geosolutions.jaiext.testclasses.TestBase;
+import it.geosolutions.jaiext.threshold.ThresholdDescriptor;
+import it.geosolutions.jaiext.translate.TranslateDescriptor;
+import it.geosolutions.jaiext.warp.WarpDescriptor;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.Arrays;
+
+import javax.media.jai.BorderExtender;
+import javax.media.jai.Interpolation;
+import javax.media.jai.KernelJAI;
+import javax.media.jai.ROI;
+import javax.media.jai.ROIShape;
+import javax.media.jai.WarpAffine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Tile computation benchmark of the JAI-EXT operations supporting all the data types, on single band sources.
+ */
+@State(Scope.Thread)
+public class OperationBenchmark extends TileBenchmark {
+
+    @Param({ "Affine", "Algebra", "ArtifactsFilter", "BandCombine", "BandMerge", "BandSelect",
+            "Binarize", "Border", "Clamp", "Convolve", "Crop", "Format", "Mosaic", "Null",
+            "OperationConst", "RLookup", "Rescale", "Scale", "Scale2", "ShadedRelief", "Threshold",
+            "Translate", "Warp" })
+    public String operation;
+
+    @Param({ "BYTE", "USHORT", "SHORT", "INT", "FLOAT", "DOUBLE" })
+    public String dataType;
+
+    @Setup
+    public void setup() {
+        int type = getDataType(dataType);
+        setImage(createOperation(createSource(type, 1), type));
+    }
+
+    @Benchmark
+    public Raster computeTile() {
+        return computeNextTile();
+    }
+
+    private RenderedImage createOperation(RenderedImage source, int type) {
+        Range nodata = getNoData(type);
+        ROI roi = getROI();
+        double[] background = new double[] { DEST_NO_DATA };
+        float size = source.getWidth();
+        // 30 degrees rotation around the image center
+        AffineTransform rotation = AffineTransform.getRotateInstance(Math.PI / 6, size / 2,
+                size / 2);
+
+        if ("Affine".equals(operation)) {
+            return AffineDescriptor.create(source, rotation, createBilinear(nodata, type),
+                    background, roi, false, nodata != null, nodata, null);
+        } else if ("Algebra".equals(operation)) {
+            return AlgebraDescriptor.create(Operator.SUM, roi, nodata, DEST_NO_DATA, null, source,
+                    source);
+        } else if ("ArtifactsFilter".equals(operation)) {
+            // the operation always needs a ROI
+            ROI filterROI = roi != null ? roi : new ROIShape(new Rectangle(0, 0, (int) size,
+                    (int) size));
+            return ArtifactsFilterDescriptor.create(source, filterROI, background, nodata, null);
+        } else if ("BandCombine".equals(operation)) {
+            return BandCombineDescriptor.create(source, new double[][] { { 2, 1 } }, roi, nodata,
+                    DEST_NO_DATA, null);
+        } else if ("BandMerge".equals(operation)) {
+            Range[] nodatas = nodata != null ? new Range[] { nodata, nodata } : null;
+            return BandMergeDescriptor.create(nodatas, DEST_NO_DATA, false, null, null, roi,
+                    source, source);
+        } else if ("BandSelect".equals(operation)) {
+            return BandSelectDescriptor.create(BandMergeDescriptor.create(null, DEST_NO_DATA,
+                    false, null, source, source), new int[] { 1 }, null);
+        } else if ("Binarize".equals(operation)) {
+            return BinarizeDescriptor.create(source, NO_DATA / 2, roi, nodata, null);
+        } else if ("Border".equals(operation)) {
+            return BorderDescriptor.create(source, 10, 10, 10, 10,
+                    BorderExtender.createInstance(BorderExtender.BORDER_COPY), nodata,
+                    DEST_NO_DATA, null);
+        } else if ("Clamp".equals(operation)) {
+            return ClampDescriptor.create(nodata, DEST_NO_DATA, roi, new double[] { 10 },
+                    new double[] { 1000 }, null, source);
+        } else if ("Convolve".equals(operation)) {
+            return ConvolveDescriptor.create(source, new KernelJAI(5, 5, createBox(5)), roi,
+                    nodata, DEST_NO_DATA, false, null);
+        } else if ("Crop".equals(operation)) {
+            return CropDescriptor.create(source, size / 4, size / 4, size / 2, size / 2, roi,
+                    nodata, background, null);
+        } else if ("Format".equals(operation)) {
+            int destType = type == DataBuffer.TYPE_DOUBLE ? DataBuffer.TYPE_FLOAT
+                    : DataBuffer.TYPE_DOUBLE;
+            return FormatDescriptor.create(source, destType, null);
+        } else if ("Mosaic".equals(operation)) {
+            // overlay the source with a copy shifted by half its size
+            RenderedImage shifted = TranslateDescriptor.create(source, size / 2, size / 2,
+                    createNearest(null, type), null);
+            ROI[] rois = roi != null ? new ROI[] { roi,
+                    roi.transform(AffineTransform.getTranslateInstance(size / 2, size / 2)) }
+                    : null;
+            Range[] nodatas = nodata != null ? new Range[] { nodata, nodata } : null;
+            return MosaicDescriptor.create(new RenderedImage[] { source, shifted },
+                    javax.media.jai.operator.MosaicDescriptor.MOSAIC_TYPE_OVERLAY, null, rois,
+                    null, background, nodatas, null);
+        } else if ("Null".equals(operation)) {
+            return NullDescriptor.create(source, null);
+        } else if ("OperationConst".equals(operation)) {
+            return OperationConstDescriptor.create(source, new double[] { 2 }, Operator.MULTIPLY,
+                    roi, nodata, DEST_NO_DATA, null);
+        } else if ("RLookup".equals(operation)) {
+            return RangeLookupDescriptor.create(source, createRangeTable(), 0, roi, null);
+        } else if ("Rescale".equals(operation)) {
+            return RescaleDescriptor.create(source, new double[] { 2 }, new double[] { 1 }, roi,
+                    nodata, false, DEST_NO_DATA, null);
+        } else if ("Scale".equals(operation)) {
+            return ScaleDescriptor.create(source, 1.5f, 1.5f, 0f, 0f,
+                    createBilinear(nodata, type), roi, false, nodata, background, null);
+        } else if ("Scale2".equals(operation)) {
+            return Scale2Descriptor.create(source, 1.5d, 1.5d, 0d, 0d,
+                    createBilinear(nodata, type), roi, false, nodata, background, null);
+        } else if ("ShadedRelief".equals(operation)) {
+            return ShadedReliefDescriptor.create(source, roi, nodata, DEST_NO_DATA, 1, 1, 1, 1,
+                    45, 315, ShadedReliefAlgorithm.ZEVENBERGEN_THORNE, null);
+        } else if ("Threshold".equals(operation)) {
+            return ThresholdDescriptor.create(nodata, DEST_NO_DATA, roi, new double[] { 10 },
+                    new double[] { 1000 }, new double[] { 1 }, null, source);
+        } else if ("Translate".equals(operation)) {
+            return TranslateDescriptor.create(source, 10f, 10f, createNearest(nodata, type), null);
+        } else if ("Warp".equals(operation)) {
+            WarpAffine warp = new WarpAffine(rotation);
+            return WarpDescriptor.create(source, warp, createBilinear(nodata, type), background,
+                    roi, nodata, null);
+        }
+        throw new IllegalArgumentException("Unknown operation: " + operation);
+    }
+
+    private static Interpolation createNearest(Range nodata, int type) {
+        return new InterpolationNearest(nodata, false, DEST_NO_DATA, type);
+    }
+
+    private static Interpolation createBilinear(Range nodata, int type) {
+        return new InterpolationBilinear(TestBase.DEFAULT_SUBSAMPLE_BITS, nodata, false,
+                DEST_NO_DATA, type);
+    }
+
+    /** Returns the data of a normalized box kernel of the given size */
+    private static float[] createBox(int kernelSize) {
+        float[] data = new float[kernelSize * kernelSize];
+        Arrays.fill(data, 1f / data.length);
+        return data;
+    }
+
+    /** Table classifying the source values in four classes */
+    private static RangeLookupTable<Double, Integer> createRangeTable() {
+        RangeLookupTable.Builder<Double, Integer> builder = new RangeLookupTable.Builder<Double, Integer>();
+        builder.add(RangeFactory.create(Double.NEGATIVE_INFINITY, false, 0d, false), 1);
+        builder.add(RangeFactory.create(0d, true, 50d, false), 2);
+        builder.add(RangeFactory.create(50d, true, 150d, false), 3);
+        builder.add(RangeFactory.create(150d, true, Double.POSITIVE_INFINITY, false), 4);
+        return builder.build();
+    }
+}
@@ -0,0 +1,109 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.concurrent.ConcurrentTileCache;
+import it.geosolutions.jaiext.colorindexer.ColorIndexer;
+import it.geosolutions.jaiext.colorindexer.ColorIndexerDescriptor;
+import it.geosolutions.jaiext.colorindexer.Quantizer;
+import it.geosolutions.jaiext.interpolators.InterpolationBilinear;
+import it.geosolutions.jaiext.mosaic.MosaicDescriptor;
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.range.RangeFactory;
+import it.geosolutions.jaiext.scale.ScaleDescriptor;
+import it.geosolutions.jaiext.testclasses.TestBase;
+
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+
+import javax.media.jai.Interpolation;
+import javax.media.jai.JAI;
+import javax.media.jai.ROI;
+import javax.media.jai.RenderedOp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * End-to-end benchmark of a typical rendering chain: two RGB scenes are scaled, mosaicked and then reduced to a palette image. Each invocation
+ * computes all the tiles of the chain through the tile scheduler, starting from an empty tile cache.
+ */
+@State(Scope.Thread)
+public class PipelineBenchmark extends TileBenchmark {
+
+    private static final float SCALE = 0.75f;
+
+    private ConcurrentTileCache cache;
+
+    private RenderedOp pipeline;
+
+    @Setup
+    public void setup() {
+        RenderedImage source = createSource(DataBuffer.TYPE_BYTE, 3);
+        cache = new ConcurrentTileCache(256L * 1024L * 1024L, false,
+                ConcurrentTileCache.DEFAULT_MEMORY_THRESHOLD,
+                ConcurrentTileCache.DEFAULT_CONCURRENCY_LEVEL);
+        RenderingHints hints = new RenderingHints(JAI.KEY_TILE_CACHE, cache);
+
+        Range nodata = getNoData(DataBuffer.TYPE_BYTE);
+        ROI roi = getROI();
+        double[] background = new double[] { DEST_NO_DATA, DEST_NO_DATA, DEST_NO_DATA };
+        Interpolation interpolation = new InterpolationBilinear(TestBase.DEFAULT_SUBSAMPLE_BITS,
+                nodata, false, DEST_NO_DATA, DataBuffer.TYPE_BYTE);
+
+        // the second scene overlaps the first one for a quarter of its area
+        float shift = source.getWidth() * SCALE / 2;
+        RenderedOp first = ScaleDescriptor.create(source, SCALE, SCALE, 0f, 0f, interpolation,
+                roi, false, nodata, background, hints);
+        RenderedOp second = ScaleDescriptor.create(source, SCALE, SCALE, shift, shift,
+                interpolation, roi, false, nodata, background, hints);
+
+        ROI[] rois = null;
+        Range[] nodatas = null;
+        if (roi != null) {
+            AffineTransform scale = AffineTransform.getScaleInstance(SCALE, SCALE);
+            AffineTransform shiftedScale = AffineTransform.getTranslateInstance(shift, shift);
+            shiftedScale.concatenate(scale);
+            rois = new ROI[] { roi.transform(scale), roi.transform(shiftedScale) };
+        }
+        if (nodata != null) {
+            // the scaled scenes mark NoData with the destination NoData
+            Range scaledNoData = RangeFactory.create((byte) DEST_NO_DATA, true,
+                    (byte) DEST_NO_DATA, true);
+            nodatas = new Range[] { scaledNoData, scaledNoData };
+        }
+        RenderedOp mosaic = MosaicDescriptor.create(new RenderedImage[] { first, second },
+                javax.media.jai.operator.MosaicDescriptor.MOSAIC_TYPE_OVERLAY, null, rois, null,
+                background, nodatas, hints);
+
+        ColorIndexer indexer = new Quantizer(256).subsample().buildColorIndexer(mosaic);
+        pipeline = ColorIndexerDescriptor.create(mosaic, indexer, null, null,
+                (int) DEST_NO_DATA, hints);
+    }
+
+    @Benchmark
+    public Raster[] render() {
+        cache.flush();
+        return pipeline.getTiles();
+    }
+}
@@ -0,0 +1,123 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.jaiext.JAIExt;
+import it.geosolutions.jaiext.iterators.RandomIterFactory;
+import it.geosolutions.jaiext.testclasses.TestBase;
+
+import java.awt.image.RenderedImage;
+
+import javax.media.jai.iterator.RandomIter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reads 2x2 bilinear neighbourhoods of a tiled image along rotated or warped scanlines, the access patterns of the warp and affine operations,
+ * comparing the JAI-EXT random iterators with the JAI ones.
+ */
+@State(Scope.Thread)
+public class RandomIterBenchmark {
+
+    /** Width and height of the area read, in the middle of the image */
+    private static final int AREA_SIZE = 1024;
+
+    static {
+        JAIExt.initJAIEXT();
+    }
+
+    @Param({ "rotated", "warped" })
+    public String pattern;
+
+    @Param({ "jaiext", "jai" })
+    public String iterator;
+
+    @Param({ "BYTE", "INT", "FLOAT", "DOUBLE" })
+    public String dataType;
+
+    /** Tile width and height, the image is made of 8x8 tiles */
+    @Param({ "128", "256" })
+    public int tileSize;
+
+    private RenderedImage image;
+
+    /** Upper left corner of each neighbourhood */
+    private int[] xs;
+
+    private int[] ys;
+
+    @Setup
+    public void setup() {
+        int size = tileSize * TileBenchmark.TILES;
+        TestBase.IMAGE_FILLER = true;
+        try {
+            image = TestBase.createTestImage(TileBenchmark.getDataType(dataType), size, size,
+                    null, false, 1);
+        } finally {
+            TestBase.IMAGE_FILLER = false;
+        }
+
+        // the area is scaled to fit into the image whatever the rotation
+        double scale = Math.min(1, (size - 2) / (AREA_SIZE * Math.sqrt(2)));
+        double center = size / 2d;
+        double cos = Math.cos(Math.PI / 6);
+        double sin = Math.sin(Math.PI / 6);
+        xs = new int[AREA_SIZE * AREA_SIZE];
+        ys = new int[AREA_SIZE * AREA_SIZE];
+        int i = 0;
+        for (int y = 0; y < AREA_SIZE; y++) {
+            for (int x = 0; x < AREA_SIZE; x++, i++) {
+                double dx = (x - AREA_SIZE / 2) * scale;
+                double dy = (y - AREA_SIZE / 2) * scale;
+                double sx, sy;
+                if ("rotated".equals(pattern)) {
+                    sx = dx * cos - dy * sin;
+                    sy = dx * sin + dy * cos;
+                } else {
+                    sx = dx + 16 * Math.sin(dy / 37);
+                    sy = dy + 16 * Math.cos(dx / 41);
+                }
+                xs[i] = clamp((int) Math.floor(center + sx), size - 2);
+                ys[i] = clamp((int) Math.floor(center + sy), size - 2);
+            }
+        }
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+
+    @Benchmark
+    public double readNeighbourhoods() {
+        RandomIter iter = "jai".equals(iterator) ? javax.media.jai.iterator.RandomIterFactory
+                .create(image, null) : RandomIterFactory.create(image, null, true, true);
+        double sum = 0;
+        for (int i = 0; i < xs.length; i++) {
+            int x = xs[i];
+            int y = ys[i];
+            sum += iter.getSampleDouble(x, y, 0) + iter.getSampleDouble(x + 1, y, 0)
+                    + iter.getSampleDouble(x, y + 1, 0) + iter.getSampleDouble(x + 1, y + 1, 0);
+        }
+        iter.done();
+        return sum;
+    }
+}
@@ -0,0 +1,59 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.jaiext.stats.Statistics;
+import it.geosolutions.jaiext.stats.Statistics.StatsType;
+import it.geosolutions.jaiext.stats.StatisticsDescriptor;
+
+import java.awt.image.RenderedImage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Computes mean, extrema and variance of a whole image through the Stats operation, which does not produce tiles of its own.
+ */
+@State(Scope.Thread)
+public class StatisticsBenchmark extends TileBenchmark {
+
+    private static final StatsType[] STATS = new StatsType[] { StatsType.MEAN, StatsType.EXTREMA,
+            StatsType.VARIANCE };
+
+    @Param({ "BYTE", "USHORT", "SHORT", "INT", "FLOAT", "DOUBLE" })
+    public String dataType;
+
+    private RenderedImage source;
+
+    private int type;
+
+    @Setup
+    public void setup() {
+        type = getDataType(dataType);
+        source = createSource(type, 1);
+    }
+
+    @Benchmark
+    public Object computeStatistics() {
+        return StatisticsDescriptor.create(source, 1, 1, getROI(), getNoData(type), false,
+                new int[] { 0 }, STATS, null).getProperty(Statistics.STATS_PROPERTY);
+    }
+}
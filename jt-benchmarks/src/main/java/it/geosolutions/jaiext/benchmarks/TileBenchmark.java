@@ -0,0 +1,160 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.benchmarks;
+
+import it.geosolutions.jaiext.JAIExt;
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.range.RangeFactory;
+import it.geosolutions.jaiext.testclasses.TestBase;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+
+import javax.media.jai.OpImage;
+import javax.media.jai.ROI;
+import javax.media.jai.ROIShape;
+import javax.media.jai.RenderedOp;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Base class of the benchmarks computing the tiles of a JAI-EXT operation. The sources are the synthetic images of {@link TestBase}, made of 8x8
+ * tiles, and each invocation computes the next tile of the operation through {@link OpImage#computeTile(int, int)}, so that the tile cache is
+ * not involved.
+ */
+@State(Scope.Thread)
+public abstract class TileBenchmark {
+
+    /** The number of tiles along each axis of the source images */
+    public static final int TILES = 8;
+
+    /** Value of the source NoData */
+    public static final double NO_DATA = 100;
+
+    /** Value of the destination NoData */
+    public static final double DEST_NO_DATA = 0;
+
+    static {
+        JAIExt.initJAIEXT();
+    }
+
+    /** Tile width and height */
+    @Param({ "128", "256" })
+    public int tileSize;
+
+    /** Whether the source NoData is set */
+    @Param({ "false", "true" })
+    public boolean noData;
+
+    /** Whether a ROI is set */
+    @Param({ "false", "true" })
+    public boolean roi;
+
+    /** The image whose tiles are computed */
+    private OpImage image;
+
+    /** Index of the next tile to compute */
+    private int nextTile;
+
+    /** Returns the {@link DataBuffer} data type with the given name, e.g. BYTE or FLOAT */
+    public static int getDataType(String name) {
+        if ("BYTE".equals(name)) {
+            return DataBuffer.TYPE_BYTE;
+        } else if ("USHORT".equals(name)) {
+            return DataBuffer.TYPE_USHORT;
+        } else if ("SHORT".equals(name)) {
+            return DataBuffer.TYPE_SHORT;
+        } else if ("INT".equals(name)) {
+            return DataBuffer.TYPE_INT;
+        } else if ("FLOAT".equals(name)) {
+            return DataBuffer.TYPE_FLOAT;
+        } else if ("DOUBLE".equals(name)) {
+            return DataBuffer.TYPE_DOUBLE;
+        }
+        throw new IllegalArgumentException("Wrong data type: " + name);
+    }
+
+    /** Creates a source image of TILES x TILES tiles, containing NoData values when {@link #noData} is set */
+    protected RenderedImage createSource(int dataType, int numBands) {
+        int size = tileSize * TILES;
+        // The filler gives every pixel a value, instead of a constant image
+        TestBase.IMAGE_FILLER = true;
+        try {
+            return TestBase.createTestImage(dataType, size, size,
+                    noData ? Double.valueOf(NO_DATA) : null, false, numBands);
+        } finally {
+            TestBase.IMAGE_FILLER = false;
+        }
+    }
+
+    /** Returns the NoData range of the given data type, or <code>null</code> if {@link #noData} is not set */
+    protected Range getNoData(int dataType) {
+        if (!noData) {
+            return null;
+        }
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return RangeFactory.create((byte) NO_DATA, true, (byte) NO_DATA, true);
+        case DataBuffer.TYPE_USHORT:
+            return RangeFactory.createU((short) NO_DATA, true, (short) NO_DATA, true);
+        case DataBuffer.TYPE_SHORT:
+            return RangeFactory.create((short) NO_DATA, true, (short) NO_DATA, true);
+        case DataBuffer.TYPE_INT:
+            return RangeFactory.create((int) NO_DATA, true, (int) NO_DATA, true);
+        case DataBuffer.TYPE_FLOAT:
+            return RangeFactory.create((float) NO_DATA, true, (float) NO_DATA, true);
+        case DataBuffer.TYPE_DOUBLE:
+            return RangeFactory.create(NO_DATA, true, NO_DATA, true);
+        default:
+            throw new IllegalArgumentException("Wrong data type");
+        }
+    }
+
+    /** Returns a ROI covering the upper left 3/4 of the source, or <code>null</code> if {@link #roi} is not set */
+    protected ROI getROI() {
+        if (!roi) {
+            return null;
+        }
+        int size = tileSize * TILES * 3 / 4;
+        return new ROIShape(new Rectangle(0, 0, size, size));
+    }
+
+    /** Sets the operation whose tiles are computed */
+    protected void setImage(RenderedImage op) {
+        RenderedImage rendering = op instanceof RenderedOp ? ((RenderedOp) op).getRendering() : op;
+        if (!(rendering instanceof OpImage)) {
+            throw new IllegalArgumentException("The operation is not rendered to an OpImage: "
+                    + rendering.getClass().getName());
+        }
+        image = (OpImage) rendering;
+        nextTile = 0;
+    }
+
+    /** Computes the next tile of the operation, cycling over all of them */
+    protected Raster computeNextTile() {
+        int numXTiles = image.getNumXTiles();
+        int tile = nextTile;
+        nextTile = (tile + 1) % (numXTiles * image.getNumYTiles());
+        return image.computeTile(image.getMinTileX() + tile % numXTiles, image.getMinTileY()
+                + tile / numXTiles);
+    }
+}
@@ -17,8 +17,8 @@
  */
 package it.geosolutions.jaiext.binarize;
 
-import it.geosolutions.jaiext.iterators.RandomIterFactory;
 import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.utilities.ROITileMask;
 
 import java.awt.Rectangle;
 import java.awt.image.ColorModel;
@@ -33,12 +33,9 @@ import java.util.Map;
 import javax.media.jai.ImageLayout;
 import javax.media.jai.PackedImageData;
 import javax.media.jai.PixelAccessor;
-import javax.media.jai.PlanarImage;
 import javax.media.jai.PointOpImage;
 import javax.media.jai.ROI;
-import javax.media.jai.ROIShape;
 import javax.media.jai.UnpackedImageData;
-import javax.media.jai.iterator.RandomIter;
 
 import com.sun.media.jai.util.ImageUtil;
 import com.sun.media.jai.util.JDKWorkarounds;
@@ -75,12 +72,6 @@ public class BinarizeOpImage extends PointOpImage {
     /** Flag indicating that only NoData range is present */
     private final boolean caseC;
 
-    /** Rectangle defining the bounds of the input ROI */
-    private final Rectangle roiBounds;
-
-    /** {@link PlanarImage} representing ROI */
-    private PlanarImage roiImage;
-
     /**
      * Lookup table for output bytes.
      */
@@ -125,11 +116,9 @@ public class BinarizeOpImage extends PointOpImage {
             hasROI = true;
             // Roi object
             this.roi = roi;
-            roiBounds = roi.getBounds();
         } else {
             hasROI = false;
             this.roi = null;
-            roiBounds = null;
         }
 
         // Definition of the possible cases that can be found
@@ -177,9 +166,7 @@ public class BinarizeOpImage extends PointOpImage {
      */
     protected void computeRect(Raster[] sources, WritableRaster dest, Rectangle destRect) {
         // ROI check
-        ROI roiTile = null;
-
-        RandomIter roiIter = null;
+        ROITileMask roiMask = null;
 
         boolean roiContainsTile = false;
         boolean roiDisjointTile = false;
@@ -190,42 +177,30 @@ public class BinarizeOpImage extends PointOpImage {
             // The tile dimension is extended for avoiding border errors
             srcRectExpanded.setRect(srcRectExpanded.getMinX() - 1, srcRectExpanded.getMinY() - 1,
                     srcRectExpanded.getWidth() + 2, srcRectExpanded.getHeight() + 2);
-            roiTile = roi.intersect(new ROIShape(srcRectExpanded));
-
-            if (!roiBounds.intersects(srcRectExpanded)) {
-                roiDisjointTile = true;
-            } else {
-                roiContainsTile = roiTile.contains(srcRectExpanded);
-                if (!roiContainsTile) {
-                    if (!roiTile.intersects(srcRectExpanded)) {
-                        roiDisjointTile = true;
-                    } else {
-                        PlanarImage roiIMG = getImage();
-                        roiIter = RandomIterFactory.create(roiIMG, null, TILE_CACHED, ARRAY_CALC);
-                    }
-                }
-            }
+            roiMask = ROITileMask.getMask(roi, srcRectExpanded);
+            roiDisjointTile = roiMask.isEmpty();
+            roiContainsTile = roiMask.isFull();
         }
 
         if (!hasROI || !roiDisjointTile) {
             switch (sources[0].getSampleModel().getDataType()) {
             case DataBuffer.TYPE_BYTE:
-                byteLoop(sources[0], dest, destRect, roiIter, roiContainsTile);
+                byteLoop(sources[0], dest, destRect, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_USHORT:
-                ushortLoop(sources[0], dest, destRect, roiIter, roiContainsTile);
+                ushortLoop(sources[0], dest, destRect, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_SHORT:
-                shortLoop(sources[0], dest, destRect, roiIter, roiContainsTile);
+                shortLoop(sources[0], dest, destRect, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_INT:
-                intLoop(sources[0], dest, destRect, roiIter, roiContainsTile);
+                intLoop(sources[0], dest, destRect, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_FLOAT:
-                floatLoop(sources[0], dest, destRect, roiIter, roiContainsTile);
+                floatLoop(sources[0], dest, destRect, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_DOUBLE:
-                doubleLoop(sources[0], dest, destRect, roiIter, roiContainsTile);
+                doubleLoop(sources[0], dest, destRect, roiMask, roiContainsTile);
                 break;
             default:
                 throw new RuntimeException(JaiI18N.getString("BinarizeOpImage1"));
@@ -234,7 +209,7 @@ public class BinarizeOpImage extends PointOpImage {
     }
 
     private void byteLoop(Raster source, WritableRaster dest, Rectangle destRect,
-            RandomIter roiIter, boolean roiContainsTile) {
+            ROITileMask roiMask, boolean roiContainsTile) {
 
         if (threshold <= 0.0D && (!hasROI || (hasROI && roiContainsTile)) && !hasNoData) {
             // every bit is 1
@@ -278,7 +253,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
                     // Check on the ROI
-                    if (!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0)) {
+                    if (!roiMask.contains(x0, y0)) {
                         continue;
                     }
                     // Using LUT in order to skip continuous NoData check
@@ -307,7 +282,7 @@ public class BinarizeOpImage extends PointOpImage {
     }
 
     private void ushortLoop(Raster source, WritableRaster dest, Rectangle destRect,
-            RandomIter roiIter, boolean roiContainsTile) {
+            ROITileMask roiMask, boolean roiContainsTile) {
 
         if (threshold <= 0.0D && (!hasROI || (hasROI && roiContainsTile)) && !hasNoData) {
             // every bit is 1
@@ -362,7 +337,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0)) {
+                    if (!roiMask.contains(x0, y0)) {
                         continue;
                     }
 
@@ -397,7 +372,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if ((!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0))
+                    if ((!roiMask.contains(x0, y0))
                             || noData.contains(srcData[s])) {
                         continue;
                     }
@@ -415,7 +390,7 @@ public class BinarizeOpImage extends PointOpImage {
     }
 
     private void shortLoop(Raster source, WritableRaster dest, Rectangle destRect,
-            RandomIter roiIter, boolean roiContainsTile) {
+            ROITileMask roiMask, boolean roiContainsTile) {
 
         if (threshold <= Short.MIN_VALUE && (!hasROI || (hasROI && roiContainsTile)) && !hasNoData) {
             // every bit is 1
@@ -470,7 +445,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0)) {
+                    if (!roiMask.contains(x0, y0)) {
                         continue;
                     }
 
@@ -505,7 +480,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if ((!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0))
+                    if ((!roiMask.contains(x0, y0))
                             || noData.contains(srcData[s])) {
                         continue;
                     }
@@ -523,7 +498,7 @@ public class BinarizeOpImage extends PointOpImage {
     }
 
     private void intLoop(Raster source, WritableRaster dest, Rectangle destRect,
-            RandomIter roiIter, boolean roiContainsTile) {
+            ROITileMask roiMask, boolean roiContainsTile) {
 
         if (threshold <= Integer.MIN_VALUE && (!hasROI || (hasROI && roiContainsTile))
                 && !hasNoData) {
@@ -578,7 +553,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0)) {
+                    if (!roiMask.contains(x0, y0)) {
                         continue;
                     }
 
@@ -613,7 +588,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if ((!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0))
+                    if ((!roiMask.contains(x0, y0))
                             || noData.contains(srcData[s])) {
                         continue;
                     }
@@ -631,7 +606,7 @@ public class BinarizeOpImage extends PointOpImage {
     }
 
     private void floatLoop(Raster source, WritableRaster dest, Rectangle destRect,
-            RandomIter roiIter, boolean roiContainsTile) {
+            ROITileMask roiMask, boolean roiContainsTile) {
 
         // computation can be done in integer
         // even though threshold is of double type
@@ -676,7 +651,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0)) {
+                    if (!roiMask.contains(x0, y0)) {
                         continue;
                     }
 
@@ -711,7 +686,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if ((!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0))
+                    if ((!roiMask.contains(x0, y0))
                             || noData.contains(srcData[s])) {
                         continue;
                     }
@@ -729,7 +704,7 @@ public class BinarizeOpImage extends PointOpImage {
     }
 
     private void doubleLoop(Raster source, WritableRaster dest, Rectangle destRect,
-            RandomIter roiIter, boolean roiContainsTile) {
+            ROITileMask roiMask, boolean roiContainsTile) {
 
         // computation can be done in integer
         // even though threshold is of double type
@@ -774,7 +749,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0)) {
+                    if (!roiMask.contains(x0, y0)) {
                         continue;
                     }
 
@@ -809,7 +784,7 @@ public class BinarizeOpImage extends PointOpImage {
                     x0 = srcX + b - ind0;
                     y0 = srcY + h;
 
-                    if ((!(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0))
+                    if ((!roiMask.contains(x0, y0))
                             || noData.contains(srcData[s])) {
                         continue;
                     }
@@ -896,23 +871,4 @@ public class BinarizeOpImage extends PointOpImage {
             }
         }
     }
-
-    /**
-     * This method provides a lazy initialization of the image associated to the ROI. The method uses the Double-checked locking in order to maintain
-     * thread-safety
-     * 
-     * @return
-     */
-    private PlanarImage getImage() {
-        PlanarImage img = roiImage;
-        if (img == null) {
-            synchronized (this) {
-                img = roiImage;
-                if (img == null) {
-                    roiImage = img = roi.getAsImage();
-                }
-            }
-        }
-        return img;
-    }
 }
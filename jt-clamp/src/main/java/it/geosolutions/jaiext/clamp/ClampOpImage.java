@@ -19,6 +19,7 @@ package it.geosolutions.jaiext.clamp;
 
 import it.geosolutions.jaiext.iterators.RandomIterFactory;
 import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.utilities.ROITileMask;
 
 import java.awt.Rectangle;
 import java.awt.image.ColorModel;
@@ -39,7 +40,6 @@ import javax.media.jai.PixelAccessor;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.PointOpImage;
 import javax.media.jai.ROI;
-import javax.media.jai.ROIShape;
 import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFactory;
 import javax.media.jai.RasterFormatTag;
@@ -65,9 +65,6 @@ public class ClampOpImage extends PointOpImage {
     /** Boolean indicating if ROI is present */
     private final boolean hasROI;
 
-    /** ROI bounds as a Shape */
-    private Rectangle roiBounds;
-
     /** Boolean indicating if No Data are present */
     private final boolean hasNoData;
 
@@ -150,11 +147,9 @@ public class ClampOpImage extends PointOpImage {
             hasROI = true;
             // ROI object
             this.roi = roi;
-            roiBounds = roi.getBounds();
         } else {
             hasROI = false;
             this.roi = null;
-            roiBounds = null;
         }
 
         // Check if No Data control must be done
@@ -186,7 +181,7 @@ public class ClampOpImage extends PointOpImage {
         int destType = dest.getTransferType();
 
         // ROI fields
-        ROI roiTile = null;
+        ROITileMask roiMask = null;
 
         boolean roiContainsTile = false; // roi contains sources
         boolean roiDisjointTile = false; // source no intersects the roi
@@ -197,18 +192,10 @@ public class ClampOpImage extends PointOpImage {
             // The tile dimension is extended for avoiding border errors
             srcRectExpanded.setRect(srcRectExpanded.getMinX() - 1, srcRectExpanded.getMinY() - 1,
                     srcRectExpanded.getWidth() + 2, srcRectExpanded.getHeight() + 2);
-            roiTile = roi.intersect(new ROIShape(srcRectExpanded));
+            roiMask = ROITileMask.getMask(roi, srcRectExpanded);
             // Check if the Tile bounds intersects the roi otherwise the computation is skipped
-            if (!roiBounds.intersects(srcRectExpanded)) {
-                roiDisjointTile = true;
-            } else {
-                roiContainsTile = roiTile.contains(srcRectExpanded);
-                if (!roiContainsTile) {
-                    if (!roiTile.intersects(srcRectExpanded)) {
-                        roiDisjointTile = true;
-                    }
-                }
-            }
+            roiDisjointTile = roiMask.isEmpty();
+            roiContainsTile = roiMask.isFull();
         }
 
         if (!hasROI || !roiDisjointTile) {
@@ -222,22 +209,22 @@ public class ClampOpImage extends PointOpImage {
             // System.out.println(destType);
             switch (dst.getDataType()) {
             case DataBuffer.TYPE_BYTE:
-                byteLoop(src, dst, roiTile, roiContainsTile);
+                byteLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_USHORT:
-                ushortLoop(src, dst, roiTile, roiContainsTile);
+                ushortLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_SHORT:
-                shortLoop(src, dst, roiTile, roiContainsTile);
+                shortLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_INT:
-                intLoop(src, dst, roiTile, roiContainsTile);
+                intLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_FLOAT:
-                floatLoop(src, dst, roiTile, roiContainsTile);
+                floatLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_DOUBLE:
-                doubleLoop(src, dst, roiTile, roiContainsTile);
+                doubleLoop(src, dst, roiMask, roiContainsTile);
                 break;
             default:
                 throw new RuntimeException("Wrong image data type");
@@ -273,7 +260,7 @@ public class ClampOpImage extends PointOpImage {
 
     }
 
-    private void byteLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void byteLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
 
         int srcLineStride = src.getScanlineStride();
@@ -340,7 +327,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataByte;
                         }
@@ -417,7 +404,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataByte;
                         }
@@ -456,7 +443,7 @@ public class ClampOpImage extends PointOpImage {
         }
     }
 
-    private void ushortLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void ushortLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
         int srcLineStride = src.getScanlineStride();
         int srcPixelStride = src.getPixelStride();
@@ -523,7 +510,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataShort;
                         }
@@ -602,7 +589,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataShort;
                         }
@@ -642,7 +629,7 @@ public class ClampOpImage extends PointOpImage {
         }
     }
 
-    private void shortLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void shortLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
         int srcLineStride = src.getScanlineStride();
         int srcPixelStride = src.getPixelStride();
@@ -708,7 +695,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataShort;
                         }
@@ -785,7 +772,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataShort;
                         }
@@ -824,7 +811,7 @@ public class ClampOpImage extends PointOpImage {
         }
     }
 
-    private void intLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void intLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
         int srcLineStride = src.getScanlineStride();
         int srcPixelStride = src.getPixelStride();
@@ -890,7 +877,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataInt;
                         }
@@ -967,7 +954,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataInt;
                         }
@@ -1006,7 +993,7 @@ public class ClampOpImage extends PointOpImage {
         }
     }
 
-    private void floatLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void floatLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
         int srcLineStride = src.getScanlineStride();
         int srcPixelStride = src.getPixelStride();
@@ -1072,7 +1059,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataFloat;
                         }
@@ -1151,7 +1138,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataFloat;
                         }
@@ -1190,7 +1177,7 @@ public class ClampOpImage extends PointOpImage {
         }
     }
 
-    private void doubleLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void doubleLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
         int srcLineStride = src.getScanlineStride();
         int srcPixelStride = src.getPixelStride();
@@ -1256,7 +1243,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataDouble;
                         }
@@ -1333,7 +1320,7 @@ public class ClampOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataDouble;
                         }
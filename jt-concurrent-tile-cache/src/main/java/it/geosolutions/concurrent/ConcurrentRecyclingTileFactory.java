@@ -0,0 +1,493 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.concurrent;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TileFactory;
+import javax.media.jai.TileRecycler;
+
+import com.google.common.collect.MapMaker;
+
+import it.geosolutions.jaiext.utilities.ConstantImage;
+
+/**
+ * A thread-safe {@link TileFactory} and {@link TileRecycler} reusing the data arrays of the recycled tiles for the new ones, to be set on the
+ * images through the {@link javax.media.jai.JAI#KEY_TILE_FACTORY} and {@link javax.media.jai.JAI#KEY_TILE_RECYCLER} hints:
+ * 
+ * <pre>
+ * ConcurrentRecyclingTileFactory factory = new ConcurrentRecyclingTileFactory();
+ * JAI.getDefaultInstance().setRenderingHint(JAI.KEY_TILE_FACTORY, factory);
+ * JAI.getDefaultInstance().setRenderingHint(JAI.KEY_TILE_RECYCLER, factory);
+ * </pre>
+ * 
+ * The free arrays are bucketed by data type, number of banks and bank size. Each thread keeps a few of them for each bucket in its own list, as
+ * long as the arrays kept by all the threads fit in the memory budget; the others are only weakly referenced in a shared list, so that they can
+ * still be reused until the garbage collector reclaims them. Tiles are zeroed before being returned, as the newly allocated ones.
+ * <p>
+ * A recycled tile must not be used anymore by the caller. The tiles which may still be referenced elsewhere, like the ones evicted from a
+ * {@link ConcurrentTileCache} (see {@link ConcurrentTileCache#setRecyclingTileFactory(ConcurrentRecyclingTileFactory)}), can be passed to
+ * {@link #recycleTileWhenUnreachable(Raster)} instead: their arrays are recycled only once their {@link DataBuffer} has been garbage collected.
+ * Since the factory can only track its own data buffers, only the tiles it has created are recycled this way.
+ * <p>
+ * The factory remembers the bank arrays of the tiles it has created, and refuses to recycle a tile whose data buffer is not its own but
+ * references some of these arrays, since they are shared with a live tile. The data buffers shared by the tiles of a {@link ConstantImage} are
+ * never recycled either.
+ * <p>
+ * Only the tiles backed by the standard {@link DataBuffer} classes with no offsets are recycled; the tiles of the other sample models are always
+ * allocated.
+ */
+public class ConcurrentRecyclingTileFactory implements TileFactory, TileRecycler {
+
+    /** The default memory budget for the strongly referenced free arrays (64 MB) */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024L * 1024L;
+
+    /** The default number of free arrays kept by each thread for each bucket */
+    public static final int DEFAULT_BUFFERS_PER_THREAD = 4;
+
+    /** Maximum number of sample models whose bucket is remembered */
+    private static final int MAX_SAMPLE_MODELS = 256;
+
+    private static final long SIZE_MASK = (1L << 40) - 1;
+
+    /** The free arrays of a single thread, strongly referenced */
+    private static final class LocalPool {
+
+        private final WeakReference<Thread> owner;
+
+        private final HashMap<Long, ArrayDeque<Object>> buffers = new HashMap<Long, ArrayDeque<Object>>();
+
+        private long bytes;
+
+        LocalPool(Thread owner) {
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        boolean isAlive() {
+            Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        synchronized Object poll(long key) {
+            ArrayDeque<Object> queue = buffers.get(key);
+            if (queue == null || queue.isEmpty()) {
+                return null;
+            }
+            bytes -= getBytes(key);
+            return queue.poll();
+        }
+
+        synchronized boolean offer(long key, Object banks, int max) {
+            ArrayDeque<Object> queue = buffers.get(key);
+            if (queue == null) {
+                queue = new ArrayDeque<Object>(max);
+                buffers.put(key, queue);
+            } else if (queue.size() >= max) {
+                return false;
+            }
+            queue.push(banks);
+            bytes += getBytes(key);
+            return true;
+        }
+
+        /** Drops all the arrays, returning their size in bytes */
+        synchronized long clear() {
+            long cleared = bytes;
+            buffers.clear();
+            bytes = 0;
+            return cleared;
+        }
+    }
+
+    /** Keeps the arrays of a tile which may still be in use until its data buffer is garbage collected */
+    private static final class PendingBuffer extends WeakReference<DataBuffer> {
+
+        private final long key;
+
+        private final Object banks;
+
+        PendingBuffer(DataBuffer db, long key, Object banks, ReferenceQueue<DataBuffer> queue) {
+            super(db, queue);
+            this.key = key;
+            this.banks = banks;
+        }
+    }
+
+    private final long memoryBudget;
+
+    private final int buffersPerThread;
+
+    /** Bytes held by the local pools of all the threads */
+    private final AtomicLong memoryUsed = new AtomicLong();
+
+    /** The bucket of the data buffers created by each sample model */
+    private final ConcurrentHashMap<SampleModel, Long> bufferKeys = new ConcurrentHashMap<SampleModel, Long>();
+
+    /** The weakly referenced free arrays shared among the threads */
+    private final ConcurrentHashMap<Long, ConcurrentLinkedQueue<WeakReference<Object>>> sharedBuffers = new ConcurrentHashMap<Long, ConcurrentLinkedQueue<WeakReference<Object>>>();
+
+    private final CopyOnWriteArrayList<LocalPool> localPools = new CopyOnWriteArrayList<LocalPool>();
+
+    private final ThreadLocal<LocalPool> localPool = new ThreadLocal<LocalPool>() {
+        @Override
+        protected LocalPool initialValue() {
+            // a new thread is a good time to release the lists of the dead ones
+            releaseDeadPools();
+            LocalPool pool = new LocalPool(Thread.currentThread());
+            localPools.add(pool);
+            return pool;
+        }
+    };
+
+    /** The data buffers created by this factory and not yet recycled, weakly referenced and compared by identity */
+    private final ConcurrentMap<DataBuffer, Boolean> createdBuffers = new MapMaker().weakKeys()
+            .makeMap();
+
+    /** The bank arrays handed out by this factory, weakly referenced and compared by identity */
+    private final ConcurrentMap<Object, Boolean> createdArrays = new MapMaker().weakKeys()
+            .makeMap();
+
+    private final ReferenceQueue<DataBuffer> unreachable = new ReferenceQueue<DataBuffer>();
+
+    private final Set<PendingBuffer> pending = Collections
+            .newSetFromMap(new ConcurrentHashMap<PendingBuffer, Boolean>());
+
+    public ConcurrentRecyclingTileFactory() {
+        this(DEFAULT_MEMORY_BUDGET, DEFAULT_BUFFERS_PER_THREAD);
+    }
+
+    /**
+     * @param memoryBudget the maximum number of bytes kept in the per-thread lists
+     * @param buffersPerThread the maximum number of arrays kept by each thread for each bucket
+     */
+    public ConcurrentRecyclingTileFactory(long memoryBudget, int buffersPerThread) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget too small");
+        }
+        if (buffersPerThread < 0) {
+            throw new IllegalArgumentException("Buffers per thread must not be negative");
+        }
+        this.memoryBudget = memoryBudget;
+        this.buffersPerThread = buffersPerThread;
+    }
+
+    public WritableRaster createTile(SampleModel sampleModel, Point location) {
+        if (sampleModel == null) {
+            throw new IllegalArgumentException("SampleModel should not be null");
+        }
+        if (location == null) {
+            location = new Point(0, 0);
+        }
+        releaseUnreachable();
+
+        DataBuffer db = null;
+        Long key = bufferKeys.get(sampleModel);
+        if (key != null) {
+            Object banks = take(key);
+            if (banks != null) {
+                db = wrap(key, clear(banks));
+            }
+        }
+        if (db == null) {
+            db = sampleModel.createDataBuffer();
+            if (key == null) {
+                long newKey = getKey(db);
+                if (newKey >= 0) {
+                    if (bufferKeys.size() >= MAX_SAMPLE_MODELS) {
+                        bufferKeys.clear();
+                    }
+                    bufferKeys.put(sampleModel, newKey);
+                    key = newKey;
+                }
+            }
+        }
+        if (key != null) {
+            track(db);
+        }
+        return RasterFactory.createWritableRaster(sampleModel, db, location);
+    }
+
+    /**
+     * Recycles the arrays of the tile, which must not be used anymore. The tile is ignored if its data buffer was not created by this factory
+     * but shares its arrays with one that was, or if it is shared by the tiles of a {@link ConstantImage}.
+     */
+    public void recycleTile(Raster tile) {
+        if (tile == null) {
+            throw new IllegalArgumentException("Tile should not be null");
+        }
+        releaseUnreachable();
+        DataBuffer db = tile.getDataBuffer();
+        long key = getKey(db);
+        if (key < 0) {
+            return;
+        }
+        if (ConstantImage.isSharedDataBuffer(db)) {
+            return;
+        }
+        Object banks = getBanks(db);
+        if (createdBuffers.remove(db) == null && isShared(banks)) {
+            return;
+        }
+        release(key, banks);
+    }
+
+    /**
+     * Recycles the arrays of the tile once its {@link DataBuffer} is no longer reachable, so that the tiles which may still be in use, like the
+     * cached ones, can be safely recycled. Only the tiles created by this factory are recycled, at most once, and their arrays must not be
+     * referenced directly elsewhere.
+     */
+    public void recycleTileWhenUnreachable(Raster tile) {
+        if (tile == null) {
+            throw new IllegalArgumentException("Tile should not be null");
+        }
+        releaseUnreachable();
+        DataBuffer db = tile.getDataBuffer();
+        long key = getKey(db);
+        if (key >= 0 && createdBuffers.remove(db) != null) {
+            pending.add(new PendingBuffer(db, key, getBanks(db), unreachable));
+        }
+    }
+
+    /** Returns <code>true</code> as the free arrays can be dropped by {@link #flush()} */
+    public boolean canReclaimMemory() {
+        return true;
+    }
+
+    /** Returns <code>true</code> as the tiles are recycled in memory */
+    public boolean isMemoryCache() {
+        return true;
+    }
+
+    /** Returns the number of bytes held in the per-thread lists */
+    public long getMemoryUsed() {
+        return memoryUsed.get();
+    }
+
+    /** Drops all the free arrays, including the ones waiting for their tile to become unreachable */
+    public void flush() {
+        for (LocalPool pool : localPools) {
+            memoryUsed.addAndGet(-pool.clear());
+        }
+        releaseDeadPools();
+        sharedBuffers.clear();
+        pending.clear();
+        while (unreachable.poll() != null)
+            ;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public int getBuffersPerThread() {
+        return buffersPerThread;
+    }
+
+    /** Remembers the data buffer and its arrays as created by this factory */
+    private void track(DataBuffer db) {
+        createdBuffers.put(db, Boolean.TRUE);
+        for (Object bank : (Object[]) getBanks(db)) {
+            createdArrays.put(bank, Boolean.TRUE);
+        }
+    }
+
+    /** Tells whether some of the input bank arrays have been handed out by this factory */
+    private boolean isShared(Object banks) {
+        for (Object bank : (Object[]) banks) {
+            if (createdArrays.containsKey(bank)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object take(long key) {
+        Object banks = localPool.get().poll(key);
+        if (banks != null) {
+            memoryUsed.addAndGet(-getBytes(key));
+            return banks;
+        }
+        ConcurrentLinkedQueue<WeakReference<Object>> shared = sharedBuffers.get(key);
+        if (shared != null) {
+            WeakReference<Object> ref;
+            while ((ref = shared.poll()) != null) {
+                banks = ref.get();
+                if (banks != null) {
+                    return banks;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void release(long key, Object banks) {
+        long bytes = getBytes(key);
+        if (memoryUsed.addAndGet(bytes) <= memoryBudget) {
+            if (localPool.get().offer(key, banks, buffersPerThread)) {
+                return;
+            }
+        }
+        memoryUsed.addAndGet(-bytes);
+
+        ConcurrentLinkedQueue<WeakReference<Object>> shared = sharedBuffers.get(key);
+        if (shared == null) {
+            ConcurrentLinkedQueue<WeakReference<Object>> newQueue = new ConcurrentLinkedQueue<WeakReference<Object>>();
+            shared = sharedBuffers.putIfAbsent(key, newQueue);
+            if (shared == null) {
+                shared = newQueue;
+            }
+        }
+        shared.offer(new WeakReference<Object>(banks));
+    }
+
+    private void releaseUnreachable() {
+        PendingBuffer ref;
+        while ((ref = (PendingBuffer) unreachable.poll()) != null) {
+            if (pending.remove(ref)) {
+                release(ref.key, ref.banks);
+            }
+        }
+    }
+
+    private void releaseDeadPools() {
+        Iterator<LocalPool> it = localPools.iterator();
+        while (it.hasNext()) {
+            LocalPool pool = it.next();
+            if (!pool.isAlive()) {
+                localPools.remove(pool);
+                memoryUsed.addAndGet(-pool.clear());
+            }
+        }
+    }
+
+    /**
+     * Packs data type, number of banks and bank size of the data buffer in a single key, or returns -1 if the buffer cannot be recycled
+     */
+    private static long getKey(DataBuffer db) {
+        Class<?> type = db.getClass();
+        if (type != DataBufferByte.class && type != DataBufferUShort.class
+                && type != DataBufferShort.class && type != DataBufferInt.class
+                && type != DataBufferFloat.class && type != DataBufferDouble.class) {
+            return -1;
+        }
+        int numBanks = db.getNumBanks();
+        if (numBanks > 0xFFFF) {
+            return -1;
+        }
+        for (int offset : db.getOffsets()) {
+            if (offset != 0) {
+                return -1;
+            }
+        }
+        return ((long) db.getDataType() << 56) | ((long) numBanks << 40) | (db.getSize() & SIZE_MASK);
+    }
+
+    private static long getBytes(long key) {
+        int dataType = (int) (key >>> 56);
+        long numBanks = (key >>> 40) & 0xFFFF;
+        return (key & SIZE_MASK) * numBanks * (DataBuffer.getDataTypeSize(dataType) / 8);
+    }
+
+    private static Object getBanks(DataBuffer db) {
+        switch (db.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            return ((DataBufferByte) db).getBankData();
+        case DataBuffer.TYPE_USHORT:
+            return ((DataBufferUShort) db).getBankData();
+        case DataBuffer.TYPE_SHORT:
+            return ((DataBufferShort) db).getBankData();
+        case DataBuffer.TYPE_INT:
+            return ((DataBufferInt) db).getBankData();
+        case DataBuffer.TYPE_FLOAT:
+            return ((DataBufferFloat) db).getBankData();
+        case DataBuffer.TYPE_DOUBLE:
+            return ((DataBufferDouble) db).getBankData();
+        default:
+            throw new IllegalArgumentException("Wrong data type");
+        }
+    }
+
+    private static DataBuffer wrap(long key, Object banks) {
+        int size = (int) (key & SIZE_MASK);
+        switch ((int) (key >>> 56)) {
+        case DataBuffer.TYPE_BYTE:
+            return new DataBufferByte((byte[][]) banks, size);
+        case DataBuffer.TYPE_USHORT:
+            return new DataBufferUShort((short[][]) banks, size);
+        case DataBuffer.TYPE_SHORT:
+            return new DataBufferShort((short[][]) banks, size);
+        case DataBuffer.TYPE_INT:
+            return new DataBufferInt((int[][]) banks, size);
+        case DataBuffer.TYPE_FLOAT:
+            return new DataBufferFloat((float[][]) banks, size);
+        case DataBuffer.TYPE_DOUBLE:
+            return new DataBufferDouble((double[][]) banks, size);
+        default:
+            throw new IllegalArgumentException("Wrong data type");
+        }
+    }
+
+    private static Object clear(Object banks) {
+        if (banks instanceof byte[][]) {
+            for (byte[] bank : (byte[][]) banks) {
+                Arrays.fill(bank, (byte) 0);
+            }
+        } else if (banks instanceof short[][]) {
+            for (short[] bank : (short[][]) banks) {
+                Arrays.fill(bank, (short) 0);
+            }
+        } else if (banks instanceof int[][]) {
+            for (int[] bank : (int[][]) banks) {
+                Arrays.fill(bank, 0);
+            }
+        } else if (banks instanceof float[][]) {
+            for (float[] bank : (float[][]) banks) {
+                Arrays.fill(bank, 0f);
+            }
+        } else if (banks instanceof double[][]) {
+            for (double[] bank : (double[][]) banks) {
+                Arrays.fill(bank, 0d);
+            }
+        }
+        return banks;
+    }
+}
@@ -66,6 +66,22 @@ public class ConcurrentTileCache extends Observable implements TileCache, CacheD
     /** diagnosticEnabled enable/disable */
     private volatile boolean diagnosticEnabled = DEFAULT_DIAGNOSTIC;
 
+    /** The factory recycling the evicted tiles, if any */
+    private volatile ConcurrentRecyclingTileFactory recyclingTileFactory;
+
+    /**
+     * The listener passing the evicted tiles to the recycling factory, which reuses them once they are no longer referenced
+     */
+    private final RemovalListener<Object, CachedTileImpl> recyclingListener = new RemovalListener<Object, CachedTileImpl>() {
+        public void onRemoval(RemovalNotification<Object, CachedTileImpl> n) {
+            ConcurrentRecyclingTileFactory factory = recyclingTileFactory;
+            CachedTileImpl cti = n.getValue();
+            if (factory != null && n.wasEvicted() && cti != null && cti.getTile() != null) {
+                factory.recycleTileWhenUnreachable(cti.getTile());
+            }
+        }
+    };
+
     /**
      * The listener is used for receiving notification about the removal of a tile for size constraints
      */
@@ -117,6 +133,9 @@ public class ConcurrentTileCache extends Observable implements TileCache, CacheD
                     }
                 });
 
+        if (recyclingTileFactory != null) {
+            return builder.removalListener(recyclingListener).build();
+        }
         return builder.build();
 
     }
@@ -463,6 +482,21 @@ public class ConcurrentTileCache extends Observable implements TileCache, CacheD
         return concurrencyLevel;
     }
 
+    /**
+     * Sets the factory recycling the tiles evicted from the cache, or <code>null</code> for not recycling them, and then flush and rebuild the
+     * cache. The evicted tiles created by the factory are recycled once they are no longer referenced, the other ones are left to the garbage
+     * collector.
+     */
+    public synchronized void setRecyclingTileFactory(ConcurrentRecyclingTileFactory factory) {
+        recyclingTileFactory = factory;
+        flush();
+    }
+
+    /** Retrieve the factory recycling the evicted tiles */
+    public ConcurrentRecyclingTileFactory getRecyclingTileFactory() {
+        return recyclingTileFactory;
+    }
+
     /**
      * Not Supported
      * 
@@ -0,0 +1,798 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.concurrent;
+
+import java.awt.Point;
+import java.awt.image.Raster;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.media.jai.OpImage;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.TileComputationListener;
+import javax.media.jai.TileRequest;
+import javax.media.jai.TileScheduler;
+
+/**
+ * A {@link TileScheduler} running the tile computations on a work-stealing {@link ForkJoinPool}, to be used together with the concurrent tile
+ * caches:
+ * 
+ * <pre>
+ * JAI.getDefaultInstance().setTileScheduler(new ConcurrentTileScheduler());
+ * </pre>
+ * 
+ * The threads requesting the same tile of the same image at the same time share a single computation, both for the blocking and the asynchronous
+ * methods. The asynchronous requests are queued by priority, the prefetches after the other requests, and a queued tile is dropped when all the
+ * requests interested in it have been cancelled. Prefetches only keep a weak reference to their image, so the ones of the images no longer in use
+ * are dropped as well. Queue depth and latencies are available through the {@link TileSchedulerDiagnostics} interface.
+ */
+public class ConcurrentTileScheduler implements TileScheduler, TileSchedulerDiagnostics {
+
+    private static final Logger LOGGER = Logger.getLogger(ConcurrentTileScheduler.class.getName());
+
+    /** The default parallelism, one thread per processor */
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /** The default number of prefetches running at the same time */
+    public static final int DEFAULT_PREFETCH_PARALLELISM = 1;
+
+    /** The default diagnostic settings */
+    public static final boolean DEFAULT_DIAGNOSTIC = false;
+
+    /** Higher priorities first, then in order of submission */
+    private static final Comparator<TileJob> JOB_ORDER = new Comparator<TileJob>() {
+        public int compare(TileJob j1, TileJob j2) {
+            if (j1.priority != j2.priority) {
+                return j1.priority > j2.priority ? -1 : 1;
+            }
+            return j1.sequence < j2.sequence ? -1 : (j1.sequence == j2.sequence ? 0 : 1);
+        }
+    };
+
+    private volatile ForkJoinPool pool;
+
+    private volatile int parallelism;
+
+    private volatile int prefetchParallelism;
+
+    private volatile int priority = Thread.NORM_PRIORITY;
+
+    private volatile int prefetchPriority = Thread.MIN_PRIORITY;
+
+    /** Tiles being computed by the blocking methods, shared by the threads requesting the same tile */
+    private final ConcurrentHashMap<TileKey, FutureTask<Raster>> computing = new ConcurrentHashMap<TileKey, FutureTask<Raster>>();
+
+    /** Asynchronous computations queued or running, shared by the requests of the same tile */
+    private final ConcurrentHashMap<TileKey, TileJob> jobs = new ConcurrentHashMap<TileKey, TileJob>();
+
+    private final PriorityBlockingQueue<TileJob> requestQueue = new PriorityBlockingQueue<TileJob>(
+            64, JOB_ORDER);
+
+    private final PriorityBlockingQueue<TileJob> prefetchQueue = new PriorityBlockingQueue<TileJob>(
+            64, JOB_ORDER);
+
+    private final AtomicInteger runningPrefetches = new AtomicInteger();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Runs the next queued job */
+    private final Runnable drain = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+
+    // diagnostics
+    private volatile boolean diagnosticEnabled = DEFAULT_DIAGNOSTIC;
+
+    private final AtomicInteger activeTiles = new AtomicInteger();
+
+    private final LongAdder computedTiles = new LongAdder();
+
+    private final LongAdder cancelledTiles = new LongAdder();
+
+    private final LongAdder failedTiles = new LongAdder();
+
+    private final LongAdder startedJobs = new LongAdder();
+
+    private final LongAdder queueTime = new LongAdder();
+
+    private final LongAdder computationTime = new LongAdder();
+
+    public ConcurrentTileScheduler() {
+        this(DEFAULT_PARALLELISM, DEFAULT_PREFETCH_PARALLELISM);
+    }
+
+    public ConcurrentTileScheduler(int parallelism, int prefetchParallelism) {
+        if (parallelism < 0 || prefetchParallelism < 0) {
+            throw new IllegalArgumentException("Parallelism cannot be negative");
+        }
+        this.parallelism = parallelism;
+        this.prefetchParallelism = prefetchParallelism;
+        this.pool = createPool();
+    }
+
+    /** Creates the pool of the worker threads, at least one thread is always used for the asynchronous requests */
+    private ForkJoinPool createPool() {
+        final int threadPriority = priority;
+        return new ForkJoinPool(Math.max(1, parallelism), new ForkJoinWorkerThreadFactory() {
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                        .newThread(pool);
+                thread.setName("ConcurrentTileScheduler-" + thread.getPoolIndex());
+                thread.setPriority(threadPriority);
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, null, false);
+    }
+
+    /** Replaces the pool, the jobs already submitted to the previous one are still executed */
+    private synchronized void replacePool() {
+        ForkJoinPool old = pool;
+        pool = createPool();
+        old.shutdown();
+    }
+
+    private void execute(Runnable task) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the pool has just been replaced
+            pool.execute(task);
+        }
+    }
+
+    /** Computes the tile, sharing the computation with the other threads requesting it at the same time */
+    public Raster scheduleTile(OpImage owner, int tileX, int tileY) {
+        if (owner == null) {
+            throw new IllegalArgumentException("Null owner image");
+        }
+        TileKey key = new TileKey(owner, tileX, tileY);
+        FutureTask<Raster> task = new FutureTask<Raster>(new TileComputation(owner, tileX, tileY));
+        FutureTask<Raster> current = computing.putIfAbsent(key, task);
+        if (current == null) {
+            try {
+                task.run();
+            } finally {
+                computing.remove(key, task);
+            }
+            current = task;
+        }
+        return getResult(current);
+    }
+
+    /**
+     * Computes the tiles in parallel. The calling thread takes part in the computation, and only waits for the tiles already being computed by the
+     * other threads.
+     */
+    public Raster[] scheduleTiles(final OpImage owner, final Point[] tileIndices) {
+        if (owner == null || tileIndices == null) {
+            throw new IllegalArgumentException("Null owner image or tile indices");
+        }
+        final int numTiles = tileIndices.length;
+        final Raster[] tiles = new Raster[numTiles];
+        int workers = Math.min(parallelism, numTiles);
+        if (workers <= 1) {
+            for (int i = 0; i < numTiles; i++) {
+                tiles[i] = scheduleTile(owner, tileIndices[i].x, tileIndices[i].y);
+            }
+            return tiles;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger pending = new AtomicInteger(numTiles);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Runnable worker = new Runnable() {
+            public void run() {
+                int i;
+                while ((i = next.getAndIncrement()) < numTiles) {
+                    try {
+                        // after a failure the remaining tiles are just skipped
+                        if (error.get() == null) {
+                            tiles[i] = scheduleTile(owner, tileIndices[i].x, tileIndices[i].y);
+                        }
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    } finally {
+                        if (pending.decrementAndGet() == 0) {
+                            synchronized (pending) {
+                                pending.notifyAll();
+                            }
+                        }
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < workers; i++) {
+            execute(worker);
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                try {
+                    pending.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        rethrow(error.get());
+        return tiles;
+    }
+
+    public TileRequest scheduleTiles(PlanarImage target, Point[] tileIndices,
+            TileComputationListener[] tileListeners) {
+        if (target == null || tileIndices == null) {
+            throw new IllegalArgumentException("Null target image or tile indices");
+        }
+        Request request = new Request(target, tileIndices, tileListeners);
+        int requestPriority = priority;
+        for (Point tileIndex : tileIndices) {
+            enqueue(target, tileIndex.x, tileIndex.y, request, requestPriority);
+        }
+        return request;
+    }
+
+    public void cancelTiles(TileRequest request, Point[] tileIndices) {
+        if (request == null) {
+            throw new IllegalArgumentException("Null request");
+        }
+        if (!(request instanceof Request) || ((Request) request).getScheduler() != this) {
+            return;
+        }
+        Request r = (Request) request;
+        Point[] tiles = tileIndices != null ? tileIndices : r.getTileIndices();
+        PlanarImage image = r.getImage();
+        for (Point tileIndex : tiles) {
+            TileKey key = new TileKey(image, tileIndex.x, tileIndex.y);
+            TileJob job = jobs.get(key);
+            if (job == null) {
+                continue;
+            }
+            boolean removed;
+            synchronized (job) {
+                removed = job.state == TileRequest.TILE_STATUS_PENDING && job.requests.remove(r);
+                if (removed) {
+                    r.setTileStatus(tileIndex.x, tileIndex.y, TileRequest.TILE_STATUS_CANCELLED);
+                    if (job.requests.isEmpty() && !job.prefetchRequested) {
+                        // nobody is interested in the tile anymore
+                        job.state = TileRequest.TILE_STATUS_CANCELLED;
+                        jobs.remove(key, job);
+                        (job.prefetch ? prefetchQueue : requestQueue).remove(job);
+                        if (diagnosticEnabled) {
+                            cancelledTiles.increment();
+                        }
+                    }
+                }
+            }
+            if (removed) {
+                notifyListeners(Collections.singletonList(r), image, tileIndex.x, tileIndex.y,
+                        null, null, true);
+            }
+        }
+    }
+
+    public void prefetchTiles(PlanarImage target, Point[] tileIndices) {
+        if (target == null || tileIndices == null) {
+            throw new IllegalArgumentException("Null target image or tile indices");
+        }
+        if (prefetchParallelism == 0) {
+            return;
+        }
+        int requestPriority = prefetchPriority;
+        for (Point tileIndex : tileIndices) {
+            enqueue(target, tileIndex.x, tileIndex.y, null, requestPriority);
+        }
+    }
+
+    /**
+     * Queues the computation of a tile, or joins the one already queued or running.
+     * 
+     * @param request the request interested in the tile, or null for a prefetch
+     */
+    private void enqueue(PlanarImage image, int tileX, int tileY, Request request,
+            int jobPriority) {
+        TileKey key = new TileKey(image, tileX, tileY);
+        while (true) {
+            TileJob job = jobs.get(key);
+            if (job == null) {
+                TileJob newJob = new TileJob(key, request, jobPriority, sequence.incrementAndGet());
+                job = jobs.putIfAbsent(key, newJob);
+                if (job == null) {
+                    queue(newJob);
+                    return;
+                }
+            }
+            synchronized (job) {
+                if (job.state != TileRequest.TILE_STATUS_PENDING
+                        && job.state != TileRequest.TILE_STATUS_PROCESSING) {
+                    // completed in the meanwhile, try again
+                    continue;
+                }
+                if (request != null) {
+                    job.requests.add(request);
+                    if (job.state == TileRequest.TILE_STATUS_PROCESSING) {
+                        request.setTileStatus(tileX, tileY, TileRequest.TILE_STATUS_PROCESSING);
+                    }
+                } else {
+                    job.prefetchRequested = true;
+                }
+                boolean promote = job.prefetch && request != null;
+                if (job.state == TileRequest.TILE_STATUS_PENDING
+                        && (promote || jobPriority > job.priority)) {
+                    PriorityBlockingQueue<TileJob> queue = job.prefetch ? prefetchQueue
+                            : requestQueue;
+                    // the ordering fields can only change while the job is out of the queue
+                    if (queue.remove(job)) {
+                        job.priority = Math.max(job.priority, jobPriority);
+                        job.prefetch = job.prefetch && !promote;
+                        queue(job);
+                    }
+                }
+            }
+            return;
+        }
+    }
+
+    private void queue(TileJob job) {
+        (job.prefetch ? prefetchQueue : requestQueue).add(job);
+        execute(drain);
+    }
+
+    /** Runs the next request, or the next prefetch if there are no requests and the prefetch parallelism allows it */
+    private void drain() {
+        TileJob job = requestQueue.poll();
+        if (job != null) {
+            run(job);
+            return;
+        }
+        if (runningPrefetches.incrementAndGet() <= prefetchParallelism) {
+            try {
+                job = prefetchQueue.poll();
+                if (job != null) {
+                    run(job);
+                }
+            } finally {
+                runningPrefetches.decrementAndGet();
+            }
+            if (job != null && !prefetchQueue.isEmpty()) {
+                execute(drain);
+            }
+        } else {
+            // the running prefetches will resubmit the drain when done
+            runningPrefetches.decrementAndGet();
+        }
+    }
+
+    private void run(TileJob job) {
+        TileKey key = job.key;
+        List<Request> requests;
+        synchronized (job) {
+            if (job.state != TileRequest.TILE_STATUS_PENDING) {
+                return;
+            }
+            job.state = TileRequest.TILE_STATUS_PROCESSING;
+            for (Request request : job.requests) {
+                request.setTileStatus(key.tileX, key.tileY, TileRequest.TILE_STATUS_PROCESSING);
+            }
+        }
+        PlanarImage image = key.getImage();
+        if (image == null) {
+            // the image of the prefetch is gone
+            synchronized (job) {
+                job.state = TileRequest.TILE_STATUS_CANCELLED;
+                jobs.remove(key, job);
+            }
+            if (diagnosticEnabled) {
+                cancelledTiles.increment();
+            }
+            return;
+        }
+        if (diagnosticEnabled) {
+            startedJobs.increment();
+            queueTime.add(System.nanoTime() - job.queuedTime);
+        }
+
+        activeTiles.incrementAndGet();
+        Raster tile = null;
+        Throwable failure = null;
+        try {
+            tile = image.getTile(key.tileX, key.tileY);
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            activeTiles.decrementAndGet();
+        }
+
+        int status = failure == null ? TileRequest.TILE_STATUS_COMPUTED
+                : TileRequest.TILE_STATUS_FAILED;
+        synchronized (job) {
+            job.state = status;
+            jobs.remove(key, job);
+            requests = new ArrayList<Request>(job.requests);
+        }
+        for (Request request : requests) {
+            request.setTileStatus(key.tileX, key.tileY, status);
+        }
+        notifyListeners(requests, image, key.tileX, key.tileY, tile, failure, false);
+    }
+
+    /** Notifies each listener once, with all the requests it belongs to */
+    private void notifyListeners(List<Request> requests, PlanarImage image, int tileX, int tileY,
+            Raster tile, Throwable failure, boolean cancelled) {
+        Map<TileComputationListener, List<TileRequest>> listeners = new LinkedHashMap<TileComputationListener, List<TileRequest>>();
+        for (Request request : requests) {
+            TileComputationListener[] requestListeners = request.getTileListeners();
+            if (requestListeners == null) {
+                continue;
+            }
+            for (TileComputationListener listener : requestListeners) {
+                if (listener == null) {
+                    continue;
+                }
+                List<TileRequest> listenerRequests = listeners.get(listener);
+                if (listenerRequests == null) {
+                    listenerRequests = new ArrayList<TileRequest>();
+                    listeners.put(listener, listenerRequests);
+                }
+                listenerRequests.add(request);
+            }
+        }
+        for (Map.Entry<TileComputationListener, List<TileRequest>> entry : listeners.entrySet()) {
+            TileComputationListener listener = entry.getKey();
+            TileRequest[] listenerRequests = entry.getValue().toArray(
+                    new TileRequest[entry.getValue().size()]);
+            try {
+                if (cancelled) {
+                    listener.tileCancelled(this, listenerRequests, image, tileX, tileY);
+                } else if (failure != null) {
+                    listener.tileComputationFailure(this, listenerRequests, image, tileX, tileY,
+                            failure);
+                } else {
+                    listener.tileComputed(this, listenerRequests, image, tileX, tileY, tile);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Tile computation listener failed", e);
+            }
+        }
+    }
+
+    private static Raster getResult(FutureTask<Raster> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    rethrow(e.getCause());
+                    return null;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void rethrow(Throwable t) {
+        if (t == null) {
+            return;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new RuntimeException(t);
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism cannot be negative");
+        }
+        if (this.parallelism != parallelism) {
+            this.parallelism = parallelism;
+            replacePool();
+        }
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setPrefetchParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism cannot be negative");
+        }
+        prefetchParallelism = parallelism;
+        if (!prefetchQueue.isEmpty()) {
+            execute(drain);
+        }
+    }
+
+    public int getPrefetchParallelism() {
+        return prefetchParallelism;
+    }
+
+    /**
+     * Sets the priority of the requests, also used as the priority of the worker threads. Requests with higher priorities are started first.
+     */
+    public void setPriority(int priority) {
+        priority = Math.max(Math.min(priority, Thread.MAX_PRIORITY), Thread.MIN_PRIORITY);
+        if (this.priority != priority) {
+            this.priority = priority;
+            replacePool();
+        }
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /** Sets the priority of the prefetches, used to order them. Prefetches are started only when no other request is queued. */
+    public void setPrefetchPriority(int priority) {
+        prefetchPriority = Math.max(Math.min(priority, Thread.MAX_PRIORITY), Thread.MIN_PRIORITY);
+    }
+
+    public int getPrefetchPriority() {
+        return prefetchPriority;
+    }
+
+    public void enableDiagnostics() {
+        diagnosticEnabled = true;
+    }
+
+    public void disableDiagnostics() {
+        diagnosticEnabled = false;
+    }
+
+    public int getQueuedTileCount() {
+        return requestQueue.size() + prefetchQueue.size();
+    }
+
+    public int getActiveTileCount() {
+        return activeTiles.get();
+    }
+
+    public long getComputedTileCount() {
+        return computedTiles.sum();
+    }
+
+    public long getCancelledTileCount() {
+        return cancelledTiles.sum();
+    }
+
+    public long getFailedTileCount() {
+        return failedTiles.sum();
+    }
+
+    public double getAverageQueueTime() {
+        long started = startedJobs.sum();
+        return started > 0 ? queueTime.sum() / 1e6 / started : 0;
+    }
+
+    public double getAverageComputationTime() {
+        long computed = computedTiles.sum();
+        return computed > 0 ? computationTime.sum() / 1e6 / computed : 0;
+    }
+
+    public void resetCounts() {
+        computedTiles.reset();
+        cancelledTiles.reset();
+        failedTiles.reset();
+        startedJobs.reset();
+        queueTime.reset();
+        computationTime.reset();
+    }
+
+    /** Computation of a tile of an {@link OpImage}, which is not added to the cache */
+    private final class TileComputation implements Callable<Raster> {
+
+        private final OpImage owner;
+
+        private final int tileX;
+
+        private final int tileY;
+
+        TileComputation(OpImage owner, int tileX, int tileY) {
+            this.owner = owner;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        public Raster call() {
+            if (!diagnosticEnabled) {
+                return owner.computeTile(tileX, tileY);
+            }
+            long start = System.nanoTime();
+            try {
+                Raster tile = owner.computeTile(tileX, tileY);
+                computationTime.add(System.nanoTime() - start);
+                computedTiles.increment();
+                return tile;
+            } catch (RuntimeException e) {
+                failedTiles.increment();
+                throw e;
+            }
+        }
+    }
+
+    /** Identifies a tile of an image, without preventing the image from being collected */
+    private static final class TileKey {
+
+        private final WeakReference<PlanarImage> image;
+
+        final int tileX;
+
+        final int tileY;
+
+        private final int hash;
+
+        TileKey(PlanarImage image, int tileX, int tileY) {
+            this.image = new WeakReference<PlanarImage>(image);
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.hash = (System.identityHashCode(image) * 31 + tileX) * 31 + tileY;
+        }
+
+        PlanarImage getImage() {
+            return image.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            PlanarImage owner = image.get();
+            return tileX == other.tileX && tileY == other.tileY && owner != null
+                    && owner == other.image.get();
+        }
+    }
+
+    /** Asynchronous computation of a tile, shared by all the requests for it. The mutable fields are guarded by the job itself. */
+    private static final class TileJob {
+
+        final TileKey key;
+
+        final long sequence;
+
+        final long queuedTime = System.nanoTime();
+
+        final List<Request> requests = new ArrayList<Request>(1);
+
+        int state = TileRequest.TILE_STATUS_PENDING;
+
+        /** Priority used to order the queue, it can only be raised while the job is pending and out of the queue */
+        volatile int priority;
+
+        /** True if the job is in the prefetch queue */
+        volatile boolean prefetch;
+
+        /** True if the tile has been prefetched, so the job is kept even without requests */
+        boolean prefetchRequested;
+
+        TileJob(TileKey key, Request request, int priority, long sequence) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            if (request != null) {
+                requests.add(request);
+            } else {
+                prefetch = true;
+                prefetchRequested = true;
+            }
+        }
+    }
+
+    /** The {@link TileRequest} returned by this scheduler */
+    private final class Request implements TileRequest {
+
+        private final PlanarImage image;
+
+        private final Point[] tileIndices;
+
+        private final TileComputationListener[] tileListeners;
+
+        private final Map<Point, Integer> status = new HashMap<Point, Integer>();
+
+        Request(PlanarImage image, Point[] tileIndices, TileComputationListener[] tileListeners) {
+            this.image = image;
+            this.tileIndices = tileIndices.clone();
+            this.tileListeners = tileListeners != null ? tileListeners.clone() : null;
+            for (Point tileIndex : tileIndices) {
+                status.put(new Point(tileIndex), TILE_STATUS_PENDING);
+            }
+        }
+
+        ConcurrentTileScheduler getScheduler() {
+            return ConcurrentTileScheduler.this;
+        }
+
+        public PlanarImage getImage() {
+            return image;
+        }
+
+        public Point[] getTileIndices() {
+            return tileIndices.clone();
+        }
+
+        public TileComputationListener[] getTileListeners() {
+            return tileListeners != null ? tileListeners.clone() : null;
+        }
+
+        public boolean isStatusAvailable() {
+            return true;
+        }
+
+        public synchronized int getTileStatus(int tileX, int tileY) {
+            Integer tileStatus = status.get(new Point(tileX, tileY));
+            if (tileStatus == null) {
+                throw new IllegalArgumentException("Tile " + tileX + "," + tileY
+                        + " is not part of the request");
+            }
+            return tileStatus;
+        }
+
+        synchronized void setTileStatus(int tileX, int tileY, int tileStatus) {
+            status.put(new Point(tileX, tileY), tileStatus);
+        }
+
+        public void cancelTiles(Point[] tileIndices) {
+            ConcurrentTileScheduler.this.cancelTiles(this, tileIndices);
+        }
+    }
+}
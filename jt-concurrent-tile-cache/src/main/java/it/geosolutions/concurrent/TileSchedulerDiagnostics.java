@@ -0,0 +1,55 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.concurrent;
+
+/**
+ * Diagnostics of a {@link javax.media.jai.TileScheduler}, in the style of the {@link com.sun.media.jai.util.CacheDiagnostics} exposed by the tile
+ * caches. The counters and the timings are collected only while the diagnostics are enabled.
+ */
+public interface TileSchedulerDiagnostics {
+
+    /** Enables the collection of the counters and of the timings */
+    void enableDiagnostics();
+
+    /** Disables the collection of the counters and of the timings */
+    void disableDiagnostics();
+
+    /** Retrieves the number of asynchronous tile computations waiting to be started */
+    int getQueuedTileCount();
+
+    /** Retrieves the number of asynchronous tile computations currently running */
+    int getActiveTileCount();
+
+    /** Retrieves the number of tiles computed */
+    long getComputedTileCount();
+
+    /** Retrieves the number of asynchronous tile computations cancelled before being started */
+    long getCancelledTileCount();
+
+    /** Retrieves the number of tile computations which failed */
+    long getFailedTileCount();
+
+    /** Retrieves the average time, in milliseconds, spent by the asynchronous tile computations in the queue */
+    double getAverageQueueTime();
+
+    /** Retrieves the average time, in milliseconds, spent computing a tile */
+    double getAverageComputationTime();
+
+    /** Resets the counters and the timings */
+    void resetCounts();
+}
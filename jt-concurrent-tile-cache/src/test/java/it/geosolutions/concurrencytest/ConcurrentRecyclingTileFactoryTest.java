@@ -0,0 +1,191 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.concurrencytest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.concurrent.ConcurrentRecyclingTileFactory;
+import it.geosolutions.concurrent.ConcurrentTileCache;
+import it.geosolutions.jaiext.utilities.ConstantImage;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.junit.Test;
+
+/**
+ * This test class is used for checking if the {@link ConcurrentRecyclingTileFactory} reuses the recycled tiles correctly.
+ */
+public class ConcurrentRecyclingTileFactoryTest {
+
+    private static final int TILE_SIZE = 64;
+
+    private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * 3;
+
+    private static SampleModel createSampleModel(int dataType) {
+        return RasterFactory.createPixelInterleavedSampleModel(dataType, TILE_SIZE, TILE_SIZE, 3);
+    }
+
+    private static byte[] getData(Raster tile) {
+        return ((DataBufferByte) tile.getDataBuffer()).getData();
+    }
+
+    @Test
+    public void testRecycledTileReused() {
+        ConcurrentRecyclingTileFactory factory = new ConcurrentRecyclingTileFactory();
+        SampleModel sm = createSampleModel(DataBuffer.TYPE_BYTE);
+
+        WritableRaster first = factory.createTile(sm, null);
+        first.setSample(10, 10, 1, 255);
+        byte[] data = getData(first);
+        factory.recycleTile(first);
+        assertEquals(TILE_BYTES, factory.getMemoryUsed());
+
+        // an equal sample model shares the same bucket
+        WritableRaster second = factory.createTile(createSampleModel(DataBuffer.TYPE_BYTE),
+                new Point(TILE_SIZE, 0));
+        assertSame(data, getData(second));
+        assertEquals(0, factory.getMemoryUsed());
+        assertEquals(TILE_SIZE, second.getMinX());
+        assertEquals(0, second.getMinY());
+        for (byte b : getData(second)) {
+            assertEquals(0, b);
+        }
+
+        // no free array left
+        WritableRaster third = factory.createTile(sm, null);
+        assertNotSame(data, getData(third));
+
+        // buckets are not mixed up
+        factory.recycleTile(third);
+        WritableRaster other = factory.createTile(createSampleModel(DataBuffer.TYPE_USHORT), null);
+        assertEquals(DataBuffer.TYPE_USHORT, other.getDataBuffer().getDataType());
+        assertEquals(TILE_BYTES, factory.getMemoryUsed());
+
+        factory.flush();
+        assertEquals(0, factory.getMemoryUsed());
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        ConcurrentRecyclingTileFactory factory = new ConcurrentRecyclingTileFactory(
+                TILE_BYTES, ConcurrentRecyclingTileFactory.DEFAULT_BUFFERS_PER_THREAD);
+        SampleModel sm = createSampleModel(DataBuffer.TYPE_BYTE);
+
+        WritableRaster first = factory.createTile(sm, null);
+        WritableRaster second = factory.createTile(sm, null);
+        factory.recycleTile(first);
+        factory.recycleTile(second);
+        // the second one is only weakly referenced
+        assertEquals(TILE_BYTES, factory.getMemoryUsed());
+
+        assertSame(getData(first), getData(factory.createTile(sm, null)));
+        assertEquals(0, factory.getMemoryUsed());
+    }
+
+    @Test
+    public void testNotRecyclableTile() {
+        ConcurrentRecyclingTileFactory factory = new ConcurrentRecyclingTileFactory();
+        SampleModel sm = createSampleModel(DataBuffer.TYPE_BYTE);
+
+        // a data buffer with an offset is not recycled
+        DataBuffer db = new DataBufferByte(new byte[TILE_BYTES + 1], TILE_BYTES, 1);
+        factory.recycleTile(RasterFactory.createWritableRaster(sm, db, null));
+        assertEquals(0, factory.getMemoryUsed());
+
+        WritableRaster tile = factory.createTile(sm, null);
+        assertEquals(0, tile.getDataBuffer().getOffset());
+    }
+
+    @Test
+    public void testSharedArraysNotRecycled() {
+        ConcurrentRecyclingTileFactory factory = new ConcurrentRecyclingTileFactory();
+        SampleModel sm = createSampleModel(DataBuffer.TYPE_BYTE);
+
+        // a data buffer wrapping the arrays of a live tile is not recycled
+        WritableRaster tile = factory.createTile(sm, null);
+        DataBuffer alias = new DataBufferByte(getData(tile), TILE_BYTES);
+        factory.recycleTile(RasterFactory.createWritableRaster(sm, alias, null));
+        assertEquals(0, factory.getMemoryUsed());
+        assertNotSame(getData(tile), getData(factory.createTile(sm, null)));
+    }
+
+    @Test
+    public void testConstantImageTilesNotRecycled() {
+        ConcurrentRecyclingTileFactory factory = new ConcurrentRecyclingTileFactory();
+        SampleModel sm = createSampleModel(DataBuffer.TYPE_BYTE);
+        ConstantImage image = new ConstantImage(0, 0, TILE_SIZE * 2, TILE_SIZE * 2, sm, null,
+                null, new int[] { 1, 2, 3 });
+
+        // the shared data of the constant image are never handed out again
+        Raster tile = image.getTile(0, 0);
+        factory.recycleTile(tile);
+        assertEquals(0, factory.getMemoryUsed());
+        assertNotSame(getData(tile), getData(factory.createTile(sm, null)));
+        Raster other = image.getTile(1, 1);
+        assertEquals(3, other.getSample(other.getMinX(), other.getMinY(), 2));
+    }
+
+    @Test
+    public void testForeignTilesNotRecycledWhenUnreachable() throws InterruptedException {
+        ConcurrentRecyclingTileFactory factory = new ConcurrentRecyclingTileFactory();
+        SampleModel sm = createSampleModel(DataBuffer.TYPE_BYTE);
+
+        // only the tiles created by the factory are tracked
+        factory.recycleTileWhenUnreachable(RasterFactory.createWritableRaster(sm, null));
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+            factory.createTile(createSampleModel(DataBuffer.TYPE_SHORT), null);
+        }
+        assertEquals(0, factory.getMemoryUsed());
+    }
+
+    @Test
+    public void testEvictedTilesRecycled() throws InterruptedException {
+        ConcurrentRecyclingTileFactory factory = new ConcurrentRecyclingTileFactory();
+        SampleModel sm = createSampleModel(DataBuffer.TYPE_BYTE);
+        TiledImage owner = new TiledImage(0, 0, TILE_SIZE * 10, TILE_SIZE, 0, 0, sm, null);
+
+        // room for two tiles
+        ConcurrentTileCache cache = new ConcurrentTileCache(TILE_BYTES * 2 + 1, false, 1f, 1);
+        cache.setRecyclingTileFactory(factory);
+        for (int i = 0; i < 10; i++) {
+            cache.add(owner, i, 0, factory.createTile(sm, new Point(i * TILE_SIZE, 0)));
+        }
+
+        // the evicted tiles are recycled once collected
+        SampleModel other = createSampleModel(DataBuffer.TYPE_SHORT);
+        for (int i = 0; i < 50 && factory.getMemoryUsed() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+            factory.createTile(other, null);
+        }
+        assertTrue(factory.getMemoryUsed() > 0);
+        assertEquals(0, factory.getMemoryUsed() % TILE_BYTES);
+    }
+}
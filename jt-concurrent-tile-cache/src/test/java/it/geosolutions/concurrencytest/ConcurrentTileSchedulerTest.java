@@ -0,0 +1,254 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.concurrencytest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.concurrent.ConcurrentTileScheduler;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.media.jai.JAI;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.SourcelessOpImage;
+import javax.media.jai.TileComputationListener;
+import javax.media.jai.TileRequest;
+import javax.media.jai.TileScheduler;
+
+import org.junit.Test;
+
+/**
+ * This test class is used for checking if the {@link ConcurrentTileScheduler} behaves correctly.
+ */
+public class ConcurrentTileSchedulerTest {
+
+    /** Image counting how many times each tile is computed, the computations wait for the gate to be opened */
+    private static class CountingImage extends SourcelessOpImage {
+
+        private final ConcurrentHashMap<Point, AtomicInteger> counts = new ConcurrentHashMap<Point, AtomicInteger>();
+
+        private final CountDownLatch gate;
+
+        CountingImage(CountDownLatch gate, TileScheduler scheduler) {
+            super(null, createHints(scheduler), createSampleModel(), 0, 0, 64, 64);
+            this.gate = gate;
+        }
+
+        private static RenderingHints createHints(TileScheduler scheduler) {
+            RenderingHints hints = new RenderingHints(JAI.KEY_TILE_CACHE, JAI.createTileCache(1L));
+            hints.put(JAI.KEY_TILE_SCHEDULER, scheduler);
+            return hints;
+        }
+
+        private static SampleModel createSampleModel() {
+            return RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, 16, 16,
+                    1);
+        }
+
+        @Override
+        protected void computeRect(PlanarImage[] sources, WritableRaster dest, Rectangle destRect) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            Point index = new Point(XToTileX(destRect.x), YToTileY(destRect.y));
+            counts.putIfAbsent(index, new AtomicInteger());
+            counts.get(index).incrementAndGet();
+            dest.setSample(destRect.x, destRect.y, 0, index.x * 10 + index.y);
+        }
+
+        int getCount(int tileX, int tileY) {
+            AtomicInteger count = counts.get(new Point(tileX, tileY));
+            return count != null ? count.get() : 0;
+        }
+    }
+
+    /** Listener recording the notifications */
+    private static class RecordingListener implements TileComputationListener {
+
+        final List<Point> computed = new ArrayList<Point>();
+
+        final List<Point> cancelled = new ArrayList<Point>();
+
+        final CountDownLatch done;
+
+        RecordingListener(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        public synchronized void tileComputed(Object eventSource, TileRequest[] requests,
+                PlanarImage image, int tileX, int tileY, Raster tile) {
+            computed.add(new Point(tileX, tileY));
+            done.countDown();
+        }
+
+        public synchronized void tileCancelled(Object eventSource, TileRequest[] requests,
+                PlanarImage image, int tileX, int tileY) {
+            cancelled.add(new Point(tileX, tileY));
+            done.countDown();
+        }
+
+        public void tileComputationFailure(Object eventSource, TileRequest[] requests,
+                PlanarImage image, int tileX, int tileY, Throwable situation) {
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsShareComputation() throws Exception {
+        final ConcurrentTileScheduler scheduler = new ConcurrentTileScheduler(4, 1);
+        CountDownLatch gate = new CountDownLatch(1);
+        final CountingImage image = new CountingImage(gate, scheduler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Raster>> results = new ArrayList<Future<Raster>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Raster>() {
+                    public Raster call() {
+                        return scheduler.scheduleTile(image, 1, 2);
+                    }
+                }));
+            }
+            // let all the threads reach the scheduler before computing
+            Thread.sleep(200);
+            gate.countDown();
+            Raster first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Raster> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(12, first.getSample(16, 32, 0));
+            assertEquals(1, image.getCount(1, 2));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBlockingScheduleTiles() {
+        ConcurrentTileScheduler scheduler = new ConcurrentTileScheduler(4, 1);
+        CountingImage image = new CountingImage(new CountDownLatch(0), scheduler);
+        Point[] tileIndices = image.getTileIndices(image.getBounds());
+
+        Raster[] tiles = scheduler.scheduleTiles(image, tileIndices);
+        assertEquals(tileIndices.length, tiles.length);
+        for (int i = 0; i < tiles.length; i++) {
+            Point index = tileIndices[i];
+            assertEquals(image.tileXToX(index.x), tiles[i].getMinX());
+            assertEquals(image.tileYToY(index.y), tiles[i].getMinY());
+            assertEquals(index.x * 10 + index.y,
+                    tiles[i].getSample(tiles[i].getMinX(), tiles[i].getMinY(), 0));
+            assertEquals(1, image.getCount(index.x, index.y));
+        }
+    }
+
+    @Test
+    public void testQueuedRequests() throws Exception {
+        ConcurrentTileScheduler scheduler = new ConcurrentTileScheduler(2, 1);
+        scheduler.enableDiagnostics();
+        CountingImage image = new CountingImage(new CountDownLatch(0), scheduler);
+        Point[] tileIndices = image.getTileIndices(image.getBounds());
+
+        RecordingListener listener = new RecordingListener(tileIndices.length);
+        TileRequest request = scheduler.scheduleTiles(image, tileIndices,
+                new TileComputationListener[] { listener });
+        assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(tileIndices.length, listener.computed.size());
+        assertEquals(0, scheduler.getQueuedTileCount());
+        assertEquals(tileIndices.length, scheduler.getComputedTileCount());
+        assertTrue(scheduler.getAverageQueueTime() >= 0);
+        for (Point index : tileIndices) {
+            assertEquals(TileRequest.TILE_STATUS_COMPUTED, request.getTileStatus(index.x, index.y));
+            assertNotNull(image.getTile(index.x, index.y));
+        }
+    }
+
+    @Test
+    public void testCancelledRequestsAreNotComputed() throws Exception {
+        ConcurrentTileScheduler scheduler = new ConcurrentTileScheduler(1, 1);
+        scheduler.enableDiagnostics();
+        CountDownLatch gate = new CountDownLatch(1);
+        CountingImage image = new CountingImage(gate, scheduler);
+
+        // the single worker is kept busy by the first tile
+        RecordingListener blockingListener = new RecordingListener(1);
+        scheduler.scheduleTiles(image, new Point[] { new Point(0, 0) },
+                new TileComputationListener[] { blockingListener });
+        Point[] others = new Point[] { new Point(1, 0), new Point(2, 0), new Point(3, 0) };
+        RecordingListener listener = new RecordingListener(others.length);
+        TileRequest request = scheduler.scheduleTiles(image, others,
+                new TileComputationListener[] { listener });
+        // a second request for one of the tiles keeps it alive
+        RecordingListener otherListener = new RecordingListener(1);
+        scheduler.scheduleTiles(image, new Point[] { new Point(3, 0) },
+                new TileComputationListener[] { otherListener });
+
+        request.cancelTiles(null);
+        gate.countDown();
+        assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+        assertTrue(blockingListener.done.await(10, TimeUnit.SECONDS));
+        assertTrue(otherListener.done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(3, listener.cancelled.size());
+        assertEquals(TileRequest.TILE_STATUS_CANCELLED, request.getTileStatus(1, 0));
+        assertEquals(0, image.getCount(1, 0));
+        assertEquals(0, image.getCount(2, 0));
+        assertEquals(1, image.getCount(3, 0));
+        assertEquals(1, otherListener.computed.size());
+        assertEquals(2, scheduler.getCancelledTileCount());
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        ConcurrentTileScheduler scheduler = new ConcurrentTileScheduler(2, 1);
+        CountingImage image = new CountingImage(new CountDownLatch(0), scheduler);
+        Point[] tileIndices = image.getTileIndices(image.getBounds());
+        scheduler.prefetchTiles(image, tileIndices);
+
+        long end = System.currentTimeMillis() + 10000;
+        for (Point index : tileIndices) {
+            while (image.getCount(index.x, index.y) == 0) {
+                assertTrue(System.currentTimeMillis() < end);
+                Thread.sleep(10);
+            }
+            assertEquals(1, image.getCount(index.x, index.y));
+        }
+        assertEquals(0, scheduler.getQueuedTileCount());
+    }
+}
@@ -169,6 +169,26 @@ public class ConvolveDescriptor extends OperationDescriptorImpl {
     /** serialVersionUID */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * {@link RenderingHints} key selecting the frequency domain convolution: {@link Boolean#TRUE}
+     * forces it, {@link Boolean#FALSE} disables it. If not set, the convolution is done in the
+     * frequency domain only when it is expected to be faster for the kernel and tile size.
+     */
+    public static final RenderingHints.Key KEY_FFT_CONVOLUTION = new BooleanKey(0);
+
+    /** {@link RenderingHints} key accepting {@link Boolean} values */
+    private static final class BooleanKey extends RenderingHints.Key {
+
+        BooleanKey(int privateKey) {
+            super(privateKey);
+        }
+
+        @Override
+        public boolean isCompatibleValue(Object val) {
+            return val instanceof Boolean;
+        }
+    }
+
     /**
      * The resource strings that provide the general documentation and specify the parameter list for a Convolve operation.
      */
@@ -0,0 +1,133 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.convolve;
+
+/**
+ * Iterative radix-2 Fast Fourier Transform of complex sequences whose length is a power of two.
+ * The twiddle factors and the bit reversal permutation are computed once, so a single instance can
+ * be shared by the threads computing tiles of the same size.
+ */
+final class FFT {
+
+    /** Transform length */
+    final int n;
+
+    private final double[] cos;
+
+    private final double[] sin;
+
+    private final int[] reverse;
+
+    FFT(int n) {
+        if (n < 1 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("The FFT length must be a power of two: " + n);
+        }
+        this.n = n;
+        cos = new double[n / 2];
+        sin = new double[n / 2];
+        for (int i = 0; i < n / 2; i++) {
+            double angle = -2 * Math.PI * i / n;
+            cos[i] = Math.cos(angle);
+            sin[i] = Math.sin(angle);
+        }
+        reverse = new int[n];
+        int bits = Integer.numberOfTrailingZeros(n);
+        for (int i = 0; i < n; i++) {
+            reverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    /**
+     * Returns the smallest power of two greater or equal than the input value.
+     */
+    static int nextPowerOfTwo(int value) {
+        int p = Integer.highestOneBit(Math.max(value, 1));
+        return p == value ? p : p << 1;
+    }
+
+    /**
+     * Transforms in place the n values starting at the given offset. The inverse transform is
+     * scaled by 1/n.
+     */
+    void transform(double[] re, double[] im, int offset, boolean inverse) {
+        // Bit reversal permutation
+        for (int i = 0; i < n; i++) {
+            int j = reverse[i];
+            if (j > i) {
+                double t = re[offset + i];
+                re[offset + i] = re[offset + j];
+                re[offset + j] = t;
+                t = im[offset + i];
+                im[offset + i] = im[offset + j];
+                im[offset + j] = t;
+            }
+        }
+        double sign = inverse ? -1 : 1;
+        // Butterflies
+        for (int size = 2; size <= n; size <<= 1) {
+            int half = size >> 1;
+            int step = n / size;
+            for (int start = offset; start < offset + n; start += size) {
+                for (int k = 0, t = 0; k < half; k++, t += step) {
+                    int a = start + k;
+                    int b = a + half;
+                    double wr = cos[t];
+                    double wi = sign * sin[t];
+                    double xr = re[b] * wr - im[b] * wi;
+                    double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+        if (inverse) {
+            double scale = 1.0 / n;
+            for (int i = offset; i < offset + n; i++) {
+                re[i] *= scale;
+                im[i] *= scale;
+            }
+        }
+    }
+
+    /**
+     * Transforms in place a row major 2D array whose rows are transformed by the first FFT and
+     * whose columns are transformed by the second one.
+     */
+    static void transform2D(FFT rows, FFT columns, double[] re, double[] im, boolean inverse) {
+        int width = rows.n;
+        int height = columns.n;
+        for (int j = 0; j < height; j++) {
+            rows.transform(re, im, j * width, inverse);
+        }
+        double[] columnRe = new double[height];
+        double[] columnIm = new double[height];
+        for (int i = 0; i < width; i++) {
+            for (int j = 0, index = i; j < height; j++, index += width) {
+                columnRe[j] = re[index];
+                columnIm[j] = im[index];
+            }
+            columns.transform(columnRe, columnIm, 0, inverse);
+            for (int j = 0, index = i; j < height; j++, index += width) {
+                re[index] = columnRe[j];
+                im[index] = columnIm[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,532 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.convolve;
+
+import it.geosolutions.jaiext.range.Range;
+
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.media.jai.BorderExtender;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.KernelJAI;
+import javax.media.jai.ROI;
+import javax.media.jai.RasterAccessor;
+import javax.media.jai.iterator.RandomIter;
+
+import com.sun.media.jai.util.ImageUtil;
+
+/**
+ * Convolution computed in the frequency domain, suited for large kernels. Each tile is convolved
+ * with the overlap-save method: the padded source window (the padding is provided by the "Border"
+ * operation when a {@link BorderExtender} is set) is transformed with an {@link FFT}, multiplied by
+ * the kernel spectrum, which is cached for each padded size, and transformed back.
+ * 
+ * <p>
+ * ROI and NoData follow the rules of {@link ConvolveGeneralOpImage}: the samples outside the ROI or
+ * equal to NoData are masked out before the transform, while the number of ROI and NoData samples
+ * under the kernel, which decides if the destination pixel is NoData, is computed exactly with
+ * summed area tables.
+ */
+public class FFTConvolveOpImage extends ConvolveOpImage {
+
+    /**
+     * Relative cost of one frequency domain operation, per padded sample and per log2 of the
+     * padded size, against one spatial multiply-add.
+     */
+    private static final double FFT_COST_FACTOR = 4;
+
+    /** Kernel spectra indexed by padded size */
+    private final Map<Long, Spectrum> spectra = new ConcurrentHashMap<Long, Spectrum>();
+
+    public FFTConvolveOpImage(RenderedImage source, BorderExtender extender, RenderingHints hints,
+            ImageLayout l, KernelJAI kernel, ROI roi, Range noData, double destinationNoData,
+            boolean skipNoData) {
+        super(source, extender, hints, l, kernel, roi, noData, destinationNoData, skipNoData);
+    }
+
+    /**
+     * Checks if the frequency domain convolution of a tile of the given size is expected to be
+     * faster than the spatial one.
+     * 
+     * @param kernel
+     * @param tileWidth
+     * @param tileHeight
+     * @return
+     */
+    public static boolean isFFTPreferred(KernelJAI kernel, int tileWidth, int tileHeight) {
+        int kw = kernel.getWidth();
+        int kh = kernel.getHeight();
+        double spatialCost = kernel.isSeparable() ? kw + kh : (double) kw * kh;
+        double padded = (double) FFT.nextPowerOfTwo(tileWidth + kw - 1)
+                * FFT.nextPowerOfTwo(tileHeight + kh - 1);
+        double log2 = Math.log(padded) / Math.log(2);
+        double fftCost = FFT_COST_FACTOR * padded * log2 / ((double) tileWidth * tileHeight);
+        return fftCost < spatialCost;
+    }
+
+    /**
+     * Returns the spectrum of the kernel for the given padded size, computing it if needed.
+     */
+    private Spectrum getSpectrum(int width, int height) {
+        Long key = ((long) width << 32) | height;
+        Spectrum spectrum = spectra.get(key);
+        if (spectrum == null) {
+            spectrum = new Spectrum(width, height);
+            Spectrum previous = spectra.putIfAbsent(key, spectrum);
+            if (previous != null) {
+                spectrum = previous;
+            }
+        }
+        return spectrum;
+    }
+
+    @Override
+    protected void byteLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+            boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
+
+        byte dstDataArrays[][] = dst.getByteDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+
+        byte srcDataArrays[][] = src.getByteDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        Tile tile = new Tile(src, dst, roiIter, roiContainsTile);
+
+        for (int k = 0; k < dnumBands; k++) {
+            byte srcData[] = srcDataArrays[k];
+            tile.reset();
+            int srcScanlineOffset = srcBandOffsets[k];
+            for (int j = 0; j < tile.srcHeight; j++) {
+                int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < tile.srcWidth; i++) {
+                    int value = srcData[srcPixelOffset] & 0xff;
+                    tile.set(i, j, value, hasNoData && !lut[value]);
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+            tile.convolve();
+
+            byte dstData[] = dstDataArrays[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+            for (int j = 0; j < tile.dstHeight; j++) {
+                int dstPixelOffset = dstScanlineOffset;
+                for (int i = 0; i < tile.dstWidth; i++) {
+                    dstData[dstPixelOffset] = tile.isValid(i, j) ? ImageUtil
+                            .clampRoundByte((float) (tile.get(i, j) + 0.5D)) : destNoDataByte;
+                    dstPixelOffset += dstPixelStride;
+                }
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
+    @Override
+    protected void ushortLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+            boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
+
+        short dstDataArrays[][] = dst.getShortDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+
+        short srcDataArrays[][] = src.getShortDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        Tile tile = new Tile(src, dst, roiIter, roiContainsTile);
+
+        for (int k = 0; k < dnumBands; k++) {
+            short srcData[] = srcDataArrays[k];
+            tile.reset();
+            int srcScanlineOffset = srcBandOffsets[k];
+            for (int j = 0; j < tile.srcHeight; j++) {
+                int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < tile.srcWidth; i++) {
+                    short value = srcData[srcPixelOffset];
+                    tile.set(i, j, value & 0xffff, hasNoData && noData.contains(value));
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+            tile.convolve();
+
+            short dstData[] = dstDataArrays[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+            for (int j = 0; j < tile.dstHeight; j++) {
+                int dstPixelOffset = dstScanlineOffset;
+                for (int i = 0; i < tile.dstWidth; i++) {
+                    dstData[dstPixelOffset] = tile.isValid(i, j) ? ImageUtil
+                            .clampRoundUShort((float) (tile.get(i, j) + 0.5D)) : destNoDataShort;
+                    dstPixelOffset += dstPixelStride;
+                }
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
+    @Override
+    protected void shortLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+            boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
+
+        short dstDataArrays[][] = dst.getShortDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+
+        short srcDataArrays[][] = src.getShortDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        Tile tile = new Tile(src, dst, roiIter, roiContainsTile);
+
+        for (int k = 0; k < dnumBands; k++) {
+            short srcData[] = srcDataArrays[k];
+            tile.reset();
+            int srcScanlineOffset = srcBandOffsets[k];
+            for (int j = 0; j < tile.srcHeight; j++) {
+                int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < tile.srcWidth; i++) {
+                    short value = srcData[srcPixelOffset];
+                    tile.set(i, j, value, hasNoData && noData.contains(value));
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+            tile.convolve();
+
+            short dstData[] = dstDataArrays[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+            for (int j = 0; j < tile.dstHeight; j++) {
+                int dstPixelOffset = dstScanlineOffset;
+                for (int i = 0; i < tile.dstWidth; i++) {
+                    dstData[dstPixelOffset] = tile.isValid(i, j) ? ImageUtil
+                            .clampRoundShort((float) (tile.get(i, j) + 0.5D)) : destNoDataShort;
+                    dstPixelOffset += dstPixelStride;
+                }
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
+    @Override
+    protected void intLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+            boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
+
+        int dstDataArrays[][] = dst.getIntDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+
+        int srcDataArrays[][] = src.getIntDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        Tile tile = new Tile(src, dst, roiIter, roiContainsTile);
+
+        for (int k = 0; k < dnumBands; k++) {
+            int srcData[] = srcDataArrays[k];
+            tile.reset();
+            int srcScanlineOffset = srcBandOffsets[k];
+            for (int j = 0; j < tile.srcHeight; j++) {
+                int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < tile.srcWidth; i++) {
+                    int value = srcData[srcPixelOffset];
+                    tile.set(i, j, value, hasNoData && noData.contains(value));
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+            tile.convolve();
+
+            int dstData[] = dstDataArrays[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+            for (int j = 0; j < tile.dstHeight; j++) {
+                int dstPixelOffset = dstScanlineOffset;
+                for (int i = 0; i < tile.dstWidth; i++) {
+                    dstData[dstPixelOffset] = tile.isValid(i, j) ? ImageUtil
+                            .clampRoundInt(tile.get(i, j) + 0.5D) : destNoDataInt;
+                    dstPixelOffset += dstPixelStride;
+                }
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
+    @Override
+    protected void floatLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+            boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
+
+        float dstDataArrays[][] = dst.getFloatDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+
+        float srcDataArrays[][] = src.getFloatDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        Tile tile = new Tile(src, dst, roiIter, roiContainsTile);
+
+        for (int k = 0; k < dnumBands; k++) {
+            float srcData[] = srcDataArrays[k];
+            tile.reset();
+            int srcScanlineOffset = srcBandOffsets[k];
+            for (int j = 0; j < tile.srcHeight; j++) {
+                int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < tile.srcWidth; i++) {
+                    float value = srcData[srcPixelOffset];
+                    tile.set(i, j, value, hasNoData && noData.contains(value));
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+            tile.convolve();
+
+            float dstData[] = dstDataArrays[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+            for (int j = 0; j < tile.dstHeight; j++) {
+                int dstPixelOffset = dstScanlineOffset;
+                for (int i = 0; i < tile.dstWidth; i++) {
+                    dstData[dstPixelOffset] = tile.isValid(i, j) ? (float) tile.get(i, j)
+                            : destNoDataFloat;
+                    dstPixelOffset += dstPixelStride;
+                }
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
+    @Override
+    protected void doubleLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+            boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
+
+        double dstDataArrays[][] = dst.getDoubleDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+
+        double srcDataArrays[][] = src.getDoubleDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        Tile tile = new Tile(src, dst, roiIter, roiContainsTile);
+
+        for (int k = 0; k < dnumBands; k++) {
+            double srcData[] = srcDataArrays[k];
+            tile.reset();
+            int srcScanlineOffset = srcBandOffsets[k];
+            for (int j = 0; j < tile.srcHeight; j++) {
+                int srcPixelOffset = srcScanlineOffset;
+                for (int i = 0; i < tile.srcWidth; i++) {
+                    double value = srcData[srcPixelOffset];
+                    tile.set(i, j, value, hasNoData && noData.contains(value));
+                    srcPixelOffset += srcPixelStride;
+                }
+                srcScanlineOffset += srcScanlineStride;
+            }
+            tile.convolve();
+
+            double dstData[] = dstDataArrays[k];
+            int dstScanlineOffset = dstBandOffsets[k];
+            for (int j = 0; j < tile.dstHeight; j++) {
+                int dstPixelOffset = dstScanlineOffset;
+                for (int i = 0; i < tile.dstWidth; i++) {
+                    dstData[dstPixelOffset] = tile.isValid(i, j) ? tile.get(i, j)
+                            : destNoDataDouble;
+                    dstPixelOffset += dstPixelStride;
+                }
+                dstScanlineOffset += dstScanlineStride;
+            }
+        }
+    }
+
+    /**
+     * Spectrum of the kernel zero padded to a power of two size, together with the {@link FFT}s of
+     * its rows and columns.
+     */
+    private final class Spectrum {
+
+        final FFT rows;
+
+        final FFT columns;
+
+        final double[] re;
+
+        final double[] im;
+
+        Spectrum(int width, int height) {
+            rows = new FFT(width);
+            columns = new FFT(height);
+            re = new double[width * height];
+            im = new double[width * height];
+            // The kernel is flipped, so that the circular convolution computes the same
+            // correlation of the spatial implementations
+            float[] data = kernel.getKernelData();
+            for (int u = 0; u < kh; u++) {
+                for (int v = 0; v < kw; v++) {
+                    re[u * width + v] = data[(kh - 1 - u) * kw + (kw - 1 - v)];
+                }
+            }
+            FFT.transform2D(rows, columns, re, im, false);
+        }
+    }
+
+    /**
+     * Working buffers for the convolution of a single band of a tile.
+     */
+    private final class Tile {
+
+        final int srcWidth;
+
+        final int srcHeight;
+
+        final int dstWidth;
+
+        final int dstHeight;
+
+        private final Spectrum spectrum;
+
+        private final int width;
+
+        private final double[] re;
+
+        private final double[] im;
+
+        private final boolean checkROI;
+
+        /** Summed area table of the ROI samples, only used with a partial ROI */
+        private final int[] roiSums;
+
+        /** ROI flags of the source samples, only used with a partial ROI */
+        private final boolean[] roiMask;
+
+        /** Summed area table of the NoData samples inside the ROI, only used with skipNoData */
+        private final int[] noDataSums;
+
+        Tile(RasterAccessor src, RasterAccessor dst, RandomIter roiIter, boolean roiContainsTile) {
+            srcWidth = src.getWidth();
+            srcHeight = src.getHeight();
+            dstWidth = dst.getWidth();
+            dstHeight = dst.getHeight();
+            spectrum = getSpectrum(FFT.nextPowerOfTwo(srcWidth), FFT.nextPowerOfTwo(srcHeight));
+            width = spectrum.rows.n;
+            re = new double[spectrum.re.length];
+            im = new double[spectrum.im.length];
+            checkROI = hasROI && !roiContainsTile;
+            noDataSums = skipNoData ? new int[(srcWidth + 1) * (srcHeight + 1)] : null;
+            if (checkROI) {
+                roiMask = new boolean[srcWidth * srcHeight];
+                roiSums = new int[(srcWidth + 1) * (srcHeight + 1)];
+                int srcX = src.getX();
+                int srcY = src.getY();
+                for (int j = 0; j < srcHeight; j++) {
+                    int y0 = srcY + j;
+                    for (int i = 0; i < srcWidth; i++) {
+                        int x0 = srcX + i;
+                        boolean inROI = roiBounds.contains(x0, y0)
+                                && roiIter.getSample(x0, y0, 0) > 0;
+                        roiMask[j * srcWidth + i] = inROI;
+                        addToSums(roiSums, i, j, inROI);
+                    }
+                }
+            } else {
+                roiMask = null;
+                roiSums = null;
+            }
+        }
+
+        /** Clears the buffers before loading a new band */
+        void reset() {
+            Arrays.fill(re, 0);
+            Arrays.fill(im, 0);
+        }
+
+        /** Sets the source sample at the given position; masked samples do not contribute */
+        void set(int i, int j, double value, boolean isNoData) {
+            boolean inROI = !checkROI || roiMask[j * srcWidth + i];
+            if (inROI && !isNoData) {
+                re[j * width + i] = value;
+            }
+            if (skipNoData) {
+                addToSums(noDataSums, i, j, inROI && isNoData);
+            }
+        }
+
+        /** Convolves the loaded band with the kernel */
+        void convolve() {
+            FFT.transform2D(spectrum.rows, spectrum.columns, re, im, false);
+            double[] kre = spectrum.re;
+            double[] kim = spectrum.im;
+            for (int i = 0; i < re.length; i++) {
+                double r = re[i] * kre[i] - im[i] * kim[i];
+                im[i] = re[i] * kim[i] + im[i] * kre[i];
+                re[i] = r;
+            }
+            FFT.transform2D(spectrum.rows, spectrum.columns, re, im, true);
+        }
+
+        /** Returns the convolution result for the given destination position */
+        double get(int i, int j) {
+            return re[(j + kh - 1) * width + i + kw - 1];
+        }
+
+        /** Checks if the given destination position must be set to NoData */
+        boolean isValid(int i, int j) {
+            if (checkROI && windowSum(roiSums, i, j) == 0) {
+                return false;
+            }
+            return !skipNoData || windowSum(noDataSums, i, j) == 0;
+        }
+
+        /** Updates the summed area table, whose cells must be visited in row major order */
+        private void addToSums(int[] sums, int i, int j, boolean flag) {
+            int stride = srcWidth + 1;
+            int index = (j + 1) * stride + i + 1;
+            sums[index] = (flag ? 1 : 0) + sums[index - 1] + sums[index - stride]
+                    - sums[index - stride - 1];
+        }
+
+        /** Number of flagged samples under the kernel placed at the destination position */
+        private int windowSum(int[] sums, int i, int j) {
+            int stride = srcWidth + 1;
+            int top = j * stride;
+            int bottom = (j + kh) * stride;
+            return sums[bottom + i + kw] - sums[bottom + i] - sums[top + i + kw] + sums[top + i];
+        }
+    }
+}
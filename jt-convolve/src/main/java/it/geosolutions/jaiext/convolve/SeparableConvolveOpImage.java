@@ -20,7 +20,6 @@ package it.geosolutions.jaiext.convolve;
 import it.geosolutions.jaiext.range.Range;
 
 import java.awt.RenderingHints;
-import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
 
 import javax.media.jai.BorderExtender;
@@ -32,437 +31,490 @@ import javax.media.jai.iterator.RandomIter;
 
 import com.sun.media.jai.util.ImageUtil;
 
+/**
+ * Convolution of a separable kernel, computed as a horizontal pass followed by a vertical one.
+ * Each destination pixel costs O(kw + kh) instead of the O(kw * kh) of
+ * {@link ConvolveGeneralOpImage}, with the same ROI, NoData and skipNoData handling: samples
+ * outside the ROI or equal to NoData do not contribute, a pixel whose kernel does not touch the
+ * ROI is set to the destination NoData and, if skipNoData is set, so is a pixel whose kernel
+ * contains a NoData sample.
+ */
 public class SeparableConvolveOpImage extends ConvolveOpImage {
-    
-    private float hValues[];
-    private float vValues[];
-    private float hTables[][]; 
+
+    /** Horizontal kernel values */
+    private final float[] hValues;
+
+    /** Vertical kernel values */
+    private final float[] vValues;
 
     public SeparableConvolveOpImage(RenderedImage source, BorderExtender extender,
             RenderingHints hints, ImageLayout l, KernelJAI kernel, ROI roi, Range noData,
             double destinationNoData, boolean skipNoData) {
-        
-        super(source, extender, hints, l, kernel, roi, noData, destinationNoData, skipNoData); // TODO Auto-generated constructor stub
-        
-        this.kernel = kernel;
-        kw = kernel.getWidth();
-        kh = kernel.getHeight();
-        kx = kernel.getXOrigin();
-        ky = kernel.getYOrigin();
+        super(source, extender, hints, l, kernel, roi, noData, destinationNoData, skipNoData);
+        if (!kernel.isSeparable()) {
+            throw new IllegalArgumentException("The kernel must be separable");
+        }
         hValues = kernel.getHorizontalKernelData();
         vValues = kernel.getVerticalKernelData();
-
-        if (sampleModel.getDataType() == DataBuffer.TYPE_BYTE) {
-            hTables = new float[hValues.length][256];
-            for (int i = 0; i < hValues.length; i++) {
-                float k = hValues[i];
-                for (int j = 0; j < 256; j++) {
-                    byte b = (byte)j;
-                    float f = (float)j;
-                    hTables[i][b+128] = hasNoData && noData.contains(b) ? 0 : k*f;
-                }
-            }
-        }
     }
 
     @Override
     protected void byteLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
             boolean roiContainsTile) {
-        int dwidth = dst.getWidth();
-        int dheight = dst.getHeight();
         int dnumBands = dst.getNumBands();
- 
+
         byte dstDataArrays[][] = dst.getByteDataArrays();
         int dstBandOffsets[] = dst.getBandOffsets();
         int dstPixelStride = dst.getPixelStride();
         int dstScanlineStride = dst.getScanlineStride();
- 
+
         byte srcDataArrays[][] = src.getByteDataArrays();
         int srcBandOffsets[] = src.getBandOffsets();
         int srcPixelStride = src.getPixelStride();
         int srcScanlineStride = src.getScanlineStride();
- 
-        float tmpBuffer[] = new float[kh*dwidth];
-        int   tmpBufferSize = kh*dwidth;
-        
-        // X,Y positions
-        int x0 = 0;
-        int y0 = 0;
-        int srcX = src.getX();
-        int srcY = src.getY();
-        
-        
-        if(caseA || (hasROI && hasNoData && roiContainsTile)){
-            for (int k = 0; k < dnumBands; k++)  {
-                byte dstData[] = dstDataArrays[k];
+
+        Window window = new Window(src, dst, roiIter, roiContainsTile);
+        double[] values = window.values;
+        boolean[] noDataRow = window.noDataRow;
+        double[] result = window.result;
+        boolean[] valid = window.valid;
+
+        for (int j = 0; j < window.srcHeight; j++) {
+            window.loadROIRow(j);
+            for (int k = 0; k < dnumBands; k++) {
                 byte srcData[] = srcDataArrays[k];
-                int srcScanlineOffset = srcBandOffsets[k];
-                int dstScanlineOffset = dstBandOffsets[k];
-
-                int revolver = 0;
-                int kvRevolver = 0;                 // to match kernel vValues
-                for (int j = 0; j < kh-1; j++) {
-                    int srcPixelOffset = srcScanlineOffset;
-
-                    for (int i = 0; i < dwidth; i++) {
-                         int imageOffset = srcPixelOffset;
-                         float f = 0.0f;
-                         for (int v = 0; v < kw; v++)  {
-                              f += hTables[v][srcData[imageOffset]+128];
-                              imageOffset += srcPixelStride;
-                         }
-                         tmpBuffer[revolver+i] = f;
-                         srcPixelOffset += srcPixelStride;
+                int srcPixelOffset = srcBandOffsets[k] + j * srcScanlineStride;
+                for (int i = 0; i < window.srcWidth; i++) {
+                    int value = srcData[srcPixelOffset] & 0xff;
+                    values[i] = value;
+                    if (hasNoData) {
+                        noDataRow[i] = !lut[value];
                     }
-                    revolver += dwidth;
-                    srcScanlineOffset += srcScanlineStride;
+                    srcPixelOffset += srcPixelStride;
                 }
-
-                // srcScanlineStride already bumped by 
-                // kh-1*scanlineStride
-                for (int j = 0; j < dheight; j++)  {
-                    int srcPixelOffset = srcScanlineOffset;
-                    int dstPixelOffset = dstScanlineOffset;
-     
-                    for (int i = 0; i < dwidth; i++)  {
-                        int imageOffset = srcPixelOffset;
-                        float f = 0.0f;
-                        for (int v = 0; v < kw; v++)  {
-                             f += hTables[v][srcData[imageOffset]+128];
-                             imageOffset += srcPixelStride;
-                        }
-                        tmpBuffer[revolver + i] = f;
-
-                        f = 0.5f;
-                        // int a = 0;  
-                        // The vertical kernel must revolve as well
-                        int b = kvRevolver + i;
-                        for (int a=0; a < kh; a++){
-                            f += tmpBuffer[b] * vValues[a];
-                            b += dwidth;
-                            if (b >= tmpBufferSize) b -= tmpBufferSize;
-                        }
-
-                        dstData[dstPixelOffset] = ImageUtil.clampRoundByte(f);
-                        srcPixelOffset += srcPixelStride;
+                if (window.addRow(k, j)) {
+                    int dj = j - kh + 1;
+                    byte dstData[] = dstDataArrays[k];
+                    int dstPixelOffset = dstBandOffsets[k] + dj * dstScanlineStride;
+                    for (int i = 0; i < window.dstWidth; i++) {
+                        dstData[dstPixelOffset] = valid[i] ? ImageUtil
+                                .clampRoundByte((float) (result[i] + 0.5D)) : destNoDataByte;
                         dstPixelOffset += dstPixelStride;
                     }
-
-                    revolver += dwidth;
-                    if (revolver == tmpBufferSize) {
-                        revolver = 0;
-                    } 
-                    kvRevolver += dwidth;
-                    if (kvRevolver == tmpBufferSize) {
-                        kvRevolver = 0;
-                    } 
-                    srcScanlineOffset += srcScanlineStride;
-                    dstScanlineOffset += dstScanlineStride;
                 }
             }
-        }else if(caseB){
-            for (int k = 0; k < dnumBands; k++)  {
-                byte dstData[] = dstDataArrays[k];
-                byte srcData[] = srcDataArrays[k];
-                int srcScanlineOffset = srcBandOffsets[k];
-                int dstScanlineOffset = dstBandOffsets[k];
-
-                int revolver = 0;
-                int kvRevolver = 0;                 // to match kernel vValues
-                for (int j = 0; j < kh-1; j++) {
-                    int srcPixelOffset = srcScanlineOffset;
-
-                    for (int i = 0; i < dwidth; i++) {
-                         int imageOffset = srcPixelOffset;
-                         float f = 0.0f;
-                         for (int v = 0; v < kw; v++)  {
-                              f += hTables[v][srcData[imageOffset]+128];
-                              imageOffset += srcPixelStride;
-                         }
-                         tmpBuffer[revolver+i] = f;
-                         srcPixelOffset += srcPixelStride;
-                    }
-                    revolver += dwidth;
-                    srcScanlineOffset += srcScanlineStride;
-                }
+        }
+    }
 
-                // srcScanlineStride already bumped by 
-                // kh-1*scanlineStride
-                for (int j = 0; j < dheight; j++)  {
-                    int srcPixelOffset = srcScanlineOffset;
-                    int dstPixelOffset = dstScanlineOffset;
-     
-                    y0 = srcY + j;
-                    
-                    for (int i = 0; i < dwidth; i++)  {
-                        
-                        x0 = srcX + i;
-                        
-                        int imageOffset = srcPixelOffset;
-                        float f = 0.0f;
-                        for (int v = 0; v < kw; v++)  {
-                             f += hTables[v][srcData[imageOffset]+128];
-                             imageOffset += srcPixelStride;
-                        }
-                        tmpBuffer[revolver + i] = f;
-                        
-                        if(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0){            
-                            f = 0.5f;
-                            // int a = 0;  
-                            // The vertical kernel must revolve as well
-                            int b = kvRevolver + i;
-                            for (int a=0; a < kh; a++){
-                                f += tmpBuffer[b] * vValues[a];
-                                b += dwidth;
-                                if (b >= tmpBufferSize) b -= tmpBufferSize;
-                            }
-                            
-                            dstData[dstPixelOffset] = ImageUtil.clampRoundByte(f);
-                        } else {
-                            dstData[dstPixelOffset] = destNoDataByte;
-                        }
+    @Override
+    protected void ushortLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+            boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
 
-                        srcPixelOffset += srcPixelStride;
-                        dstPixelOffset += dstPixelStride;
-                    }
+        short dstDataArrays[][] = dst.getShortDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
 
-                    revolver += dwidth;
-                    if (revolver == tmpBufferSize) {
-                        revolver = 0;
-                    } 
-                    kvRevolver += dwidth;
-                    if (kvRevolver == tmpBufferSize) {
-                        kvRevolver = 0;
-                    } 
-                    srcScanlineOffset += srcScanlineStride;
-                    dstScanlineOffset += dstScanlineStride;
-                }
-            }
-        }else if(caseC || (hasROI && hasNoData && roiContainsTile)){
-            for (int k = 0; k < dnumBands; k++)  {
-                byte dstData[] = dstDataArrays[k];
-                byte srcData[] = srcDataArrays[k];
-                int srcScanlineOffset = srcBandOffsets[k];
-                int dstScanlineOffset = dstBandOffsets[k];
-
-                int revolver = 0;
-                int kvRevolver = 0;                 // to match kernel vValues
-                for (int j = 0; j < kh-1; j++) {
-                    int srcPixelOffset = srcScanlineOffset;
-
-                    for (int i = 0; i < dwidth; i++) {
-                         int imageOffset = srcPixelOffset;
-                         float f = 0.0f;
-                         for (int v = 0; v < kw; v++)  {
-                              f += hTables[v][srcData[imageOffset]+128];
-                              imageOffset += srcPixelStride;
-                         }
-                         tmpBuffer[revolver+i] = f;
-                         srcPixelOffset += srcPixelStride;
+        short srcDataArrays[][] = src.getShortDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        Window window = new Window(src, dst, roiIter, roiContainsTile);
+        double[] values = window.values;
+        boolean[] noDataRow = window.noDataRow;
+        double[] result = window.result;
+        boolean[] valid = window.valid;
+
+        for (int j = 0; j < window.srcHeight; j++) {
+            window.loadROIRow(j);
+            for (int k = 0; k < dnumBands; k++) {
+                short srcData[] = srcDataArrays[k];
+                int srcPixelOffset = srcBandOffsets[k] + j * srcScanlineStride;
+                for (int i = 0; i < window.srcWidth; i++) {
+                    short value = srcData[srcPixelOffset];
+                    values[i] = value & 0xffff;
+                    if (hasNoData) {
+                        noDataRow[i] = noData.contains(value);
                     }
-                    revolver += dwidth;
-                    srcScanlineOffset += srcScanlineStride;
+                    srcPixelOffset += srcPixelStride;
                 }
-
-                // srcScanlineStride already bumped by 
-                // kh-1*scanlineStride
-                for (int j = 0; j < dheight; j++)  {
-                    int srcPixelOffset = srcScanlineOffset;
-                    int dstPixelOffset = dstScanlineOffset;
-     
-                    for (int i = 0; i < dwidth; i++)  {
-                        int imageOffset = srcPixelOffset;
-                        float f = 0.0f;
-                        for (int v = 0; v < kw; v++)  {
-                             f += hTables[v][srcData[imageOffset]+128];
-                             imageOffset += srcPixelStride;
-                        }
-                        tmpBuffer[revolver + i] = f;
-
-                        boolean isValid = true;
-                        if(skipNoData){
-                            int bandOff = srcBandOffsets[k];
-                            for(int kj = 0; kj < kh && isValid; kj++){
-                                int lineOff = (j + kj)*srcScanlineStride + bandOff;
-                                for(int ki = 0; ki < kw  && isValid; ki++){
-                                    int pixelOff = (i + ki) * srcPixelStride + lineOff;
-                                    byte value = srcData[pixelOff];
-                                    if(!lut[value + 128]){
-                                        isValid = false;
-                                    }
-                                }
-                            }
-                        }
-
-                        if(isValid){
-                            f = 0.5f;
-                            // int a = 0;  
-                            // The vertical kernel must revolve as well
-                            int b = kvRevolver + i;
-                            for (int a=0; a < kh; a++){
-                                f += tmpBuffer[b] * vValues[a];
-                                b += dwidth;
-                                if (b >= tmpBufferSize) b -= tmpBufferSize;
-                            }
-                            dstData[dstPixelOffset] = ImageUtil.clampRoundByte(f);
-                        } else {
-                            dstData[dstPixelOffset] = destNoDataByte;
-                        }
-                       
-                        srcPixelOffset += srcPixelStride;
+                if (window.addRow(k, j)) {
+                    int dj = j - kh + 1;
+                    short dstData[] = dstDataArrays[k];
+                    int dstPixelOffset = dstBandOffsets[k] + dj * dstScanlineStride;
+                    for (int i = 0; i < window.dstWidth; i++) {
+                        dstData[dstPixelOffset] = valid[i] ? ImageUtil
+                                .clampRoundUShort((float) (result[i] + 0.5D)) : destNoDataShort;
                         dstPixelOffset += dstPixelStride;
                     }
-
-                    revolver += dwidth;
-                    if (revolver == tmpBufferSize) {
-                        revolver = 0;
-                    } 
-                    kvRevolver += dwidth;
-                    if (kvRevolver == tmpBufferSize) {
-                        kvRevolver = 0;
-                    } 
-                    srcScanlineOffset += srcScanlineStride;
-                    dstScanlineOffset += dstScanlineStride;
                 }
             }
-        }else{
-            for (int k = 0; k < dnumBands; k++)  {
-                byte dstData[] = dstDataArrays[k];
-                byte srcData[] = srcDataArrays[k];
-                int srcScanlineOffset = srcBandOffsets[k];
-                int dstScanlineOffset = dstBandOffsets[k];
-
-                int revolver = 0;
-                int kvRevolver = 0;                 // to match kernel vValues
-                for (int j = 0; j < kh-1; j++) {
-                    int srcPixelOffset = srcScanlineOffset;
-
-                    y0 = srcY + j;
-                    
-                    for (int i = 0; i < dwidth; i++)  {
-                        
-                        x0 = srcX + i;
-                        
-                         int imageOffset = srcPixelOffset;
-                         float f = 0.0f;
-                         for (int v = 0; v < kw; v++)  {
-                              f += hTables[v][srcData[imageOffset]+128];
-                              imageOffset += srcPixelStride;
-                         }
-                         tmpBuffer[revolver+i] = f;
-                         srcPixelOffset += srcPixelStride;
-                    }
-                    revolver += dwidth;
-                    srcScanlineOffset += srcScanlineStride;
-                }
+        }
+    }
 
-                // srcScanlineStride already bumped by 
-                // kh-1*scanlineStride
-                for (int j = 0; j < dheight; j++)  {
-                    int srcPixelOffset = srcScanlineOffset;
-                    int dstPixelOffset = dstScanlineOffset;
-     
-                    for (int i = 0; i < dwidth; i++)  {
-                        int imageOffset = srcPixelOffset;
-                        float f = 0.0f;
-                        for (int v = 0; v < kw; v++)  {
-                             f += hTables[v][srcData[imageOffset]+128];
-                             imageOffset += srcPixelStride;
-                        }
-                        tmpBuffer[revolver + i] = f;
+    @Override
+    protected void shortLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+            boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
 
-                        if(roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0){
-                            
-                        }
-                        
-                        
-                        boolean isValid = true;
-                        if(skipNoData){
-                            int bandOff = srcBandOffsets[k];
-                            for(int kj = 0; kj < kh && isValid; kj++){
-                                int lineOff = (j + kj)*srcScanlineStride + bandOff;
-                                for(int ki = 0; ki < kw  && isValid; ki++){
-                                    int pixelOff = (i + ki) * srcPixelStride + lineOff;
-                                    byte value = srcData[pixelOff];
-                                    if(!lut[value + 128]){
-                                        isValid = false;
-                                    }
-                                }
-                            }
-                        }
+        short dstDataArrays[][] = dst.getShortDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
 
-                        if(isValid){
-                            f = 0.5f;
-                            // int a = 0;  
-                            // The vertical kernel must revolve as well
-                            int b = kvRevolver + i;
-                            for (int a=0; a < kh; a++){
-                                f += tmpBuffer[b] * vValues[a];
-                                b += dwidth;
-                                if (b >= tmpBufferSize) b -= tmpBufferSize;
-                            }
-                            dstData[dstPixelOffset] = ImageUtil.clampRoundByte(f);
-                        } else {
-                            dstData[dstPixelOffset] = destNoDataByte;
-                        }
-                       
-                        srcPixelOffset += srcPixelStride;
+        short srcDataArrays[][] = src.getShortDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        Window window = new Window(src, dst, roiIter, roiContainsTile);
+        double[] values = window.values;
+        boolean[] noDataRow = window.noDataRow;
+        double[] result = window.result;
+        boolean[] valid = window.valid;
+
+        for (int j = 0; j < window.srcHeight; j++) {
+            window.loadROIRow(j);
+            for (int k = 0; k < dnumBands; k++) {
+                short srcData[] = srcDataArrays[k];
+                int srcPixelOffset = srcBandOffsets[k] + j * srcScanlineStride;
+                for (int i = 0; i < window.srcWidth; i++) {
+                    short value = srcData[srcPixelOffset];
+                    values[i] = value;
+                    if (hasNoData) {
+                        noDataRow[i] = noData.contains(value);
+                    }
+                    srcPixelOffset += srcPixelStride;
+                }
+                if (window.addRow(k, j)) {
+                    int dj = j - kh + 1;
+                    short dstData[] = dstDataArrays[k];
+                    int dstPixelOffset = dstBandOffsets[k] + dj * dstScanlineStride;
+                    for (int i = 0; i < window.dstWidth; i++) {
+                        dstData[dstPixelOffset] = valid[i] ? ImageUtil
+                                .clampRoundShort((float) (result[i] + 0.5D)) : destNoDataShort;
                         dstPixelOffset += dstPixelStride;
                     }
-
-                    revolver += dwidth;
-                    if (revolver == tmpBufferSize) {
-                        revolver = 0;
-                    } 
-                    kvRevolver += dwidth;
-                    if (kvRevolver == tmpBufferSize) {
-                        kvRevolver = 0;
-                    } 
-                    srcScanlineOffset += srcScanlineStride;
-                    dstScanlineOffset += dstScanlineStride;
                 }
             }
         }
     }
 
     @Override
-    protected void ushortLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+    protected void intLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
             boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
+
+        int dstDataArrays[][] = dst.getIntDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
 
-        // TODO Auto-generated method stub
+        int srcDataArrays[][] = src.getIntDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
 
+        Window window = new Window(src, dst, roiIter, roiContainsTile);
+        double[] values = window.values;
+        boolean[] noDataRow = window.noDataRow;
+        double[] result = window.result;
+        boolean[] valid = window.valid;
+
+        for (int j = 0; j < window.srcHeight; j++) {
+            window.loadROIRow(j);
+            for (int k = 0; k < dnumBands; k++) {
+                int srcData[] = srcDataArrays[k];
+                int srcPixelOffset = srcBandOffsets[k] + j * srcScanlineStride;
+                for (int i = 0; i < window.srcWidth; i++) {
+                    int value = srcData[srcPixelOffset];
+                    values[i] = value;
+                    if (hasNoData) {
+                        noDataRow[i] = noData.contains(value);
+                    }
+                    srcPixelOffset += srcPixelStride;
+                }
+                if (window.addRow(k, j)) {
+                    int dj = j - kh + 1;
+                    int dstData[] = dstDataArrays[k];
+                    int dstPixelOffset = dstBandOffsets[k] + dj * dstScanlineStride;
+                    for (int i = 0; i < window.dstWidth; i++) {
+                        dstData[dstPixelOffset] = valid[i] ? ImageUtil
+                                .clampRoundInt(result[i] + 0.5D) : destNoDataInt;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                }
+            }
+        }
     }
 
     @Override
-    protected void shortLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+    protected void floatLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
             boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
 
-        // TODO Auto-generated method stub
+        float dstDataArrays[][] = dst.getFloatDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+
+        float srcDataArrays[][] = src.getFloatDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
 
+        Window window = new Window(src, dst, roiIter, roiContainsTile);
+        double[] values = window.values;
+        boolean[] noDataRow = window.noDataRow;
+        double[] result = window.result;
+        boolean[] valid = window.valid;
+
+        for (int j = 0; j < window.srcHeight; j++) {
+            window.loadROIRow(j);
+            for (int k = 0; k < dnumBands; k++) {
+                float srcData[] = srcDataArrays[k];
+                int srcPixelOffset = srcBandOffsets[k] + j * srcScanlineStride;
+                for (int i = 0; i < window.srcWidth; i++) {
+                    float value = srcData[srcPixelOffset];
+                    values[i] = value;
+                    if (hasNoData) {
+                        noDataRow[i] = noData.contains(value);
+                    }
+                    srcPixelOffset += srcPixelStride;
+                }
+                if (window.addRow(k, j)) {
+                    int dj = j - kh + 1;
+                    float dstData[] = dstDataArrays[k];
+                    int dstPixelOffset = dstBandOffsets[k] + dj * dstScanlineStride;
+                    for (int i = 0; i < window.dstWidth; i++) {
+                        dstData[dstPixelOffset] = valid[i] ? (float) result[i] : destNoDataFloat;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                }
+            }
+        }
     }
 
     @Override
-    protected void intLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
+    protected void doubleLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
             boolean roiContainsTile) {
+        int dnumBands = dst.getNumBands();
+
+        double dstDataArrays[][] = dst.getDoubleDataArrays();
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
 
-        // TODO Auto-generated method stub
+        double srcDataArrays[][] = src.getDoubleDataArrays();
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
 
+        Window window = new Window(src, dst, roiIter, roiContainsTile);
+        double[] values = window.values;
+        boolean[] noDataRow = window.noDataRow;
+        double[] result = window.result;
+        boolean[] valid = window.valid;
+
+        for (int j = 0; j < window.srcHeight; j++) {
+            window.loadROIRow(j);
+            for (int k = 0; k < dnumBands; k++) {
+                double srcData[] = srcDataArrays[k];
+                int srcPixelOffset = srcBandOffsets[k] + j * srcScanlineStride;
+                for (int i = 0; i < window.srcWidth; i++) {
+                    double value = srcData[srcPixelOffset];
+                    values[i] = value;
+                    if (hasNoData) {
+                        noDataRow[i] = noData.contains(value);
+                    }
+                    srcPixelOffset += srcPixelStride;
+                }
+                if (window.addRow(k, j)) {
+                    int dj = j - kh + 1;
+                    double dstData[] = dstDataArrays[k];
+                    int dstPixelOffset = dstBandOffsets[k] + dj * dstScanlineStride;
+                    for (int i = 0; i < window.dstWidth; i++) {
+                        dstData[dstPixelOffset] = valid[i] ? result[i] : destNoDataDouble;
+                        dstPixelOffset += dstPixelStride;
+                    }
+                }
+            }
+        }
     }
 
-    @Override
-    protected void floatLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
-            boolean roiContainsTile) {
+    /**
+     * Rolling state of the two pass convolution of a single tile. The typed loops fill
+     * {@link #values} (and {@link #noDataRow}) with one source row of a band and call
+     * {@link #addRow(int, int)}, which stores the horizontal pass inside a ring buffer of kh rows
+     * and, once the buffer is full, computes the vertical pass of the related destination row into
+     * {@link #result} and {@link #valid}.
+     */
+    private final class Window {
 
-        // TODO Auto-generated method stub
+        final int srcWidth;
 
-    }
+        final int srcHeight;
 
-    @Override
-    protected void doubleLoop(RasterAccessor src, RasterAccessor dst, RandomIter roiIter,
-            boolean roiContainsTile) {
+        final int dstWidth;
 
-        // TODO Auto-generated method stub
+        /** Source samples of the current row */
+        final double[] values;
 
-    }
+        /** NoData flags of the current row */
+        final boolean[] noDataRow;
+
+        /** Destination values of the last computed row */
+        final double[] result;
 
+        /** Destination validity of the last computed row */
+        final boolean[] valid;
+
+        /** Horizontal sums for each band, as a ring buffer of kh rows */
+        private final double[][] hSums;
+
+        /** Number of NoData samples inside the horizontal span, only used with skipNoData */
+        private final int[][] noDataCounts;
+
+        /** Number of ROI samples inside the horizontal span, only used with a partial ROI */
+        private final int[] roiCounts;
+
+        /** ROI flags of the current row */
+        private final boolean[] roiRow;
+
+        private final boolean checkROI;
+
+        private final RandomIter roiIter;
+
+        private final int srcX;
+
+        private final int srcY;
+
+        Window(RasterAccessor src, RasterAccessor dst, RandomIter roiIter, boolean roiContainsTile) {
+            int numBands = dst.getNumBands();
+            this.srcWidth = src.getWidth();
+            this.srcHeight = src.getHeight();
+            this.dstWidth = dst.getWidth();
+            this.srcX = src.getX();
+            this.srcY = src.getY();
+            this.roiIter = roiIter;
+            this.checkROI = hasROI && !roiContainsTile;
+
+            values = new double[srcWidth];
+            noDataRow = new boolean[srcWidth];
+            result = new double[dstWidth];
+            valid = new boolean[dstWidth];
+            hSums = new double[numBands][kh * dstWidth];
+            noDataCounts = skipNoData ? new int[numBands][kh * dstWidth] : null;
+            roiRow = checkROI ? new boolean[srcWidth] : null;
+            roiCounts = checkROI ? new int[kh * dstWidth] : null;
+        }
+
+        /**
+         * Loads the ROI flags of the j-th source row, shared by all the bands.
+         */
+        void loadROIRow(int j) {
+            if (!checkROI) {
+                return;
+            }
+            int y0 = srcY + j;
+            int ringOffset = (j % kh) * dstWidth;
+            int count = 0;
+            for (int i = 0; i < srcWidth; i++) {
+                int x0 = srcX + i;
+                roiRow[i] = roiBounds.contains(x0, y0) && roiIter.getSample(x0, y0, 0) > 0;
+                if (roiRow[i]) {
+                    count++;
+                }
+                if (i >= kw - 1) {
+                    roiCounts[ringOffset + i - kw + 1] = count;
+                    if (roiRow[i - kw + 1]) {
+                        count--;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the j-th source row of the k-th band, returning true if the destination row
+         * j - kh + 1 has been computed.
+         */
+        boolean addRow(int k, int j) {
+            double[] sums = hSums[k];
+            int ringOffset = (j % kh) * dstWidth;
+
+            // Samples outside the ROI or NoData do not contribute
+            for (int i = 0; i < srcWidth; i++) {
+                if ((checkROI && !roiRow[i]) || (hasNoData && noDataRow[i])) {
+                    values[i] = 0;
+                }
+            }
+            for (int i = 0; i < dstWidth; i++) {
+                double f = 0;
+                for (int v = 0; v < kw; v++) {
+                    f += values[i + v] * hValues[v];
+                }
+                sums[ringOffset + i] = f;
+            }
+            if (skipNoData) {
+                int[] counts = noDataCounts[k];
+                int count = 0;
+                for (int i = 0; i < srcWidth; i++) {
+                    boolean counted = noDataRow[i] && (!checkROI || roiRow[i]);
+                    if (counted) {
+                        count++;
+                    }
+                    if (i >= kw - 1) {
+                        counts[ringOffset + i - kw + 1] = count;
+                        if (noDataRow[i - kw + 1] && (!checkROI || roiRow[i - kw + 1])) {
+                            count--;
+                        }
+                    }
+                }
+            }
+
+            if (j < kh - 1) {
+                return false;
+            }
+
+            // Vertical pass, the oldest row inside the ring buffer is the first kernel row
+            int first = (j + 1) % kh;
+            for (int i = 0; i < dstWidth; i++) {
+                double f = 0;
+                int row = first;
+                for (int u = 0; u < kh; u++) {
+                    f += sums[row * dstWidth + i] * vValues[u];
+                    if (++row == kh) {
+                        row = 0;
+                    }
+                }
+                result[i] = f;
+                valid[i] = true;
+            }
+            if (checkROI) {
+                for (int i = 0; i < dstWidth; i++) {
+                    int count = 0;
+                    for (int u = 0; u < kh; u++) {
+                        count += roiCounts[u * dstWidth + i];
+                    }
+                    valid[i] = count > 0;
+                }
+            }
+            if (skipNoData) {
+                int[] counts = noDataCounts[k];
+                for (int i = 0; i < dstWidth; i++) {
+                    if (valid[i]) {
+                        for (int u = 0; u < kh; u++) {
+                            if (counts[u * dstWidth + i] > 0) {
+                                valid[i] = false;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,120 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.convolve;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.testclasses.TestBase;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.Random;
+
+import javax.media.jai.KernelJAI;
+import javax.media.jai.ROI;
+import javax.media.jai.ROIShape;
+
+import org.junit.Test;
+
+/**
+ * Checks that the frequency domain convolution returns the same results of the spatial one.
+ */
+public class FFTConvolveTest extends TestBase {
+
+    private static final int SIZE = 64;
+
+    private static final double DEST_NODATA = 0d;
+
+    private static final KernelJAI KERNEL = createRandomKernel(9, 7);
+
+    @Test
+    public void testNoROINoNoData() {
+        for (int dataType = DataBuffer.TYPE_BYTE; dataType <= DataBuffer.TYPE_DOUBLE; dataType++) {
+            testConvolution(dataType, false, false, false);
+        }
+    }
+
+    @Test
+    public void testNoData() {
+        for (int dataType = DataBuffer.TYPE_BYTE; dataType <= DataBuffer.TYPE_DOUBLE; dataType++) {
+            testConvolution(dataType, false, true, false);
+            testConvolution(dataType, false, true, true);
+        }
+    }
+
+    @Test
+    public void testROI() {
+        for (int dataType = DataBuffer.TYPE_BYTE; dataType <= DataBuffer.TYPE_DOUBLE; dataType++) {
+            testConvolution(dataType, true, false, false);
+            testConvolution(dataType, true, true, false);
+            testConvolution(dataType, true, true, true);
+        }
+    }
+
+    @Test
+    public void testCostHeuristic() {
+        assertFalse(FFTConvolveOpImage.isFFTPreferred(createRandomKernel(5, 5), 512, 512));
+        assertTrue(FFTConvolveOpImage.isFFTPreferred(createRandomKernel(101, 101), 512, 512));
+    }
+
+    private void testConvolution(int dataType, boolean useROI, boolean useNoData,
+            boolean skipNoData) {
+        Number noDataValue = useNoData ? SeparableConvolveTest.noDataValue(dataType) : null;
+        RenderedImage source = createTestImage(dataType, SIZE, SIZE, noDataValue, false, 1);
+        Range noData = useNoData ? SeparableConvolveTest.noDataRange(dataType) : null;
+        ROI roi = useROI ? new ROIShape(new Rectangle(SIZE / 4, SIZE / 4, SIZE / 3, SIZE / 3))
+                : null;
+
+        KernelJAI kernel = KERNEL.getRotatedKernel();
+        RenderedImage fft = new FFTConvolveOpImage(source, null, null, null, kernel, roi, noData,
+                DEST_NODATA, skipNoData);
+        RenderedImage general = new ConvolveGeneralOpImage(source, null, null, null, kernel, roi,
+                noData, DEST_NODATA, skipNoData);
+
+        Raster expected = general.getData();
+        Raster actual = fft.getData();
+        assertEquals(expected.getBounds(), actual.getBounds());
+        // Integral types may differ by one because of the rounding of the transforms
+        double tolerance = dataType < DataBuffer.TYPE_FLOAT ? 1 : 1E-2;
+        for (int y = expected.getMinY(); y < expected.getMinY() + expected.getHeight(); y++) {
+            for (int x = expected.getMinX(); x < expected.getMinX() + expected.getWidth(); x++) {
+                assertEquals(expected.getSampleDouble(x, y, 0), actual.getSampleDouble(x, y, 0),
+                        tolerance);
+            }
+        }
+    }
+
+    /** Creates a normalized non separable kernel with random weights */
+    private static KernelJAI createRandomKernel(int width, int height) {
+        Random random = new Random(width * height);
+        float[] data = new float[width * height];
+        float sum = 0;
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextFloat();
+            sum += data[i];
+        }
+        for (int i = 0; i < data.length; i++) {
+            data[i] /= sum;
+        }
+        return new KernelJAI(width, height, width / 2, height / 2, data);
+    }
+}
@@ -0,0 +1,146 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.convolve;
+
+import static org.junit.Assert.assertEquals;
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.range.RangeFactory;
+import it.geosolutions.jaiext.testclasses.TestBase;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+
+import javax.media.jai.KernelJAI;
+import javax.media.jai.ROI;
+import javax.media.jai.ROIShape;
+
+import org.junit.Test;
+
+/**
+ * Checks that the separable convolution returns the same results of the general one.
+ */
+public class SeparableConvolveTest extends TestBase {
+
+    private static final int SIZE = 64;
+
+    private static final double DEST_NODATA = 0d;
+
+    private static final KernelJAI KERNEL = createGaussian(3, 1.5f);
+
+    @Test
+    public void testNoROINoNoData() {
+        for (int dataType = DataBuffer.TYPE_BYTE; dataType <= DataBuffer.TYPE_DOUBLE; dataType++) {
+            testConvolution(dataType, false, false, false);
+        }
+    }
+
+    @Test
+    public void testNoData() {
+        for (int dataType = DataBuffer.TYPE_BYTE; dataType <= DataBuffer.TYPE_DOUBLE; dataType++) {
+            testConvolution(dataType, false, true, false);
+            testConvolution(dataType, false, true, true);
+        }
+    }
+
+    @Test
+    public void testROI() {
+        for (int dataType = DataBuffer.TYPE_BYTE; dataType <= DataBuffer.TYPE_DOUBLE; dataType++) {
+            testConvolution(dataType, true, false, false);
+            testConvolution(dataType, true, true, false);
+            testConvolution(dataType, true, true, true);
+        }
+    }
+
+    private void testConvolution(int dataType, boolean useROI, boolean useNoData,
+            boolean skipNoData) {
+        Number noDataValue = useNoData ? noDataValue(dataType) : null;
+        RenderedImage source = createTestImage(dataType, SIZE, SIZE, noDataValue, false, 1);
+        Range noData = useNoData ? noDataRange(dataType) : null;
+        ROI roi = useROI ? new ROIShape(new Rectangle(SIZE / 4, SIZE / 4, SIZE / 3, SIZE / 3))
+                : null;
+
+        KernelJAI kernel = KERNEL.getRotatedKernel();
+        RenderedImage separable = new SeparableConvolveOpImage(source, null, null, null, kernel,
+                roi, noData, DEST_NODATA, skipNoData);
+        RenderedImage general = new ConvolveGeneralOpImage(source, null, null, null, kernel, roi,
+                noData, DEST_NODATA, skipNoData);
+
+        Raster expected = general.getData();
+        Raster actual = separable.getData();
+        assertEquals(expected.getBounds(), actual.getBounds());
+        // Integral types may differ by one because of the accumulation order
+        double tolerance = dataType < DataBuffer.TYPE_FLOAT ? 1 : 1E-3;
+        for (int y = expected.getMinY(); y < expected.getMinY() + expected.getHeight(); y++) {
+            for (int x = expected.getMinX(); x < expected.getMinX() + expected.getWidth(); x++) {
+                assertEquals(expected.getSampleDouble(x, y, 0), actual.getSampleDouble(x, y, 0),
+                        tolerance);
+            }
+        }
+    }
+
+    static Number noDataValue(int dataType) {
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return (byte) 50;
+        case DataBuffer.TYPE_USHORT:
+        case DataBuffer.TYPE_SHORT:
+            return (short) 50;
+        case DataBuffer.TYPE_INT:
+            return 50;
+        case DataBuffer.TYPE_FLOAT:
+            return 50f;
+        default:
+            return 50d;
+        }
+    }
+
+    static Range noDataRange(int dataType) {
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return RangeFactory.create((byte) 50, true, (byte) 50, true);
+        case DataBuffer.TYPE_USHORT:
+            return RangeFactory.createU((short) 50, true, (short) 50, true);
+        case DataBuffer.TYPE_SHORT:
+            return RangeFactory.create((short) 50, true, (short) 50, true);
+        case DataBuffer.TYPE_INT:
+            return RangeFactory.create(50, true, 50, true);
+        case DataBuffer.TYPE_FLOAT:
+            return RangeFactory.create(50f, true, 50f, true, true);
+        default:
+            return RangeFactory.create(50d, true, 50d, true, true);
+        }
+    }
+
+    /** Creates a normalized separable Gaussian kernel of the given radius */
+    private static KernelJAI createGaussian(int radius, float sigma) {
+        int size = 2 * radius + 1;
+        float[] data = new float[size];
+        float sum = 0;
+        for (int i = 0; i < size; i++) {
+            float d = i - radius;
+            data[i] = (float) Math.exp(-d * d / (2 * sigma * sigma));
+            sum += data[i];
+        }
+        for (int i = 0; i < size; i++) {
+            data[i] /= sum;
+        }
+        return new KernelJAI(size, size, radius, radius, data, data);
+    }
+}
@@ -21,6 +21,7 @@ import it.geosolutions.jaiext.iterators.RandomIterFactory;
 import it.geosolutions.jaiext.range.Range;
 import it.geosolutions.jaiext.range.RangeFactory;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
@@ -36,13 +37,13 @@ import javax.media.jai.ColorCube;
 import javax.media.jai.ImageLayout;
 import javax.media.jai.KernelJAI;
 import javax.media.jai.LookupTableJAI;
+import javax.media.jai.OpImage;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.ROI;
 import javax.media.jai.ROIShape;
 import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFactory;
 import javax.media.jai.RasterFormatTag;
-import javax.media.jai.UntiledOpImage;
 import javax.media.jai.iterator.RandomIter;
 
 import com.sun.media.jai.util.ImageUtil;
@@ -59,8 +60,18 @@ import com.sun.media.jai.util.JDKWorkarounds;
  * 
  * <p>
  * Optionally users may define a ROI and a NoData Range in order to reduce computation area or mask invalid pixel values.S
+ * 
+ * <p>
+ * The image is computed as a stream of tile rows: the lines of each tile row are diffused in order, starting from the top of the image, and only the
+ * lines the error filter looks ahead are carried to the next tile row. All the tiles of a tile row are published as soon as its lines are final, and
+ * the result matches the one of a whole image computation. The carried lines are saved at each tile row boundary, so that a tile row above the last
+ * computed one (e.g. after its tiles have been evicted from the cache) is computed again starting from its own saved state, instead of diffusing the
+ * image from the first line.
+ * <p>
+ * The memory footprint is the tile row being computed, the image width times the tile height, plus the saved states, the image width times the
+ * error filter height for each tile row.
  */
-public class ErrorDiffusionOpImage extends UntiledOpImage {
+public class ErrorDiffusionOpImage extends OpImage {
 
     /**
      * Constant indicating that the inner random iterators must pre-calculate an array of the image positions
@@ -155,6 +166,80 @@ public class ErrorDiffusionOpImage extends UntiledOpImage {
     /** LookupTable used for having a quick check if a pixel is NoData or not */
     private boolean[] lookupTable;
 
+    /** Number of lines needed by the error filter, the current one and the ones the error is diffused to */
+    private final int numLinesBuffer;
+
+    /** Diffusion state carried from a tile row to the next one */
+    private DiffusionState state;
+
+    /** Diffusion states saved at the beginning of each computed tile row, indexed by the tile row offset from the minimum tile Y */
+    private DiffusionState[] savedStates;
+
+    /**
+     * State of the streaming computation: the lines not yet final, the error accumulated on them and the last computed tile row.
+     */
+    private static final class DiffusionState {
+
+        /** First line which has not been diffused yet */
+        private int nextLine;
+
+        /** Rolling buffer containing the source lines with the diffused error */
+        private float[][] bufMem;
+
+        /** Rolling buffer containing the original source lines, used for the NoData check */
+        private float[][] bufNoData;
+
+        /** Indexes of the rolling buffer lines */
+        private int[] bufIdx;
+
+        /** Error buffer of the optimized case */
+        private int[] errBuf;
+
+        /** Dither table of the optimized case */
+        private int[] ditherTable;
+
+        /** Iterator on the ROI image, if the ROI does not contain the whole image */
+        private RandomIter roiIter;
+
+        /** Boolean indicating if the ROI contains the whole image */
+        private boolean roiContainsImage;
+
+        /** Boolean indicating if the ROI is disjoint from the image */
+        private boolean roiDisjointImage;
+
+        /** Last computed tile row, spanning the whole image width */
+        private WritableRaster lastRow;
+
+        /**
+         * Returns a copy of the state, with its own buffers and no computed tile row.
+         */
+        private DiffusionState copy() {
+            DiffusionState copy = new DiffusionState();
+            copy.nextLine = nextLine;
+            copy.bufMem = copyLines(bufMem);
+            copy.bufNoData = copyLines(bufNoData);
+            copy.bufIdx = bufIdx == null ? null : bufIdx.clone();
+            copy.errBuf = errBuf == null ? null : errBuf.clone();
+            // The dither table and the ROI data are never modified
+            copy.ditherTable = ditherTable;
+            copy.roiIter = roiIter;
+            copy.roiContainsImage = roiContainsImage;
+            copy.roiDisjointImage = roiDisjointImage;
+            return copy;
+        }
+
+        private static float[][] copyLines(float[][] lines) {
+            if (lines == null) {
+                return null;
+            }
+            float[][] copy = new float[lines.length][];
+            for (int i = 0; i < lines.length; i++) {
+                copy[i] = lines[i].clone();
+            }
+            return copy;
+        }
+    }
+
     /**
      * Determines whether a kernel is the Floyd-Steinberg kernel.
      * 
@@ -404,7 +489,7 @@ public class ErrorDiffusionOpImage extends UntiledOpImage {
      */
     public ErrorDiffusionOpImage(RenderedImage source, Map config, ImageLayout layout,
             LookupTableJAI colorMap, KernelJAI errorKernel, ROI roi, Range nodata, int destNoData) {
-        super(source, config, layoutHelper(layout, source, colorMap));
+        super(vectorize(source), layoutHelper(layout, source, colorMap), config, false);
 
         // Get the source sample model.
         SampleModel srcSampleModel = source.getSampleModel();
@@ -418,6 +503,9 @@ public class ErrorDiffusionOpImage extends UntiledOpImage {
         // Set a reference to the KernelJAI.
         this.errorKernel = errorKernel;
 
+        // Set the number of lines in the calculation buffer.
+        numLinesBuffer = errorKernel.getHeight() - errorKernel.getYOrigin();
+
         // Checking ROI
         hasROI = roi != null;
         if (hasROI) {
@@ -500,88 +588,206 @@ public class ErrorDiffusionOpImage extends UntiledOpImage {
     }
 
     /**
-     * Performs error diffusion on a specified rectangle. The sources are cobbled. As error diffusion must be calculated on a line-by-line basis
-     * starting at the upper left corner of the image, all image lines through and including the last line of the tile containing the requested
-     * <code>Rectangle</code> are calculated.
+     * Computes a tile. As error diffusion must be calculated on a line-by-line basis starting at the upper left corner of the image, all the tile
+     * rows through and including the one of the requested tile are calculated, unless they have already been diffused. A tile row which has
+     * already been diffused is calculated again from the state saved at its beginning. The other tiles of the computed tile rows are added to
+     * the tile cache.
      * 
-     * @param sources The source image Raster.
-     * @param dest A WritableRaster tile containing the area to be computed.
-     * @param destRect The rectangle within dest to be processed.
+     * @param tileX The X index of the tile.
+     * @param tileY The Y index of the tile.
      */
-    protected void computeImage(Raster[] sources, WritableRaster dest, Rectangle destRect) {
-        Raster source = sources[0];
+    public synchronized Raster computeTile(int tileX, int tileY) {
+        // The tile may have been published while computing another tile of its row
+        Raster cached = getTileFromCache(tileX, tileY);
+        if (cached != null) {
+            return cached;
+        }
 
-        // ROI check
-        ROI roiTile = null;
+        int tileMinY = Math.max(tileYToY(tileY), minY);
 
-        RandomIter roiIter = null;
+        if (state == null) {
+            state = initState();
+            savedStates = new DiffusionState[getNumYTiles()];
+        } else if (state.lastRow != null && tileMinY < state.lastRow.getMinY()) {
+            // The tile row has already been passed, resume from the state saved at its beginning
+            state = savedStates[tileY - getMinTileY()].copy();
+        }
 
-        boolean roiContainsTile = false;
-        boolean roiDisjointTile = false;
+        // Diffuse all the tile rows up to the requested one
+        while (state.nextLine <= tileMinY) {
+            int rowY = YToTileY(state.nextLine);
+            if (savedStates[rowY - getMinTileY()] == null) {
+                savedStates[rowY - getMinTileY()] = state.copy();
+            }
+            computeTileRow(state, rowY);
+            if (rowY != tileY) {
+                publishTileRow(state.lastRow, rowY, Integer.MIN_VALUE);
+            } else {
+                publishTileRow(state.lastRow, rowY, tileX);
+            }
+        }
+
+        WritableRaster tile = createWritableRaster(sampleModel, new Point(tileXToX(tileX),
+                tileYToY(tileY)));
+        tile.setRect(state.lastRow);
+        return tile;
+    }
+
+    /**
+     * Creates a new diffusion state positioned on the first image line.
+     */
+    private DiffusionState initState() {
+        DiffusionState newState = new DiffusionState();
+        newState.nextLine = minY;
 
-        // If a ROI is present, then only the part contained inside the current
-        // tile bounds is taken.
+        // If a ROI is present, then only the part contained inside the image bounds is taken.
         if (hasROI) {
-            Rectangle srcRectExpanded = mapDestRect(destRect, 0);
-            // The tile dimension is extended for avoiding border errors
+            Rectangle srcRectExpanded = mapDestRect(getBounds(), 0);
+            // The image dimension is extended for avoiding border errors
             srcRectExpanded.setRect(srcRectExpanded.getMinX() - 1, srcRectExpanded.getMinY() - 1,
                     srcRectExpanded.getWidth() + 2, srcRectExpanded.getHeight() + 2);
-            roiTile = roi.intersect(new ROIShape(srcRectExpanded));
+            ROI roiTile = roi.intersect(new ROIShape(srcRectExpanded));
 
             if (!roiBounds.intersects(srcRectExpanded)) {
-                roiDisjointTile = true;
+                newState.roiDisjointImage = true;
             } else {
-                roiContainsTile = roiTile.contains(srcRectExpanded);
-                if (!roiContainsTile) {
+                newState.roiContainsImage = roiTile.contains(srcRectExpanded);
+                if (!newState.roiContainsImage) {
                     if (!roiTile.intersects(srcRectExpanded)) {
-                        roiDisjointTile = true;
+                        newState.roiDisjointImage = true;
                     } else {
                         PlanarImage roiIMG = getImage();
-                        roiIter = RandomIterFactory.create(roiIMG, null, TILE_CACHED, ARRAY_CALC);
+                        newState.roiIter = RandomIterFactory.create(roiIMG, null, TILE_CACHED,
+                                ARRAY_CALC);
                     }
                 }
             }
         }
 
-        // Image completely outside ROI, fill with the background value
-        if (roiDisjointTile) {
-            ImageUtil.fillBackground(dest, destRect, new double[] { destNoData });
-            return;
+        if (isOptimizedCase) {
+            // Initialize the dither table and the error buffer.
+            newState.ditherTable = initFloydSteinberg24To8((ColorCube) colorMap);
+            newState.errBuf = new int[(width + 2) * NBANDS];
+        } else {
+            // Allocate memory for the calculation buffer.
+            newState.bufMem = new float[numLinesBuffer][width * numBandsSource];
+            newState.bufNoData = new float[numLinesBuffer][width * numBandsSource];
+
+            // Allocate memory for the buffer index array.
+            newState.bufIdx = new int[numLinesBuffer];
+
+            // Initialize the buffer index array and the rolling buffer.
+            int numLines = Math.min(numLinesBuffer, height);
+            Raster source = getSourceImage(0).getData(new Rectangle(minX, minY, width, numLines));
+            for (int idx = 0; idx < numLinesBuffer; idx++) {
+                newState.bufIdx[idx] = idx;
+                if (idx < numLines) {
+                    source.getPixels(minX, minY + idx, width, 1, newState.bufMem[idx]);
+                    source.getPixels(minX, minY + idx, width, 1, newState.bufNoData[idx]);
+                }
+            }
         }
+        return newState;
+    }
 
-        if (isOptimizedCase) {
-            computeImageOptimized(source, dest, destRect, roiIter, roiContainsTile);
+    /**
+     * Diffuses the lines of a tile row, spanning the whole image width, and stores them as the last computed row of the state.
+     * 
+     * @param state The current diffusion state.
+     * @param rowY The Y index of the tile row.
+     */
+    private void computeTileRow(DiffusionState state, int rowY) {
+        int rowMinY = Math.max(tileYToY(rowY), minY);
+        int rowMaxY = Math.min(tileYToY(rowY) + tileHeight, getMaxY());
+        Rectangle destRect = new Rectangle(minX, rowMinY, width, rowMaxY - rowMinY);
+
+        WritableRaster dest = createWritableRaster(
+                sampleModel.createCompatibleSampleModel(destRect.width, destRect.height),
+                new Point(destRect.x, destRect.y));
+
+        if (state.roiDisjointImage) {
+            // Image completely outside ROI, fill with the background value
+            ImageUtil.fillBackground(dest, destRect, new double[] { destNoData });
         } else {
-            computeImageDefault(source, dest, destRect, roiIter, roiContainsTile);
+            // The source lines of the row plus the ones the error filter looks ahead
+            PlanarImage sourceImage = getSourceImage(0);
+            int sourceMaxY = Math.min(rowMaxY + numLinesBuffer, sourceImage.getMaxY());
+            Raster source = sourceImage.getData(new Rectangle(minX, rowMinY, width, sourceMaxY
+                    - rowMinY));
+
+            if (isOptimizedCase) {
+                computeImageOptimized(state, source, dest, destRect);
+            } else {
+                computeImageDefault(state, source, dest, destRect);
+            }
+        }
+
+        state.nextLine = rowMaxY;
+        state.lastRow = dest;
+    }
+
+    /**
+     * Adds the tiles of a computed tile row to the tile cache.
+     * 
+     * @param row The computed tile row.
+     * @param rowY The Y index of the tile row.
+     * @param skipTileX The X index of the tile which must not be published.
+     */
+    private void publishTileRow(Raster row, int rowY, int skipTileX) {
+        for (int tileX = getMinTileX(); tileX <= getMaxTileX(); tileX++) {
+            if (tileX == skipTileX || getTileFromCache(tileX, rowY) != null) {
+                continue;
+            }
+            WritableRaster tile = createWritableRaster(sampleModel, new Point(tileXToX(tileX),
+                    tileYToY(rowY)));
+            tile.setRect(row);
+            addTileToCache(tileX, rowY, tile);
         }
     }
 
-    protected void computeImageDefault(Raster source, WritableRaster dest, Rectangle destRect,
-            RandomIter roiIter, boolean roiContainsTile) {
+    /**
+     * Returns the bounds of the destination image, since each destination pixel may depend on all the source pixels above it.
+     */
+    public Rectangle mapSourceRect(Rectangle sourceRect, int sourceIndex) {
+        if (sourceRect == null) {
+            throw new IllegalArgumentException("Source rectangle is null");
+        }
+        if (sourceIndex != 0) {
+            throw new IllegalArgumentException("Wrong source index");
+        }
+        return getBounds();
+    }
+
+    /**
+     * Returns the bounds of the source image, since each destination pixel may depend on all the source pixels above it.
+     */
+    public Rectangle mapDestRect(Rectangle destRect, int sourceIndex) {
+        if (destRect == null) {
+            throw new IllegalArgumentException("Destination rectangle is null");
+        }
+        if (sourceIndex != 0) {
+            throw new IllegalArgumentException("Wrong source index");
+        }
+        return getSourceImage(0).getBounds();
+    }
+
+    protected void computeImageDefault(DiffusionState state, Raster source, WritableRaster dest,
+            Rectangle destRect) {
+        RandomIter roiIter = state.roiIter;
+        boolean roiContainsTile = state.roiContainsImage;
+
         // Set X-coordinate range.
         int startX = minX;
         int endX = startX + width - 1;
 
         // Set Y-coordinate range.
-        int startY = minY;
-        int endY = startY + height - 1;
-
-        // Set the number of lines in the calculation buffer.
-        int numLinesBuffer = errorKernel.getHeight() - errorKernel.getYOrigin();
-
-        // Allocate memory for the calculation buffer.
-        float[][] bufMem = new float[numLinesBuffer][width * numBandsSource];
-        float[][] bufNoData = new float[numLinesBuffer][width * numBandsSource];
+        int startY = destRect.y;
+        int endY = startY + destRect.height - 1;
 
-        // Allocate memory for the buffer index array.
-        int[] bufIdx = new int[numLinesBuffer];
-
-        // Initialize the buffer index array and the rolling buffer.
-        for (int idx = 0; idx < numLinesBuffer; idx++) {
-            bufIdx[idx] = idx;
-            source.getPixels(startX, startY + idx, width, 1, bufMem[idx]);
-            source.getPixels(startX, startY + idx, width, 1, bufNoData[idx]);
-        }
+        // Rolling buffer carried from the previous tile row.
+        float[][] bufMem = state.bufMem;
+        float[][] bufNoData = state.bufNoData;
+        int[] bufIdx = state.bufIdx;
 
         // Set variable to indicate index of last rolling buffer line.
         int lastLineBuffer = numLinesBuffer - 1;
@@ -977,31 +1183,31 @@ public class ErrorDiffusionOpImage extends UntiledOpImage {
         }
     }
 
-    protected void computeImageOptimized(Raster source, WritableRaster dest, Rectangle destRect,
-            RandomIter roiIter, boolean roiContainsTile) {
+    protected void computeImageOptimized(DiffusionState state, Raster source,
+            WritableRaster dest, Rectangle destRect) {
+        RandomIter roiIter = state.roiIter;
+        boolean roiContainsTile = state.roiContainsImage;
+
         // Set X-coordinate range.
         int startX = minX;
         int endX = startX + width - 1;
 
         // Set Y-coordinate range.
-        int startY = minY;
-        int endY = startY + height - 1;
+        int startY = destRect.y;
+        int endY = startY + destRect.height - 1;
 
-        // Initialize the dither table.
-        int[] ditherTable = initFloydSteinberg24To8((ColorCube) colorMap);
+        // Dither table and error buffer carried from the previous tile row.
+        int[] ditherTable = state.ditherTable;
+        int[] errBuf = state.errBuf;
 
         // Initialize the padded source width.
-        int sourceWidthPadded = source.getWidth() + 2;
-
-        // Allocate memory for the error buffer.
-        int[] errBuf = new int[sourceWidthPadded * NBANDS];
+        int sourceWidthPadded = width + 2;
 
         // Retrieve format tags.
         RasterFormatTag[] formatTags = getFormatTags();
 
-        RasterAccessor srcAccessor = new RasterAccessor(source, new Rectangle(startX, startY,
-                source.getWidth(), source.getHeight()), formatTags[0], getSourceImage(0)
-                .getColorModel());
+        RasterAccessor srcAccessor = new RasterAccessor(source, destRect, formatTags[0],
+                getSourceImage(0).getColorModel());
         RasterAccessor dstAccessor = new RasterAccessor(dest, destRect, formatTags[1],
                 getColorModel());
 
@@ -30,12 +30,14 @@ import it.geosolutions.jaiext.testclasses.TestData;
 import it.geosolutions.rendered.viewer.RenderedImageBrowser;
 
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.Transparency;
 import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.WritableRaster;
 import java.io.File;
@@ -43,6 +45,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 
 import javax.media.jai.ColorCube;
+import javax.media.jai.ImageLayout;
 import javax.media.jai.JAI;
 import javax.media.jai.KernelJAI;
 import javax.media.jai.LookupTableJAI;
@@ -333,6 +336,69 @@ public class ErrorDiffusionTest extends TestBase {
 
     }
 
+    /**
+     * Checks that the tiles computed in any order match the image computed as a single tile
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testTiledMatchesUntiled() throws IOException {
+        // Default algorithm
+        float[] data = new float[256];
+        for (int i = 0; i < 256; i++) {
+            data[i] = i;
+        }
+        checkTiledMatchesUntiled(getSyntheticShortImage(), new LookupTableJAI(data),
+                KernelJAI.ERROR_FILTER_STUCKI);
+
+        // Optimized algorithm
+        checkTiledMatchesUntiled(getTestTiff(), ColorCube.BYTE_496,
+                KernelJAI.ERROR_FILTER_FLOYD_STEINBERG);
+    }
+
+    private void checkTiledMatchesUntiled(RenderedImage image, LookupTableJAI lt, KernelJAI k) {
+        // Whole image in a single tile
+        ImageLayout untiledLayout = new ImageLayout(image.getMinX(), image.getMinY(),
+                image.getWidth(), image.getHeight());
+        untiledLayout.setTileGridXOffset(image.getMinX());
+        untiledLayout.setTileGridYOffset(image.getMinY());
+        untiledLayout.setTileWidth(image.getWidth());
+        untiledLayout.setTileHeight(image.getHeight());
+        ParameterBlockJAI pbj = new ParameterBlockJAI("ErrorDiffusion");
+        pbj.addSource(image);
+        pbj.setParameter("errorKernel", k);
+        pbj.setParameter("colorMap", lt);
+        RenderedOp untiled = JAI.create("ErrorDiffusion", pbj, new RenderingHints(
+                JAI.KEY_IMAGE_LAYOUT, untiledLayout));
+
+        // Small tiles, with a tile cache too small to retain them so that passed tile rows are
+        // computed again
+        ImageLayout tiledLayout = new ImageLayout();
+        tiledLayout.setTileWidth(16);
+        tiledLayout.setTileHeight(16);
+        RenderingHints hints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT, tiledLayout);
+        hints.put(JAI.KEY_TILE_CACHE, JAI.createTileCache(1L));
+        RenderedOp tiled = JAI.create("ErrorDiffusion", pbj, hints);
+
+        Raster expected = untiled.getData();
+        assertEquals(1, untiled.getNumXTiles() * untiled.getNumYTiles());
+        assertTrue(tiled.getNumYTiles() > 1);
+        // Bottom-up request order
+        for (int tileY = tiled.getMaxTileY(); tileY >= tiled.getMinTileY(); tileY--) {
+            for (int tileX = tiled.getMinTileX(); tileX <= tiled.getMaxTileX(); tileX++) {
+                Raster tile = tiled.getTile(tileX, tileY);
+                Rectangle bounds = tile.getBounds().intersection(tiled.getBounds());
+                for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                    for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                        assertEquals(expected.getSample(x, y, 0), tile.getSample(x, y, 0));
+                    }
+                }
+            }
+        }
+        untiled.dispose();
+        tiled.dispose();
+    }
+
     /**
      * Building an image based on Spearfish data.
      * 
@@ -0,0 +1,255 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.iterators;
+
+import java.awt.image.BandedSampleModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+
+import javax.media.jai.ComponentSampleModelJAI;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.iterator.RandomIter;
+
+/**
+ * Base class of the {@link RandomIter} implementations reading images with a {@link ComponentSampleModel}. The current tile is cached together with
+ * its bank arrays, pixel stride, scanline stride and band offsets, so that the subclasses can compute the position of each sample directly instead
+ * of going through the {@link SampleModel} and {@link DataBuffer} methods. When the requested pixel falls outside of the current tile, the
+ * tile is taken from a small working set of the recently used ones together with its decoded layout, so that reads crossing the tile seams do not
+ * fetch the same tiles from the image again.
+ */
+public abstract class RandomIterComponent implements RandomIter {
+
+    protected RenderedImage im;
+
+    protected final int numBands;
+
+    protected final int tileWidth;
+
+    protected final int tileHeight;
+
+    protected final int tileGridXOffset;
+
+    protected final int tileGridYOffset;
+
+    /** Bounds of the current tile, the maximum values are excluded */
+    protected int tileMinX, tileMinY, tileMaxX, tileMaxY;
+
+    protected int sampleModelTranslateX;
+
+    protected int sampleModelTranslateY;
+
+    protected int pixelStride;
+
+    protected int scanlineStride;
+
+    /** Position of the sample of each band for the pixel at the sample model origin */
+    protected int[] bandOffsets;
+
+    /** Tiles recently used */
+    private final TileWorkingSet workingSet;
+
+    /** Decoded layout of the tile stored in each slot of the working set */
+    private final TileLayout[] layouts;
+
+    /**
+     * Creates a type specialised iterator on the input image if its SampleModel is supported, otherwise null is returned.
+     * 
+     * @param im a read-only RenderedImage source.
+     * @return a RandomIter allowing read-only access to the source, or null.
+     */
+    public static RandomIter create(RenderedImage im) {
+        if (!isSupported(im.getSampleModel())) {
+            return null;
+        }
+        switch (im.getSampleModel().getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            return new RandomIterComponentByte(im);
+        case DataBuffer.TYPE_USHORT:
+            return new RandomIterComponentUShort(im);
+        case DataBuffer.TYPE_SHORT:
+            return new RandomIterComponentShort(im);
+        case DataBuffer.TYPE_INT:
+            return new RandomIterComponentInt(im);
+        case DataBuffer.TYPE_FLOAT:
+            return new RandomIterComponentFloat(im);
+        case DataBuffer.TYPE_DOUBLE:
+            return new RandomIterComponentDouble(im);
+        default:
+            return null;
+        }
+    }
+
+    /** Only the JDK and JAI component sample models are accepted, since their sample layout is known */
+    static boolean isSupported(SampleModel sm) {
+        Class<?> smClass = sm.getClass();
+        return smClass == ComponentSampleModel.class || smClass == PixelInterleavedSampleModel.class
+                || smClass == BandedSampleModel.class || smClass == ComponentSampleModelJAI.class;
+    }
+
+    protected RandomIterComponent(RenderedImage im) {
+        this.im = im;
+        this.numBands = im.getSampleModel().getNumBands();
+        this.tileWidth = im.getTileWidth();
+        this.tileHeight = im.getTileHeight();
+        this.tileGridXOffset = im.getTileGridXOffset();
+        this.tileGridYOffset = im.getTileGridYOffset();
+        this.workingSet = new TileWorkingSet(im, TileWorkingSet.DEFAULT_SIZE);
+        this.layouts = new TileLayout[workingSet.size()];
+        for (int i = 0; i < layouts.length; i++) {
+            layouts[i] = new TileLayout(numBands);
+        }
+        // No tile is current
+        this.tileMaxX = Integer.MIN_VALUE;
+        this.tileMaxY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Makes current the tile containing the pixel (x, y) and returns the position of the pixel inside the bank arrays.
+     * 
+     * @param x the X coordinate of the pixel.
+     * @param y the Y coordinate of the pixel.
+     * @return the pixel position, to be added to the band offset.
+     */
+    protected final int makeCurrent(int x, int y) {
+        if (x < tileMinX || x >= tileMaxX || y < tileMinY || y >= tileMaxY) {
+            int tileX = PlanarImage.XToTileX(x, tileGridXOffset, tileWidth);
+            int tileY = PlanarImage.YToTileY(y, tileGridYOffset, tileHeight);
+            int slot = workingSet.lookup(tileX, tileY);
+            if (slot < 0) {
+                slot = workingSet.load(tileX, tileY);
+                layouts[slot].decode(workingSet.getTile(slot));
+            }
+            TileLayout layout = layouts[slot];
+            tileMinX = layout.minX;
+            tileMinY = layout.minY;
+            tileMaxX = layout.maxX;
+            tileMaxY = layout.maxY;
+            sampleModelTranslateX = layout.sampleModelTranslateX;
+            sampleModelTranslateY = layout.sampleModelTranslateY;
+            pixelStride = layout.pixelStride;
+            scanlineStride = layout.scanlineStride;
+            bandOffsets = layout.bandOffsets;
+            setBanks(layout.banks);
+        }
+        return (y - sampleModelTranslateY) * scanlineStride + (x - sampleModelTranslateX)
+                * pixelStride;
+    }
+
+    /**
+     * Returns the bank array of each band of a tile, as an array of primitive arrays of the iterator data type.
+     * 
+     * @param dataBuffer the DataBuffer of the tile.
+     * @param bankIndices the bank index of each band.
+     */
+    protected abstract Object getBanks(DataBuffer dataBuffer, int[] bankIndices);
+
+    /**
+     * Makes current the bank arrays previously returned by {@link #getBanks(DataBuffer, int[])}.
+     * 
+     * @param banks the bank array of each band of the current tile, or null.
+     */
+    protected abstract void setBanks(Object banks);
+
+    public int[] getPixel(int x, int y, int[] iArray) {
+        if (iArray == null) {
+            iArray = new int[numBands];
+        }
+        for (int b = 0; b < numBands; b++) {
+            iArray[b] = getSample(x, y, b);
+        }
+        return iArray;
+    }
+
+    public float[] getPixel(int x, int y, float[] fArray) {
+        if (fArray == null) {
+            fArray = new float[numBands];
+        }
+        for (int b = 0; b < numBands; b++) {
+            fArray[b] = getSampleFloat(x, y, b);
+        }
+        return fArray;
+    }
+
+    public double[] getPixel(int x, int y, double[] dArray) {
+        if (dArray == null) {
+            dArray = new double[numBands];
+        }
+        for (int b = 0; b < numBands; b++) {
+            dArray[b] = getSampleDouble(x, y, b);
+        }
+        return dArray;
+    }
+
+    public void done() {
+        // Forget the current tile
+        tileMaxX = Integer.MIN_VALUE;
+        tileMaxY = Integer.MIN_VALUE;
+        setBanks(null);
+        workingSet.clear();
+        for (TileLayout layout : layouts) {
+            layout.banks = null;
+        }
+    }
+
+    /** Layout of a tile of the working set, decoded once when the tile is loaded */
+    private final class TileLayout {
+
+        int minX, minY, maxX, maxY;
+
+        int sampleModelTranslateX;
+
+        int sampleModelTranslateY;
+
+        int pixelStride;
+
+        int scanlineStride;
+
+        final int[] bandOffsets;
+
+        Object banks;
+
+        TileLayout(int numBands) {
+            this.bandOffsets = new int[numBands];
+        }
+
+        void decode(Raster tile) {
+            minX = tile.getMinX();
+            minY = tile.getMinY();
+            maxX = minX + tile.getWidth();
+            maxY = minY + tile.getHeight();
+            sampleModelTranslateX = tile.getSampleModelTranslateX();
+            sampleModelTranslateY = tile.getSampleModelTranslateY();
+
+            ComponentSampleModel sm = (ComponentSampleModel) tile.getSampleModel();
+            pixelStride = sm.getPixelStride();
+            scanlineStride = sm.getScanlineStride();
+            int[] smBandOffsets = sm.getBandOffsets();
+            int[] bankIndices = sm.getBankIndices();
+            DataBuffer dataBuffer = tile.getDataBuffer();
+            int[] bankOffsets = dataBuffer.getOffsets();
+            for (int b = 0; b < bandOffsets.length; b++) {
+                bandOffsets[b] = smBandOffsets[b] + bankOffsets[bankIndices[b]];
+            }
+            banks = getBanks(dataBuffer, bankIndices);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.iterators;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+
+import com.sun.media.jai.util.DataBufferUtils;
+
+/**
+ * {@link RandomIterComponent} reading float data directly from the bank arrays of the current tile.
+ */
+public final class RandomIterComponentFloat extends RandomIterComponent {
+
+    /** Bank array of each band of the current tile */
+    private float[][] bandData;
+
+    public RandomIterComponentFloat(RenderedImage im) {
+        super(im);
+    }
+
+    @Override
+    protected Object getBanks(DataBuffer dataBuffer, int[] bankIndices) {
+        // JAI may use its own DataBuffer implementation for float data
+        float[][] banks = new float[numBands][];
+        for (int b = 0; b < numBands; b++) {
+            banks[b] = DataBufferUtils.getDataFloat(dataBuffer, bankIndices[b]);
+        }
+        return banks;
+    }
+
+    @Override
+    protected void setBanks(Object banks) {
+        bandData = (float[][]) banks;
+    }
+
+    public int getSample(int x, int y, int b) {
+        int position = makeCurrent(x, y);
+        return (int) bandData[b][position + bandOffsets[b]];
+    }
+
+    public float getSampleFloat(int x, int y, int b) {
+        int position = makeCurrent(x, y);
+        return bandData[b][position + bandOffsets[b]];
+    }
+
+    public double getSampleDouble(int x, int y, int b) {
+        int position = makeCurrent(x, y);
+        return bandData[b][position + bandOffsets[b]];
+    }
+}
@@ -42,7 +42,9 @@ public class RandomIterFactory {
     /**
      * Constructs and returns an instance of RandomIter suitable for iterating over the given bounding rectangle within the given RenderedImage
      * source. If the bounds parameter is null, the entire image will be used. If cachedTiles is set to true, the current tile used by the iterator
-     * is cached. If arrayCalculation is set to true an initial array containing the tile position for every pixel is calculated.
+     * is cached. If arrayCalculation is set to true an initial array containing the tile position for every pixel is calculated. When both flags are
+     * set and the image uses a {@link java.awt.image.ComponentSampleModel}, a type specialised iterator reading the tile bank arrays directly is
+     * returned instead.
      * 
      * @param im a read-only RenderedImage source.
      * @param bounds the bounding Rectangle for the iterator, or null.
@@ -56,6 +58,13 @@ public class RandomIterFactory {
             bounds = new Rectangle(im.getMinX(), im.getMinY(), im.getWidth(), im.getHeight());
         }
         if (arrayCalculation) {
+            if (cachedTiles) {
+                // Images with a component layout are read directly from their bank arrays
+                RandomIter iter = RandomIterComponent.create(im);
+                if (iter != null) {
+                    return iter;
+                }
+            }
             if (im.getMinTileX() >= Byte.MIN_VALUE
                     && (im.getMinTileX() + im.getNumXTiles() - 1) <= Byte.MAX_VALUE
                     && im.getMinTileY() >= Byte.MIN_VALUE
@@ -58,8 +58,12 @@ public class RandomIterFallbackByte implements RandomIter {
 
     protected byte[] yTiles;
 
+    /** Tiles recently used, so that reads across the tile seams do not hit the image each time */
+    private final TileWorkingSet workingSet;
+
     public RandomIterFallbackByte(RenderedImage im, Rectangle bounds) {
         this.im = im;
+        this.workingSet = new TileWorkingSet(im, TileWorkingSet.DEFAULT_SIZE);
 
         Rectangle imBounds = new Rectangle(im.getMinX(), im.getMinY(), im.getWidth(),
                 im.getHeight());
@@ -121,7 +125,7 @@ public class RandomIterFallbackByte implements RandomIter {
             xID = xIDNew;
             yID = yIDNew;
 
-            Raster tile = im.getTile(xID, yID);
+            Raster tile = workingSet.getTile(xID, yID);
 
             this.dataBuffer = tile.getDataBuffer();
             this.sampleModelTranslateX = tile.getSampleModelTranslateX();
@@ -175,5 +179,6 @@ public class RandomIterFallbackByte implements RandomIter {
         xTiles = null;
         yTiles = null;
         dataBuffer = null;
+        workingSet.clear();
     }
 }
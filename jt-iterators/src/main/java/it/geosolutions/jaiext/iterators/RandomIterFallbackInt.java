@@ -60,8 +60,12 @@ public class RandomIterFallbackInt implements RandomIter {
 
     protected int[] yTiles;
 
+    /** Tiles recently used, so that reads across the tile seams do not hit the image each time */
+    private final TileWorkingSet workingSet;
+
     public RandomIterFallbackInt(RenderedImage im, Rectangle bounds) {
         this.im = im;
+        this.workingSet = new TileWorkingSet(im, TileWorkingSet.DEFAULT_SIZE);
 
         Rectangle imBounds = new Rectangle(im.getMinX(), im.getMinY(), im.getWidth(),
                 im.getHeight());
@@ -123,7 +127,7 @@ public class RandomIterFallbackInt implements RandomIter {
             xID = xIDNew;
             yID = yIDNew;
 
-            Raster tile = im.getTile(xID, yID);
+            Raster tile = workingSet.getTile(xID, yID);
 
             this.dataBuffer = tile.getDataBuffer();
             this.sampleModelTranslateX = tile.getSampleModelTranslateX();
@@ -177,5 +181,6 @@ public class RandomIterFallbackInt implements RandomIter {
         xTiles = null;
         yTiles = null;
         dataBuffer = null;
+        workingSet.clear();
     }
 }
@@ -59,8 +59,12 @@ public class RandomIterFallbackShort implements RandomIter {
 
     protected short[] yTiles;
 
+    /** Tiles recently used, so that reads across the tile seams do not hit the image each time */
+    private final TileWorkingSet workingSet;
+
     public RandomIterFallbackShort(RenderedImage im, Rectangle bounds) {
         this.im = im;
+        this.workingSet = new TileWorkingSet(im, TileWorkingSet.DEFAULT_SIZE);
 
         Rectangle imBounds = new Rectangle(im.getMinX(), im.getMinY(), im.getWidth(),
                 im.getHeight());
@@ -122,7 +126,7 @@ public class RandomIterFallbackShort implements RandomIter {
             xID = xIDNew;
             yID = yIDNew;
 
-            Raster tile = im.getTile(xID, yID);
+            Raster tile = workingSet.getTile(xID, yID);
 
             this.dataBuffer = tile.getDataBuffer();
             this.sampleModelTranslateX = tile.getSampleModelTranslateX();
@@ -176,5 +180,6 @@ public class RandomIterFallbackShort implements RandomIter {
         xTiles = null;
         yTiles = null;
         dataBuffer = null;
+        workingSet.clear();
     }
 }
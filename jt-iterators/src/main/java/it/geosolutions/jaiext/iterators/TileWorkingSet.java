@@ -0,0 +1,125 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.iterators;
+
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+
+/**
+ * Small associative set of the tiles recently used by a {@link javax.media.jai.iterator.RandomIter}. Access patterns reading the pixels around a
+ * tile seam (e.g. interpolation kernels or rotated reads) would otherwise request the same few tiles from the image over and over again. The tiles
+ * are looked up by their packed tile index and the least recently used one is replaced when the set is full.
+ */
+final class TileWorkingSet {
+
+    /** Default number of tiles kept by the iterators, enough for a neighbourhood around a tile corner */
+    static final int DEFAULT_SIZE = 4;
+
+    private final RenderedImage im;
+
+    private final long[] keys;
+
+    private final Raster[] tiles;
+
+    private final long[] lastUse;
+
+    private long clock;
+
+    TileWorkingSet(RenderedImage im, int size) {
+        this.im = im;
+        this.keys = new long[size];
+        this.tiles = new Raster[size];
+        this.lastUse = new long[size];
+    }
+
+    /** Number of slots of the set */
+    int size() {
+        return tiles.length;
+    }
+
+    /**
+     * Returns the slot containing the requested tile, or -1 if the tile is not in the set.
+     * 
+     * @param tileX the X index of the tile.
+     * @param tileY the Y index of the tile.
+     */
+    int lookup(int tileX, int tileY) {
+        long key = key(tileX, tileY);
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null && keys[i] == key) {
+                lastUse[i] = ++clock;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fetches the requested tile from the image, storing it in place of the least recently used one, and returns its slot.
+     * 
+     * @param tileX the X index of the tile.
+     * @param tileY the Y index of the tile.
+     */
+    int load(int tileX, int tileY) {
+        int slot = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] == null) {
+                slot = i;
+                break;
+            }
+            if (lastUse[i] < lastUse[slot]) {
+                slot = i;
+            }
+        }
+        tiles[slot] = im.getTile(tileX, tileY);
+        keys[slot] = key(tileX, tileY);
+        lastUse[slot] = ++clock;
+        return slot;
+    }
+
+    /** Returns the tile stored in the given slot */
+    Raster getTile(int slot) {
+        return tiles[slot];
+    }
+
+    /**
+     * Returns the requested tile, taking it from the set when available.
+     * 
+     * @param tileX the X index of the tile.
+     * @param tileY the Y index of the tile.
+     */
+    Raster getTile(int tileX, int tileY) {
+        int slot = lookup(tileX, tileY);
+        if (slot < 0) {
+            slot = load(tileX, tileY);
+        }
+        return tiles[slot];
+    }
+
+    /** Releases all the tiles of the set */
+    void clear() {
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = null;
+        }
+        clock = 0;
+    }
+
+    private static long key(int tileX, int tileY) {
+        return ((long) tileX << 32) | (tileY & 0xFFFFFFFFL);
+    }
+}
@@ -18,11 +18,20 @@
 package it.geosolutions.jaiext.iterators;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BandedSampleModel;
 import java.awt.image.ComponentSampleModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Random;
 
 import javax.media.jai.TiledImage;
 import javax.media.jai.iterator.RandomIter;
@@ -522,4 +531,107 @@ public class RandomIterTest {
         iter.done();
     }
 
+    // This test checks that the type specialised iterators for component images return the same
+    // values of the JAI iterator, for every data type, with pixel interleaved and banded layouts
+    @Test
+    public void testComponentIterators() {
+        int[] dataTypes = { DataBuffer.TYPE_BYTE, DataBuffer.TYPE_USHORT, DataBuffer.TYPE_SHORT,
+                DataBuffer.TYPE_INT, DataBuffer.TYPE_FLOAT, DataBuffer.TYPE_DOUBLE };
+        for (int dataType : dataTypes) {
+            SampleModel interleaved = new PixelInterleavedSampleModel(dataType, 16, 16, 3, 48,
+                    new int[] { 2, 0, 1 });
+            SampleModel banded = new BandedSampleModel(dataType, 16, 16, 16, new int[] { 1, 0, 2 },
+                    new int[] { 0, 0, 0 });
+            for (SampleModel sm : new SampleModel[] { interleaved, banded }) {
+                TiledImage image = new TiledImage(-5, 3, 50, 37, 1, 2, sm, null);
+                Random random = new Random(dataType);
+                for (int y = image.getMinY(); y < image.getMaxY(); y++) {
+                    for (int x = image.getMinX(); x < image.getMaxX(); x++) {
+                        for (int b = 0; b < 3; b++) {
+                            image.setSample(x, y, b, random.nextDouble() * 1000 - 200);
+                        }
+                    }
+                }
+                RandomIter iter = RandomIterFactory.create(image, null, true, true);
+                assertTrue(iter instanceof RandomIterComponent);
+                checkComponentIterator(image, iter);
+
+                // Child raster translated from its parent
+                WritableRaster raster = image.copyData();
+                Raster child = raster.createChild(0, 10, 20, 15, 100, 200, null);
+                RandomIter childIter = RandomIterFactory.create(child, null, true, true);
+                assertTrue(childIter instanceof RandomIterComponent);
+                Rectangle bounds = child.getBounds();
+                for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                    for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                        for (int b = 0; b < 3; b++) {
+                            assertEquals(child.getSampleDouble(x, y, b),
+                                    childIter.getSampleDouble(x, y, b), 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTileWorkingSet() {
+        SampleModel component = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, 16, 16, 1,
+                16, new int[] { 0 });
+        SampleModel packed = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT, 16, 16,
+                new int[] { 0xFF0000, 0xFF00, 0xFF });
+        for (SampleModel sm : new SampleModel[] { component, packed }) {
+            final int[] requests = new int[1];
+            TiledImage image = new TiledImage(0, 0, 64, 64, 0, 0, sm, null) {
+                @Override
+                public Raster getTile(int tileX, int tileY) {
+                    requests[0]++;
+                    return super.getTile(tileX, tileY);
+                }
+            };
+            for (int y = 0; y < 64; y++) {
+                for (int x = 0; x < 64; x++) {
+                    image.setSample(x, y, 0, x + y);
+                }
+            }
+            RandomIter iter = RandomIterFactory.create(image, null, true, true);
+            requests[0] = 0;
+            // 2x2 neighbourhoods straddling the corner of four tiles
+            int sum = 0;
+            for (int i = 0; i < 100; i++) {
+                for (int y = 15; y <= 16; y++) {
+                    for (int x = 15; x <= 16; x++) {
+                        sum += iter.getSample(x, y, 0);
+                    }
+                }
+            }
+            assertEquals(100 * (30 + 31 + 31 + 32), sum);
+            assertEquals(4, requests[0]);
+            iter.done();
+        }
+    }
+
+    private void checkComponentIterator(RenderedImage image, RandomIter iter) {
+        RandomIter expectedIter = javax.media.jai.iterator.RandomIterFactory.create(image, null);
+        // Random access, jumping between the tiles
+        Random random = new Random(0);
+        int[] iPixel = new int[3];
+        double[] dPixel = new double[3];
+        for (int i = 0; i < 2000; i++) {
+            Point p = new Point(image.getMinX() + random.nextInt(image.getWidth()),
+                    image.getMinY() + random.nextInt(image.getHeight()));
+            for (int b = 0; b < 3; b++) {
+                assertEquals(expectedIter.getSample(p.x, p.y, b), iter.getSample(p.x, p.y, b));
+                assertEquals(expectedIter.getSampleFloat(p.x, p.y, b),
+                        iter.getSampleFloat(p.x, p.y, b), 0);
+                assertEquals(expectedIter.getSampleDouble(p.x, p.y, b),
+                        iter.getSampleDouble(p.x, p.y, b), 0);
+            }
+            iter.getPixel(p.x, p.y, iPixel);
+            assertEquals(expectedIter.getSample(p.x, p.y, 2), iPixel[2]);
+            iter.getPixel(p.x, p.y, dPixel);
+            assertEquals(expectedIter.getSampleDouble(p.x, p.y, 1), dPixel[1], 0);
+        }
+        iter.done();
+    }
 }
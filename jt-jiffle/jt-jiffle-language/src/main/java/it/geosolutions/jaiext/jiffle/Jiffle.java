@@ -78,6 +78,7 @@ import it.geosolutions.jaiext.jiffle.parser.VarWorker;
 import it.geosolutions.jaiext.jiffle.parser.node.GetSourceValue;
 import it.geosolutions.jaiext.jiffle.parser.node.Script;
 import it.geosolutions.jaiext.jiffle.parser.node.SourceWriter;
+import it.geosolutions.jaiext.jiffle.runtime.AbstractDirectRuntime;
 import it.geosolutions.jaiext.jiffle.runtime.JiffleDirectRuntime;
 import it.geosolutions.jaiext.jiffle.runtime.JiffleIndirectRuntime;
 import it.geosolutions.jaiext.jiffle.runtime.JiffleRuntime;
@@ -444,6 +445,20 @@ public class Jiffle {
     public boolean isCompiled() {
         return scriptModel != null;
     }
+
+    /**
+     * Tests whether the compiled script is free of cross-pixel state, that is,
+     * whether its body never modifies image-scope variables. Runtime objects
+     * created from such scripts can evaluate separate portions of the processing
+     * area concurrently (see
+     * {@link AbstractDirectRuntime#evaluateAll(it.geosolutions.jaiext.jiffle.runtime.JiffleProgressListener, java.util.concurrent.ForkJoinPool)}).
+     *
+     * @return {@code true} if the script has been compiled and can be evaluated
+     *         in parallel; {@code false} otherwise
+     */
+    public boolean isParallelSafe() {
+        return scriptModel != null && scriptModel.isParallelSafe();
+    }
     
     /**
      * Creates an instance of the default runtime class. 
@@ -520,7 +535,7 @@ public class Jiffle {
             throw new it.geosolutions.jaiext.jiffle.JiffleException("The script has not been compiled");
         }
 
-        String runtimeSource = createRuntimeSource(model, runtimeClass.getName(), scriptInDocs);
+        String runtimeSource = createRuntimeSource(model, runtimeClass, scriptInDocs);
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.log(Level.FINE, "Jiffle script compiled to:\n\n" + runtimeSource);    
         }
@@ -550,6 +565,9 @@ public class Jiffle {
             Class<?> clazz = compiler.getClassLoader().loadClass(sb.toString());
             JiffleRuntime runtime = (JiffleRuntime) clazz.newInstance();
             runtime.setImageParams(imageParams);
+            if (runtime instanceof AbstractDirectRuntime) {
+                ((AbstractDirectRuntime) runtime).setParallelSafe(isParallelSafe());
+            }
             return runtime;
 
         } catch (Exception ex) {
@@ -590,7 +608,7 @@ public class Jiffle {
      */
     public String getRuntimeSource(Jiffle.RuntimeModel model, boolean scriptInDocs)
             throws it.geosolutions.jaiext.jiffle.JiffleException {
-        return createRuntimeSource(model, getRuntimeBaseClass(model).getName(), scriptInDocs);
+        return createRuntimeSource(model, getRuntimeBaseClass(model), scriptInDocs);
     }
 
     private Class<? extends JiffleRuntime> getRuntimeBaseClass(RuntimeModel model) {
@@ -608,14 +626,14 @@ public class Jiffle {
         return baseClass;
     }
 
-    private String createRuntimeSource(RuntimeModel model, String baseClassName, boolean scriptInDocs) {
+    private String createRuntimeSource(RuntimeModel model, Class<? extends JiffleRuntime> baseClass, boolean scriptInDocs) {
         if (scriptInDocs) {
             throw new RuntimeException("Do no know how to clean the block comments yet");
         }
 
         SourceWriter writer = new SourceWriter(model);
         writer.setScript(stripComments(theScript));
-        writer.setBaseClassName(baseClassName);
+        writer.setBaseClass(baseClass);
         scriptModel.write(writer);
         return writer.getSource();
     }
@@ -48,6 +48,7 @@ import it.geosolutions.jaiext.jiffle.parser.node.ConFunction;
 import it.geosolutions.jaiext.jiffle.parser.node.ConstantLiteral;
 import it.geosolutions.jaiext.jiffle.parser.node.DoubleLiteral;
 import it.geosolutions.jaiext.jiffle.parser.node.Expression;
+import it.geosolutions.jaiext.jiffle.parser.node.FocalFunction;
 import it.geosolutions.jaiext.jiffle.parser.node.FunctionCall;
 import it.geosolutions.jaiext.jiffle.parser.node.GetSourceValue;
 import it.geosolutions.jaiext.jiffle.parser.node.ImagePos;
@@ -208,10 +209,23 @@ abstract class AbstractModelWorker extends PropertyWorker<Node> {
     @Override
     public void exitFunctionCall(FunctionCallContext ctx) {
         ExpressionListContext expressionList = ctx.argumentList().expressionList();
+        String name = ctx.start.getText();
         if (expressionList == null) {
-            setFunctionCall(ctx, ctx.start.getText(), new ArrayList<ExpressionContext>());
+            setFunctionCall(ctx, name, new ArrayList<ExpressionContext>());
+        } else if (FocalFunction.isFocal(name) && expressionList.expression().size() == 2) {
+            setFocalFunction(ctx, name, expressionList.expression());
         } else {
-            setFunctionCall(ctx, ctx.start.getText(), expressionList.expression()); 
+            setFunctionCall(ctx, name, expressionList.expression()); 
+        }
+    }
+
+    private void setFocalFunction(FunctionCallContext ctx, String fnName, List<ExpressionContext> ecs) {
+        Expression source = getAsType(ecs.get(0), Expression.class);
+        Expression radius = getAsType(ecs.get(1), Expression.class);
+        try {
+            set(ctx, new FocalFunction(fnName, source, radius));
+        } catch (NodeException ex) {
+            messages.error(ctx.getStart(), ex.getError());
         }
     }
 
@@ -98,7 +98,9 @@ public enum Errors {
 
     UNINIT_VAR("Variable used before being assigned a value"),
 
-    IMAGE_POS_ON_NON_IMAGE("Image position specifier(s) used with a non-image variable");
+    IMAGE_POS_ON_NON_IMAGE("Image position specifier(s) used with a non-image variable"),
+
+    FOCAL_ARG_NOT_IMAGE("The first argument of a focal function must be a source image");
 
     
     private final String msg;
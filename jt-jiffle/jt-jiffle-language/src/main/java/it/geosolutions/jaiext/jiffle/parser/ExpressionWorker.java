@@ -48,6 +48,7 @@ import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ParseTree;
 import it.geosolutions.jaiext.jiffle.Jiffle;
 import it.geosolutions.jaiext.jiffle.parser.JiffleParser.*;
+import it.geosolutions.jaiext.jiffle.parser.node.FocalFunction;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -384,11 +385,35 @@ public class ExpressionWorker extends PropertyWorker<JiffleType> {
             }
             JiffleType[] array = argumentTypes.toArray(new JiffleType[argumentTypes.size()]);
             set( ctx, FunctionLookup.getInfo(name, array).getReturnType());
+            
+            // focal functions read a window from a source image
+            if (FocalFunction.isFocal(name) 
+                    && !isSourceImageReference(expressionList.expression(0))) {
+                messages.error(ctx.ID().getSymbol(), Errors.FOCAL_ARG_NOT_IMAGE + ": " + name);
+            }
         } catch (UndefinedFunctionException ex) {
             messages.error(ctx.ID().getSymbol(), ex.getMessage());
         }
     }
     
+    /*
+     * Tests if an expression is a plain reference to a source image,
+     * with or without image position specifiers.
+     */
+    private boolean isSourceImageReference(ExpressionContext ec) {
+        if (ec instanceof AtomExprContext) {
+            ParseTree child = ((AtomExprContext) ec).atom().getChild(0);
+            if (child instanceof ImageCallContext) {
+                return true;
+            } else if (child instanceof VarIDContext) {
+                String name = ((VarIDContext) child).ID().getText();
+                Symbol symbol = getScope(child).get(name);
+                return symbol != null && symbol.getType() == Symbol.Type.SOURCE_IMAGE;
+            }
+        }
+        return false;
+    }
+    
     
 
     @Override
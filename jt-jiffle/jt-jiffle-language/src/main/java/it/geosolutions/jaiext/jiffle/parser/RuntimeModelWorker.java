@@ -51,6 +51,8 @@ import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.ExprStmtContext;
 import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.ExpressionContext;
 import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.ExpressionListContext;
 import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.InitBlockContext;
+import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.PostExprContext;
+import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.PreExprContext;
 import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.ScriptContext;
 import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.StatementContext;
 import static it.geosolutions.jaiext.jiffle.parser.JiffleParser.VarDeclarationContext;
@@ -73,6 +75,7 @@ import it.geosolutions.jaiext.jiffle.parser.node.GlobalVars;
 import it.geosolutions.jaiext.jiffle.parser.node.IfElse;
 import it.geosolutions.jaiext.jiffle.parser.node.ListAppend;
 import it.geosolutions.jaiext.jiffle.parser.node.ListLiteral;
+import it.geosolutions.jaiext.jiffle.parser.node.Node;
 import it.geosolutions.jaiext.jiffle.parser.node.LoopInLiteralList;
 import it.geosolutions.jaiext.jiffle.parser.node.LoopInRange;
 import it.geosolutions.jaiext.jiffle.parser.node.LoopInVariable;
@@ -129,6 +132,9 @@ public class RuntimeModelWorker extends AbstractModelWorker {
     // Set to a non-null reference if an init block is found
     private InitBlockContext initBlockContext = null;
     private Script script;
+    
+    // Set to true if the script body modifies image-scope variables
+    private boolean imageScopeVarsModified = false;
 
     /**
      * Labels the parse tree with Node objects representing elements
@@ -159,6 +165,7 @@ public class RuntimeModelWorker extends AbstractModelWorker {
         Set<String> destImages = globalScope.getByType(Symbol.Type.DEST_IMAGE);
 
         this.script = new Script(options, sourceImages, destImages, globals, stmts);
+        this.script.setParallelSafe(!imageScopeVarsModified);
         set(ctx, this.script);
     }
     
@@ -224,6 +231,9 @@ public class RuntimeModelWorker extends AbstractModelWorker {
         Symbol symbol = scope.get(varName);
         SymbolScope declaringScope = scope.getDeclaringScope(varName);
         boolean declare = checkAndSetDeclared(declaringScope, varName);
+        if (declaringScope instanceof GlobalScope) {
+            imageScopeVarsModified = true;
+        }
         
         int opType = ctx.op.getType();
         
@@ -253,6 +263,36 @@ public class RuntimeModelWorker extends AbstractModelWorker {
         }
     }
 
+    @Override
+    public void exitPostExpr(PostExprContext ctx) {
+        super.exitPostExpr(ctx);
+        checkImageScopeUpdate(ctx, ctx.expression());
+    }
+
+    @Override
+    public void exitPreExpr(PreExprContext ctx) {
+        super.exitPreExpr(ctx);
+        String op = ctx.getChild(0).getText();
+        if ("++".equals(op) || "--".equals(op)) {
+            checkImageScopeUpdate(ctx, ctx.expression());
+        }
+    }
+
+    /**
+     * Flags the script as carrying state across pixels if the operand of an 
+     * increment or decrement expression is an image-scope variable
+     */
+    private void checkImageScopeUpdate(ParseTree ctx, ExpressionContext operand) {
+        Node node = get(operand);
+        if (node instanceof Variable) {
+            String varName = ((Variable) node).getName();
+            SymbolScope scope = getScope(ctx);
+            if (scope.has(varName) && scope.getDeclaringScope(varName) instanceof GlobalScope) {
+                imageScopeVarsModified = true;
+            }
+        }
+    }
+
     /**
      * Checks if a variable has already been declared in this scope, and if not, marks it as such
      * @param scope
@@ -331,6 +371,11 @@ public class RuntimeModelWorker extends AbstractModelWorker {
     public void exitListAppendStmt(JiffleParser.ListAppendStmtContext ctx) {
         String varName = ctx.ID().getText();
         Expression expression = getAsType(ctx.expression(), Expression.class);
+        // appending to an image-scope list carries state across pixels
+        SymbolScope scope = getScope(ctx);
+        if (scope.has(varName) && scope.getDeclaringScope(varName) instanceof GlobalScope) {
+            imageScopeVarsModified = true;
+        }
         set(ctx, new ListAppend(new Variable(varName, JiffleType.LIST), expression));
     }
 
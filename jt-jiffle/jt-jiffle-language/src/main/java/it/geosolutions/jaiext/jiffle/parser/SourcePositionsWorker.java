@@ -23,9 +23,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import it.geosolutions.jaiext.jiffle.parser.node.BinaryExpression;
+import it.geosolutions.jaiext.jiffle.parser.node.DoubleLiteral;
+import it.geosolutions.jaiext.jiffle.parser.node.Expression;
+import it.geosolutions.jaiext.jiffle.parser.node.FocalFunction;
 import it.geosolutions.jaiext.jiffle.parser.node.GetSourceValue;
 import it.geosolutions.jaiext.jiffle.parser.node.ImagePos;
+import it.geosolutions.jaiext.jiffle.parser.node.IntLiteral;
 import it.geosolutions.jaiext.jiffle.parser.node.Node;
+import it.geosolutions.jaiext.jiffle.parser.node.NodeException;
+import it.geosolutions.jaiext.jiffle.parser.node.Pixel;
+import it.geosolutions.jaiext.jiffle.parser.node.ScalarLiteral;
 
 /**
  * Support class helping to list all the unique positions read in the various sources
@@ -76,6 +84,42 @@ public class SourcePositionsWorker extends AbstractModelWorker {
         }
     }
 
+    @Override
+    public void exitFunctionCall(JiffleParser.FunctionCallContext ctx) {
+        super.exitFunctionCall(ctx);
+        Node node = get(ctx);
+        if (node instanceof FocalFunction) {
+            FocalFunction focal = (FocalFunction) node;
+            // with a literal radius we can report the window corners, 
+            // otherwise only the centre position is known
+            Expression r = focal.getRadius();
+            if (r instanceof IntLiteral || r instanceof DoubleLiteral) {
+                int radius = (int) Double.parseDouble(((ScalarLiteral) r).getValue());
+                GetSourceValue source = focal.getSource();
+                this.positions.add(offset(source, -radius));
+                this.positions.add(offset(source, radius));
+            }
+        }
+    }
+
+    /*
+     * Returns a read of the same image and band at a position shifted by 
+     * delta pixels in both directions.
+     */
+    private GetSourceValue offset(GetSourceValue source, int delta) {
+        ImagePos pos = source.getPos();
+        Pixel pixel = pos.getPixel();
+        DoubleLiteral d = new DoubleLiteral(String.valueOf((double) delta));
+        try {
+            Pixel shifted = new Pixel(
+                    new BinaryExpression(JiffleParser.PLUS, pixel.getX(), d),
+                    new BinaryExpression(JiffleParser.PLUS, pixel.getY(), d));
+            return new GetSourceValue(source.getVarName(), new ImagePos(pos.getBand(), shifted));
+        } catch (NodeException ex) {
+            throw new InternalCompilerException(ex.getError().toString());
+        }
+    }
+
     @Override
     protected SymbolScope getScope(ParseTree ctx) {
         return scope;
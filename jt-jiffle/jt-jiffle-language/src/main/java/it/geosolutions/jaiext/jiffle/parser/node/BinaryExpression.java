@@ -142,7 +142,7 @@ public class BinaryExpression extends Expression {
     }
 
     private String getJavaType() {
-        return left.getType() == JiffleType.D ? "double" : "List";
+        return left.getType() == JiffleType.D ? "double" : "DoubleList";
     }
 
     private String getInitialValue() {
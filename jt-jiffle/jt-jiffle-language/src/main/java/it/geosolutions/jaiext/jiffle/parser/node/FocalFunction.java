@@ -0,0 +1,113 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2018 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.geosolutions.jaiext.jiffle.parser.node;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import it.geosolutions.jaiext.jiffle.parser.Errors;
+import it.geosolutions.jaiext.jiffle.parser.JiffleType;
+
+/**
+ * A neighbourhood statistic (e.g. {@code focalMax(src, 1)}) computed over the
+ * square window of a given radius around a source image position. The window 
+ * is read in a single call on the source image rather than through one 
+ * generated read per cell.
+ */
+public class FocalFunction extends Expression {
+    
+    private static final Set<String> NAMES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(
+                    "focalMax", "focalMin", "focalSum", "focalMean", "focalMedian")));
+
+    private final String name;
+    private final GetSourceValue source;
+    private final Expression radius;
+
+    /**
+     * Tests if a function name refers to a focal function.
+     * 
+     * @param name function name
+     * @return {@code true} if this is a focal function
+     */
+    public static boolean isFocal(String name) {
+        return NAMES.contains(name);
+    }
+
+    public FocalFunction(String name, Expression source, Expression radius) 
+            throws NodeException {
+        super(JiffleType.D);
+        
+        if (!(source instanceof GetSourceValue)) {
+            throw new NodeException(Errors.FOCAL_ARG_NOT_IMAGE);
+        }
+        if (radius.getType() != JiffleType.D) {
+            throw new NodeException(Errors.EXPECTED_SCALAR);
+        }
+        
+        this.name = name;
+        this.source = (GetSourceValue) source;
+        this.radius = radius;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + source + ", " + radius + ")";
+    }
+
+    public void write(SourceWriter w) {
+        if (w.isSourceImageBindable()) {
+            w.append("s_").append(source.getVarName()).append(".").append(name).append("(");
+        } else {
+            w.append("_FN.").append(name).append("(this, \"")
+                    .append(source.getVarName()).append("\", ");
+        }
+        w.append(source.getPos()).append(", (int) (").append(radius).append("))");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        FocalFunction that = (FocalFunction) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(source, that.source) &&
+                Objects.equals(radius, that.radius);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), name, source, radius);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public GetSourceValue getSource() {
+        return source;
+    }
+
+    public Expression getRadius() {
+        return radius;
+    }
+}
@@ -74,7 +74,7 @@ public class GetSourceValue extends Expression {
     }
 
     public void write(SourceWriter w) {
-        if (w.isInternalBaseClass()) {
+        if (w.isSourceImageBindable()) {
             w.append("s_").append(varName).append(".read(").append(pos).append(")");
         } else {
             w.append("readFromImage(\"").append(varName).append("\", ").append(pos).append(")");                
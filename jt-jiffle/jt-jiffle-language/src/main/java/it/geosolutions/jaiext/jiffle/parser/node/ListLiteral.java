@@ -67,18 +67,30 @@ public class ListLiteral extends Expression {
 
     public void write(SourceWriter w) {
         if (args.isEmpty()) {
-            w.append("new ArrayList()");
+            w.append("new DoubleList()");
         } else {
-            w.append("new ArrayList(Arrays.asList(");
-            for (int i = 0; i < args.size(); i++) {
-                Expression arg = args.get(i);
-                w.append(arg);
-                if (i < args.size() - 1) {
-                    w.append(", ");
-                }
+            w.append("new DoubleList(");
+            writeArray(w);
+            w.append(")"); 
+        }
+    }
+
+    /**
+     * Writes the list values as a primitive array literal, e.g. 
+     * {@code new double[] {1.0, 2.0}}.
+     * 
+     * @param w the source writer
+     */
+    public void writeArray(SourceWriter w) {
+        w.append("new double[] {");
+        for (int i = 0; i < args.size(); i++) {
+            Expression arg = args.get(i);
+            w.append(arg);
+            if (i < args.size() - 1) {
+                w.append(", ");
             }
-            w.append("))"); 
         }
+        w.append("}");
     }
 
     @Override
@@ -59,9 +59,14 @@ public class LoopInVariable implements Statement {
 
     @Override
     public void write(SourceWriter w) {
-        w.indent().append("for(Double ").append(loopVariable).append(" : ").append(listVariable);
-        w.append(") {").newLine();
+        // indexed loop over the primitive values of the DoubleList
+        String index = "_i" + loopVariable;
+        w.indent().append("for(int ").append(index).append(" = 0; ")
+                .append(index).append(" < ").append(listVariable).append(".size(); ")
+                .append(index).append("++) {").newLine();
         w.inc();
+        w.indent().append("double ").append(loopVariable).append(" = ")
+                .append(listVariable).append(".getDouble(").append(index).append(");").newLine();
         statement.write(w);
         w.dec();
         w.line("}");
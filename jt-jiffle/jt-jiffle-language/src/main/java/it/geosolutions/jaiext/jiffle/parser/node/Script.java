@@ -62,6 +62,7 @@ public class Script implements Node {
     private Set<String> sourceImages;
     private Set<String> destImages;
     private final GlobalVars globals;
+    private boolean parallelSafe;
 
     public Script(
             Map<String, String> options,
@@ -113,19 +114,19 @@ public class Script implements Node {
 
         // writing class fields
         w.inc();
-        // ... if we are using a internal class, dodge map lookups while working on pixels
-        if (w.isInternalBaseClass()) {
+        // ... if the base class allows it, dodge map lookups while working on pixels
+        if (w.isSourceImageBindable()) {
             for (String sourceImage : sourceImages) {
                 w.indent().append("SourceImage s_").append(sourceImage).append(";").newLine();
             }
-            if (model == Jiffle.RuntimeModel.DIRECT) {
-                for (String destImage : destImages) {
-                    w.indent()
-                            .append("DestinationImage d_")
-                            .append(destImage)
-                            .append(";")
-                            .newLine();
-                }
+        }
+        if (w.isDestinationImageBindable()) {
+            for (String destImage : destImages) {
+                w.indent()
+                        .append("DestinationImage d_")
+                        .append(destImage)
+                        .append(";")
+                        .newLine();
             }
         }
         globals.writeFields(w);
@@ -162,7 +163,7 @@ public class Script implements Node {
         // and field initializer method
         w.line("protected void initImageScopeVars() {");
         w.inc();
-        if (w.isInternalBaseClass()) {
+        if (w.isSourceImageBindable()) {
             for (String sourceImage : sourceImages) {
                 w.indent()
                         .append("s_")
@@ -172,16 +173,16 @@ public class Script implements Node {
                         .append("\");")
                         .newLine();
             }
-            if (model == Jiffle.RuntimeModel.DIRECT) {
-                for (String destImage : destImages) {
-                    w.indent()
-                            .append("d_")
-                            .append(destImage)
-                            .append("= (DestinationImage) _destImages.get(\"")
-                            .append(destImage)
-                            .append("\");")
-                            .newLine();
-                }
+        }
+        if (w.isDestinationImageBindable()) {
+            for (String destImage : destImages) {
+                w.indent()
+                        .append("d_")
+                        .append(destImage)
+                        .append("= (DestinationImage) _destImages.get(\"")
+                        .append(destImage)
+                        .append("\");")
+                        .newLine();
             }
         }
         globals.write(w);
@@ -267,4 +268,16 @@ public class Script implements Node {
     public GlobalVars getGlobals() {
         return globals;
     }
+
+    /**
+     * Whether the script body can be evaluated for different pixels concurrently, that is, 
+     * it does not modify image-scope variables and thus carries no state across pixels
+     */
+    public boolean isParallelSafe() {
+        return parallelSafe;
+    }
+
+    public void setParallelSafe(boolean parallelSafe) {
+        this.parallelSafe = parallelSafe;
+    }
 }
@@ -84,7 +84,7 @@ public class SetDestValue extends Expression {
         RuntimeModel runtimeModel = w.getRuntimeModel();
         switch (runtimeModel) {
             case DIRECT:
-                if (w.isInternalBaseClass()) {
+                if (w.isDestinationImageBindable()) {
                     w.append("d_").append(destVar).append(".write(_x, _y, 0, ").append(expr).append(")");                    
                 } else {
                     w.append("writeToImage(\"").append(destVar).append("\", _x, _y, 0, ").append(expr).append(")");
@@ -47,6 +47,7 @@ import it.geosolutions.jaiext.jiffle.Jiffle;
 import it.geosolutions.jaiext.jiffle.JiffleProperties;
 import it.geosolutions.jaiext.jiffle.runtime.AbstractDirectRuntime;
 import it.geosolutions.jaiext.jiffle.runtime.AbstractIndirectRuntime;
+import it.geosolutions.jaiext.jiffle.runtime.AbstractJiffleRuntime;
 
 import java.util.Arrays;
 
@@ -62,6 +63,7 @@ public class SourceWriter {
     private String indentation = "";
     private String script;
     private String baseClassName;
+    private Class<?> baseClass;
 
     public SourceWriter(Jiffle.RuntimeModel model) {
         this.runtimeModel = model;
@@ -165,6 +167,19 @@ public class SourceWriter {
 
     public void setBaseClassName(String baseClassName) {
         this.baseClassName = baseClassName;
+        this.baseClass = null;
+    }
+
+    /**
+     * Sets the runtime base class. Unlike {@link #setBaseClassName(String)} this allows
+     * the generated code to bind image handles for custom subclasses of the
+     * internal base classes as well.
+     * 
+     * @param baseClass the runtime base class
+     */
+    public void setBaseClass(Class<?> baseClass) {
+        this.baseClass = baseClass;
+        this.baseClassName = baseClass == null ? null : baseClass.getName();
     }
 
     public String getBaseClassName() {
@@ -182,10 +197,69 @@ public class SourceWriter {
      * Returns true if the runtime is either {@link it.geosolutions.jaiext.jiffle.runtime.AbstractDirectRuntime}
      * or {@link it.geosolutions.jaiext.jiffle.runtime.AbstractIndirectRuntime}
      * @return
+     * @deprecated No longer used by the code generation, see {@link #isSourceImageBindable()}
+     *             and {@link #isDestinationImageBindable()}.
      */
+    @Deprecated
     public boolean isInternalBaseClass() {
         String baseClassName = getBaseClassName();
         return AbstractDirectRuntime.class.getName().equals(baseClassName) ||
                 AbstractIndirectRuntime.class.getName().equals(baseClassName);
     }
+
+    /**
+     * Returns true if the generated code can bind each source image variable to a
+     * {@code SourceImage} field when the runtime is set up, and read from it directly,
+     * instead of going through the by-name {@code readFromImage} lookup for each sample.
+     * This is the case when the base class extends {@link AbstractJiffleRuntime} without
+     * overriding {@code readFromImage}.
+     * @return
+     */
+    public boolean isSourceImageBindable() {
+        return inheritsUnchanged(AbstractJiffleRuntime.class, "readFromImage",
+                String.class, double.class, double.class, int.class);
+    }
+
+    /**
+     * Returns true if the generated code can bind each destination image variable to a
+     * {@code DestinationImage} field when the runtime is set up, and write to it directly,
+     * instead of going through the by-name {@code writeToImage} lookup for each sample.
+     * This is the case when the base class extends {@link AbstractDirectRuntime} without
+     * overriding {@code writeToImage}.
+     * @return
+     */
+    public boolean isDestinationImageBindable() {
+        return runtimeModel == Jiffle.RuntimeModel.DIRECT
+                && inheritsUnchanged(AbstractDirectRuntime.class, "writeToImage",
+                        String.class, double.class, double.class, int.class, double.class);
+    }
+
+    private boolean inheritsUnchanged(Class<?> owner, String methodName, Class<?>... parameterTypes) {
+        Class<?> base = resolveBaseClass();
+        if (base == null || !owner.isAssignableFrom(base)) {
+            return false;
+        }
+        try {
+            return base.getMethod(methodName, parameterTypes).getDeclaringClass() == owner;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private Class<?> resolveBaseClass() {
+        if (baseClass != null) {
+            return baseClass;
+        }
+        String name = getBaseClassName();
+        if (AbstractDirectRuntime.class.getName().equals(name)) {
+            return AbstractDirectRuntime.class;
+        } else if (AbstractIndirectRuntime.class.getName().equals(name)) {
+            return AbstractIndirectRuntime.class;
+        }
+        try {
+            return Class.forName(name, false, SourceWriter.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
 }
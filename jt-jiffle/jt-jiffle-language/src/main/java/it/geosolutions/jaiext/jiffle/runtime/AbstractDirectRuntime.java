@@ -49,6 +49,9 @@ import java.awt.image.RenderedImage;
 import java.awt.image.WritableRenderedImage;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.media.jai.iterator.RandomIterFactory;
 import javax.media.jai.iterator.WritableRandomIter;
@@ -67,8 +70,17 @@ public abstract class AbstractDirectRuntime extends AbstractJiffleRuntime
 
     private static final double EPS = 1.0e-10d;
 
+    /** Minimum number of rows evaluated by a single task in parallel mode. */
+    private static final int MIN_ROWS_PER_TASK = 8;
+
+    /** Number of tasks per pool thread, allows some load balancing across threads. */
+    private static final int TASKS_PER_THREAD = 4;
+
     protected Map<String, DestinationImage> _destImages = new HashMap<>();
 
+    /** Whether the script carries no state across pixels, see {@link #isParallelSafe()}. */
+    private boolean _parallelSafe;
+
     protected class DestinationImage {
         final String imageName;
         final WritableRenderedImage image;
@@ -195,6 +207,178 @@ public abstract class AbstractDirectRuntime extends AbstractJiffleRuntime
         listener.finish();
     }
 
+    /**
+     * Evaluates the script for all pixel locations within the world bounds,
+     * splitting the processing area in row bands which are evaluated concurrently
+     * on the given pool. Each task works on its own runtime object, a new instance
+     * of this class sharing the same images, transforms and variable values.
+     * <p>
+     * Parallel evaluation is only used if the script has been flagged as free of 
+     * cross-pixel state by the compiler (see {@link #isParallelSafe()}), otherwise
+     * this method falls back on the serial {@link #evaluateAll(JiffleProgressListener)}.
+     * The progress listener is notified from the pool threads, one call at a time.
+     *
+     * @param pl an optional progress listener (may be {@code null})
+     * @param pool the pool running the evaluation tasks, if {@code null} the common
+     *        pool will be used
+     */
+    public void evaluateAll(JiffleProgressListener pl, ForkJoinPool pool) {
+        final ForkJoinPool executor = pool == null ? ForkJoinPool.commonPool() : pool;
+        if (!isParallelSafe() || executor.getParallelism() < 2) {
+            evaluateAll(pl);
+            return;
+        }
+
+        JiffleProgressListener listener = pl == null ? new NullProgressListener() : pl;
+
+        if (!isWorldSet()) {
+            setDefaultBounds();
+        }
+        if (!_imageScopeVarsInitialized) {
+            initImageScopeVars();
+        }
+
+        // same stepping as the serial loop, so that the world positions match exactly
+        final double minY = getMinY();
+        final double maxY = getMaxY();
+        final double resY = getYRes();
+        int numRows = 0;
+        for (double y = minY; y < maxY - EPS; y += resY) {
+            numRows++;
+        }
+        final double[] rows = new double[numRows];
+        int row = 0;
+        for (double y = minY; y < maxY - EPS; y += resY) {
+            rows[row++] = y;
+        }
+        long numCols = 0;
+        for (double x = getMinX(); x < getMaxX() - EPS; x += getXRes()) {
+            numCols++;
+        }
+
+        listener.setTaskSize(numRows * numCols);
+        int rowsPerTask =
+                Math.max(MIN_ROWS_PER_TASK, numRows / (executor.getParallelism() * TASKS_PER_THREAD));
+
+        listener.start();
+        executor.invoke(new EvaluationTask(rows, 0, numRows, rowsPerTask, listener, new AtomicLong()));
+        listener.finish();
+    }
+
+    /**
+     * Evaluates a band of rows, splitting it further until it is no larger than the 
+     * configured number of rows per task.
+     */
+    private class EvaluationTask extends RecursiveAction {
+        private final double[] rows;
+        private final int startRow;
+        private final int endRow;
+        private final int rowsPerTask;
+        private final JiffleProgressListener listener;
+        private final AtomicLong count;
+
+        EvaluationTask(double[] rows, int startRow, int endRow, int rowsPerTask,
+                JiffleProgressListener listener, AtomicLong count) {
+            this.rows = rows;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.rowsPerTask = rowsPerTask;
+            this.listener = listener;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - startRow > rowsPerTask) {
+                int mid = (startRow + endRow) >>> 1;
+                invokeAll(
+                        new EvaluationTask(rows, startRow, mid, rowsPerTask, listener, count),
+                        new EvaluationTask(rows, mid, endRow, rowsPerTask, listener, count));
+                return;
+            }
+
+            final AbstractDirectRuntime worker = createWorker();
+            final double minX = getMinX();
+            final double maxX = getMaxX();
+            final double resX = getXRes();
+            final long updateInterval = listener.getUpdateInterval();
+
+            long sinceLastUpdate = 0;
+            for (int r = startRow; r < endRow; r++) {
+                final double y = rows[r];
+                for (double x = minX; x < maxX - EPS; x += resX) {
+                    worker.evaluate(x, y);
+
+                    sinceLastUpdate++;
+                    if (sinceLastUpdate >= updateInterval) {
+                        notifyProgress(sinceLastUpdate);
+                        sinceLastUpdate = 0;
+                    }
+                }
+            }
+            if (sinceLastUpdate > 0 && updateInterval != Long.MAX_VALUE) {
+                notifyProgress(sinceLastUpdate);
+            }
+        }
+
+        private void notifyProgress(long pixels) {
+            long done = count.addAndGet(pixels);
+            synchronized (listener) {
+                listener.update(done);
+            }
+        }
+    }
+
+    /**
+     * Creates a new instance of this runtime class sharing the state of this object, 
+     * used to evaluate a portion of the processing area in parallel mode.
+     */
+    private AbstractDirectRuntime createWorker() {
+        AbstractDirectRuntime worker;
+        try {
+            worker = getClass().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new JiffleRuntimeException(
+                    "Cannot create a worker instance of " + getClass().getName() + ": " + e);
+        }
+        copyStateTo(worker);
+        return worker;
+    }
+
+    @Override
+    protected void copyStateTo(AbstractJiffleRuntime target) {
+        super.copyStateTo(target);
+        AbstractDirectRuntime directTarget = (AbstractDirectRuntime) target;
+        for (DestinationImage destImage : _destImages.values()) {
+            DestinationImage copy =
+                    directTarget.new DestinationImage(destImage.imageName, destImage.image);
+            copy.transform = destImage.transform;
+            copy.defaultTransform = destImage.defaultTransform;
+            directTarget._destImages.put(destImage.imageName, copy);
+        }
+        directTarget._parallelSafe = _parallelSafe;
+    }
+
+    /**
+     * Tests whether the script evaluated by this runtime object carries no state across 
+     * pixels, and can thus be evaluated in parallel. This is set by the Jiffle compiler
+     * when creating the runtime instance.
+     *
+     * @return {@code true} if parallel evaluation is safe
+     */
+    public boolean isParallelSafe() {
+        return _parallelSafe;
+    }
+
+    /**
+     * Sets whether the script evaluated by this runtime object can be evaluated in parallel.
+     * 
+     * @param parallelSafe {@code true} to enable parallel evaluation
+     */
+    public void setParallelSafe(boolean parallelSafe) {
+        this._parallelSafe = parallelSafe;
+    }
+
     /** {@inheritDoc} */
     public void writeToImage(String destImageName, double x, double y, int band, double value) {
         DestinationImage image = _destImages.get(destImageName);
@@ -56,6 +56,7 @@ import java.util.Map;
 import it.geosolutions.jaiext.iterators.RandomIterFactory;
 import it.geosolutions.jaiext.jiffle.Jiffle;
 import it.geosolutions.jaiext.jiffle.JiffleException;
+import it.geosolutions.jaiext.numeric.SampleStats;
 import it.geosolutions.jaiext.range.NoDataContainer;
 import it.geosolutions.jaiext.range.Range;
 import it.geosolutions.jaiext.range.RangeDouble;
@@ -125,6 +126,9 @@ public abstract class AbstractJiffleRuntime implements JiffleRuntime {
         final int maxX;
         final int minY;
         final int maxY;
+        
+        /** Scratch buffer for the focal functions, allocated on first use */
+        double[] focalBuffer;
 
         public SourceImage(String imageName, RenderedImage image) {
             this.imageName = imageName;
@@ -198,6 +202,101 @@ public abstract class AbstractJiffleRuntime implements JiffleRuntime {
             return result;
         }
 
+        /**
+         * Gets the maximum of the values in the square window of the given
+         * radius centred on a position. NaN and nodata values are ignored.
+         */
+        public double focalMax(double x, double y, int band, int radius) {
+            return SampleStats.max(focalBuffer, readWindow(x, y, band, radius), true);
+        }
+
+        /**
+         * Gets the minimum of the values in the square window of the given
+         * radius centred on a position. NaN and nodata values are ignored.
+         */
+        public double focalMin(double x, double y, int band, int radius) {
+            return SampleStats.min(focalBuffer, readWindow(x, y, band, radius), true);
+        }
+
+        /**
+         * Gets the sum of the values in the square window of the given
+         * radius centred on a position. NaN and nodata values are ignored.
+         */
+        public double focalSum(double x, double y, int band, int radius) {
+            return SampleStats.sum(focalBuffer, readWindow(x, y, band, radius), true);
+        }
+
+        /**
+         * Gets the mean of the values in the square window of the given
+         * radius centred on a position. NaN and nodata values are ignored.
+         */
+        public double focalMean(double x, double y, int band, int radius) {
+            return SampleStats.mean(focalBuffer, readWindow(x, y, band, radius), true);
+        }
+
+        /**
+         * Gets the median of the values in the square window of the given
+         * radius centred on a position. NaN and nodata values are ignored.
+         */
+        public double focalMedian(double x, double y, int band, int radius) {
+            return SampleStats.median(focalBuffer, readWindow(x, y, band, radius), true);
+        }
+
+        /**
+         * Reads the values of a square window into the focal buffer, row by row.
+         * When no coordinate or band transforms are set the window is read
+         * straight from the image iterator; otherwise each position goes 
+         * through {@link #read(double, double, int)} so that the results are
+         * the same as reading {@code image[dx, dy]} in a script.
+         *
+         * @return the number of values read
+         */
+        private int readWindow(double x, double y, int band, int radius) {
+            if (radius < 0) {
+                throw new JiffleRuntimeException("Invalid focal radius: " + radius);
+            }
+            final int side = 2 * radius + 1;
+            final int n = side * side;
+            if (focalBuffer == null || focalBuffer.length < n) {
+                focalBuffer = new double[n];
+            }
+            final double[] buffer = focalBuffer;
+
+            int k = 0;
+            if ((transform == null || transform instanceof IdentityCoordinateTransform) 
+                    && bandTransform == null) {
+                final int cx = (int) x;
+                final int cy = (int) y;
+                for (int posy = cy - radius; posy <= cy + radius; posy++) {
+                    final boolean insideY = posy >= minY && posy < maxY;
+                    for (int posx = cx - radius; posx <= cx + radius; posx++) {
+                        if (!insideY || posx < minX || posx >= maxX) {
+                            if (!_outsideValueSet) {
+                                throw new JiffleRuntimeException( String.format(
+                                        "Position %d %d is outside bounds of image: %s",
+                                        posx, posy, imageName));
+                            }
+                            buffer[k++] = _outsideValue;
+                        } else if (roiIterator != null
+                                && (roiIterator.getSample(posx, posy, 0) & 0xff) == 0) {
+                            buffer[k++] = Double.NaN;
+                        } else {
+                            final double value = iterator.getSampleDouble(posx, posy, band);
+                            buffer[k++] = noDataRange != null && noDataRange.contains(value) ? 
+                                    Double.NaN : value;
+                        }
+                    }
+                }
+            } else {
+                for (int dy = -radius; dy <= radius; dy++) {
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        buffer[k++] = read(x + dx, y + dy, band);
+                    }
+                }
+            }
+            return k;
+        }
+
         public void setTransform(CoordinateTransform transform, boolean defaultTransform)
                 throws WorldNotSetException {
             if (transform != null && !isWorldSet()) {
@@ -627,4 +726,45 @@ public abstract class AbstractJiffleRuntime implements JiffleRuntime {
     }
 
     public abstract void setDefaultBounds();
+
+    /**
+     * Copies the image parameters, world bounds and resolution, default transform, 
+     * source images and variable values of this runtime object to {@code target}, which
+     * is expected to be an instance of the same runtime class. Used to set up the worker
+     * instances taking part in a parallel evaluation.
+     * 
+     * @param target the runtime object receiving the state
+     */
+    protected void copyStateTo(AbstractJiffleRuntime target) {
+        if (_imageParams != null) {
+            target.setImageParams(_imageParams);
+        }
+        if (_worldSet) {
+            target.doSetWorld(_worldBounds, _xres, _yres);
+        }
+        target._defaultTransform = _defaultTransform;
+        target._outsideValueSet = _outsideValueSet;
+        target._outsideValue = _outsideValue;
+
+        for (SourceImage sourceImage : _images.values()) {
+            SourceImage copy = target.new SourceImage(sourceImage.imageName, sourceImage.image);
+            copy.transform = sourceImage.transform;
+            copy.defaultTransform = sourceImage.defaultTransform;
+            copy.bandTransform = sourceImage.bandTransform;
+            target._images.put(sourceImage.imageName, copy);
+        }
+
+        for (String varName : _variableNames) {
+            Field field = getVariableField(varName);
+            if (field != null) {
+                try {
+                    field.setAccessible(true);
+                    field.setDouble(target, field.getDouble(this));
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        target._imageScopeVarsInitialized = false;
+    }
 }
@@ -0,0 +1,215 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2018 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.geosolutions.jaiext.jiffle.runtime;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A growable list of primitive double values used for Jiffle list variables.
+ * Values are held in a {@code double[]} so that list literals, appends and
+ * the list statistics functions in {@link JiffleFunctions} do not box each 
+ * element. The class still implements {@code List<Double>} so that runtime
+ * objects can pass list variables to code expecting a plain collection.
+ * 
+ * @since 1.1
+ */
+public class DoubleList extends AbstractList<Double> {
+    
+    /** Initial capacity for lists created empty */
+    public static final int DEFAULT_CAPACITY = 16;
+    
+    private double[] data;
+    private int size;
+
+    /**
+     * Creates an empty list.
+     */
+    public DoubleList() {
+        this.data = new double[DEFAULT_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Creates a list holding the given values. The array is used directly 
+     * as the backing store of the list (no copy is made), which is what the
+     * generated code for list literals relies on.
+     * 
+     * @param values initial values
+     */
+    public DoubleList(double[] values) {
+        this.data = values;
+        this.size = values.length;
+    }
+
+    /**
+     * Creates a list holding the values of another collection.
+     * 
+     * @param values initial values
+     */
+    public DoubleList(Collection<?> values) {
+        this.data = new double[Math.max(DEFAULT_CAPACITY, values.size())];
+        this.size = 0;
+        addAllValues(values);
+    }
+
+    /**
+     * Creates a copy of the given list.
+     * 
+     * @param other the list to copy
+     */
+    public DoubleList(DoubleList other) {
+        this.data = Arrays.copyOf(other.data, Math.max(DEFAULT_CAPACITY, other.size));
+        this.size = other.size;
+    }
+    
+    /**
+     * Appends a value to the list.
+     * 
+     * @param x the value
+     * @return always {@code true}
+     */
+    public boolean add(double x) {
+        ensureCapacity(size + 1);
+        data[size++] = x;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Appends all values of another list.
+     * 
+     * @param other the list to append
+     */
+    public void addAll(DoubleList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.data, 0, data, size, other.size);
+        size += other.size;
+        modCount++;
+    }
+    
+    /**
+     * Gets a value without boxing.
+     * 
+     * @param index element index
+     * @return the value
+     * @throws IndexOutOfBoundsException if index is invalid
+     */
+    public double getDouble(int index) {
+        checkIndex(index);
+        return data[index];
+    }
+
+    /**
+     * Copies the values of this list into a new array.
+     * 
+     * @return a new array of length {@link #size()}
+     */
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(data, size);
+    }
+    
+    /**
+     * Gets the backing array. Only the first {@link #size()} elements are
+     * valid, and the array may be replaced as the list grows. This is intended
+     * for read-only use by the statistics functions.
+     * 
+     * @return the backing array
+     */
+    double[] getData() {
+        return data;
+    }
+    
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    @Override
+    public Double set(int index, Double element) {
+        checkIndex(index);
+        double old = data[index];
+        data[index] = toDouble(element);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Double element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(data, index, data, index + 1, size - index);
+        data[index] = toDouble(element);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Double remove(int index) {
+        checkIndex(index);
+        double old = data[index];
+        System.arraycopy(data, index + 1, data, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static double toDouble(Object value) {
+        return value == null ? Double.NaN : ((Number) value).doubleValue();
+    }
+    
+    private boolean addAllValues(Collection<?> values) {
+        ensureCapacity(size + values.size());
+        for (Object value : values) {
+            data[size++] = toDouble(value);
+        }
+        modCount++;
+        return !values.isEmpty();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Double> values) {
+        return addAllValues(values);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            int newLength = Math.max(capacity, Math.max(DEFAULT_CAPACITY, data.length * 2));
+            data = Arrays.copyOf(data, newLength);
+        }
+    }
+}
@@ -43,7 +43,6 @@
 
 package it.geosolutions.jaiext.jiffle.runtime;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -63,6 +62,9 @@ public class JiffleFunctions {
     
     private Random rr = new Random();
     
+    /** Scratch buffer for the focal functions */
+    private double[] focalBuffer;
+    
     /**
      * Converts an angle in degrees to radians.
      * 
@@ -141,7 +143,7 @@ public class JiffleFunctions {
      * @return the maximum value
      */
     public double max(List values) {
-        return SampleStats.max(listToArray(values), true);
+        return SampleStats.max(valuesOf(values), values.size(), true);
     }
     
     /**
@@ -152,7 +154,7 @@ public class JiffleFunctions {
      * @return the mean value
      */
     public double mean(List values) {
-        return SampleStats.mean(listToArray(values), true);
+        return SampleStats.mean(valuesOf(values), values.size(), true);
     }
     
     /**
@@ -163,7 +165,7 @@ public class JiffleFunctions {
      * @return the median value
      */
     public double median(List values) {
-        return SampleStats.median(listToArray(values), true);
+        return SampleStats.median(listToArray(values), values.size(), true);
     }
     
     /**
@@ -174,7 +176,7 @@ public class JiffleFunctions {
      * @return the minimum value
      */
     public double min(List values) {
-        return SampleStats.min(listToArray(values), true);
+        return SampleStats.min(valuesOf(values), values.size(), true);
     }
     
     /**
@@ -185,7 +187,7 @@ public class JiffleFunctions {
      * @return the modal value
      */
     public double mode(List values) {
-        return SampleStats.mode(listToArray(values), true);
+        return SampleStats.mode(listToArray(values), values.size(), true);
     }
     
     /**
@@ -227,7 +229,7 @@ public class JiffleFunctions {
      * @return the range of the input values
      */
     public double range(List values) {
-        return SampleStats.range(listToArray(values), true);
+        return SampleStats.range(valuesOf(values), values.size(), true);
     }
     
     /**
@@ -250,7 +252,7 @@ public class JiffleFunctions {
      * @return the standard deviation of the input values
      */
     public double sdev(List values) {
-        return SampleStats.range(listToArray(values), true);
+        return SampleStats.sdev(valuesOf(values), values.size(), true);
     }
     
     
@@ -262,7 +264,7 @@ public class JiffleFunctions {
      * @return the sum of the input values
      */
     public double sum(List values) {
-        return SampleStats.sum(listToArray(values), true);
+        return SampleStats.sum(valuesOf(values), values.size(), true);
     }
 
     /**
@@ -273,7 +275,91 @@ public class JiffleFunctions {
      * @return the variance of the input values
      */
     public double variance(List values) {
-        return SampleStats.variance(listToArray(values), true);
+        return SampleStats.variance(valuesOf(values), values.size(), true);
+    }
+    
+    /**
+     * Gets the maximum of the source image values in the square window of
+     * the given radius centred on a position. This is used by runtime classes
+     * that cannot read source images directly; NaN values are ignored.
+     * 
+     * @param runtime the runtime object to read values from
+     * @param imageName source image name
+     * @param x centre X ordinate in world units
+     * @param y centre Y ordinate in world units
+     * @param band source band
+     * @param radius window radius in pixels
+     * @return the maximum value
+     */
+    public double focalMax(JiffleRuntime runtime, String imageName, 
+            double x, double y, int band, int radius) {
+        int n = readWindow(runtime, imageName, x, y, band, radius);
+        return SampleStats.max(focalBuffer, n, true);
+    }
+
+    /**
+     * Gets the minimum of the source image values in a square window.
+     * See {@link #focalMax(JiffleRuntime, String, double, double, int, int)}.
+     */
+    public double focalMin(JiffleRuntime runtime, String imageName, 
+            double x, double y, int band, int radius) {
+        int n = readWindow(runtime, imageName, x, y, band, radius);
+        return SampleStats.min(focalBuffer, n, true);
+    }
+
+    /**
+     * Gets the sum of the source image values in a square window.
+     * See {@link #focalMax(JiffleRuntime, String, double, double, int, int)}.
+     */
+    public double focalSum(JiffleRuntime runtime, String imageName, 
+            double x, double y, int band, int radius) {
+        int n = readWindow(runtime, imageName, x, y, band, radius);
+        return SampleStats.sum(focalBuffer, n, true);
+    }
+
+    /**
+     * Gets the mean of the source image values in a square window.
+     * See {@link #focalMax(JiffleRuntime, String, double, double, int, int)}.
+     */
+    public double focalMean(JiffleRuntime runtime, String imageName, 
+            double x, double y, int band, int radius) {
+        int n = readWindow(runtime, imageName, x, y, band, radius);
+        return SampleStats.mean(focalBuffer, n, true);
+    }
+
+    /**
+     * Gets the median of the source image values in a square window.
+     * See {@link #focalMax(JiffleRuntime, String, double, double, int, int)}.
+     */
+    public double focalMedian(JiffleRuntime runtime, String imageName, 
+            double x, double y, int band, int radius) {
+        int n = readWindow(runtime, imageName, x, y, band, radius);
+        return SampleStats.median(focalBuffer, n, true);
+    }
+
+    /**
+     * Reads a square window of source image values into the focal buffer.
+     * 
+     * @return the number of values read
+     */
+    private int readWindow(JiffleRuntime runtime, String imageName, 
+            double x, double y, int band, int radius) {
+        if (radius < 0) {
+            throw new JiffleRuntimeException("Invalid focal radius: " + radius);
+        }
+        final int side = 2 * radius + 1;
+        final int n = side * side;
+        if (focalBuffer == null || focalBuffer.length < n) {
+            focalBuffer = new double[n];
+        }
+        
+        int k = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                focalBuffer[k++] = runtime.readFromImage(imageName, x + dx, y + dy, band);
+            }
+        }
+        return k;
     }
     
     /**
@@ -443,8 +529,9 @@ public class JiffleFunctions {
      * @param list the list
      * @return a new list
      */
-    public List concatDL(double x, List list) {
-        List copy = new ArrayList(list);
+    public DoubleList concatDL(double x, List list) {
+        DoubleList copy = new DoubleList();
+        appendTo(copy, list);
         copy.add(x);
         return copy;
     }
@@ -456,8 +543,9 @@ public class JiffleFunctions {
      * @param x the value
      * @return a new list
      */
-    public List concatLD(List list, double x) {
-        List copy = new ArrayList(list);
+    public DoubleList concatLD(List list, double x) {
+        DoubleList copy = new DoubleList();
+        appendTo(copy, list);
         copy.add(x);
         return copy;
     }
@@ -469,21 +557,58 @@ public class JiffleFunctions {
      * @param list2 the second list
      * @return a new list
      */
-    public List concatLL(List list1, List list2) {
-        List copy = new ArrayList(list1);
-        copy.addAll(list2);
+    public DoubleList concatLL(List list1, List list2) {
+        DoubleList copy = new DoubleList();
+        appendTo(copy, list1);
+        appendTo(copy, list2);
         return copy;
     }
     
     /**
-     * Convert a list to a double array.
+     * Appends the values of a list to a {@code DoubleList}.
+     * 
+     * @param target the list to append to
+     * @param values the values to append
+     */
+    private void appendTo(DoubleList target, List values) {
+        if (values instanceof DoubleList) {
+            target.addAll((DoubleList) values);
+        } else {
+            final int N = values.size();
+            for (int i = 0; i < N; i++) {
+                target.add(((Number) values.get(i)).doubleValue());
+            }
+        }
+    }
+    
+    /**
+     * Gets the values of a list as a primitive array, without copying when
+     * the list is a {@code DoubleList}. Only the first {@code values.size()}
+     * elements of the returned array are valid and the array must not be
+     * modified.
+     * 
+     * @param values input list
+     * @return an array holding the list values
+     */
+    private double[] valuesOf(List values) {
+        if (values instanceof DoubleList) {
+            return ((DoubleList) values).getData();
+        }
+        return listToArray(values);
+    }
+
+    /**
+     * Convert a list to a new double array.
      * 
      * @param values input list
      * @return a new array
      */
-    private Double[] listToArray(List values) {
+    private double[] listToArray(List values) {
+        if (values instanceof DoubleList) {
+            return ((DoubleList) values).toDoubleArray();
+        }
         final int N = values.size();
-        Double[] dvalues = new Double[values.size()];
+        double[] dvalues = new double[N];
         for (int i = 0; i < N; i++) {
             dvalues[i] = ((Number)values.get(i)).doubleValue();
         }
@@ -0,0 +1,31 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2018 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.geosolutions.jaiext.jiffle;
+
+import it.geosolutions.jaiext.jiffle.runtime.AbstractDirectRuntime;
+
+/**
+ * A custom base class extending the default direct runtime without overriding
+ * image access, used to check that generated code binds image handles for it.
+ */
+public abstract class MockDirectSubclass extends AbstractDirectRuntime {
+
+    public MockDirectSubclass(String[] variableNames) {
+        super(variableNames);
+    }
+}
@@ -43,16 +43,22 @@
 
 package it.geosolutions.jaiext.jiffle;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import it.geosolutions.jaiext.jiffle.parser.node.SourceWriter;
 import it.geosolutions.jaiext.jiffle.runtime.JiffleDirectRuntime;
 import it.geosolutions.jaiext.jiffle.runtime.JiffleIndirectRuntime;
+import it.geosolutions.jaiext.utilities.ImageUtilities;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.media.jai.TiledImage;
+
 
 /**
  * Unit tests for basic Jiffle object creation, setting attributes and compiling.
@@ -100,6 +106,47 @@ public class RuntimeClassTest {
         assertTrue(runtime instanceof MockIndirectBaseClass);
     }
     
+    @Test
+    public void imageHandlesBinding() throws Exception {
+        SourceWriter writer = new SourceWriter(Jiffle.RuntimeModel.DIRECT);
+        assertTrue(writer.isSourceImageBindable());
+        assertTrue(writer.isDestinationImageBindable());
+
+        writer.setBaseClass(MockDirectSubclass.class);
+        assertTrue(writer.isSourceImageBindable());
+        assertTrue(writer.isDestinationImageBindable());
+
+        // overrides readFromImage and writeToImage, must go through them
+        writer.setBaseClass(MockDirectBaseClass.class);
+        assertFalse(writer.isSourceImageBindable());
+        assertFalse(writer.isDestinationImageBindable());
+
+        writer = new SourceWriter(Jiffle.RuntimeModel.INDIRECT);
+        assertTrue(writer.isSourceImageBindable());
+        assertFalse(writer.isDestinationImageBindable());
+    }
+
+    @Test
+    public void customDirectSubclassEvaluation() throws Exception {
+        jiffle.setScript("dest = src + 1;");
+        imageParams.put("src", Jiffle.ImageRole.SOURCE);
+        imageParams.put("dest", Jiffle.ImageRole.DEST);
+        jiffle.setImageParams(imageParams);
+        jiffle.compile();
+
+        MockDirectSubclass runtime = jiffle.getRuntimeInstance(MockDirectSubclass.class);
+        TiledImage src = ImageUtilities.createConstantImage(4, 4, 1.0);
+        TiledImage dest = ImageUtilities.createConstantImage(4, 4, 0.0);
+        runtime.setSourceImage("src", src);
+        runtime.setDestinationImage("dest", dest);
+        runtime.evaluateAll(null);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertEquals(2.0, dest.getSampleDouble(x, y, 0), 0d);
+            }
+        }
+    }
+
     @Test(expected=JiffleException.class)
     public void invalidBaseClass() throws Exception {
         class Foo extends NullRuntime { }
@@ -146,6 +146,26 @@ public class SourcePositionsWorkerTest {
                                 new ImagePos(new Band(new IntLiteral("3")), Pixel.DEFAULT))));
     }
 
+    @Test
+    public void focal() throws Exception {
+        Set<GetSourceValue> sourcePositions =
+                Jiffle.getReadPositions("dest = focalMax(src, 2);", asList("src"));
+        assertThat(sourcePositions, hasSize(3));
+        assertThat(sourcePositions, hasItems(new GetSourceValue("src", ImagePos.DEFAULT)));
+        for (int offset : new int[] {-2, 2}) {
+            assertThat(
+                    sourcePositions,
+                    hasItems(
+                            new GetSourceValue(
+                                    "src",
+                                    new ImagePos(
+                                            Band.DEFAULT,
+                                            new Pixel(
+                                                    offsetLiteral("x", offset),
+                                                    offsetLiteral("y", offset))))));
+        }
+    }
+
     private Set<GetSourceValue> getSourcePositions(String scriptFileName, String... inputNames)
             throws Exception {
         String script = IOUtils.toString(getClass().getResourceAsStream(scriptFileName));
@@ -44,6 +44,7 @@
 package it.geosolutions.jaiext.jiffle.runtime;
 
 import java.awt.image.RenderedImage;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -190,6 +191,32 @@ public class ListTest extends RuntimeTestBase {
         testScript(script, e);
     }
 
+    @Test
+    public void loopOverListVar() throws Exception {
+        System.out.println("   foreach over list var");
+        String script = 
+                  "foo = [1, 2, 3]; \n"
+                + "foo << src; \n"
+                + "z = 0; \n"
+                + "foreach (v in foo) z += v; \n"
+                + "dest = z + median(foo) + variance(foo);" ;
+
+        Evaluator e = new Evaluator() {
+            public double eval(double val) {
+                double[] values = {1, 2, 3, val};
+                double sum = 6 + val;
+                double mean = sum / 4;
+                double ss = 0;
+                for (double v : values) ss += (v - mean) * (v - mean);
+                Arrays.sort(values);
+                double median = (values[1] + values[2]) / 2;
+                return sum + median + ss / 3;
+            }
+        };
+        
+        testScript(script, e);
+    }
+
     private void assertListAppend(String script) throws Exception {
         RenderedImage srcImg = createRowValueImage();
         
@@ -0,0 +1,164 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2018 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package it.geosolutions.jaiext.jiffle.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.media.jai.TiledImage;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import it.geosolutions.jaiext.jiffle.Jiffle;
+import it.geosolutions.jaiext.utilities.ImageUtilities;
+
+/**
+ * Unit tests for the parallel evaluation of direct runtime objects.
+ */
+public class ParallelEvaluationTest {
+
+    private static final int WIDTH = 200;
+
+    private static final int HEIGHT = 300;
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setupPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void disposePool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void neighbourhoodScript() throws Exception {
+        String script = "options { outside = 0; } "
+                + "n = 0; foreach (dy in -1:1) { foreach (dx in -1:1) { n += src[dx, dy]; } } "
+                + "dest = n / 9;";
+        Jiffle jiffle = new Jiffle(script, getImageParams());
+        assertTrue(jiffle.isParallelSafe());
+
+        TiledImage src = createSourceImage();
+        TiledImage serial = evaluate(jiffle, src, false, null);
+        TiledImage parallel = evaluate(jiffle, src, true, null);
+        assertImagesEqual(serial, parallel);
+    }
+
+    @Test
+    public void imageScopeVarsFallBackToSerial() throws Exception {
+        String script = "init { n = 0; } dest = n++;";
+        Jiffle jiffle = new Jiffle(script, getImageParams());
+        assertFalse(jiffle.isParallelSafe());
+
+        TiledImage dest = evaluate(jiffle, createSourceImage(), true, null);
+        int k = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(k++, dest.getSampleDouble(x, y, 0), 0d);
+            }
+        }
+    }
+
+    @Test
+    public void imageScopeVarsReadOnly() throws Exception {
+        String script = "init { k = 10; } dest = src + k;";
+        Jiffle jiffle = new Jiffle(script, getImageParams());
+        assertTrue(jiffle.isParallelSafe());
+
+        TiledImage src = createSourceImage();
+        TiledImage dest = evaluate(jiffle, src, true, null);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(src.getSampleDouble(x, y, 0) + 10, dest.getSampleDouble(x, y, 0), 0d);
+            }
+        }
+    }
+
+    @Test
+    public void progressListener() throws Exception {
+        Jiffle jiffle = new Jiffle("dest = src * 2;", getImageParams());
+        final long[] lastUpdate = new long[1];
+        final boolean[] finished = new boolean[1];
+        AbstractProgressListener listener = new AbstractProgressListener() {
+
+            public void start() {}
+
+            public void update(long done) {
+                lastUpdate[0] = Math.max(lastUpdate[0], done);
+            }
+
+            public void finish() {
+                finished[0] = true;
+            }
+        };
+        listener.setUpdateInterval(100L);
+
+        evaluate(jiffle, createSourceImage(), true, listener);
+        assertEquals(WIDTH * HEIGHT, lastUpdate[0]);
+        assertTrue(finished[0]);
+    }
+
+    private Map<String, Jiffle.ImageRole> getImageParams() {
+        Map<String, Jiffle.ImageRole> imageParams = new HashMap<>();
+        imageParams.put("dest", Jiffle.ImageRole.DEST);
+        imageParams.put("src", Jiffle.ImageRole.SOURCE);
+        return imageParams;
+    }
+
+    private TiledImage createSourceImage() {
+        TiledImage img = ImageUtilities.createConstantImage(WIDTH, HEIGHT, 0.0);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                img.setSample(x, y, 0, (x * 31 + y * 17) % 255);
+            }
+        }
+        return img;
+    }
+
+    private TiledImage evaluate(Jiffle jiffle, TiledImage src, boolean parallel,
+            JiffleProgressListener listener) throws Exception {
+        AbstractDirectRuntime runtime = (AbstractDirectRuntime) jiffle.getRuntimeInstance();
+        TiledImage dest = ImageUtilities.createConstantImage(WIDTH, HEIGHT, 0.0);
+        runtime.setSourceImage("src", src);
+        runtime.setDestinationImage("dest", dest);
+        if (parallel) {
+            runtime.evaluateAll(listener, pool);
+        } else {
+            runtime.evaluateAll(listener);
+        }
+        return dest;
+    }
+
+    private void assertImagesEqual(TiledImage expected, TiledImage actual) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected.getSampleDouble(x, y, 0), actual.getSampleDouble(x, y, 0), 0d);
+            }
+        }
+    }
+}
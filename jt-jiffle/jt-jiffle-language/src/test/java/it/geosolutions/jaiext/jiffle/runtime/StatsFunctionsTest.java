@@ -43,8 +43,12 @@
 
 package it.geosolutions.jaiext.jiffle.runtime;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
+import it.geosolutions.jaiext.jiffle.JiffleException;
+
 /**
  * Unit tests for stats functions
  * 
@@ -128,4 +132,99 @@ public class StatsFunctionsTest extends RuntimeTestBase {
         testScript(script, createRowValueImage(), e);
     }
 
+    @Test
+    public void focalMax() throws Exception {
+        System.out.println("   focalMax(image, D)");
+        assertFocal("focalMax", 1, new Focal() {
+            public double apply(double[] values) {
+                double max = values[0];
+                for (double v : values) max = Math.max(max, v);
+                return max;
+            }
+        });
+    }
+
+    @Test
+    public void focalMin() throws Exception {
+        System.out.println("   focalMin(image, D)");
+        assertFocal("focalMin", 2, new Focal() {
+            public double apply(double[] values) {
+                double min = values[0];
+                for (double v : values) min = Math.min(min, v);
+                return min;
+            }
+        });
+    }
+
+    @Test
+    public void focalSumAndMean() throws Exception {
+        System.out.println("   focalSum(image, D) and focalMean(image, D)");
+        final Focal sum = new Focal() {
+            public double apply(double[] values) {
+                double sum = 0;
+                for (double v : values) sum += v;
+                return sum;
+            }
+        };
+        assertFocal("focalSum", 1, sum);
+        assertFocal("focalMean", 1, new Focal() {
+            public double apply(double[] values) {
+                return sum.apply(values) / values.length;
+            }
+        });
+    }
+
+    @Test
+    public void focalMedian() throws Exception {
+        System.out.println("   focalMedian(image, D)");
+        assertFocal("focalMedian", 1, new Focal() {
+            public double apply(double[] values) {
+                double[] sorted = values.clone();
+                Arrays.sort(sorted);
+                return sorted[sorted.length / 2];
+            }
+        });
+    }
+
+    @Test(expected = JiffleException.class)
+    public void focalWithNonImageArg() throws Exception {
+        System.out.println("   focalMax with a non-image arg");
+        testScript("z = 1; dest = focalMax(z, 1);", new Evaluator() {
+            public double eval(double val) {
+                return 0;
+            }
+        });
+    }
+
+    private interface Focal {
+        double apply(double[] values);
+    }
+
+    /*
+     * Runs a focal function over the sequence image, with outside 
+     * cells set to 0, and compares against values computed here.
+     */
+    private void assertFocal(String fn, final int radius, final Focal focal) throws Exception {
+        String script = String.format("options { outside = 0; } dest = %s(src, %d);", fn, radius);
+        
+        Evaluator e = new Evaluator() {
+            public double eval(double val) {
+                int side = 2 * radius + 1;
+                double[] values = new double[side * side];
+                int k = 0;
+                for (int yy = y - radius; yy <= y + radius; yy++) {
+                    for (int xx = x - radius; xx <= x + radius; xx++) {
+                        boolean inside = xx >= 0 && xx < IMG_WIDTH && yy >= 0 && yy < IMG_WIDTH;
+                        // sequence image value, or the outside value
+                        values[k++] = inside ? yy * IMG_WIDTH + xx : 0;
+                    }
+                }
+                move();
+                return focal.apply(values);
+            }
+        };
+        
+        testScript(script, e);
+    }
+
 }
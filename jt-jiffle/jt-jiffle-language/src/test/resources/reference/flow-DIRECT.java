@@ -30,7 +30,7 @@ public class JiffleDirectRuntimeImpl extends it.geosolutions.jaiext.jiffle.runti
         double v_minValue = 9999999.0;
         double v_minCol = 0.0;
         double v_minRow = 0.0;
-        List v_delta = new ArrayList(Arrays.asList(-1.0, 0.0, 1.0));
+        DoubleList v_delta = new DoubleList(new double[] {-1.0, 0.0, 1.0});
         double v_stop = 0.0;
         final int _lody = (int) (-1);
         final int _hi_lody = (int) (1);
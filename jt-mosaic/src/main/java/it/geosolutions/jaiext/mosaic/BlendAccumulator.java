@@ -0,0 +1,449 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.mosaic;
+
+import it.geosolutions.jaiext.range.Range;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.util.Arrays;
+
+import javax.media.jai.RasterAccessor;
+
+import com.sun.media.jai.util.ImageUtil;
+
+/**
+ * Accumulator computing a blended mosaic tile one source at a time. The weights of every source are first computed into a primitive plane, once
+ * for the whole tile, and then the weighted source samples and the weights are added to per tile sums with branch free loops. The weighted
+ * average is computed once at the end, so the cost of a tile grows linearly with the number of sources, without per pixel checks on the weight
+ * types of all of them.
+ * <p>
+ * The sums are kept as doubles and are built in the source order, so the result is the same as the one of the pixel by pixel blending.
+ * Instances are not thread safe, they are meant to be reused by a single tile computation at a time.
+ */
+final class BlendAccumulator {
+
+    private final int numBands;
+
+    private final int capacity;
+
+    /** Weighted sample sums, one plane for each band */
+    private final double[] sums;
+
+    /** Weight sums */
+    private final double[] weightSums;
+
+    /** Weights of the current source */
+    private final double[] weights;
+
+    /** Support array for the ROI samples and the valid data flags */
+    private final int[] samples;
+
+    private int width;
+
+    private int height;
+
+    /**
+     * Creates a new accumulator
+     * 
+     * @param maxWidth the maximum width of the accumulated area
+     * @param maxHeight the maximum height of the accumulated area
+     * @param numBands the number of bands
+     */
+    BlendAccumulator(int maxWidth, int maxHeight, int numBands) {
+        this.numBands = numBands;
+        this.capacity = maxWidth * maxHeight;
+        this.sums = new double[capacity * numBands];
+        this.weightSums = new double[capacity];
+        this.weights = new double[capacity];
+        this.samples = new int[capacity];
+    }
+
+    /** Clears the sums and sets the size of the accumulated area, which must not exceed the capacity */
+    void reset(int width, int height) {
+        int pixels = width * height;
+        if (pixels > capacity) {
+            throw new IllegalArgumentException("The area " + width + "x" + height
+                    + " exceeds the accumulator capacity");
+        }
+        this.width = width;
+        this.height = height;
+        for (int b = 0; b < numBands; b++) {
+            Arrays.fill(sums, b * capacity, b * capacity + pixels, 0);
+        }
+        Arrays.fill(weightSums, 0, pixels, 0);
+    }
+
+    /** Uses the same unit weight for all the pixels of the next source */
+    void setUniformWeights() {
+        Arrays.fill(weights, 0, width * height, 1);
+    }
+
+    /**
+     * Takes the weights of the next source from its alpha channel, normalized in [0, 1] unless the alpha is a bitmask
+     * 
+     * @param alpha the accessor of the single banded alpha channel
+     * @param bitmask whether all the positive alpha values must be turned into a unit weight
+     */
+    void setAlphaWeights(RasterAccessor alpha, boolean bitmask) {
+        final int lineStride = alpha.getScanlineStride();
+        final int pixelStride = alpha.getPixelStride();
+        int line = alpha.getBandOffsets()[0];
+        int p = 0;
+        switch (alpha.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            final byte[] alphaByte = alpha.getByteDataArrays()[0];
+            for (int y = 0; y < height; y++, line += lineStride) {
+                for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                    weights[p++] = alphaByte[pixel] & 0xff;
+                }
+            }
+            break;
+        case DataBuffer.TYPE_USHORT:
+            final short[] alphaUShort = alpha.getShortDataArrays()[0];
+            for (int y = 0; y < height; y++, line += lineStride) {
+                for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                    weights[p++] = alphaUShort[pixel] & 0xffff;
+                }
+            }
+            break;
+        case DataBuffer.TYPE_SHORT:
+            final short[] alphaShort = alpha.getShortDataArrays()[0];
+            for (int y = 0; y < height; y++, line += lineStride) {
+                for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                    weights[p++] = alphaShort[pixel];
+                }
+            }
+            break;
+        case DataBuffer.TYPE_INT:
+            final int[] alphaInt = alpha.getIntDataArrays()[0];
+            for (int y = 0; y < height; y++, line += lineStride) {
+                for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                    weights[p++] = alphaInt[pixel];
+                }
+            }
+            break;
+        case DataBuffer.TYPE_FLOAT:
+            final float[] alphaFloat = alpha.getFloatDataArrays()[0];
+            for (int y = 0; y < height; y++, line += lineStride) {
+                for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                    weights[p++] = alphaFloat[pixel];
+                }
+            }
+            break;
+        case DataBuffer.TYPE_DOUBLE:
+            final double[] alphaDouble = alpha.getDoubleDataArrays()[0];
+            for (int y = 0; y < height; y++, line += lineStride) {
+                for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                    weights[p++] = alphaDouble[pixel];
+                }
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Wrong data Type");
+        }
+        final int pixels = width * height;
+        if (bitmask) {
+            for (int i = 0; i < pixels; i++) {
+                weights[i] = weights[i] > 0 ? 1 : weights[i] / 255.0F;
+            }
+        } else {
+            for (int i = 0; i < pixels; i++) {
+                weights[i] /= 255.0F;
+            }
+        }
+    }
+
+    /**
+     * Takes the weights of the next source from its ROI, using a unit weight inside the ROI and zero outside
+     * 
+     * @param roi the ROI raster, covering the accumulated area
+     * @param minX the accumulated area minimum x
+     * @param minY the accumulated area minimum y
+     */
+    void setROIWeights(Raster roi, int minX, int minY) {
+        roi.getSamples(minX, minY, width, height, 0, samples);
+        final int pixels = width * height;
+        for (int i = 0; i < pixels; i++) {
+            weights[i] = samples[i] > 0 ? 1 : 0;
+        }
+    }
+
+    /**
+     * Zeroes the weights of the byte source pixels whose bands are all mapped to NoData by the input lookup table
+     * 
+     * @param data the source accessor
+     * @param lookupTable the per band NoData lookup table of the source
+     * @param noData the per band value the NoData samples are mapped to
+     */
+    void maskNoData(RasterAccessor data, byte[][] lookupTable, byte[] noData) {
+        final byte[][] dataByte = data.getByteDataArrays();
+        final int[] bandOffsets = data.getBandOffsets();
+        final int lineStride = data.getScanlineStride();
+        final int pixelStride = data.getPixelStride();
+        final int pixels = width * height;
+        Arrays.fill(samples, 0, pixels, 0);
+        for (int b = 0; b < numBands; b++) {
+            final byte[] band = dataByte[b];
+            final byte[] lookup = lookupTable[b];
+            final byte bandNoData = noData[b];
+            int line = bandOffsets[b];
+            int p = 0;
+            for (int y = 0; y < height; y++, line += lineStride) {
+                for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                    samples[p++] |= lookup[band[pixel] & 0xff] != bandNoData ? 1 : 0;
+                }
+            }
+        }
+        clearInvalidWeights(pixels);
+    }
+
+    /**
+     * Zeroes the weights of the source pixels whose bands are all inside the input NoData range
+     * 
+     * @param data the source accessor
+     * @param noData the source NoData range
+     */
+    void maskNoData(RasterAccessor data, Range noData) {
+        final int[] bandOffsets = data.getBandOffsets();
+        final int lineStride = data.getScanlineStride();
+        final int pixelStride = data.getPixelStride();
+        final int dataType = data.getDataType();
+        final int pixels = width * height;
+        Arrays.fill(samples, 0, pixels, 0);
+        for (int b = 0; b < numBands; b++) {
+            int line = bandOffsets[b];
+            int p = 0;
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                final byte[] bandByte = data.getByteDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        samples[p++] |= noData.contains(bandByte[pixel]) ? 0 : 1;
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_USHORT:
+            case DataBuffer.TYPE_SHORT:
+                final short[] bandShort = data.getShortDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        samples[p++] |= noData.contains(bandShort[pixel]) ? 0 : 1;
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_INT:
+                final int[] bandInt = data.getIntDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        samples[p++] |= noData.contains(bandInt[pixel]) ? 0 : 1;
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                final float[] bandFloat = data.getFloatDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        samples[p++] |= noData.contains(bandFloat[pixel]) ? 0 : 1;
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                final double[] bandDouble = data.getDoubleDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        samples[p++] |= noData.contains(bandDouble[pixel]) ? 0 : 1;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Wrong data Type");
+            }
+        }
+        clearInvalidWeights(pixels);
+    }
+
+    private void clearInvalidWeights(int pixels) {
+        for (int i = 0; i < pixels; i++) {
+            weights[i] = samples[i] != 0 ? weights[i] : 0;
+        }
+    }
+
+    /**
+     * Adds the source samples, multiplied by the current weights, to the sums. The floating point samples with a non positive weight are skipped,
+     * so that NaN samples outside of the valid area do not spread into the result.
+     * 
+     * @param data the source accessor, with the same data type of the destination
+     */
+    void accumulate(RasterAccessor data) {
+        final int[] bandOffsets = data.getBandOffsets();
+        final int lineStride = data.getScanlineStride();
+        final int pixelStride = data.getPixelStride();
+        final int dataType = data.getDataType();
+        for (int b = 0; b < numBands; b++) {
+            int line = bandOffsets[b];
+            int p = b * capacity;
+            int w = 0;
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                final byte[] bandByte = data.getByteDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        sums[p++] += weights[w++] * (bandByte[pixel] & 0xff);
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_USHORT:
+                final short[] bandUShort = data.getShortDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        sums[p++] += weights[w++] * (bandUShort[pixel] & 0xffff);
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_SHORT:
+                final short[] bandShort = data.getShortDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        sums[p++] += weights[w++] * bandShort[pixel];
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_INT:
+                final int[] bandInt = data.getIntDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        sums[p++] += weights[w++] * bandInt[pixel];
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                final float[] bandFloat = data.getFloatDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        final double weight = weights[w++];
+                        sums[p++] += weight > 0 ? weight * bandFloat[pixel] : 0;
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                final double[] bandDouble = data.getDoubleDataArrays()[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride) {
+                        final double weight = weights[w++];
+                        sums[p++] += weight > 0 ? weight * bandDouble[pixel] : 0;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Wrong data Type");
+            }
+        }
+        final int pixels = width * height;
+        for (int i = 0; i < pixels; i++) {
+            weightSums[i] += weights[i];
+        }
+    }
+
+    /**
+     * Writes the weighted average of the accumulated sources into the destination, or the destination NoData where the weights sum up to zero
+     * 
+     * @param dst the destination accessor
+     * @param noData the per band destination NoData
+     */
+    void normalize(RasterAccessor dst, double[] noData) {
+        final int[] bandOffsets = dst.getBandOffsets();
+        final int lineStride = dst.getScanlineStride();
+        final int pixelStride = dst.getPixelStride();
+        final int dataType = dst.getDataType();
+        for (int b = 0; b < numBands; b++) {
+            int line = bandOffsets[b];
+            int p = b * capacity;
+            int w = 0;
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                final byte[] bandByte = dst.getByteDataArrays()[b];
+                final byte noDataByte = (byte) noData[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride, p++) {
+                        final double weight = weightSums[w++];
+                        bandByte[pixel] = weight == 0 ? noDataByte : ImageUtil
+                                .clampRoundByte(sums[p] / weight);
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_USHORT:
+                final short[] bandUShort = dst.getShortDataArrays()[b];
+                final short noDataUShort = (short) noData[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride, p++) {
+                        final double weight = weightSums[w++];
+                        bandUShort[pixel] = weight == 0 ? noDataUShort : ImageUtil
+                                .clampRoundUShort(sums[p] / weight);
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_SHORT:
+                final short[] bandShort = dst.getShortDataArrays()[b];
+                final short noDataShort = (short) noData[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride, p++) {
+                        final double weight = weightSums[w++];
+                        bandShort[pixel] = weight == 0 ? noDataShort : ImageUtil
+                                .clampRoundShort(sums[p] / weight);
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_INT:
+                final int[] bandInt = dst.getIntDataArrays()[b];
+                final int noDataInt = (int) noData[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride, p++) {
+                        final double weight = weightSums[w++];
+                        bandInt[pixel] = weight == 0 ? noDataInt : ImageUtil
+                                .clampRoundInt(sums[p] / weight);
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                final float[] bandFloat = dst.getFloatDataArrays()[b];
+                final float noDataFloat = (float) noData[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride, p++) {
+                        final double weight = weightSums[w++];
+                        bandFloat[pixel] = weight == 0 ? noDataFloat : ImageUtil
+                                .clampFloat(sums[p] / weight);
+                    }
+                }
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                final double[] bandDouble = dst.getDoubleDataArrays()[b];
+                final double noDataDouble = noData[b];
+                for (int y = 0; y < height; y++, line += lineStride) {
+                    for (int x = 0, pixel = line; x < width; x++, pixel += pixelStride, p++) {
+                        final double weight = weightSums[w++];
+                        bandDouble[pixel] = weight == 0 ? noDataDouble : sums[p] / weight;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Wrong data Type");
+            }
+        }
+    }
+}
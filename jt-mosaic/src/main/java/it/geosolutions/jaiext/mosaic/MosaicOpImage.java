@@ -36,7 +36,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import javax.media.jai.BorderExtender;
 import javax.media.jai.BorderExtenderConstant;
@@ -47,6 +49,7 @@ import javax.media.jai.OpImage;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.ROI;
 import javax.media.jai.RasterAccessor;
+import javax.media.jai.RasterFactory;
 import javax.media.jai.RasterFormatTag;
 import javax.media.jai.RenderedOp;
 import javax.media.jai.operator.MosaicDescriptor;
@@ -77,6 +80,9 @@ public class MosaicOpImage extends OpImage {
      */
     public static final double[] DEFAULT_DESTINATION_NO_DATA_VALUE = { 0 };
 
+    /** Maximum number of scratch raster sets and blend accumulators kept for reuse */
+    private static final int MAX_POOLED = Runtime.getRuntime().availableProcessors();
+
     /** mosaic type selected */
     private MosaicType mosaicTypeSelected;
 
@@ -151,6 +157,16 @@ public class MosaicOpImage extends OpImage {
     /** The format tag for the destination image */
     private RasterFormatTag rasterFormatTag;
 
+    /**
+     * Scratch rasters used for the source, alpha and ROI data straddling multiple tiles, three slots for each source intersecting the tile. Every
+     * tile computation takes a set out of the queue and gives it back when done, so the sets are never shared between threads. At most
+     * {@link #MAX_POOLED} sets are kept, the others are left to the garbage collector.
+     */
+    private final Queue<WritableRaster[]> scratchRasters = new ArrayBlockingQueue<WritableRaster[]>(MAX_POOLED);
+
+    /** Accumulators used by the blend mosaic, reused in the same way of the scratch rasters */
+    private final Queue<BlendAccumulator> blendAccumulators = new ArrayBlockingQueue<BlendAccumulator>(MAX_POOLED);
+
     /** Enumerator for the type of mosaic weigher */
     public enum WeightType {
         WEIGHT_TYPE_ALPHA, WEIGHT_TYPE_ROI, WEIGHT_TYPE_NODATA;
@@ -899,6 +915,11 @@ public class MosaicOpImage extends OpImage {
         Raster[] roiRasters = new Raster[numSources];
         Range[] noDataRanges = new Range[numSources];
         ColorModel[] alphaChannelColorModels = new ColorModel[numSources];
+        // Scratch rasters for the data straddling multiple tiles
+        WritableRaster[] scratch = scratchRasters.poll();
+        if (scratch == null) {
+            scratch = new WritableRaster[numSources * 3];
+        }
         // The previous array is filled with the source raster data
         int intersectingSourceCount = 0;
         for (int i = 0; i < numSources; i++) {
@@ -909,9 +930,10 @@ public class MosaicOpImage extends OpImage {
             if (!(srcRect != null && srcRect.isEmpty())) {
                 // Get the source data from the source or the padded image.
                 if (source.getBounds().contains(destRectangle)) {
-                    data = source.getData(destRectangle);
+                    data = getData(source, destRectangle, scratch, intersectingSourceCount * 3);
                 } else {
-                    data = imageBeans[i].getImage().getData(destRectangle);
+                    data = getData(imageBeans[i].getImage(), destRectangle, scratch,
+                            intersectingSourceCount * 3);
                 }
             }
             // Raster bean initialization
@@ -925,14 +947,16 @@ public class MosaicOpImage extends OpImage {
                 // Get the Alpha data from the padded alpha image if present
                 PlanarImage alpha = imageBeans[i].getAlphaChannel();
                 if (alphaPresent && alpha != null) {
-                    alphaRasters[intersectingSourceCount] = alpha.getData(destRectangle);
+                    alphaRasters[intersectingSourceCount] = getData(alpha, destRectangle, scratch,
+                            intersectingSourceCount * 3 + 1);
                     alphaChannelColorModels[intersectingSourceCount] = imageBeans[i].getAlphaChannel().getColorModel();
                 }
 
                 // Get the ROI data from the padded ROI image if present
                 RenderedImage roi = imageBeans[i].getRoiImage();
                 if (roiPresent && roi != null) {
-                    roiRasters[intersectingSourceCount] = roi.getData(destRectangle);
+                    roiRasters[intersectingSourceCount] = getData(roi, destRectangle, scratch,
+                            intersectingSourceCount * 3 + 2);
                 }
                 
                 intersectingSourceCount++;
@@ -941,25 +965,62 @@ public class MosaicOpImage extends OpImage {
         }
         
         // For the given source destination rasters, the mosaic is calculated
-        computeRect(sourceRasters, sourceTags, sourceColorModels, destRaster, destRectangle,
-                alphaRasters, roiRasters, noDataRanges, alphaChannelColorModels, intersectingSourceCount);
-
-        // Tile recycling if the Recycle is present
-        for (int i = 0; i < intersectingSourceCount; i++) {
-            Raster sourceData = sourceRasters[i];
-            if (sourceData != null) {
-                PlanarImage source = getSourceImage(i);
-
-                if (source.overlapsMultipleTiles(sourceData.getBounds())) {
-                    recycleTile(sourceData);
-                }
-            }
+        try {
+            computeRect(sourceRasters, sourceTags, sourceColorModels, destRaster, destRectangle,
+                    alphaRasters, roiRasters, noDataRanges, alphaChannelColorModels,
+                    intersectingSourceCount);
+        } finally {
+            // The source rasters are either tiles or scratch rasters, nothing to recycle. The set is
+            // dropped if the pool is full
+            scratchRasters.offer(scratch);
         }
 
         return destRaster;
 
     }
 
+    /**
+     * Returns the data of the input image inside the given rectangle. When the rectangle is contained in a single tile, the tile itself or a child
+     * raster of it is returned, avoiding any copy. Otherwise only the intersecting parts of the tiles are copied into the scratch raster of the
+     * given slot, which is reused by the following computations.
+     */
+    private Raster getData(RenderedImage image, Rectangle rect, WritableRaster[] scratch, int slot) {
+        if (!new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(), image.getHeight())
+                .contains(rect)) {
+            return image.getData(rect);
+        }
+        int tileWidth = image.getTileWidth();
+        int tileHeight = image.getTileHeight();
+        int minTileX = PlanarImage.XToTileX(rect.x, image.getTileGridXOffset(), tileWidth);
+        int minTileY = PlanarImage.YToTileY(rect.y, image.getTileGridYOffset(), tileHeight);
+        if (minTileX == PlanarImage.XToTileX(rect.x + rect.width - 1, image.getTileGridXOffset(), tileWidth)
+                && minTileY == PlanarImage.YToTileY(rect.y + rect.height - 1, image.getTileGridYOffset(), tileHeight)) {
+            Raster tile = image.getTile(minTileX, minTileY);
+            if (tile.getBounds().equals(rect)) {
+                return tile;
+            }
+            return tile.createChild(rect.x, rect.y, rect.width, rect.height, rect.x, rect.y, null);
+        }
+        // The slot may have been used by another source with a different layout for a previous tile
+        SampleModel imageSM = image.getSampleModel();
+        WritableRaster raster = scratch[slot];
+        if (raster == null || raster.getWidth() < rect.width || raster.getHeight() < rect.height
+                || raster.getSampleModel().getClass() != imageSM.getClass()
+                || raster.getSampleModel().getDataType() != imageSM.getDataType()
+                || raster.getNumBands() != imageSM.getNumBands()) {
+            SampleModel sm = imageSM.createCompatibleSampleModel(
+                    Math.max(rect.width, getTileWidth()), Math.max(rect.height, getTileHeight()));
+            raster = RasterFactory.createWritableRaster(sm, null);
+            // Oversized rasters are not kept for the following computations
+            scratch[slot] = raster.getWidth() == getTileWidth()
+                    && raster.getHeight() == getTileHeight() ? raster : null;
+        }
+        WritableRaster data = raster.createWritableChild(raster.getMinX(), raster.getMinY(),
+                rect.width, rect.height, rect.x, rect.y, null);
+        image.copyData(data);
+        return data;
+    }
+
     private void computeRect(Raster[] sourceRasters, RasterFormatTag[] rasterFormatTags,
             ColorModel[] sourceColorModels, WritableRaster destRaster, Rectangle destRectangle,
             Raster[] alphaRasters, Raster[] roiRasters, Range[] noDataRanges, ColorModel[] alphaChannelColorModels, int sourcesNumber) {
@@ -1007,31 +1068,101 @@ public class MosaicOpImage extends OpImage {
 
         int dataType = destinationAccessor.getDataType();
 
-        switch (dataType) {
-        case DataBuffer.TYPE_BYTE:
-            byteLoop(sourceAccessorsArrayBean, destinationAccessor);
-            break;
-        case DataBuffer.TYPE_USHORT:
-            ushortLoop(sourceAccessorsArrayBean, destinationAccessor);
-            break;
-        case DataBuffer.TYPE_SHORT:
-            shortLoop(sourceAccessorsArrayBean, destinationAccessor);
-            break;
-        case DataBuffer.TYPE_INT:
-            intLoop(sourceAccessorsArrayBean, destinationAccessor);
-            break;
-        case DataBuffer.TYPE_FLOAT:
-            floatLoop(sourceAccessorsArrayBean, destinationAccessor);
-            break;
-        case DataBuffer.TYPE_DOUBLE:
-            doubleLoop(sourceAccessorsArrayBean, destinationAccessor);
-            break;
+        if (mosaicTypeSelected == MosaicDescriptor.MOSAIC_TYPE_BLEND) {
+            blend(sourceAccessorsArrayBean, destinationAccessor);
+        } else {
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                byteLoop(sourceAccessorsArrayBean, destinationAccessor);
+                break;
+            case DataBuffer.TYPE_USHORT:
+                ushortLoop(sourceAccessorsArrayBean, destinationAccessor);
+                break;
+            case DataBuffer.TYPE_SHORT:
+                shortLoop(sourceAccessorsArrayBean, destinationAccessor);
+                break;
+            case DataBuffer.TYPE_INT:
+                intLoop(sourceAccessorsArrayBean, destinationAccessor);
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                floatLoop(sourceAccessorsArrayBean, destinationAccessor);
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                doubleLoop(sourceAccessorsArrayBean, destinationAccessor);
+                break;
+            }
         }
         // the data are copied back to the destination raster
         destinationAccessor.copyDataToRaster();
 
     }
 
+    /**
+     * Computes the blended mosaic of the input sources with a {@link BlendAccumulator}, one source at a time. The weight of every source pixel is
+     * taken from the alpha channel if present, then from the ROI, and it is set to zero where all the bands are NoData.
+     */
+    private void blend(RasterBeanAccessor[] srcBean, RasterAccessor dst) {
+        BlendAccumulator accumulator = blendAccumulators.poll();
+        if (accumulator == null) {
+            accumulator = new BlendAccumulator(getTileWidth(), getTileHeight(), dst.getNumBands());
+        }
+        try {
+            accumulator.reset(dst.getWidth(), dst.getHeight());
+            for (int s = 0; s < srcBean.length; s++) {
+                RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
+                if (dataRA == null) {
+                    continue;
+                }
+                RasterAccessor alphaRA = srcBean[s].getAlphaRasterAccessor();
+                if (alphaRA != null) {
+                    accumulator.setAlphaWeights(alphaRA, isAlphaBitmaskUsed);
+                } else if (roiPresent && srcBean[s].getRoiRaster() != null) {
+                    accumulator.setROIWeights(srcBean[s].getRoiRaster(), dst.getX(), dst.getY());
+                } else {
+                    accumulator.setUniformWeights();
+                }
+                if (hasNoData[s]) {
+                    if (dst.getDataType() == DataBuffer.TYPE_BYTE) {
+                        accumulator.maskNoData(dataRA, byteLookupTable[s], destinationNoDataByte);
+                    } else if (srcBean[s].getSourceNoDataRangeRasterAccessor() != null) {
+                        accumulator.maskNoData(dataRA, srcBean[s].getSourceNoDataRangeRasterAccessor());
+                    }
+                }
+                accumulator.accumulate(dataRA);
+            }
+            accumulator.normalize(dst, getDestinationNoData(dst.getDataType(), dst.getNumBands()));
+        } finally {
+            blendAccumulators.offer(accumulator);
+        }
+    }
+
+    /** Returns the destination NoData of every band as double values */
+    private double[] getDestinationNoData(int dataType, int numBands) {
+        double[] noData = new double[numBands];
+        for (int b = 0; b < numBands; b++) {
+            switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                noData[b] = destinationNoDataByte[Math.min(b, destinationNoDataByte.length - 1)];
+                break;
+            case DataBuffer.TYPE_USHORT:
+                noData[b] = destinationNoDataUShort[Math.min(b, destinationNoDataUShort.length - 1)];
+                break;
+            case DataBuffer.TYPE_SHORT:
+                noData[b] = destinationNoDataShort[Math.min(b, destinationNoDataShort.length - 1)];
+                break;
+            case DataBuffer.TYPE_INT:
+                noData[b] = destinationNoDataInt[Math.min(b, destinationNoDataInt.length - 1)];
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                noData[b] = destinationNoDataFloat[Math.min(b, destinationNoDataFloat.length - 1)];
+                break;
+            default:
+                noData[b] = destinationNoDataDouble[Math.min(b, destinationNoDataDouble.length - 1)];
+            }
+        }
+        return noData;
+    }
+
     private void byteLoop(RasterBeanAccessor[] srcBean, RasterAccessor dst) {
 
         // Stores the source number
@@ -1174,222 +1305,111 @@ public class MosaicOpImage extends OpImage {
             dLineOffsetS[b] = dstBandOffsets[b];
         }
 
-        if (mosaicTypeSelected == MosaicDescriptor.MOSAIC_TYPE_OVERLAY) {
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
-                                                               // values
-                // Source line Offset and pixel Offset,
-                // Alpha line Offset and pixel Offset are initialized
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
-                        for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
-                        }
-                    }
-                    if (srcBean[s].getAlphaRasterAccessor() != null) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
+        for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
+                                                           // values
+            // Source line Offset and pixel Offset,
+            // Alpha line Offset and pixel Offset are initialized
+            for (int s = 0; s < sourcesNumber; s++) {
+                if (srcBean[s].getDataRasterAccessor() != null) {
+                    for (int b = 0; b < dstBands; b++) {
+                        sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
+                        sLineOffsetsS[s][b] += srcLineStride[s];
                     }
                 }
-
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
+                if (srcBean[s].getAlphaRasterAccessor() != null) {
+                    aPixelOffsets[s] = aLineOffsets[s];
+                    aLineOffsets[s] += alfaLineStride[s];
                 }
+            }
 
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
-
-                    // The destination flag is initialized to false and changes to true only
-                    // if one pixel alpha channel is not 0 or falls into an image ROI or 
-                    // is not a NoData
-                    boolean setDestinationFlag = false;
-
-                    int[] sourceValueByteS = new int[dstBands];
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
-                        if (dataRA == null) {
-                            continue;
-                        }
-                        // The source valuse are initialized only for the switch
-                        // method
-                        for (int b = 0; b < dstBands; b++) {
-                            sourceValueByteS[b] = sBandDataByteS[s][b][sPixelOffsetsS[s][b]];
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
-
-                        // the flag checks if the pixel is a noData
-                        int dataCount = dstBands;
-                        if (hasNoData[s]) {
-                            for (int b = 0; b < dstBands; b++) {
-                                if ((byteLookupTable[s][b][sourceValueByteS[b]
-                                        & 0xFF] == destinationNoDataByte[b])) {
-                                    dataCount--;
-                                }
-                            }
-                        }
-
-                        if (dataCount == 0) {
-                            setDestinationFlag = false;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
+            // The same operation is performed for the destination offsets
+            for (int b = 0; b < dstBands; b++) {
+                dPixelOffsetS[b] = dLineOffsetS[b];
+                dLineOffsetS[b] += dstLineStride;
+            }
 
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                setDestinationFlag = aBandDataByte[s][aPixelOffsets[s]] != 0;
+            for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
 
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
-                                        0) > 0;
-                                break;
-                            default:
-                                setDestinationFlag = true;
+                // The destination flag is initialized to false and changes to true only
+                // if one pixel alpha channel is not 0 or falls into an image ROI or 
+                // is not a NoData
+                boolean setDestinationFlag = false;
 
-                            }
-                        }
-                        // If the flag is True, the related source pixel is saved in the
-                        // destination one and exit from the cycle after incrementing the offset
-                        if (setDestinationFlag) {
-                            for (int b = 0; b < dstBands; b++) {
-                                dBandDataByteS[b][dPixelOffsetS[b]] = (byte) (sourceValueByteS[b]
-                                        & 0xff);
-
-                                for (int k = s + 1; k < sourcesNumber; k++) {
-                                    if (dataRA != null) {
-                                        sPixelOffsetsS[k][b] += srcPixelStride[k];
-                                    }
-                                }
-                            }
-                            for (int k = s + 1; k < sourcesNumber; k++) {
-                                if (srcBean[k].getAlphaRasterAccessor() != null) {
-                                    aPixelOffsets[k] += alfaPixelStride[k];
-                                }
-                            }
-                            break;
-                        }
+                int[] sourceValueByteS = new int[dstBands];
+                for (int s = 0; s < sourcesNumber; s++) {
+                    final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
+                    if (dataRA == null) {
+                        continue;
                     }
-                    // If the flag is false for every source, the destination no data value is
-                    // set to the related destination pixel and then updates the offset
+                    // The source valuse are initialized only for the switch
+                    // method
                     for (int b = 0; b < dstBands; b++) {
-                        if (!setDestinationFlag) {
-                            dBandDataByteS[b][dPixelOffsetS[b]] = destinationNoDataByte[b];
-                        }
-                        dPixelOffsetS[b] += dstPixelStride;
+                        sourceValueByteS[b] = sBandDataByteS[s][b][sPixelOffsetsS[s][b]];
+                        // Offset update
+                        sPixelOffsetsS[s][b] += srcPixelStride[s];
                     }
-                }
-            }
-        } else { // the mosaicType is MOSAIC_TYPE_BLEND
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) {
-                // Source and pixel Offset are initialized and Source and alpha
-                // line offset are translated (cycle across all the sources)
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
+
+                    // the flag checks if the pixel is a noData
+                    int dataCount = dstBands;
+                    if (hasNoData[s]) {
                         for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
+                            if ((byteLookupTable[s][b][sourceValueByteS[b]
+                                    & 0xFF] == destinationNoDataByte[b])) {
+                                dataCount--;
+                            }
                         }
                     }
-                    if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
-                    }
-                }
 
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
-                }
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) {
+                    if (dataCount == 0) {
+                        setDestinationFlag = false;
+                        if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                        }
+                    } else {
 
-                    // In the blending operation the destination pixel value is
-                    // calculated as sum of the weighted source pixel / sum of weigth.
-                    double[] numerator = new double[dstBands];
-                    double[] denominator = new double[dstBands];
-                    int[] sourceValueByteS = new int[dstBands];
+                        switch (weightTypesUsed[s]) {
+                        case WEIGHT_TYPE_ALPHA:
+                            setDestinationFlag = aBandDataByte[s][aPixelOffsets[s]] != 0;
 
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        if (srcBean[s].getDataRasterAccessor() == null) {
-                            continue;
-                        }
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                            break;
+                        case WEIGHT_TYPE_ROI:
+                            setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
+                                    0) > 0;
+                            break;
+                        default:
+                            setDestinationFlag = true;
 
-                        // The source values are initialized only for the switch method
-                        for (int b = 0; b < dstBands; b++) {
-                            sourceValueByteS[b] = sBandDataByteS[s][b][sPixelOffsetsS[s][b]];
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
                         }
+                    }
+                    // If the flag is True, the related source pixel is saved in the
+                    // destination one and exit from the cycle after incrementing the offset
+                    if (setDestinationFlag) {
+                        for (int b = 0; b < dstBands; b++) {
+                            dBandDataByteS[b][dPixelOffsetS[b]] = (byte) (sourceValueByteS[b]
+                                    & 0xff);
 
-                        // The weight is calculated for every pixel
-                        double weight = 0.0F;
-                        int dataCount = dstBands;
-
-                        // If no alpha channel or Roi is present, the weight
-                        // is set to 1 or 0 if the pixel has or not a No Data value
-                        if (hasNoData[s]) {
-                            for (int b = 0; b < dstBands; b++) {
-                                if ((byteLookupTable[s][b][sourceValueByteS[b]
-                                        & 0xFF] == destinationNoDataByte[b])) {
-                                    dataCount--;
+                            for (int k = s + 1; k < sourcesNumber; k++) {
+                                if (dataRA != null) {
+                                    sPixelOffsetsS[k][b] += srcPixelStride[k];
                                 }
                             }
                         }
-                        if (dataCount == 0) {
-                            weight = 0F;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                weight = (aBandDataByte[s][aPixelOffsets[s]] & 0xff);
-                                if (weight > 0.0F && isAlphaBitmaskUsed) {
-                                    weight = 1.0F;
-                                } else {
-                                    weight /= 255.0F;
-                                }
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                weight = srcBean[s].getRoiRaster().getSample(dstX, dstY, 0) > 0
-                                        ? 1.0F
-                                        : 0.0F;
-                                break;
-                            default:
-                                weight = 1.0F;
+                        for (int k = s + 1; k < sourcesNumber; k++) {
+                            if (srcBean[k].getAlphaRasterAccessor() != null) {
+                                aPixelOffsets[k] += alfaPixelStride[k];
                             }
                         }
-                        // The above calculated weight are added to the
-                        // numerator and denominator
-                        for (int b = 0; b < dstBands; b++) {
-                            numerator[b] += (weight * (sourceValueByteS[b] & 0xff));
-                            denominator[b] += weight;
-                        }
-                    }
-
-                    // If the weighted sum is 0 the destination pixel value
-                    // takes the destination no data.
-                    // If the sum is not 0 the value is added to the related destination pixel
-                    double denominatorSum = 0;
-                    for (int b = 0; b < dstBands; b++) {
-                        denominatorSum += denominator[b];
+                        break;
                     }
-
-                    for (int b = 0; b < dstBands; b++) {
-                        if (denominatorSum == 0.0) {
-                            dBandDataByteS[b][dPixelOffsetS[b]] = destinationNoDataByte[b];
-                        } else {
-                            dBandDataByteS[b][dPixelOffsetS[b]] = ImageUtil
-                                    .clampRoundByte(numerator[b] / denominator[b]);
-                        }
-                        // Offset update
-                        dPixelOffsetS[b] += dstPixelStride;
+                }
+                // If the flag is false for every source, the destination no data value is
+                // set to the related destination pixel and then updates the offset
+                for (int b = 0; b < dstBands; b++) {
+                    if (!setDestinationFlag) {
+                        dBandDataByteS[b][dPixelOffsetS[b]] = destinationNoDataByte[b];
                     }
+                    dPixelOffsetS[b] += dstPixelStride;
                 }
             }
         }
@@ -1536,230 +1556,112 @@ public class MosaicOpImage extends OpImage {
             dLineOffsetS[b] = dstBandOffsets[b];
         }
 
-        if (mosaicTypeSelected == MosaicDescriptor.MOSAIC_TYPE_OVERLAY) {
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
-                                                               // values
-                // Source line Offset and pixel Offset,
-                // Alpha line Offset and pixel Offset are initialized
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
-                        for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
-                        }
-                    }
-                    if (srcBean[s].getAlphaRasterAccessor() != null) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
+        for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
+                                                           // values
+            // Source line Offset and pixel Offset,
+            // Alpha line Offset and pixel Offset are initialized
+            for (int s = 0; s < sourcesNumber; s++) {
+                if (srcBean[s].getDataRasterAccessor() != null) {
+                    for (int b = 0; b < dstBands; b++) {
+                        sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
+                        sLineOffsetsS[s][b] += srcLineStride[s];
                     }
                 }
-
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
+                if (srcBean[s].getAlphaRasterAccessor() != null) {
+                    aPixelOffsets[s] = aLineOffsets[s];
+                    aLineOffsets[s] += alfaLineStride[s];
                 }
+            }
 
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
-
-                    // The destination flag is initialized to false and changes to true only
-                    // if one pixel alpha channel is not 0 or falls into an image ROI or 
-                    // is not a NoData
-                    boolean setDestinationFlag = false;
-
-                    short[] valueS = new short[dstBands];
-                    int[] sourceValueUshortS = new int[dstBands];
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
-                        if (dataRA == null) {
-                            continue;
-                        }
-                        // The source values are initialized only for the switch method
-                        for (int b = 0; b < dstBands; b++) {
-                            valueS[b] = sBandDataUshortS[s][b][sPixelOffsetsS[s][b]];
-                            sourceValueUshortS[b] = (valueS[b] & 0xffff);
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
-
-                        // the flag checks if the pixel is a noData
-                        int dataCount = dstBands;
-                        if (hasNoData[s]) {
-                            Range noDataRangeUShort = (srcBean[s]
-                                    .getSourceNoDataRangeRasterAccessor());
-                            for (int b = 0; b < dstBands; b++) {
-                                if (noDataRangeUShort != null && noDataRangeUShort.contains(sourceValueUshortS[b])) {
-                                    dataCount--;
-                                }
-                            }
-                        }
-
-                        if (dataCount == 0) {
-                            setDestinationFlag = false;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
+            // The same operation is performed for the destination offsets
+            for (int b = 0; b < dstBands; b++) {
+                dPixelOffsetS[b] = dLineOffsetS[b];
+                dLineOffsetS[b] += dstLineStride;
+            }
 
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                setDestinationFlag = aBandDataUshort[s][aPixelOffsets[s]] != 0;
+            for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
 
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
-                                        0) > 0;
-                                break;
-                            default:
-                                setDestinationFlag = true;
+                // The destination flag is initialized to false and changes to true only
+                // if one pixel alpha channel is not 0 or falls into an image ROI or 
+                // is not a NoData
+                boolean setDestinationFlag = false;
 
-                            }
-                        }
-                        // If the flag is True, the related source pixel is saved in the
-                        // destination one and exit from the cycle after incrementing the offset
-                        if (setDestinationFlag) {
-                            for (int b = 0; b < dstBands; b++) {
-                                dBandDataUshortS[b][dPixelOffsetS[b]] = valueS[b];
-                                for (int k = s + 1; k < sourcesNumber; k++) {
-                                    if (dataRA != null) {
-                                        sPixelOffsetsS[k][b] += srcPixelStride[k];
-                                    }
-                                }
-                            }
-                            for (int k = s + 1; k < sourcesNumber; k++) {
-                                if (srcBean[k].getAlphaRasterAccessor() != null) {
-                                    aPixelOffsets[k] += alfaPixelStride[k];
-                                }
-                            }
-                            break;
-                        }
+                short[] valueS = new short[dstBands];
+                int[] sourceValueUshortS = new int[dstBands];
+                for (int s = 0; s < sourcesNumber; s++) {
+                    final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
+                    if (dataRA == null) {
+                        continue;
                     }
-                    // If the flag is false for every source, the destination no data value is
-                    // set to the related destination pixel and then updates the offset
+                    // The source values are initialized only for the switch method
                     for (int b = 0; b < dstBands; b++) {
-                        if (!setDestinationFlag) {
-                            dBandDataUshortS[b][dPixelOffsetS[b]] = destinationNoDataUShort[b];
-                        }
-
-                        dPixelOffsetS[b] += dstPixelStride;
+                        valueS[b] = sBandDataUshortS[s][b][sPixelOffsetsS[s][b]];
+                        sourceValueUshortS[b] = (valueS[b] & 0xffff);
+                        // Offset update
+                        sPixelOffsetsS[s][b] += srcPixelStride[s];
                     }
-                }
-            }
-        } else { // the mosaicType is MOSAIC_TYPE_BLEND
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) {
-                // Source and pixel Offset are initialized and Source and alpha
-                // line offset are
-                // translated (cycle accross all the sources)
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
+
+                    // the flag checks if the pixel is a noData
+                    int dataCount = dstBands;
+                    if (hasNoData[s]) {
+                        Range noDataRangeUShort = (srcBean[s]
+                                .getSourceNoDataRangeRasterAccessor());
                         for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
+                            if (noDataRangeUShort != null && noDataRangeUShort.contains(sourceValueUshortS[b])) {
+                                dataCount--;
+                            }
                         }
                     }
-                    if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
-                    }
-                }
 
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
-                }
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) {
+                    if (dataCount == 0) {
+                        setDestinationFlag = false;
+                        if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                        }
+                    } else {
 
-                    // In the blending operation the destination pixel value is
-                    // calculated as sum of the weighted source pixel / sum of weigth.
-                    double[] numerator = new double[dstBands];
-                    double[] denominator = new double[dstBands];
-                    short[] sourceValueUshortS = new short[dstBands];
+                        switch (weightTypesUsed[s]) {
+                        case WEIGHT_TYPE_ALPHA:
+                            setDestinationFlag = aBandDataUshort[s][aPixelOffsets[s]] != 0;
 
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        if (srcBean[s].getDataRasterAccessor() == null) {
-                            continue;
-                        }
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                            break;
+                        case WEIGHT_TYPE_ROI:
+                            setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
+                                    0) > 0;
+                            break;
+                        default:
+                            setDestinationFlag = true;
 
-                        // The source values are initialized only for the switch method
-                        for (int b = 0; b < dstBands; b++) {
-                            sourceValueUshortS[b] = (short) (sBandDataUshortS[s][b][sPixelOffsetsS[s][b]]
-                                    & 0xffff);
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
                         }
-
-                        // The weight is calculated for every pixel
-                        double weight = 0.0F;
-                        int dataCount = dstBands;
-
-                        // If no alpha channel or Roi is present, the weight
-                        // is set to 1 or 0 if the pixel has or not a No Data value
-                        if (hasNoData[s]) {
-                            for (int b = 0; b < dstBands; b++) {
-                                Range noDataRangeUShort = (srcBean[s]
-                                        .getSourceNoDataRangeRasterAccessor());
-                                if (noDataRangeUShort != null && noDataRangeUShort.contains(sourceValueUshortS[b])) {
-                                    dataCount--;
+                    }
+                    // If the flag is True, the related source pixel is saved in the
+                    // destination one and exit from the cycle after incrementing the offset
+                    if (setDestinationFlag) {
+                        for (int b = 0; b < dstBands; b++) {
+                            dBandDataUshortS[b][dPixelOffsetS[b]] = valueS[b];
+                            for (int k = s + 1; k < sourcesNumber; k++) {
+                                if (dataRA != null) {
+                                    sPixelOffsetsS[k][b] += srcPixelStride[k];
                                 }
                             }
                         }
-                        if (dataCount == 0) {
-                            weight = 0F;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
+                        for (int k = s + 1; k < sourcesNumber; k++) {
+                            if (srcBean[k].getAlphaRasterAccessor() != null) {
+                                aPixelOffsets[k] += alfaPixelStride[k];
                             }
-                        } else {
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                weight = (aBandDataUshort[s][aPixelOffsets[s]] & 0xffff);
-                                if (weight > 0.0F && isAlphaBitmaskUsed) {
-                                    weight = 1.0F;
-                                } else {
-                                    weight /= 255.0F;
-                                }
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                weight = srcBean[s].getRoiRaster().getSample(dstX, dstY, 0) > 0
-                                        ? 1.0F
-                                        : 0.0F;
-                                break;
-                            default:
-                                weight = 1.0F;
-                            }
-                        }
-                        // The above calculated weight are added to the
-                        // numerator and denominator
-                        for (int b = 0; b < dstBands; b++) {
-                            numerator[b] += (weight * (sourceValueUshortS[b]));
-                            denominator[b] += weight;
                         }
+                        break;
                     }
-
-                    // If the weighted sum is 0 the destination pixel value
-                    // takes the destination no data.
-                    // If the sum is not 0 the value is added to the related
-                    // destination pixel
-                    double denominatorSum = 0;
-                    for (int b = 0; b < dstBands; b++) {
-                        denominatorSum += denominator[b];
+                }
+                // If the flag is false for every source, the destination no data value is
+                // set to the related destination pixel and then updates the offset
+                for (int b = 0; b < dstBands; b++) {
+                    if (!setDestinationFlag) {
+                        dBandDataUshortS[b][dPixelOffsetS[b]] = destinationNoDataUShort[b];
                     }
 
-                    for (int b = 0; b < dstBands; b++) {
-                        if (denominatorSum == 0.0) {
-                            dBandDataUshortS[b][dPixelOffsetS[b]] = destinationNoDataUShort[b];
-
-                        } else {
-                            dBandDataUshortS[b][dPixelOffsetS[b]] = ImageUtil
-                                    .clampRoundUShort(numerator[b] / denominator[b]);
-                            // Offset update
-                            dPixelOffsetS[b] += dstPixelStride;
-
-                        }
-
-                    }
+                    dPixelOffsetS[b] += dstPixelStride;
                 }
             }
         }
@@ -1906,226 +1808,111 @@ public class MosaicOpImage extends OpImage {
             dLineOffsetS[b] = dstBandOffsets[b];
         }
 
-        if (mosaicTypeSelected == MosaicDescriptor.MOSAIC_TYPE_OVERLAY) {
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
-                                                               // values
-                // Source line Offset and pixel Offset,
-                // Alpha line Offset and pixel Offset are initialized
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
-                        for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
-                        }
-                    }
-                    if (srcBean[s].getAlphaRasterAccessor() != null) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
+        for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
+                                                           // values
+            // Source line Offset and pixel Offset,
+            // Alpha line Offset and pixel Offset are initialized
+            for (int s = 0; s < sourcesNumber; s++) {
+                if (srcBean[s].getDataRasterAccessor() != null) {
+                    for (int b = 0; b < dstBands; b++) {
+                        sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
+                        sLineOffsetsS[s][b] += srcLineStride[s];
                     }
                 }
-
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
+                if (srcBean[s].getAlphaRasterAccessor() != null) {
+                    aPixelOffsets[s] = aLineOffsets[s];
+                    aLineOffsets[s] += alfaLineStride[s];
                 }
+            }
 
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
-
-                    // The destination flag is initialized to false and changes to true only
-                    // if one pixel alpha channel is not 0 or falls into an image ROI or 
-                    // is not a NoData
-                    boolean setDestinationFlag = false;
-
-                    short[] sourceValueShortS = new short[dstBands];
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
-                        if (dataRA == null) {
-                            continue;
-                        }
-                        // The source values are initialized only for the switch method
-                        for (int b = 0; b < dstBands; b++) {
-                            sourceValueShortS[b] = sBandDataShortS[s][b][sPixelOffsetsS[s][b]];
-
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
-
-                        // the flag checks if the pixel is a noData
-                        int dataCount = dstBands;
-                        if (hasNoData[s]) {
-                            Range noDataRangeShort = (srcBean[s]
-                                    .getSourceNoDataRangeRasterAccessor());
-                            for (int b = 0; b < dstBands; b++) {
-                                if (noDataRangeShort != null && noDataRangeShort.contains(sourceValueShortS[b])) {
-                                    dataCount--;
-                                }
-                            }
-                        }
-
-                        if (dataCount == 0) {
-                            setDestinationFlag = false;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
+            // The same operation is performed for the destination offsets
+            for (int b = 0; b < dstBands; b++) {
+                dPixelOffsetS[b] = dLineOffsetS[b];
+                dLineOffsetS[b] += dstLineStride;
+            }
 
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                setDestinationFlag = aBandDataShort[s][aPixelOffsets[s]] != 0;
+            for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
 
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
-                                        0) > 0;
-                                break;
-                            default:
-                                setDestinationFlag = true;
+                // The destination flag is initialized to false and changes to true only
+                // if one pixel alpha channel is not 0 or falls into an image ROI or 
+                // is not a NoData
+                boolean setDestinationFlag = false;
 
-                            }
-                        }
-                        // If the flag is True, the related source pixel is saved in the
-                        // destination one and exit from the cycle after incrementing the offset
-                        if (setDestinationFlag) {
-                            for (int b = 0; b < dstBands; b++) {
-                                dBandDataShortS[b][dPixelOffsetS[b]] = sourceValueShortS[b];
-                                for (int k = s + 1; k < sourcesNumber; k++) {
-                                    if (dataRA != null) {
-                                        sPixelOffsetsS[k][b] += srcPixelStride[k];
-                                    }
-                                }
-                            }
-                            for (int k = s + 1; k < sourcesNumber; k++) {
-                                if (srcBean[k].getAlphaRasterAccessor() != null) {
-                                    aPixelOffsets[k] += alfaPixelStride[k];
-                                }
-                            }
-                            break;
-                        }
+                short[] sourceValueShortS = new short[dstBands];
+                for (int s = 0; s < sourcesNumber; s++) {
+                    final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
+                    if (dataRA == null) {
+                        continue;
                     }
-                    // If the flag is false for every source, the destination no data value is
-                    // set to the related destination pixel and then updates the offset
+                    // The source values are initialized only for the switch method
                     for (int b = 0; b < dstBands; b++) {
-                        if (!setDestinationFlag) {
-                            dBandDataShortS[b][dPixelOffsetS[b]] = destinationNoDataShort[b];
-                        }
+                        sourceValueShortS[b] = sBandDataShortS[s][b][sPixelOffsetsS[s][b]];
 
-                        dPixelOffsetS[b] += dstPixelStride;
+                        // Offset update
+                        sPixelOffsetsS[s][b] += srcPixelStride[s];
                     }
-                }
-            }
-        } else { // the mosaicType is MOSAIC_TYPE_BLEND
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) {
-                // Source and pixel Offset are initialized and Source and alpha
-                // line offset are translated (cycle across all the sources)
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
+
+                    // the flag checks if the pixel is a noData
+                    int dataCount = dstBands;
+                    if (hasNoData[s]) {
+                        Range noDataRangeShort = (srcBean[s]
+                                .getSourceNoDataRangeRasterAccessor());
                         for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
+                            if (noDataRangeShort != null && noDataRangeShort.contains(sourceValueShortS[b])) {
+                                dataCount--;
+                            }
                         }
                     }
-                    if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
-                    }
-                }
 
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
-                }
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) {
+                    if (dataCount == 0) {
+                        setDestinationFlag = false;
+                        if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                        }
+                    } else {
 
-                    // In the blending operation the destination pixel value is
-                    // calculated as sum of the weighted source pixel / sum of weigth.
-                    double[] numerator = new double[dstBands];
-                    double[] denominator = new double[dstBands];
-                    short[] sourceValueShortS = new short[dstBands];
+                        switch (weightTypesUsed[s]) {
+                        case WEIGHT_TYPE_ALPHA:
+                            setDestinationFlag = aBandDataShort[s][aPixelOffsets[s]] != 0;
 
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        if (srcBean[s].getDataRasterAccessor() == null) {
-                            continue;
-                        }
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                            break;
+                        case WEIGHT_TYPE_ROI:
+                            setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
+                                    0) > 0;
+                            break;
+                        default:
+                            setDestinationFlag = true;
 
-                        // The source values are initialized only for the switch method
-                        for (int b = 0; b < dstBands; b++) {
-                            sourceValueShortS[b] = sBandDataShortS[s][b][sPixelOffsetsS[s][b]];
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
                         }
-
-                        // The weight is calculated for every pixel
-                        double weight = 0.0F;
-                        int dataCount = dstBands;
-
-                        // If no alpha channel or Roi is present, the weight
-                        // is set to 1 or 0 if the pixel has or not a No Data value
-                        if (hasNoData[s]) {
-                            for (int b = 0; b < dstBands; b++) {
-                                Range noDataRangeShort = (srcBean[s]
-                                        .getSourceNoDataRangeRasterAccessor());
-                                if (noDataRangeShort != null && noDataRangeShort.contains(sourceValueShortS[b])) {
-                                    dataCount--;
+                    }
+                    // If the flag is True, the related source pixel is saved in the
+                    // destination one and exit from the cycle after incrementing the offset
+                    if (setDestinationFlag) {
+                        for (int b = 0; b < dstBands; b++) {
+                            dBandDataShortS[b][dPixelOffsetS[b]] = sourceValueShortS[b];
+                            for (int k = s + 1; k < sourcesNumber; k++) {
+                                if (dataRA != null) {
+                                    sPixelOffsetsS[k][b] += srcPixelStride[k];
                                 }
                             }
                         }
-                        if (dataCount == 0) {
-                            weight = 0F;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                weight = aBandDataShort[s][aPixelOffsets[s]];
-                                if (weight > 0.0F && isAlphaBitmaskUsed) {
-                                    weight = 1.0F;
-                                } else {
-                                    weight /= 255.0F;
-                                }
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                weight = srcBean[s].getRoiRaster().getSample(dstX, dstY, 0) > 0
-                                        ? 1.0F
-                                        : 0.0F;
-                                break;
-                            default:
-                                weight = 1.0F;
+                        for (int k = s + 1; k < sourcesNumber; k++) {
+                            if (srcBean[k].getAlphaRasterAccessor() != null) {
+                                aPixelOffsets[k] += alfaPixelStride[k];
                             }
                         }
-                        // The above calculated weight are added to the
-                        // numerator and denominator
-                        for (int b = 0; b < dstBands; b++) {
-                            numerator[b] += (weight * (sourceValueShortS[b]));
-                            denominator[b] += weight;
-                        }
+                        break;
                     }
-
-                    // If the weighted sum is 0 the destination pixel value
-                    // takes the destination no data.
-                    // If the sum is not 0 the value is added to the related
-                    // destination pixel
-                    double denominatorSum = 0;
-                    for (int b = 0; b < dstBands; b++) {
-                        denominatorSum += denominator[b];
+                }
+                // If the flag is false for every source, the destination no data value is
+                // set to the related destination pixel and then updates the offset
+                for (int b = 0; b < dstBands; b++) {
+                    if (!setDestinationFlag) {
+                        dBandDataShortS[b][dPixelOffsetS[b]] = destinationNoDataShort[b];
                     }
 
-                    for (int b = 0; b < dstBands; b++) {
-                        if (denominatorSum == 0.0) {
-                            dBandDataShortS[b][dPixelOffsetS[b]] = destinationNoDataShort[b];
-
-                        } else {
-                            dBandDataShortS[b][dPixelOffsetS[b]] = ImageUtil
-                                    .clampRoundShort(numerator[b] / denominator[b]);
-                            // Offset update
-                            dPixelOffsetS[b] += dstPixelStride;
-
-                        }
-                    }
+                    dPixelOffsetS[b] += dstPixelStride;
                 }
             }
         }
@@ -2272,225 +2059,110 @@ public class MosaicOpImage extends OpImage {
             dLineOffsetS[b] = dstBandOffsets[b];
         }
 
-        if (mosaicTypeSelected == MosaicDescriptor.MOSAIC_TYPE_OVERLAY) {
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
-                                                               // values
-                // Source line Offset and pixel Offset,
-                // Alpha line Offset and pixel Offset are initialized
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
-                        for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
-                        }
-                    }
-                    if (srcBean[s].getAlphaRasterAccessor() != null) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
+        for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
+                                                           // values
+            // Source line Offset and pixel Offset,
+            // Alpha line Offset and pixel Offset are initialized
+            for (int s = 0; s < sourcesNumber; s++) {
+                if (srcBean[s].getDataRasterAccessor() != null) {
+                    for (int b = 0; b < dstBands; b++) {
+                        sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
+                        sLineOffsetsS[s][b] += srcLineStride[s];
                     }
                 }
-
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
+                if (srcBean[s].getAlphaRasterAccessor() != null) {
+                    aPixelOffsets[s] = aLineOffsets[s];
+                    aLineOffsets[s] += alfaLineStride[s];
                 }
+            }
 
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
-
-                    // The destination flag is initialized to false and changes to true only
-                    // if one pixel alpha channel is not 0 or falls into an image ROI or 
-                    // is not a NoData
-                    boolean setDestinationFlag = false;
-
-                    int[] sourceValueIntS = new int[dstBands];
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
-                        if (dataRA == null) {
-                            continue;
-                        }
-                        // The source values are initialized only for the switch method
-                        for (int b = 0; b < dstBands; b++) {
-                            sourceValueIntS[b] = sBandDataIntS[s][b][sPixelOffsetsS[s][b]];
-
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
+            // The same operation is performed for the destination offsets
+            for (int b = 0; b < dstBands; b++) {
+                dPixelOffsetS[b] = dLineOffsetS[b];
+                dLineOffsetS[b] += dstLineStride;
+            }
 
-                        // the flag checks if the pixel is a noData
-                        int dataCount = dstBands;
-                        if (hasNoData[s]) {
-                            Range noDataRangeInt = (srcBean[s]
-                                    .getSourceNoDataRangeRasterAccessor());
-                            for (int b = 0; b < dstBands; b++) {
-                                if (noDataRangeInt != null && noDataRangeInt.contains(sourceValueIntS[b])) {
-                                    dataCount--;
-                                }
-                            }
-                        }
+            for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
 
-                        if (dataCount == 0) {
-                            setDestinationFlag = false;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
+                // The destination flag is initialized to false and changes to true only
+                // if one pixel alpha channel is not 0 or falls into an image ROI or 
+                // is not a NoData
+                boolean setDestinationFlag = false;
 
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                setDestinationFlag = aBandDataInt[s][aPixelOffsets[s]] != 0;
-
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
-                                        0) > 0;
-                                break;
-                            default:
-                                setDestinationFlag = true;
-                            }
-                        }
-                        // If the flag is True, the related source pixel is saved in the
-                        // destination one and exit from the cycle after incrementing the offset
-                        if (setDestinationFlag) {
-                            for (int b = 0; b < dstBands; b++) {
-                                dBandDataIntS[b][dPixelOffsetS[b]] = sourceValueIntS[b];
-                                for (int k = s + 1; k < sourcesNumber; k++) {
-                                    if (dataRA != null) {
-                                        sPixelOffsetsS[k][b] += srcPixelStride[k];
-                                    }
-                                }
-                            }
-                            for (int k = s + 1; k < sourcesNumber; k++) {
-                                if (srcBean[k].getAlphaRasterAccessor() != null) {
-                                    aPixelOffsets[k] += alfaPixelStride[k];
-                                }
-                            }
-                            break;
-                        }
+                int[] sourceValueIntS = new int[dstBands];
+                for (int s = 0; s < sourcesNumber; s++) {
+                    final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
+                    if (dataRA == null) {
+                        continue;
                     }
-                    // If the flag is false for every source, the destination no data value is
-                    // set to the related destination pixel and then updates the offset
+                    // The source values are initialized only for the switch method
                     for (int b = 0; b < dstBands; b++) {
-                        if (!setDestinationFlag) {
-                            dBandDataIntS[b][dPixelOffsetS[b]] = destinationNoDataInt[b];
-                        }
+                        sourceValueIntS[b] = sBandDataIntS[s][b][sPixelOffsetsS[s][b]];
 
-                        dPixelOffsetS[b] += dstPixelStride;
+                        // Offset update
+                        sPixelOffsetsS[s][b] += srcPixelStride[s];
                     }
-                }
-            }
-        } else { // the mosaicType is MOSAIC_TYPE_BLEND
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) {
-                // Source and pixel Offset are initialized and Source and alpha
-                // line offset are translated (cycle across all the sources)
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
+
+                    // the flag checks if the pixel is a noData
+                    int dataCount = dstBands;
+                    if (hasNoData[s]) {
+                        Range noDataRangeInt = (srcBean[s]
+                                .getSourceNoDataRangeRasterAccessor());
                         for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
+                            if (noDataRangeInt != null && noDataRangeInt.contains(sourceValueIntS[b])) {
+                                dataCount--;
+                            }
                         }
                     }
-                    if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
-                    }
-                }
 
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
-                }
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) {
+                    if (dataCount == 0) {
+                        setDestinationFlag = false;
+                        if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                        }
+                    } else {
 
-                    // In the blending operation the destination pixel value is
-                    // calculated as sum of the weighted source pixel / sum of weigth.
-                    double[] numerator = new double[dstBands];
-                    double[] denominator = new double[dstBands];
-                    int[] sourceValueIntS = new int[dstBands];
+                        switch (weightTypesUsed[s]) {
+                        case WEIGHT_TYPE_ALPHA:
+                            setDestinationFlag = aBandDataInt[s][aPixelOffsets[s]] != 0;
 
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        if (srcBean[s].getDataRasterAccessor() == null) {
-                            continue;
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                            break;
+                        case WEIGHT_TYPE_ROI:
+                            setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
+                                    0) > 0;
+                            break;
+                        default:
+                            setDestinationFlag = true;
                         }
-
-                        // The source values are initialized only for the switch method
+                    }
+                    // If the flag is True, the related source pixel is saved in the
+                    // destination one and exit from the cycle after incrementing the offset
+                    if (setDestinationFlag) {
                         for (int b = 0; b < dstBands; b++) {
-                            sourceValueIntS[b] = sBandDataIntS[s][b][sPixelOffsetsS[s][b]];
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
-
-                        // The weight is calculated for every pixel
-                        double weight = 0.0F;
-                        int dataCount = dstBands;
-
-                        // If no alpha channel or Roi is present, the weight
-                        // is set to 1 or 0 if the pixel has or not a No Data value
-                        if (hasNoData[s]) {
-                            for (int b = 0; b < dstBands; b++) {
-                                Range noDataRangeInt = (srcBean[s]
-                                        .getSourceNoDataRangeRasterAccessor());
-                                if (noDataRangeInt != null && noDataRangeInt.contains(sourceValueIntS[b])) {
-                                    dataCount--;
+                            dBandDataIntS[b][dPixelOffsetS[b]] = sourceValueIntS[b];
+                            for (int k = s + 1; k < sourcesNumber; k++) {
+                                if (dataRA != null) {
+                                    sPixelOffsetsS[k][b] += srcPixelStride[k];
                                 }
                             }
                         }
-                        if (dataCount == 0) {
-                            weight = 0F;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                weight = aBandDataInt[s][aPixelOffsets[s]];
-                                if (weight > 0.0F && isAlphaBitmaskUsed) {
-                                    weight = 1.0F;
-                                } else {
-                                    weight /= 255.0F;
-                                }
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                weight = srcBean[s].getRoiRaster().getSample(dstX, dstY, 0) > 0
-                                        ? 1.0F
-                                        : 0.0F;
-                                break;
-                            default:
-                                weight = 1.0F;
+                        for (int k = s + 1; k < sourcesNumber; k++) {
+                            if (srcBean[k].getAlphaRasterAccessor() != null) {
+                                aPixelOffsets[k] += alfaPixelStride[k];
                             }
                         }
-                        // The above calculated weight are added to the
-                        // numerator and denominator
-                        for (int b = 0; b < dstBands; b++) {
-                            numerator[b] += (weight * (sourceValueIntS[b]));
-                            denominator[b] += weight;
-                        }
+                        break;
                     }
-
-                    // If the weighted sum is 0 the destination pixel value
-                    // takes the destination no data.
-                    // If the sum is not 0 the value is added to the related
-                    // destination pixel
-                    double denominatorSum = 0;
-                    for (int b = 0; b < dstBands; b++) {
-                        denominatorSum += denominator[b];
+                }
+                // If the flag is false for every source, the destination no data value is
+                // set to the related destination pixel and then updates the offset
+                for (int b = 0; b < dstBands; b++) {
+                    if (!setDestinationFlag) {
+                        dBandDataIntS[b][dPixelOffsetS[b]] = destinationNoDataInt[b];
                     }
 
-                    for (int b = 0; b < dstBands; b++) {
-                        if (denominatorSum == 0.0) {
-                            dBandDataIntS[b][dPixelOffsetS[b]] = destinationNoDataInt[b];
-
-                        } else {
-                            dBandDataIntS[b][dPixelOffsetS[b]] = ImageUtil
-                                    .clampRoundInt(numerator[b] / denominator[b]);
-                            // Offset update
-                            dPixelOffsetS[b] += dstPixelStride;
-
-                        }
-                    }
+                    dPixelOffsetS[b] += dstPixelStride;
                 }
             }
         }
@@ -2637,225 +2309,110 @@ public class MosaicOpImage extends OpImage {
             dLineOffsetS[b] = dstBandOffsets[b];
         }
 
-        if (mosaicTypeSelected == MosaicDescriptor.MOSAIC_TYPE_OVERLAY) {
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
-                                                               // values
-                // Source line Offset and pixel Offset,
-                // Alpha line Offset and pixel Offset are initialized
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
-                        for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
-                        }
-                    }
-                    if (srcBean[s].getAlphaRasterAccessor() != null) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
+        for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
+                                                           // values
+            // Source line Offset and pixel Offset,
+            // Alpha line Offset and pixel Offset are initialized
+            for (int s = 0; s < sourcesNumber; s++) {
+                if (srcBean[s].getDataRasterAccessor() != null) {
+                    for (int b = 0; b < dstBands; b++) {
+                        sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
+                        sLineOffsetsS[s][b] += srcLineStride[s];
                     }
                 }
-
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
+                if (srcBean[s].getAlphaRasterAccessor() != null) {
+                    aPixelOffsets[s] = aLineOffsets[s];
+                    aLineOffsets[s] += alfaLineStride[s];
                 }
+            }
 
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
-
-                    // The destination flag is initialized to false and changes to true only
-                    // if one pixel alpha channel is not 0 or falls into an image ROI or 
-                    // is not a NoData
-                    boolean setDestinationFlag = false;
+            // The same operation is performed for the destination offsets
+            for (int b = 0; b < dstBands; b++) {
+                dPixelOffsetS[b] = dLineOffsetS[b];
+                dLineOffsetS[b] += dstLineStride;
+            }
 
-                    float[] sourceValueFloatS = new float[dstBands];
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
-                        if (dataRA == null) {
-                            continue;
-                        }
-                        // The source values are initialized only for the switch method
-                        for (int b = 0; b < dstBands; b++) {
-                            sourceValueFloatS[b] = sBandDataFloatS[s][b][sPixelOffsetsS[s][b]];
+            for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
 
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
+                // The destination flag is initialized to false and changes to true only
+                // if one pixel alpha channel is not 0 or falls into an image ROI or 
+                // is not a NoData
+                boolean setDestinationFlag = false;
 
-                        // the flag checks if the pixel is a noData
-                        int dataCount = dstBands;
-                        if (hasNoData[s]) {
-                            Range noDataRangeFloat = (srcBean[s]
-                                    .getSourceNoDataRangeRasterAccessor());
-                            for (int b = 0; b < dstBands; b++) {
-                                if (noDataRangeFloat != null && noDataRangeFloat.contains(sourceValueFloatS[b])) {
-                                    dataCount--;
-                                }
-                            }
-                        }
-
-                        if (dataCount == 0) {
-                            setDestinationFlag = false;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
-
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                setDestinationFlag = aBandDataFloat[s][aPixelOffsets[s]] != 0;
-
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
-                                        0) > 0;
-                                break;
-                            default:
-                                setDestinationFlag = true;
-                            }
-                        }
-                        // If the flag is True, the related source pixel is saved in the
-                        // destination one and exit from the cycle after incrementing the offset
-                        if (setDestinationFlag) {
-                            for (int b = 0; b < dstBands; b++) {
-                                dBandDataFloatS[b][dPixelOffsetS[b]] = sourceValueFloatS[b];
-                                for (int k = s + 1; k < sourcesNumber; k++) {
-                                    if (dataRA != null) {
-                                        sPixelOffsetsS[k][b] += srcPixelStride[k];
-                                    }
-                                }
-                            }
-                            for (int k = s + 1; k < sourcesNumber; k++) {
-                                if (srcBean[k].getAlphaRasterAccessor() != null) {
-                                    aPixelOffsets[k] += alfaPixelStride[k];
-                                }
-                            }
-                            break;
-                        }
+                float[] sourceValueFloatS = new float[dstBands];
+                for (int s = 0; s < sourcesNumber; s++) {
+                    final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
+                    if (dataRA == null) {
+                        continue;
                     }
-                    // If the flag is false for every source, the destination no data value is
-                    // set to the related destination pixel and then updates the offset
+                    // The source values are initialized only for the switch method
                     for (int b = 0; b < dstBands; b++) {
-                        if (!setDestinationFlag) {
-                            dBandDataFloatS[b][dPixelOffsetS[b]] = destinationNoDataFloat[b];
-                        }
+                        sourceValueFloatS[b] = sBandDataFloatS[s][b][sPixelOffsetsS[s][b]];
 
-                        dPixelOffsetS[b] += dstPixelStride;
+                        // Offset update
+                        sPixelOffsetsS[s][b] += srcPixelStride[s];
                     }
-                }
-            }
-        } else { // the mosaicType is MOSAIC_TYPE_BLEND
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) {
-                // Source and pixel Offset are initialized and Source and alpha
-                // line offset are translated (cycle across all the sources)
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
+
+                    // the flag checks if the pixel is a noData
+                    int dataCount = dstBands;
+                    if (hasNoData[s]) {
+                        Range noDataRangeFloat = (srcBean[s]
+                                .getSourceNoDataRangeRasterAccessor());
                         for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
+                            if (noDataRangeFloat != null && noDataRangeFloat.contains(sourceValueFloatS[b])) {
+                                dataCount--;
+                            }
                         }
                     }
-                    if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
-                    }
-                }
 
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
-                }
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) {
+                    if (dataCount == 0) {
+                        setDestinationFlag = false;
+                        if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                        }
+                    } else {
 
-                    // In the blending operation the destination pixel value is
-                    // calculated as sum of the weighted source pixel / sum of weigth.
-                    double[] numerator = new double[dstBands];
-                    double[] denominator = new double[dstBands];
-                    float[] sourceValueFloatS = new float[dstBands];
+                        switch (weightTypesUsed[s]) {
+                        case WEIGHT_TYPE_ALPHA:
+                            setDestinationFlag = aBandDataFloat[s][aPixelOffsets[s]] != 0;
 
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        if (srcBean[s].getDataRasterAccessor() == null) {
-                            continue;
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                            break;
+                        case WEIGHT_TYPE_ROI:
+                            setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
+                                    0) > 0;
+                            break;
+                        default:
+                            setDestinationFlag = true;
                         }
-
-                        // The source values are initialized only for the switch method
+                    }
+                    // If the flag is True, the related source pixel is saved in the
+                    // destination one and exit from the cycle after incrementing the offset
+                    if (setDestinationFlag) {
                         for (int b = 0; b < dstBands; b++) {
-                            sourceValueFloatS[b] = sBandDataFloatS[s][b][sPixelOffsetsS[s][b]];
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
-
-                        // The weight is calculated for every pixel
-                        double weight = 0.0F;
-                        int dataCount = dstBands;
-
-                        // If no alpha channel or Roi is present, the weight
-                        // is set to 1 or 0 if the pixel has or not a No Data value
-                        if (hasNoData[s]) {
-                            for (int b = 0; b < dstBands; b++) {
-                                Range noDataRangeFloat = (srcBean[s]
-                                        .getSourceNoDataRangeRasterAccessor());
-                                if (noDataRangeFloat != null && noDataRangeFloat.contains(sourceValueFloatS[b])) {
-                                    dataCount--;
+                            dBandDataFloatS[b][dPixelOffsetS[b]] = sourceValueFloatS[b];
+                            for (int k = s + 1; k < sourcesNumber; k++) {
+                                if (dataRA != null) {
+                                    sPixelOffsetsS[k][b] += srcPixelStride[k];
                                 }
                             }
                         }
-                        if (dataCount == 0) {
-                            weight = 0F;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
+                        for (int k = s + 1; k < sourcesNumber; k++) {
+                            if (srcBean[k].getAlphaRasterAccessor() != null) {
+                                aPixelOffsets[k] += alfaPixelStride[k];
                             }
-                        } else {
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                weight = aBandDataFloat[s][aPixelOffsets[s]];
-                                if (weight > 0.0F && isAlphaBitmaskUsed) {
-                                    weight = 1.0F;
-                                } else {
-                                    weight /= 255.0F;
-                                }
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                weight = srcBean[s].getRoiRaster().getSample(dstX, dstY, 0) > 0
-                                        ? 1.0F
-                                        : 0.0F;
-                                break;
-                            default:
-                                weight = 1.0F;
-                            }
-                        }
-                        // The above calculated weight are added to the
-                        // numerator and denominator
-                        for (int b = 0; b < dstBands; b++) {
-                            numerator[b] += (weight > 0.0F ? (weight * (sourceValueFloatS[b])) : 0);
-                            denominator[b] += weight;
                         }
+                        break;
                     }
-
-                    // If the weighted sum is 0 the destination pixel value
-                    // takes the destination no data.
-                    // If the sum is not 0 the value is added to the related
-                    // destination pixel
-                    double denominatorSum = 0;
-                    for (int b = 0; b < dstBands; b++) {
-                        denominatorSum += denominator[b];
+                }
+                // If the flag is false for every source, the destination no data value is
+                // set to the related destination pixel and then updates the offset
+                for (int b = 0; b < dstBands; b++) {
+                    if (!setDestinationFlag) {
+                        dBandDataFloatS[b][dPixelOffsetS[b]] = destinationNoDataFloat[b];
                     }
 
-                    for (int b = 0; b < dstBands; b++) {
-                        if (denominatorSum == 0.0) {
-                            dBandDataFloatS[b][dPixelOffsetS[b]] = destinationNoDataFloat[b];
-
-                        } else {
-                            dBandDataFloatS[b][dPixelOffsetS[b]] = ImageUtil
-                                    .clampFloat(numerator[b] / denominator[b]);
-                            // Offset update
-                            dPixelOffsetS[b] += dstPixelStride;
-
-                        }
-                    }
+                    dPixelOffsetS[b] += dstPixelStride;
                 }
             }
         }
@@ -3002,224 +2559,110 @@ public class MosaicOpImage extends OpImage {
             dLineOffsetS[b] = dstBandOffsets[b];
         }
 
-        if (mosaicTypeSelected == MosaicDescriptor.MOSAIC_TYPE_OVERLAY) {
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
-                                                               // values
-                // Source line Offset and pixel Offset,
-                // Alpha line Offset and pixel Offset are initialized
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
-                        for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
-                        }
-                    }
-                    if (srcBean[s].getAlphaRasterAccessor() != null) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
+        for (int dstY = dstMinY; dstY < dstMaxY; dstY++) { // For all the Y
+                                                           // values
+            // Source line Offset and pixel Offset,
+            // Alpha line Offset and pixel Offset are initialized
+            for (int s = 0; s < sourcesNumber; s++) {
+                if (srcBean[s].getDataRasterAccessor() != null) {
+                    for (int b = 0; b < dstBands; b++) {
+                        sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
+                        sLineOffsetsS[s][b] += srcLineStride[s];
                     }
                 }
-
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
+                if (srcBean[s].getAlphaRasterAccessor() != null) {
+                    aPixelOffsets[s] = aLineOffsets[s];
+                    aLineOffsets[s] += alfaLineStride[s];
                 }
+            }
 
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
-
-                    // The destination flag is initialized to false and changes to true only
-                    // if one pixel alpha channel is not 0 or falls into an image ROI or 
-                    // is not a NoData
-                    boolean setDestinationFlag = false;
+            // The same operation is performed for the destination offsets
+            for (int b = 0; b < dstBands; b++) {
+                dPixelOffsetS[b] = dLineOffsetS[b];
+                dLineOffsetS[b] += dstLineStride;
+            }
 
-                    double[] sourceValueDoubleS = new double[dstBands];
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
-                        if (dataRA == null) {
-                            continue;
-                        }
-                        // The source values are initialized only for the switch method
-                        for (int b = 0; b < dstBands; b++) {
-                            sourceValueDoubleS[b] = sBandDataDoubleS[s][b][sPixelOffsetsS[s][b]];
+            for (int dstX = dstMinX; dstX < dstMaxX; dstX++) { // For all the X values
 
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
+                // The destination flag is initialized to false and changes to true only
+                // if one pixel alpha channel is not 0 or falls into an image ROI or 
+                // is not a NoData
+                boolean setDestinationFlag = false;
 
-                        // the flag checks if the pixel is a noData
-                        int dataCount = dstBands;
-                        if (hasNoData[s]) {
-                            Range noDataRangeDouble = (srcBean[s]
-                                    .getSourceNoDataRangeRasterAccessor());
-                            for (int b = 0; b < dstBands; b++) {
-                                if (noDataRangeDouble != null && noDataRangeDouble.contains(sourceValueDoubleS[b])) {
-                                    dataCount--;
-                                }
-                            }
-                        }
-
-                        if (dataCount == 0) {
-                            setDestinationFlag = false;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
-
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                setDestinationFlag = aBandDataDouble[s][aPixelOffsets[s]] != 0;
-
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
-                                        0) > 0;
-                                break;
-                            default:
-                                setDestinationFlag = true;
-                            }
-                        }
-                        // If the flag is True, the related source pixel is saved in the
-                        // destination one and exit from the cycle after incrementing the offset
-                        if (setDestinationFlag) {
-                            for (int b = 0; b < dstBands; b++) {
-                                dBandDataDoubleS[b][dPixelOffsetS[b]] = sourceValueDoubleS[b];
-                                for (int k = s + 1; k < sourcesNumber; k++) {
-                                    if (dataRA != null) {
-                                        sPixelOffsetsS[k][b] += srcPixelStride[k];
-                                    }
-                                }
-                            }
-                            for (int k = s + 1; k < sourcesNumber; k++) {
-                                if (srcBean[k].getAlphaRasterAccessor() != null) {
-                                    aPixelOffsets[k] += alfaPixelStride[k];
-                                }
-                            }
-                            break;
-                        }
+                double[] sourceValueDoubleS = new double[dstBands];
+                for (int s = 0; s < sourcesNumber; s++) {
+                    final RasterAccessor dataRA = srcBean[s].getDataRasterAccessor();
+                    if (dataRA == null) {
+                        continue;
                     }
-                    // If the flag is false for every source, the destination no data value is
-                    // set to the related destination pixel and then updates the offset
+                    // The source values are initialized only for the switch method
                     for (int b = 0; b < dstBands; b++) {
-                        if (!setDestinationFlag) {
-                            dBandDataDoubleS[b][dPixelOffsetS[b]] = destinationNoDataDouble[b];
-                        }
+                        sourceValueDoubleS[b] = sBandDataDoubleS[s][b][sPixelOffsetsS[s][b]];
 
-                        dPixelOffsetS[b] += dstPixelStride;
+                        // Offset update
+                        sPixelOffsetsS[s][b] += srcPixelStride[s];
                     }
-                }
-            }
-        } else { // the mosaicType is MOSAIC_TYPE_BLEND
-            for (int dstY = dstMinY; dstY < dstMaxY; dstY++) {
-                // Source and pixel Offset are initialized and Source and alpha
-                // line offset are translated (cycle across all the sources)
-                for (int s = 0; s < sourcesNumber; s++) {
-                    if (srcBean[s].getDataRasterAccessor() != null) {
+
+                    // the flag checks if the pixel is a noData
+                    int dataCount = dstBands;
+                    if (hasNoData[s]) {
+                        Range noDataRangeDouble = (srcBean[s]
+                                .getSourceNoDataRangeRasterAccessor());
                         for (int b = 0; b < dstBands; b++) {
-                            sPixelOffsetsS[s][b] = sLineOffsetsS[s][b];
-                            sLineOffsetsS[s][b] += srcLineStride[s];
+                            if (noDataRangeDouble != null && noDataRangeDouble.contains(sourceValueDoubleS[b])) {
+                                dataCount--;
+                            }
                         }
                     }
-                    if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                        aPixelOffsets[s] = aLineOffsets[s];
-                        aLineOffsets[s] += alfaLineStride[s];
-                    }
-                }
 
-                // The same operation is performed for the destination offsets
-                for (int b = 0; b < dstBands; b++) {
-                    dPixelOffsetS[b] = dLineOffsetS[b];
-                    dLineOffsetS[b] += dstLineStride;
-                }
-                for (int dstX = dstMinX; dstX < dstMaxX; dstX++) {
+                    if (dataCount == 0) {
+                        setDestinationFlag = false;
+                        if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                        }
+                    } else {
 
-                    // In the blending operation the destination pixel value is
-                    // calculated as sum of the weighted source pixel / sum of weigth.
-                    double[] numerator = new double[dstBands];
-                    double[] denominator = new double[dstBands];
-                    double[] sourceValueDoubleS = new double[dstBands];
+                        switch (weightTypesUsed[s]) {
+                        case WEIGHT_TYPE_ALPHA:
+                            setDestinationFlag = aBandDataDouble[s][aPixelOffsets[s]] != 0;
 
-                    for (int s = 0; s < sourcesNumber; s++) {
-                        if (srcBean[s].getDataRasterAccessor() == null) {
-                            continue;
+                            aPixelOffsets[s] += alfaPixelStride[s];
+                            break;
+                        case WEIGHT_TYPE_ROI:
+                            setDestinationFlag = srcBean[s].getRoiRaster().getSample(dstX, dstY,
+                                    0) > 0;
+                            break;
+                        default:
+                            setDestinationFlag = true;
                         }
-
-                        // The source values are initialized only for the switch method
+                    }
+                    // If the flag is True, the related source pixel is saved in the
+                    // destination one and exit from the cycle after incrementing the offset
+                    if (setDestinationFlag) {
                         for (int b = 0; b < dstBands; b++) {
-                            sourceValueDoubleS[b] = sBandDataDoubleS[s][b][sPixelOffsetsS[s][b]];
-                            // Offset update
-                            sPixelOffsetsS[s][b] += srcPixelStride[s];
-                        }
-
-                        // The weight is calculated for every pixel
-                        double weight = 0.0F;
-                        int dataCount = dstBands;
-
-                        // If no alpha channel or Roi is present, the weight
-                        // is set to 1 or 0 if the pixel has or not a No Data value
-                        if (hasNoData[s]) {
-                            for (int b = 0; b < dstBands; b++) {
-                                Range noDataRangeDouble = (srcBean[s]
-                                        .getSourceNoDataRangeRasterAccessor());
-                                if (noDataRangeDouble != null && noDataRangeDouble.contains(sourceValueDoubleS[b])) {
-                                    dataCount--;
+                            dBandDataDoubleS[b][dPixelOffsetS[b]] = sourceValueDoubleS[b];
+                            for (int k = s + 1; k < sourcesNumber; k++) {
+                                if (dataRA != null) {
+                                    sPixelOffsetsS[k][b] += srcPixelStride[k];
                                 }
                             }
                         }
-                        if (dataCount == 0) {
-                            weight = 0F;
-                            if (weightTypesUsed[s] == WeightType.WEIGHT_TYPE_ALPHA) {
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                            }
-                        } else {
-                            switch (weightTypesUsed[s]) {
-                            case WEIGHT_TYPE_ALPHA:
-                                weight = aBandDataDouble[s][aPixelOffsets[s]];
-                                if (weight > 0.0F && isAlphaBitmaskUsed) {
-                                    weight = 1.0F;
-                                } else {
-                                    weight /= 255.0F;
-                                }
-                                aPixelOffsets[s] += alfaPixelStride[s];
-                                break;
-                            case WEIGHT_TYPE_ROI:
-                                weight = srcBean[s].getRoiRaster().getSample(dstX, dstY, 0) > 0
-                                        ? 1.0F
-                                        : 0.0F;
-                                break;
-                            default:
-                                weight = 1.0F;
+                        for (int k = s + 1; k < sourcesNumber; k++) {
+                            if (srcBean[k].getAlphaRasterAccessor() != null) {
+                                aPixelOffsets[k] += alfaPixelStride[k];
                             }
                         }
-                        // The above calculated weight are added to the
-                        // numerator and denominator
-                        for (int b = 0; b < dstBands; b++) {
-                            numerator[b] += (weight > 0.0F ? (weight * (sourceValueDoubleS[b])) : 0);
-                            denominator[b] += weight;
-                        }
+                        break;
                     }
-
-                    // If the weighted sum is 0 the destination pixel value
-                    // takes the destination no data.
-                    // If the sum is not 0 the value is added to the related
-                    // destination pixel
-                    double denominatorSum = 0;
-                    for (int b = 0; b < dstBands; b++) {
-                        denominatorSum += denominator[b];
+                }
+                // If the flag is false for every source, the destination no data value is
+                // set to the related destination pixel and then updates the offset
+                for (int b = 0; b < dstBands; b++) {
+                    if (!setDestinationFlag) {
+                        dBandDataDoubleS[b][dPixelOffsetS[b]] = destinationNoDataDouble[b];
                     }
 
-                    for (int b = 0; b < dstBands; b++) {
-                        if (denominatorSum == 0.0) {
-                            dBandDataDoubleS[b][dPixelOffsetS[b]] = destinationNoDataDouble[b];
-
-                        } else {
-                            dBandDataDoubleS[b][dPixelOffsetS[b]] = (numerator[b] / denominator[b]);
-                            // Offset update
-                            dPixelOffsetS[b] += dstPixelStride;
-
-                        }
-                    }
+                    dPixelOffsetS[b] += dstPixelStride;
                 }
             }
         }
@@ -3268,6 +2711,8 @@ public class MosaicOpImage extends OpImage {
                 dispose(bean.getAlphaChannel());
             }
         }
+        scratchRasters.clear();
+        blendAccumulators.clear();
         super.dispose();
     }
 
@@ -0,0 +1,114 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.mosaic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+
+import javax.media.jai.RasterAccessor;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.RasterFormatTag;
+
+import org.junit.Test;
+
+import it.geosolutions.jaiext.range.RangeFactory;
+
+public class BlendAccumulatorTest {
+
+    private static final int WIDTH = 4;
+
+    private static final int HEIGHT = 2;
+
+    @Test
+    public void testWeightedAverage() {
+        BlendAccumulator accumulator = new BlendAccumulator(WIDTH, HEIGHT, 1);
+        accumulator.reset(WIDTH, HEIGHT);
+
+        // first source with unit weights, above the signed short range
+        accumulator.setUniformWeights();
+        accumulator.accumulate(accessor(create(DataBuffer.TYPE_USHORT, 40000)));
+
+        // second source contributing only on the left half
+        WritableRaster alpha = create(DataBuffer.TYPE_USHORT, 0);
+        alpha.setSamples(0, 0, WIDTH / 2, HEIGHT, 0, new int[] { 255, 255, 255, 255 });
+        accumulator.setAlphaWeights(accessor(alpha), false);
+        accumulator.accumulate(accessor(create(DataBuffer.TYPE_USHORT, 50000)));
+
+        // third source made of NoData only
+        RasterAccessor noData = accessor(create(DataBuffer.TYPE_USHORT, 10));
+        accumulator.setUniformWeights();
+        accumulator.maskNoData(noData, RangeFactory.createU((short) 10, (short) 10));
+        accumulator.accumulate(noData);
+
+        WritableRaster dst = create(DataBuffer.TYPE_USHORT, 0);
+        RasterAccessor dstAccessor = accessor(dst);
+        accumulator.normalize(dstAccessor, new double[] { 0 });
+        dstAccessor.copyDataToRaster();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(x < WIDTH / 2 ? 45000 : 40000, dst.getSample(x, y, 0));
+            }
+        }
+    }
+
+    @Test
+    public void testNoData() {
+        BlendAccumulator accumulator = new BlendAccumulator(WIDTH, HEIGHT, 1);
+        // a smaller area than the capacity, as for the image border tiles
+        accumulator.reset(WIDTH / 2, HEIGHT);
+        WritableRaster source = create(DataBuffer.TYPE_FLOAT, WIDTH / 2, Float.NaN);
+        source.setSample(0, 0, 0, 5f);
+        RasterAccessor sourceAccessor = accessor(source);
+        accumulator.setUniformWeights();
+        accumulator.maskNoData(sourceAccessor, RangeFactory.create(Float.NaN, Float.NaN));
+        accumulator.accumulate(sourceAccessor);
+
+        WritableRaster dst = create(DataBuffer.TYPE_FLOAT, WIDTH / 2, 0);
+        RasterAccessor dstAccessor = accessor(dst);
+        accumulator.normalize(dstAccessor, new double[] { -1 });
+        dstAccessor.copyDataToRaster();
+        assertEquals(5f, dst.getSampleFloat(0, 0, 0), 0f);
+        assertEquals(-1f, dst.getSampleFloat(1, 0, 0), 0f);
+        assertEquals(-1f, dst.getSampleFloat(1, 1, 0), 0f);
+    }
+
+    private static WritableRaster create(int dataType, double value) {
+        return create(dataType, WIDTH, value);
+    }
+
+    private static WritableRaster create(int dataType, int width, double value) {
+        WritableRaster raster = RasterFactory.createBandedRaster(dataType, width, HEIGHT, 1,
+                new Point(0, 0));
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, value);
+            }
+        }
+        return raster;
+    }
+
+    private static RasterAccessor accessor(WritableRaster raster) {
+        SampleModel sm = raster.getSampleModel();
+        RasterFormatTag tag = new RasterFormatTag(sm, RasterAccessor.findCompatibleTag(null, sm));
+        return new RasterAccessor(raster, raster.getBounds(), tag, null);
+    }
+}
@@ -0,0 +1,171 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.mosaic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.List;
+import java.util.Vector;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.junit.Test;
+
+/**
+ * Checks the source data read by the {@link MosaicOpImage}, both when the destination tiles are aligned with the source ones and the tiles are
+ * read without any copy, and when they straddle multiple source tiles and the data are copied into the scratch rasters.
+ */
+public class MosaicGetDataTest {
+
+    private static final int SIZE = 60;
+
+    private static final int SOURCE_TILE_SIZE = 20;
+
+    @Test
+    public void testAlignedTilesMatchCopyingRead() {
+        TiledImage source = createSource();
+        MosaicOpImage mosaic = createMosaic(source, SOURCE_TILE_SIZE);
+        for (int tileY = 0; tileY < mosaic.getNumYTiles(); tileY++) {
+            for (int tileX = 0; tileX < mosaic.getNumXTiles(); tileX++) {
+                Raster expected = source.getData(mosaic.getTileRect(tileX, tileY));
+                assertSameData(expected, mosaic.computeTile(tileX, tileY));
+            }
+        }
+    }
+
+    @Test
+    public void testStraddlingTilesMatchCopyingRead() {
+        TiledImage source = createSource();
+        // 25 pixels tiles straddle the source ones, and the last column and row are smaller
+        MosaicOpImage mosaic = createMosaic(source, 25);
+        for (int tileY = 0; tileY < mosaic.getNumYTiles(); tileY++) {
+            for (int tileX = 0; tileX < mosaic.getNumXTiles(); tileX++) {
+                Raster expected = source.getData(mosaic.getTileRect(tileX, tileY));
+                assertSameData(expected, mosaic.computeTile(tileX, tileY));
+            }
+        }
+    }
+
+    @Test
+    public void testWritingResultLeavesSourceUnchanged() {
+        TiledImage source = createSource();
+        MosaicOpImage mosaic = createMosaic(source, SOURCE_TILE_SIZE);
+        Raster expected = source.getData(source.getTileRect(0, 0));
+
+        WritableRaster tile = (WritableRaster) mosaic.computeTile(0, 0);
+        for (int y = tile.getMinY(); y < tile.getMinY() + tile.getHeight(); y++) {
+            for (int x = tile.getMinX(); x < tile.getMinX() + tile.getWidth(); x++) {
+                tile.setSample(x, y, 0, -1);
+            }
+        }
+
+        assertSameData(expected, source.getTile(0, 0));
+        assertSameData(expected, mosaic.computeTile(0, 0));
+    }
+
+    @Test
+    public void testScratchRastersDoNotLeakData() {
+        TiledImage source = createSource();
+        MosaicOpImage mosaic = createMosaic(source, 25);
+        // fill the scratch rasters with the data of a full tile
+        mosaic.computeTile(0, 0);
+
+        // a smaller border tile reuses the same scratch raster
+        int lastX = mosaic.getNumXTiles() - 1;
+        int lastY = mosaic.getNumYTiles() - 1;
+        assertSameData(source.getData(mosaic.getTileRect(lastX, lastY)),
+                mosaic.computeTile(lastX, lastY));
+
+        // changed source data must be read again, not taken from the previous computation
+        Rectangle first = mosaic.getTileRect(0, 0);
+        for (int y = first.y; y < first.y + first.height; y++) {
+            for (int x = first.x; x < first.x + first.width; x++) {
+                source.setSample(x, y, 0, -x - y);
+            }
+        }
+        assertSameData(source.getData(first), mosaic.computeTile(0, 0));
+    }
+
+    @Test
+    public void testScratchRastersSharedBySources() {
+        // two sources side by side, the first and the last tile column intersect a single one
+        TiledImage left = createSource(0, SIZE / 2, 0);
+        TiledImage right = createSource(SIZE / 2, SIZE / 2, SIZE * SIZE);
+        MosaicOpImage mosaic = createMosaic(25, left, right);
+        int lastX = mosaic.getNumXTiles() - 1;
+
+        // the scratch slots used by the left source are reused by the right one
+        Rectangle first = mosaic.getTileRect(0, 0);
+        assertSameData(left.getData(first), mosaic.computeTile(0, 0));
+        Rectangle last = mosaic.getTileRect(lastX, 0);
+        assertSameData(right.getData(last), mosaic.computeTile(lastX, 0));
+    }
+
+    private static TiledImage createSource() {
+        return createSource(0, SIZE, 0);
+    }
+
+    private static TiledImage createSource(int minX, int width, int offset) {
+        SampleModel sm = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_INT,
+                SOURCE_TILE_SIZE, SOURCE_TILE_SIZE, 1);
+        TiledImage source = new TiledImage(minX, 0, width, SIZE, 0, 0, sm, null);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = minX; x < minX + width; x++) {
+                source.setSample(x, y, 0, offset + x + y * SIZE);
+            }
+        }
+        return source;
+    }
+
+    private static MosaicOpImage createMosaic(TiledImage source, int tileSize) {
+        return createMosaic(tileSize, source);
+    }
+
+    private static MosaicOpImage createMosaic(int tileSize, TiledImage... images) {
+        List sources = new Vector();
+        for (TiledImage image : images) {
+            sources.add(image);
+        }
+        ImageLayout layout = new ImageLayout();
+        layout.setTileGridXOffset(0).setTileGridYOffset(0).setTileWidth(tileSize)
+                .setTileHeight(tileSize);
+        RenderingHints hints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT, layout);
+        return new MosaicOpImage(sources, layout, hints,
+                javax.media.jai.operator.MosaicDescriptor.MOSAIC_TYPE_OVERLAY,
+                null, null, null, new double[] { 0 }, null);
+    }
+
+    private static void assertSameData(Raster expected, Raster actual) {
+        Rectangle bounds = expected.getBounds();
+        assertTrue(actual.getBounds().contains(bounds));
+        int[] expectedSamples = expected.getSamples(bounds.x, bounds.y, bounds.width,
+                bounds.height, 0, (int[]) null);
+        int[] actualSamples = actual.getSamples(bounds.x, bounds.y, bounds.width, bounds.height,
+                0, (int[]) null);
+        assertArrayEquals(expectedSamples, actualSamples);
+    }
+}
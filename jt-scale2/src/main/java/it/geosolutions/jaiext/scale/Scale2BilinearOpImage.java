@@ -2104,9 +2104,9 @@ public class Scale2BilinearOpImage extends Scale2OpImage {
                                     dstData[dstPixelOffset] = destinationNoDataFloat[k];
                                 } else {
                                     // compute value
-                                    dstData[dstPixelOffset] = InterpolationBilinear.computeValueDouble(s00, s01,
+                                    dstData[dstPixelOffset] = (float) InterpolationBilinear.computeDouble(s00, s01,
                                             s10, s11, w00z, w01z, w10z, w11z, xfrac[i], yfrac[j],
-                                            dataType, destinationNoDataFloat[k]).floatValue();
+                                            destinationNoDataFloat[k]);
                                 }
 
                                 // destination pixel offset update
@@ -2169,9 +2169,9 @@ public class Scale2BilinearOpImage extends Scale2OpImage {
                                         boolean w11z = noData.contains(s11);
 
                                         // The interpolated value is saved in the destination array
-                                        dstData[dstPixelOffset] = InterpolationBilinear.computeValueDouble(s00,
+                                        dstData[dstPixelOffset] = (float) InterpolationBilinear.computeDouble(s00,
                                                 s01, s10, s11, w00z, w01z, w10z, w11z, xfrac[i],
-                                                yfrac[j], dataType, destinationNoDataFloat[k]).floatValue();
+                                                yfrac[j], destinationNoDataFloat[k]);
                                     }
                                     // destination pixel offset update
                                     dstPixelOffset += dstPixelStride;
@@ -2230,9 +2230,9 @@ public class Scale2BilinearOpImage extends Scale2OpImage {
                                             boolean w11z = noData.contains(s11);
 
                                             // compute value
-                                            dstData[dstPixelOffset] = InterpolationBilinear.computeValueDouble(
+                                            dstData[dstPixelOffset] = (float) InterpolationBilinear.computeDouble(
                                                     s00, s01, s10, s11, w00z, w01z, w10z, w11z,
-                                                    xfrac[i], yfrac[j], dataType, destinationNoDataFloat[k]).floatValue();
+                                                    xfrac[i], yfrac[j], destinationNoDataFloat[k]);
                                         }
                                     } else {
                                         // The destination no data value is saved in the destination array
@@ -2490,8 +2490,8 @@ public class Scale2BilinearOpImage extends Scale2OpImage {
                                     dstData[dstPixelOffset] = destinationNoDataDouble[k];
                                 } else {
                                     // compute value
-                                    dstData[dstPixelOffset] = InterpolationBilinear.computeValueDouble(s00, s01, s10,
-                                            s11, w00z, w01z, w10z, w11z, xfrac[i], yfrac[j], dataType, destinationNoDataDouble[k]).doubleValue();
+                                    dstData[dstPixelOffset] = InterpolationBilinear.computeDouble(s00, s01, s10,
+                                            s11, w00z, w01z, w10z, w11z, xfrac[i], yfrac[j], destinationNoDataDouble[k]);
                                 }
 
                                 // destination pixel offset update
@@ -2554,9 +2554,9 @@ public class Scale2BilinearOpImage extends Scale2OpImage {
                                         boolean w11z = noData.contains(s11);
 
                                         // The interpolated value is saved in the destination array
-                                        dstData[dstPixelOffset] = InterpolationBilinear.computeValueDouble(s00, s01, s10,
+                                        dstData[dstPixelOffset] = InterpolationBilinear.computeDouble(s00, s01, s10,
                                                 s11, w00z, w01z, w10z, w11z, xfrac[i], yfrac[j],
-                                                dataType, destinationNoDataDouble[k]).doubleValue();
+                                                destinationNoDataDouble[k]);
                                     }
                                     // destination pixel offset update
                                     dstPixelOffset += dstPixelStride;
@@ -2613,9 +2613,9 @@ public class Scale2BilinearOpImage extends Scale2OpImage {
                                             boolean w11z = noData.contains(s11);
 
                                             // compute value
-                                            dstData[dstPixelOffset] = InterpolationBilinear.computeValueDouble(s00, s01,
+                                            dstData[dstPixelOffset] = InterpolationBilinear.computeDouble(s00, s01,
                                                     s10, s11, w00z, w01z, w10z, w11z, xfrac[i],
-                                                    yfrac[j], dataType, destinationNoDataDouble[k]).doubleValue();
+                                                    yfrac[j], destinationNoDataDouble[k]);
 
                                         } else {
                                             // The destination no data value is saved in the destination array
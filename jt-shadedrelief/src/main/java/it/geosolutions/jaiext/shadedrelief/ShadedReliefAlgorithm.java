@@ -18,6 +18,7 @@
 package it.geosolutions.jaiext.shadedrelief;
 
 import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.utilities.SlidingWindow;
 
 public enum ShadedReliefAlgorithm {
 
@@ -126,6 +127,107 @@ public enum ShadedReliefAlgorithm {
         double y = yNum / params.resY;
 
         double xx_yy = (x * x) + (y * y);
+        return getShade(x, y, xx_yy, params);
+    }
+
+    /**
+     * Compute the requested terrain derivatives, from a single gradient of the window.
+     *
+     * @param window the 3x3 window, center included
+     * @param params the shaded relief parameters
+     * @param bands the terrain derivatives to compute
+     * @param values the array receiving the value of each requested band, NaN where undefined
+     */
+    public void getValues(
+            double[] window,
+            ShadedReliefParameters params,
+            ShadedReliefBand[] bands,
+            double[] values) {
+        double x = getX(window) / params.resX;
+        double y = getY(window) / params.resY;
+        double xx_yy = (x * x) + (y * y);
+
+        for (int i = 0; i < bands.length; i++) {
+            switch (bands[i]) {
+                case HILLSHADE:
+                    values[i] = getShade(x, y, xx_yy, params);
+                    break;
+                case MULTIDIRECTIONAL_HILLSHADE:
+                    values[i] = getMultidirectionalShade(x, y, xx_yy, params);
+                    break;
+                case SLOPE_DEGREES:
+                    values[i] = Math.atan(Math.sqrt(xx_yy) * params.z_scaled) * RADIANS_TO_DEGREES;
+                    break;
+                case SLOPE_PERCENT:
+                    values[i] = 100 * Math.sqrt(xx_yy) * params.z_scaled;
+                    break;
+                case ASPECT:
+                    values[i] = getAspect(x, y);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported band: " + bands[i]);
+            }
+        }
+    }
+
+    /**
+     * Compute the aspect in degrees clockwise from north, NaN on flat areas.
+     *
+     * See https://github.com/OSGeo/gdal/blob/release/2.3/gdal/apps/gdaldem_lib.cpp
+     */
+    private static double getAspect(double x, double y) {
+        if (x == 0 && y == 0) {
+            return Double.NaN;
+        }
+        double aspect = Math.atan2(y, x) * RADIANS_TO_DEGREES;
+        if (aspect < 0) {
+            aspect = 90.0 - aspect;
+        } else if (aspect > 90.0) {
+            aspect = 450.0 - aspect;
+        } else {
+            aspect = 90.0 - aspect;
+        }
+        return aspect == 360.0 ? 0.0 : aspect;
+    }
+
+    /**
+     * Compute the shaded relief value lit from 225, 270, 315 and 360 degrees, weighting each
+     * direction by the aspect.
+     *
+     * See https://github.com/OSGeo/gdal/blob/release/2.3/gdal/apps/gdaldem_lib.cpp
+     */
+    private static double getMultidirectionalShade(
+            double x, double y, double xx_yy, ShadedReliefParameters params) {
+        if (xx_yy == 0.0) {
+            return 1.0 + 254.0 * params.sinAlt;
+        }
+        double sinAlt127 = 127.0 * params.sinAlt;
+        double cosAltZ127 = 127.0 * params.cos_alt_mul_z;
+        double cosAltZ127Sin225 = cosAltZ127 * SIN_225;
+
+        double val225 = sinAlt127 + (x - y) * cosAltZ127Sin225;
+        double val270 = sinAlt127 - x * cosAltZ127;
+        double val315 = sinAlt127 + (x + y) * cosAltZ127Sin225;
+        double val360 = sinAlt127 - y * cosAltZ127;
+
+        double weight225 = 0.5 * xx_yy - x * y;
+        double weight270 = x * x;
+        double weight315 = xx_yy - weight225;
+        double weight360 = y * y;
+
+        double shade =
+                (weight225 * Math.max(0.0, val225)
+                                + weight270 * Math.max(0.0, val270)
+                                + weight315 * Math.max(0.0, val315)
+                                + weight360 * Math.max(0.0, val360))
+                        / xx_yy;
+        return 1.0 + shade / Math.sqrt(1d + params.square_z * xx_yy);
+    }
+
+    /**
+     * Compute the shaded relief value from the gradient
+     */
+    private float getShade(double x, double y, double xx_yy, ShadedReliefParameters params) {
         double slope = xx_yy * params.square_z;
 
         // Computing shading
@@ -154,19 +256,32 @@ public enum ShadedReliefAlgorithm {
 
     private static final double DEGREES_TO_RADIANS = Math.PI / 180.0;
 
+    private static final double RADIANS_TO_DEGREES = 180.0 / Math.PI;
+
+    private static final double SIN_225 = Math.sin(225 * DEGREES_TO_RADIANS);
+
     static final double SQUARED_PI_2 = Math.PI * Math.PI / 4;
 
     /**
      * DataProcessor, delegated to compute shadedRelief value, depending on specified algorithm and
      * noData.
      */
-    abstract static class DataProcessor {
+    abstract static class DataProcessor implements SlidingWindow.SampleReader {
         boolean hasNoData;
         Range srcNoData;
         double dstNoData;
         ShadedReliefAlgorithm algorithm;
         ShadedReliefAlgorithm.ShadedReliefParameters params;
 
+        /** Requested output bands, null when only the shaded relief value is computed */
+        ShadedReliefBand[] bands;
+
+        /** Values of the requested output bands for the last processed window */
+        double[] values;
+
+        /** Sliding window over the source rows, used for the windows not crossing the image edges */
+        SlidingWindow slidingWindow;
+
         public DataProcessor(
                 boolean hasNoData,
                 Range srcNoData,
@@ -184,6 +299,72 @@ public enum ShadedReliefAlgorithm {
          */
         abstract double getValue(int index);
 
+        /**
+         * Compute all the given bands for each processed window. The values are then available in
+         * {@link #values} and the process methods return 0, or NaN in case of noData.
+         */
+        public void setBands(ShadedReliefBand[] bands) {
+            this.bands = bands;
+            this.values = bands != null ? new double[bands.length] : null;
+        }
+
+        /**
+         * Set up a sliding window over the source rows, so that each source sample is read and
+         * checked against noData once.
+         *
+         * @param length number of samples of each source row
+         * @param pixelStride source pixel stride
+         * @param scanlineStride source scanline stride
+         */
+        public void initWindow(int length, int pixelStride, int scanlineStride) {
+            slidingWindow =
+                    new SlidingWindow(
+                            3, length, pixelStride, scanlineStride, hasNoData ? srcNoData : null, this);
+        }
+
+        /**
+         * Move the sliding window, if any, to the source rows starting at the given offset
+         */
+        public void startRow(int srcScanlineOffset) {
+            if (slidingWindow != null) {
+                slidingWindow.setRows(srcScanlineOffset);
+            }
+        }
+
+        @Override
+        public final double getSample(int index) {
+            return getValue(index);
+        }
+
+        /**
+         * Setup the window, taking it from the sliding window when it does not cross the image
+         * edges.
+         */
+        private void setWindow(
+                double[] window,
+                int i,
+                int srcPixelOffset,
+                int centerScanlineOffset,
+                ProcessingCase processingCase) {
+            if (slidingWindow != null && processingCase == ProcessingCase.STANDARD) {
+                slidingWindow.moveTo(i);
+                System.arraycopy(slidingWindow.getWindow(), 0, window, 0, 9);
+            } else {
+                processingCase.setWindow(window, i, srcPixelOffset, centerScanlineOffset, this);
+            }
+        }
+
+        /**
+         * Compute the shaded relief value, or the requested bands, of a prepared window
+         */
+        private double compute(double[] window) {
+            if (bands == null) {
+                return algorithm.getValue(window, params);
+            }
+            algorithm.getValues(window, params, bands, values);
+            return 0;
+        }
+
         /**
          * Simple interpolation without any noData check
          */
@@ -210,6 +391,23 @@ public enum ShadedReliefAlgorithm {
                 int srcPixelOffset,
                 int centerScanlineOffset,
                 ProcessingCase processingCase) {
+            if (slidingWindow != null && processingCase == ProcessingCase.STANDARD) {
+                // Use the precomputed noData mask
+                setWindow(window, i, srcPixelOffset, centerScanlineOffset, processingCase);
+                if (slidingWindow.isAllValid()) {
+                    return compute(window);
+                }
+                boolean[] valid = slidingWindow.getValidMask();
+                if (!valid[4]) {
+                    return Double.NaN;
+                }
+                for (int index = 0; index < 9; index++) {
+                    if (!valid[index]) {
+                        window[index] = window[4];
+                    }
+                }
+                return compute(window);
+            }
             processingCase.setWindowNoData(window, i, srcPixelOffset, centerScanlineOffset, this);
             if (isNoData(window[4])) {
                 // Return NaN in case of noData. The caller will properly remap it to the proper
@@ -221,7 +419,7 @@ public enum ShadedReliefAlgorithm {
                         window[index] = window[4];
                     }
                 }
-                return algorithm.getValue(window, params);
+                return compute(window);
             }
         }
 
@@ -236,8 +434,8 @@ public enum ShadedReliefAlgorithm {
                 int srcPixelOffset,
                 int centerScanlineOffset,
                 ProcessingCase processingCase) {
-            processingCase.setWindow(window, i, srcPixelOffset, centerScanlineOffset, this);
-            return algorithm.getValue(window, params);
+            setWindow(window, i, srcPixelOffset, centerScanlineOffset, processingCase);
+            return compute(window);
         }
 
         /**
@@ -252,9 +450,9 @@ public enum ShadedReliefAlgorithm {
                 int centerScanlineOffset,
                 ProcessingCase processingCase,
                 boolean[] roiMask) {
-            processingCase.setWindowRoi(
-                    window, i, srcPixelOffset, centerScanlineOffset, this, roiMask);
-            return algorithm.getValue(window, params);
+            setWindow(window, i, srcPixelOffset, centerScanlineOffset, processingCase);
+            applyRoi(window, roiMask);
+            return compute(window);
         }
 
         /**
@@ -269,8 +467,13 @@ public enum ShadedReliefAlgorithm {
                 int centerScanlineOffset,
                 ProcessingCase processingCase,
                 boolean[] roiMask) {
-            processingCase.setWindowRoiNoData(
-                    window, i, srcPixelOffset, centerScanlineOffset, this, roiMask);
+            if (slidingWindow != null && processingCase == ProcessingCase.STANDARD) {
+                setWindow(window, i, srcPixelOffset, centerScanlineOffset, processingCase);
+            } else {
+                processingCase.setWindowNoData(
+                        window, i, srcPixelOffset, centerScanlineOffset, this);
+            }
+            applyRoi(window, roiMask);
             if (isNoData(window[4])) {
                 // Return NaN in case of noData. The caller will properly remap it to the proper
                 // noDataType
@@ -281,7 +484,13 @@ public enum ShadedReliefAlgorithm {
                         window[index] = window[4];
                     }
                 }
-                return algorithm.getValue(window, params);
+                return compute(window);
+            }
+        }
+
+        private static void applyRoi(double[] window, boolean[] roi) {
+            for (int k = 0; k < 9; k++) {
+                window[k] = (k == 4 || !roi[k]) ? window[4] : window[k];
             }
         }
 
@@ -755,32 +964,6 @@ public enum ShadedReliefAlgorithm {
                 int srcPixelOffset,
                 int centerScanlineOffset,
                 DataProcessor data);
-
-        void setWindowRoi(
-                double[] window,
-                int i,
-                int srcPixelOffset,
-                int centerScanlineOffset,
-                DataProcessor data,
-                boolean[] roi) {
-            setWindow(window, i, srcPixelOffset, centerScanlineOffset, data);
-            for (int k = 0; k < 9; k++) {
-                window[k] = (k == 4 || !roi[k]) ? window[4] : window[k];
-            }
-        };
-
-        void setWindowRoiNoData(
-                double[] window,
-                int i,
-                int srcPixelOffset,
-                int centerScanlineOffset,
-                DataProcessor data,
-                boolean[] roi) {
-            setWindowNoData(window, i, srcPixelOffset, centerScanlineOffset, data);
-            for (int k = 0; k < 9; k++) {
-                window[k] = (k == 4 || !roi[k]) ? window[4] : window[k];
-            }
-        };
     }
 
     static boolean areEquals(double a, double b) {
@@ -798,6 +981,7 @@ public enum ShadedReliefAlgorithm {
         final double square_z;
         final double cos_az_mul_cos_alt_mul_z;
         final double sin_az_mul_cos_alt_mul_z;
+        final double cos_alt_mul_z;
 
         final private ShadedReliefAlgorithm algorithm;
 
@@ -821,6 +1005,8 @@ public enum ShadedReliefAlgorithm {
 
             double cos_alt = Math.cos(altitude * DEGREES_TO_RADIANS);
 
+            this.cos_alt_mul_z = cos_alt * z_scaled;
+
             this.cos_az_mul_cos_alt_mul_z =
                     Math.cos(azimuth * DEGREES_TO_RADIANS) *
                     cos_alt *
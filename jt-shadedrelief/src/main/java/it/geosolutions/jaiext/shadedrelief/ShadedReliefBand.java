@@ -0,0 +1,47 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.shadedrelief;
+
+/**
+ * Terrain derivatives which can be requested as output bands of the "ShadedRelief" operation.
+ *
+ * All of them are computed from the same gradient of the 3x3 window, so that requesting several
+ * bands costs a single pass over the source.
+ */
+public enum ShadedReliefBand {
+
+    /** Shaded relief value, in the range [1, 255], computed with the selected algorithm */
+    HILLSHADE,
+
+    /**
+     * Shaded relief value, in the range [1, 255], combining the lighting from 225, 270, 315 and
+     * 360 degrees of azimuth, weighted by the aspect
+     */
+    MULTIDIRECTIONAL_HILLSHADE,
+
+    /** Slope, in degrees */
+    SLOPE_DEGREES,
+
+    /** Slope, as a percentage of the rise over the run */
+    SLOPE_PERCENT,
+
+    /**
+     * Aspect, in degrees clockwise from north, in the range [0, 360). Flat areas have no aspect
+     * and are set to the destination NoData value
+     */
+    ASPECT
+}
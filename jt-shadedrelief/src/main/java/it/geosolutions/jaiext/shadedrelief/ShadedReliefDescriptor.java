@@ -32,6 +32,10 @@ import javax.media.jai.registry.RenderedRegistryMode;
 /**
  * An <code>OperationDescriptor</code> describing the "ShadedRelief" operation.
  *
+ * <p>By default the operation returns a single band with the shaded relief value. When the
+ * "bands" parameter is set, the destination has one floating point band for each requested
+ * {@link ShadedReliefBand} (e.g. hillshade, slope and aspect), all computed in a single pass.
+ *
  */
 public class ShadedReliefDescriptor extends OperationDescriptorImpl {
 
@@ -68,7 +72,8 @@ public class ShadedReliefDescriptor extends OperationDescriptorImpl {
         {"arg6Desc", "elevation unit to 2D unit scale ratio"},
         {"arg7Desc", "altitude"},
         {"arg8Desc", "azimuth"},
-        {"arg9Desc", "algorithm"}
+        {"arg9Desc", "algorithm"},
+        {"arg10Desc", "output bands"}
     };
 
     /**
@@ -84,7 +89,8 @@ public class ShadedReliefDescriptor extends OperationDescriptorImpl {
         "scale",
         "altitude",
         "azimuth",
-        "algorithm"
+        "algorithm",
+        "bands"
     };
 
     /**
@@ -100,7 +106,8 @@ public class ShadedReliefDescriptor extends OperationDescriptorImpl {
         Double.class,
         Double.class,
         Double.class,
-        ShadedReliefAlgorithm.class
+        ShadedReliefAlgorithm.class,
+        ShadedReliefBand[].class
     };
 
     /**
@@ -116,7 +123,8 @@ public class ShadedReliefDescriptor extends OperationDescriptorImpl {
         1d,
         DEFAULT_ALTITUDE,
         DEFAULT_AZIMUTH,
-        ShadedReliefAlgorithm.ZEVENBERGEN_THORNE_COMBINED
+        ShadedReliefAlgorithm.ZEVENBERGEN_THORNE_COMBINED,
+        null
     };
 
     /** Constructor. */
@@ -155,6 +163,42 @@ public class ShadedReliefDescriptor extends OperationDescriptorImpl {
             double azimuth,
             ShadedReliefAlgorithm algorithm,
             RenderingHints hints) {
+        return create(
+                source0,
+                roi,
+                srcNoData,
+                dstNoData,
+                resX,
+                resY,
+                zetaFactor,
+                scale,
+                altitude,
+                azimuth,
+                algorithm,
+                null,
+                hints);
+    }
+
+    /**
+     * Creates a "ShadedRelief" operation computing the requested terrain bands in a single pass.
+     *
+     * @param bands the output bands, in order, or null for the single shaded relief band
+     * @return
+     */
+    public static RenderedOp create(
+            RenderedImage source0,
+            ROI roi,
+            Range srcNoData,
+            double dstNoData,
+            double resX,
+            double resY,
+            double zetaFactor,
+            double scale,
+            double altitude,
+            double azimuth,
+            ShadedReliefAlgorithm algorithm,
+            ShadedReliefBand[] bands,
+            RenderingHints hints) {
         ParameterBlockJAI pb =
                 new ParameterBlockJAI("ShadedRelief", RenderedRegistryMode.MODE_NAME);
 
@@ -172,6 +216,7 @@ public class ShadedReliefDescriptor extends OperationDescriptorImpl {
         pb.setParameter("altitude", altitude);
         pb.setParameter("azimuth", azimuth);
         pb.setParameter("algorithm", algorithm);
+        pb.setParameter("bands", bands);
 
         return JAI.create("ShadedRelief", pb, hints);
     }
@@ -18,6 +18,7 @@
 package it.geosolutions.jaiext.shadedrelief;
 
 import com.sun.media.jai.util.ImageUtil;
+import com.sun.media.jai.util.JDKWorkarounds;
 import it.geosolutions.jaiext.range.Range;
 import it.geosolutions.jaiext.shadedrelief.ShadedReliefAlgorithm.DataProcessor;
 import it.geosolutions.jaiext.shadedrelief.ShadedReliefAlgorithm.DataProcessorByte;
@@ -30,9 +31,11 @@ import it.geosolutions.jaiext.shadedrelief.ShadedReliefAlgorithm.ShadedReliefPar
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
 import java.util.Arrays;
 import javax.media.jai.AreaOpImage;
@@ -44,6 +47,7 @@ import javax.media.jai.PlanarImage;
 import javax.media.jai.ROI;
 import javax.media.jai.ROIShape;
 import javax.media.jai.RasterAccessor;
+import javax.media.jai.RasterFactory;
 import javax.media.jai.RasterFormatTag;
 import javax.media.jai.iterator.RandomIter;
 import javax.media.jai.iterator.RandomIterFactory;
@@ -51,6 +55,9 @@ import javax.media.jai.operator.BorderDescriptor;
 
 /**
  * ShadedRelief op Image.
+ *
+ * When output bands are requested, the destination gets one floating point band for each of them,
+ * all computed from the same window of the source.
  */
 class ShadedReliefOpImage extends AreaOpImage {
 
@@ -105,6 +112,9 @@ class ShadedReliefOpImage extends AreaOpImage {
 
     private ShadedReliefAlgorithm.ShadedReliefParameters params;
 
+    /** Requested output bands, null when only the shaded relief value is computed */
+    protected final ShadedReliefBand[] bands;
+
     private static final int FIXED_PADDING = 1;
 
     public ShadedReliefOpImage(
@@ -120,10 +130,11 @@ class ShadedReliefOpImage extends AreaOpImage {
             double verticalScale,
             double altitude,
             double azimuth,
-            ShadedReliefAlgorithm algorithm) {
+            ShadedReliefAlgorithm algorithm,
+            ShadedReliefBand[] bands) {
         super(
                 source,
-                l,
+                layoutHelper(l, source, bands),
                 hints,
                 true,
                 EXTENDER,
@@ -135,6 +146,8 @@ class ShadedReliefOpImage extends AreaOpImage {
         maxX = minX + width - 1;
         maxY = minY + height - 1;
 
+        this.bands = bands;
+
         // Check if ROI control must be done
         if (roi != null) {
             hasROI = true;
@@ -218,6 +231,39 @@ class ShadedReliefOpImage extends AreaOpImage {
         }
     }
 
+    /**
+     * Sets up a floating point destination with a band for each requested output band.
+     */
+    private static ImageLayout layoutHelper(
+            ImageLayout layout, RenderedImage source, ShadedReliefBand[] bands) {
+        if (bands == null) {
+            return layout;
+        }
+        if (bands.length == 0) {
+            throw new IllegalArgumentException("At least one output band must be requested");
+        }
+        ImageLayout il = layout == null ? new ImageLayout() : (ImageLayout) layout.clone();
+
+        SampleModel sm = il.getSampleModel(source);
+        int dataType =
+                source.getSampleModel().getDataType() == DataBuffer.TYPE_DOUBLE
+                        ? DataBuffer.TYPE_DOUBLE
+                        : DataBuffer.TYPE_FLOAT;
+        if (sm.getDataType() != dataType || sm.getNumBands() != bands.length) {
+            sm =
+                    RasterFactory.createComponentSampleModel(
+                            sm, dataType, sm.getWidth(), sm.getHeight(), bands.length);
+            il.setSampleModel(sm);
+
+            // Clear the ColorModel mask if needed.
+            ColorModel cm = il.getColorModel(null);
+            if (cm != null && !JDKWorkarounds.areCompatibleDataModels(sm, cm)) {
+                il.unsetValid(ImageLayout.COLOR_MODEL_MASK);
+            }
+        }
+        return il;
+    }
+
     /**
      * Performs the computation on a specified rectangle.
      *
@@ -274,7 +320,12 @@ class ShadedReliefOpImage extends AreaOpImage {
             }
         }
 
-        if (!hasROI || !roiDisjointTile) {
+        if ((!hasROI || !roiDisjointTile) && bands != null) {
+            multiBandLoop(src, dst, roiIter, roiContainsTile);
+            if (dst.isDataCopy()) {
+                dst.copyDataToRaster();
+            }
+        } else if (!hasROI || !roiDisjointTile) {
             switch (dst.getDataType()) {
                 case DataBuffer.TYPE_BYTE:
                     byteLoop(src, dst, roiIter, roiContainsTile);
@@ -307,7 +358,7 @@ class ShadedReliefOpImage extends AreaOpImage {
             }
         } else {
             // Setting all as NoData
-            double[] backgroundValues = new double[src.getNumBands()];
+            double[] backgroundValues = new double[dest.getNumBands()];
             Arrays.fill(backgroundValues, dstNoData);
             ImageUtil.fillBackground(dest, destRect, backgroundValues);
         }
@@ -483,10 +534,12 @@ class ShadedReliefOpImage extends AreaOpImage {
         double destValue;
         DataProcessor data =
                 new DataProcessorByte(srcData, hasNoData, srcNoData, dstNoData, params);
+        data.initWindow(dwidth + 2, srcPixelStride, srcScanlineStride);
 
         if (caseA || (caseB && roiContainsTile)) {
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
                 for (int x = 0; x < dwidth; x++) {
                     int sX = x + dstX;
@@ -506,6 +559,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseB) { // ROI Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -555,6 +609,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseC || (hasROI && hasNoData && roiContainsTile)) { // NoData Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -577,6 +632,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else {
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -661,10 +717,12 @@ class ShadedReliefOpImage extends AreaOpImage {
         double destValue = Double.NaN;
         DataProcessor data =
                 new DataProcessorShort(srcData, hasNoData, srcNoData, dstNoData, params);
+        data.initWindow(dwidth + 2, srcPixelStride, srcScanlineStride);
 
         if (caseA || (caseB && roiContainsTile)) {
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -685,6 +743,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseB) { // ROI Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -733,6 +792,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseC || (hasROI && hasNoData && roiContainsTile)) { // NoData Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -756,6 +816,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else { // ROI and No Data Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -847,10 +908,12 @@ class ShadedReliefOpImage extends AreaOpImage {
         double destValue = Double.NaN;
         DataProcessor data =
                 new DataProcessorShort(srcData, hasNoData, srcNoData, dstNoData, params);
+        data.initWindow(dwidth + 2, srcPixelStride, srcScanlineStride);
 
         if (caseA || (caseB && roiContainsTile)) {
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
                 for (int i = 0; i < dwidth; i++) {
                     int sX = i + dstX;
@@ -869,6 +932,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseB) { // ROI Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -917,6 +981,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseC || (hasROI && hasNoData && roiContainsTile)) { // NoData Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -940,6 +1005,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else { // ROI and No Data Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -1030,10 +1096,12 @@ class ShadedReliefOpImage extends AreaOpImage {
         int dstPixelOffset;
         double destValue = Double.NaN;
         DataProcessor data = new DataProcessorInt(srcData, hasNoData, srcNoData, dstNoData, params);
+        data.initWindow(dwidth + 2, srcPixelStride, srcScanlineStride);
 
         if (caseA || (caseB && roiContainsTile)) {
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -1053,6 +1121,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseB) { // ROI Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -1101,6 +1170,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseC || (hasROI && hasNoData && roiContainsTile)) { // NoData Check
             for (int y= 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -1124,6 +1194,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else { // ROI and No Data Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -1215,10 +1286,12 @@ class ShadedReliefOpImage extends AreaOpImage {
         double destValue = Double.NaN;
         DataProcessor data =
                 new DataProcessorFloat(srcData, hasNoData, srcNoData, dstNoData, params);
+        data.initWindow(dwidth + 2, srcPixelStride, srcScanlineStride);
 
         if (caseA || (caseB && roiContainsTile)) {
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
                 for (int x = 0; x < dwidth; x++) {
                     int sX = x + dstX;
@@ -1237,6 +1310,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseB) { //ROI Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -1285,6 +1359,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseC || (hasROI && hasNoData && roiContainsTile)) { // NoData Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -1307,6 +1382,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else { // ROI and No Data Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -1397,10 +1473,12 @@ class ShadedReliefOpImage extends AreaOpImage {
         double destValue = Double.NaN;
         DataProcessor data =
                 new DataProcessorDouble(srcData, hasNoData, srcNoData, dstNoData, params);
+        data.initWindow(dwidth + 2, srcPixelStride, srcScanlineStride);
 
         if (caseA || (caseB && roiContainsTile)) {
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -1421,6 +1499,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseB) { // ROI Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -1469,6 +1548,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else if (caseC || (hasROI && hasNoData && roiContainsTile)) { // NoData Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 for (int x = 0; x < dwidth; x++) {
@@ -1492,6 +1572,7 @@ class ShadedReliefOpImage extends AreaOpImage {
         } else { // ROI and No Data Check
             for (int y = 0; y < dheight; y++) {
                 srcPixelOffset = srcScanlineOffset;
+                data.startRow(srcScanlineOffset);
                 dstPixelOffset = dstScanlineOffset;
 
                 y0 = srcY + y;
@@ -1542,6 +1623,138 @@ class ShadedReliefOpImage extends AreaOpImage {
         }
     }
 
+    /**
+     * Computes all the requested bands from a single pass over the source windows. The destination
+     * is either float or double.
+     */
+    protected void multiBandLoop(
+            RasterAccessor src, RasterAccessor dst, RandomIter roiIter, boolean roiContainsTile) {
+        int dwidth = dst.getWidth();
+        int dheight = dst.getHeight();
+        int numBands = bands.length;
+
+        boolean isDouble = dst.getDataType() == DataBuffer.TYPE_DOUBLE;
+        float dstDataFloat[][] = isDouble ? null : dst.getFloatDataArrays();
+        double dstDataDouble[][] = isDouble ? dst.getDoubleDataArrays() : null;
+        int dstBandOffsets[] = dst.getBandOffsets();
+        int dstPixelStride = dst.getPixelStride();
+        int dstScanlineStride = dst.getScanlineStride();
+
+        int srcBandOffsets[] = src.getBandOffsets();
+        int srcPixelStride = src.getPixelStride();
+        int srcScanlineStride = src.getScanlineStride();
+
+        // precalcaculate offsets
+        int centerScanlineOffset = srcScanlineStride;
+        int dstX = dst.getX();
+        int dstY = dst.getY();
+
+        // X,Y positions
+        int x0 = 0;
+        int y0 = 0;
+        int srcX = src.getX();
+        int srcY = src.getY();
+
+        double[] window = new double[9];
+        boolean[] roiMask = new boolean[9];
+
+        int srcScanlineOffset = srcBandOffsets[0];
+        int dstScanlineOffset = 0;
+        int srcPixelOffset;
+        int dstPixelOffset;
+        DataProcessor data =
+                isDouble
+                        ? new DataProcessorDouble(
+                                src.getDoubleDataArray(0), hasNoData, srcNoData, dstNoData, params)
+                        : new DataProcessorFloat(
+                                src.getFloatDataArray(0), hasNoData, srcNoData, dstNoData, params);
+        data.initWindow(dwidth + 2, srcPixelStride, srcScanlineStride);
+        data.setBands(bands);
+        double[] values = data.values;
+
+        // Same cases of the single band loops
+        boolean checkROI = hasROI && !roiContainsTile;
+
+        for (int y = 0; y < dheight; y++) {
+            srcPixelOffset = srcScanlineOffset;
+            data.startRow(srcScanlineOffset);
+            dstPixelOffset = dstScanlineOffset;
+
+            y0 = srcY + y;
+
+            for (int x = 0; x < dwidth; x++) {
+                x0 = srcX + x;
+
+                boolean inROI = true;
+                if (checkROI) {
+                    inROI = false;
+                    // ROI Check
+                    for (int dy = 0; dy < 3; dy++) {
+                        int yI = y0 + dy;
+                        for (int dx = 0; dx < 3; dx++) {
+                            int xI = x0 + dx;
+                            if (roiBounds.contains(xI, yI) && roiIter.getSample(xI, yI, 0) > 0) {
+                                inROI = true;
+                                roiMask[dx + (3 * dy)] = true;
+                            } else {
+                                roiMask[dx + (3 * dy)] = false;
+                            }
+                        }
+                    }
+                }
+
+                double result = Double.NaN;
+                if (inROI) {
+                    int sX = x + dstX;
+                    int sY = y + dstY;
+                    ProcessingCase currentCase = getCase(sX, sY);
+                    if (checkROI) {
+                        result =
+                                hasNoData
+                                        ? data.processWindowRoiNoData(
+                                                window,
+                                                x,
+                                                srcPixelOffset,
+                                                centerScanlineOffset,
+                                                currentCase,
+                                                roiMask)
+                                        : data.processWindowRoi(
+                                                window,
+                                                x,
+                                                srcPixelOffset,
+                                                centerScanlineOffset,
+                                                currentCase,
+                                                roiMask);
+                    } else if (hasNoData) {
+                        result =
+                                data.processWindowNoData(
+                                        window, x, srcPixelOffset, centerScanlineOffset, currentCase);
+                    } else {
+                        result =
+                                data.processWindow(
+                                        window, x, srcPixelOffset, centerScanlineOffset, currentCase);
+                    }
+                }
+
+                for (int b = 0; b < numBands; b++) {
+                    // NaN means outside ROI, noData, or undefined value (e.g. aspect of flat areas)
+                    double value =
+                            Double.isNaN(result) || Double.isNaN(values[b]) ? dstNoData : values[b];
+                    if (isDouble) {
+                        dstDataDouble[b][dstPixelOffset + dstBandOffsets[b]] = value;
+                    } else {
+                        dstDataFloat[b][dstPixelOffset + dstBandOffsets[b]] = (float) value;
+                    }
+                }
+
+                srcPixelOffset += srcPixelStride;
+                dstPixelOffset += dstPixelStride;
+            }
+            srcScanlineOffset += srcScanlineStride;
+            dstScanlineOffset += dstScanlineStride;
+        }
+    }
+
     private ProcessingCase getCase(int x, int y) {
         if (y == minY) {
             if (x == minX) {
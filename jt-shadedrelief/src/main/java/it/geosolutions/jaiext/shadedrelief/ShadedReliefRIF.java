@@ -54,6 +54,10 @@ public class ShadedReliefRIF implements RenderedImageFactory {
         double azimuth = pb.getDoubleParameter(paramIndex++);
         ShadedReliefAlgorithm algorithm =
                 (ShadedReliefAlgorithm) pb.getObjectParameter(paramIndex++);
+        ShadedReliefBand[] bands =
+                pb.getNumParameters() > paramIndex
+                        ? (ShadedReliefBand[]) pb.getObjectParameter(paramIndex++)
+                        : null;
 
         return new ShadedReliefOpImage(
                 img,
@@ -68,6 +72,7 @@ public class ShadedReliefRIF implements RenderedImageFactory {
                 verticalScale,
                 altitude,
                 azimuth,
-                algorithm);
+                algorithm,
+                bands);
     }
 }
@@ -18,12 +18,14 @@
 package it.geosolutions.jaiext.shadedrelief;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import it.geosolutions.jaiext.range.Range;
 import it.geosolutions.jaiext.range.RangeFactory;
 import it.geosolutions.jaiext.testclasses.TestBase;
 
 import java.awt.Rectangle;
 import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.util.logging.Logger;
@@ -57,6 +59,7 @@ public class ShadedReliefTest extends TestBase {
     private static final double DEFAULT_SCALE = 1;
     private static final double DEFAULT_ALTITUDE = 64;
     private static final double DEFAULT_AZIMUTH = 160;
+    private static final double DELTA = 1E-6;
 
     /** Input data used for testing */
     private static RenderedImage[] testImages;
@@ -248,6 +251,58 @@ public class ShadedReliefTest extends TestBase {
         }
     }
 
+    @Test
+    public void testMultiBand() {
+        double resx = 1;
+        double resy = 1;
+        ShadedReliefAlgorithm algorithm = ShadedReliefAlgorithm.DEFAULT;
+        ShadedReliefBand[] bands = new ShadedReliefBand[] {
+            ShadedReliefBand.HILLSHADE,
+            ShadedReliefBand.SLOPE_DEGREES,
+            ShadedReliefBand.SLOPE_PERCENT,
+            ShadedReliefBand.ASPECT,
+            ShadedReliefBand.MULTIDIRECTIONAL_HILLSHADE
+        };
+
+        for (Integer i : typesToTest) {
+            RenderedOp shaded = ShadedReliefDescriptor.create(testImages[i], roiObject, null, dstNoData, resx, resy,
+                    DEFAULT_Z, DEFAULT_SCALE, DEFAULT_ALTITUDE, DEFAULT_AZIMUTH, algorithm, null);
+            RenderedOp terrain = ShadedReliefDescriptor.create(testImages[i], roiObject, null, dstNoData, resx, resy,
+                    DEFAULT_Z, DEFAULT_SCALE, DEFAULT_ALTITUDE, DEFAULT_AZIMUTH, algorithm, bands, null);
+
+            assertEquals(bands.length, terrain.getNumBands());
+            int expectedType = i == DataBuffer.TYPE_DOUBLE ? DataBuffer.TYPE_DOUBLE : DataBuffer.TYPE_FLOAT;
+            assertEquals(expectedType, terrain.getSampleModel().getDataType());
+
+            Raster single = shaded.getData();
+            Raster multi = terrain.getData();
+            for (int y = multi.getMinY(); y < multi.getMinY() + multi.getHeight(); y++) {
+                for (int x = multi.getMinX(); x < multi.getMinX() + multi.getWidth(); x++) {
+                    double hillshade = multi.getSampleDouble(x, y, 0);
+                    if (!roiObject.contains(x, y) && hillshade == dstNoData) {
+                        // outside ROI every band is NoData
+                        for (int b = 1; b < bands.length; b++) {
+                            assertEquals(dstNoData, multi.getSampleDouble(x, y, b), DELTA);
+                        }
+                        continue;
+                    }
+                    // Same value of the single band operation, up to its data type rounding
+                    assertEquals(single.getSampleDouble(x, y, 0), hillshade,
+                            i < DataBuffer.TYPE_FLOAT ? 0.5 : DELTA);
+                    double slope = multi.getSampleDouble(x, y, 1);
+                    assertTrue(slope >= 0 && slope < 90);
+                    assertEquals(100 * Math.tan(Math.toRadians(slope)), multi.getSampleDouble(x, y, 2), 1E-2);
+                    double aspect = multi.getSampleDouble(x, y, 3);
+                    assertTrue(aspect == dstNoData || (aspect >= 0 && aspect < 360));
+                    double multidirectional = multi.getSampleDouble(x, y, 4);
+                    assertTrue(multidirectional >= 1 && multidirectional <= 255);
+                }
+            }
+            shaded.dispose();
+            terrain.dispose();
+        }
+    }
+
     private void check(int type, RenderedImage src, RenderedOp shaded, boolean roiUsed,
            ROI roi, boolean nodataUsed, Range noData) {
 
@@ -21,6 +21,8 @@ import java.awt.Rectangle;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.media.jai.ROI;
 import javax.media.jai.RasterAccessor;
@@ -40,10 +42,24 @@ import it.geosolutions.jaiext.stats.Statistics.StatsType;
  * container. For avoiding to compromise the thread-safety of the class, every statistics object should handle concurrent threads. At the end of the
  * calculation the statistics container is passed to the getProperty() method as a Result. For avoiding unnecessary operations the statistics can be
  * calculated only the first time; but if the user needs to re-calculate the statistics, they can be cleared with the clearStatistic() method and then
- * returned by calling again the getProperty() method.
+ * returned by calling again the getProperty() method. For byte, ushort and short data the statistics are calculated by counting the samples of every
+ * value: each tile is counted on a private container, taken from a pool shared by the computing threads, which is then merged into the global one.
  */
 public class ComplexStatsOpImage extends StatisticsOpImage {
 
+    /** Boolean indicating if the statistics are calculated by counting the integral values */
+    private final boolean integral;
+
+    /** Bounds and number of bins used for every band */
+    private final double[] lowValue;
+
+    private final double[] highValue;
+
+    private final int[] numB;
+
+    /** Pool of the per-tile statistics containers used for integral data */
+    private final Queue<Statistics[][]> tileStats = new ConcurrentLinkedQueue<Statistics[][]>();
+
     public ComplexStatsOpImage(RenderedImage source,
             int xPeriod, int yPeriod, ROI roi, Range noData, boolean useROIAccessor, int[] bands,
             StatsType[] statsTypes, double[] minBound, double[] maxBound, int[] numBins) {
@@ -70,9 +86,9 @@ public class ComplexStatsOpImage extends StatisticsOpImage {
         // Storage of the band indexes and length
         this.bands = bands;
         
-        int[] numB = new int[bandsNumber];
-        double[] lowValue = new double[bandsNumber];
-        double[] highValue = new double[bandsNumber];
+        numB = new int[bandsNumber];
+        lowValue = new double[bandsNumber];
+        highValue = new double[bandsNumber];
         
         for (int b = 0; b < bandsNumber; b++) {
             numB[b] = numBins.length == 1 ? numBins[0] : numBins[b];
@@ -80,15 +96,23 @@ public class ComplexStatsOpImage extends StatisticsOpImage {
             highValue[b] = maxBound.length == 1 ? maxBound[0] : maxBound[b];
         }
 
+        this.integral = IntegralHistogram.isIntegral(source.getSampleModel().getDataType());
+
         // Creation of a global container of all the selected statistics for every band
-        this.stats = new Statistics[selectedBands][statNum];
-        // Filling of the container
+        this.stats = createStatistics();
+    }
+
+    /** Creates a container of all the selected statistics for every band */
+    private Statistics[][] createStatistics() {
+        int dataType = getSourceImage(0).getSampleModel().getDataType();
+        Statistics[][] statArray = new Statistics[selectedBands][statNum];
         for (int i = 0; i < selectedBands; i++) {
             for (int j = 0; j < statNum; j++) {
-                stats[i][j] = StatsFactory.createComplexStatisticsObjectFromInt(
-                        statsTypes[j].getStatsId(), lowValue[i], highValue[i], numB[i]);
+                statArray[i][j] = StatsFactory.createComplexStatisticsObjectFromInt(
+                        statsTypes[j].getStatsId(), lowValue[i], highValue[i], numB[i], dataType);
             }
         }
+        return statArray;
     }
 
     /**
@@ -137,16 +161,25 @@ public class ComplexStatsOpImage extends StatisticsOpImage {
             roiIter = RandomIterFactory.create(srcROIImage, srcROIImage.getBounds(), true, true);
         }
 
+        // Integral data are counted on a private container
+        Statistics[][] statArray = stats;
+        if (integral) {
+            statArray = tileStats.poll();
+            if (statArray == null) {
+                statArray = createStatistics();
+            }
+        }
+
         // Computation of the statistics
         switch (src.getDataType()) {
         case DataBuffer.TYPE_BYTE:
-            byteLoop(src, srcRect, roi, stats, roiIter);
+            byteLoop(src, srcRect, roi, statArray, roiIter);
             break;
         case DataBuffer.TYPE_USHORT:
-            ushortLoop(src, srcRect, roi, stats, roiIter);
+            ushortLoop(src, srcRect, roi, statArray, roiIter);
             break;
         case DataBuffer.TYPE_SHORT:
-            shortLoop(src, srcRect, roi, stats, roiIter);
+            shortLoop(src, srcRect, roi, statArray, roiIter);
             break;
         case DataBuffer.TYPE_INT:
             intLoop(src, srcRect, roi, stats, roiIter);
@@ -159,6 +192,41 @@ public class ComplexStatsOpImage extends StatisticsOpImage {
             break;
         }
 
+        if (integral) {
+            // Cumulative addition (SYNCHRONIZED)
+            synchronized (this) {
+                for (int i = 0; i < selectedBands; i++) {
+                    for (int j = 0; j < statNum; j++) {
+                        stats[i][j].accumulateStats(statArray[i][j]);
+                    }
+                }
+            }
+            // The container is cleared and given back to the pool
+            for (int i = 0; i < selectedBands; i++) {
+                for (int j = 0; j < statNum; j++) {
+                    statArray[i][j].clearStats();
+                }
+            }
+            tileStats.offer(statArray);
+        }
+
         return source;
     }
+
+    /**
+     * Only the statistics of integral data are calculated on per-tile containers, while the other ones are updated directly, so in that case the
+     * tiles are computed serially.
+     */
+    @Override
+    protected boolean isParallelSafe() {
+        return integral;
+    }
+
+    /**
+     * When the dispose method is called, also the pool of the per-tile statistics containers is cleared.
+     */
+    public void dispose() {
+        tileStats.clear();
+        super.dispose();
+    }
 }
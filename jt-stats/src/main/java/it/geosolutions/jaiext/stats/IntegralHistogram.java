@@ -0,0 +1,224 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.stats;
+
+import java.awt.image.DataBuffer;
+import java.util.Arrays;
+
+/**
+ * This subclass of {@link Statistics} is used for calculating the Histogram, the Mode or the Median of an image with byte, ushort or short data.
+ * The value domain of these data types is at most 65536 values wide, so every sample is simply counted into an array with one entry for each value
+ * inside the accepted interval. The memory used does not depend on the image size and the results are derived exactly from the counts: the histogram
+ * and the mode are calculated with the same bins of {@link HistogramMode}, while the median selects the same sorted values of {@link Median}.
+ * Differently from the other complex statistics, these objects can be accumulated, so that every tile can be counted on a private object and then
+ * merged into the global one.
+ */
+public class IntegralHistogram extends Statistics {
+
+    /** Number of bins of the Histogram and Mode statistics */
+    private final int numBins;
+
+    /** Minimum bound of the bins array */
+    private final double minBound;
+
+    /** Size of one bin */
+    private final double binInterval;
+
+    /** Lowest value counted */
+    private final int lowValue;
+
+    /** Array containing the number of samples for every value from lowValue */
+    private final long[] counts;
+
+    /** Lowest and highest indexes of the counts array updated since the last clear, used for limiting the merge and clear operations */
+    private int minIndex, maxIndex;
+
+    IntegralHistogram(StatsType type, int dataType, int numBins, double minBound,
+            double maxBound) {
+        if (type != StatsType.HISTOGRAM && type != StatsType.MODE && type != StatsType.MEDIAN) {
+            throw new IllegalArgumentException("Wrong StatsType object selected");
+        }
+        this.type = type;
+        this.numBins = numBins;
+        // If the array bounds are infinite, the half of minimum and maximum values are taken as in HistogramMode
+        if (minBound == Double.NEGATIVE_INFINITY) {
+            minBound = -Double.MAX_VALUE / 2;
+        }
+        if (maxBound == Double.POSITIVE_INFINITY) {
+            maxBound = Double.MAX_VALUE / 2;
+        }
+        this.minBound = minBound;
+        this.binInterval = (maxBound - minBound) / numBins;
+
+        // Intersection of the data type domain with the interval [minBound, maxBound)
+        double typeMin;
+        double typeMax;
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            typeMin = 0;
+            typeMax = 255;
+            break;
+        case DataBuffer.TYPE_USHORT:
+            typeMin = 0;
+            typeMax = 65535;
+            break;
+        case DataBuffer.TYPE_SHORT:
+            typeMin = Short.MIN_VALUE;
+            typeMax = Short.MAX_VALUE;
+            break;
+        default:
+            throw new IllegalArgumentException("Only byte, ushort and short data are supported");
+        }
+        double low = Math.max(typeMin, Math.ceil(minBound));
+        double high = Math.min(typeMax, Math.ceil(maxBound) - 1);
+        this.lowValue = (int) low;
+        this.counts = new long[high >= low ? (int) (high - low) + 1 : 0];
+        resetIndexes();
+    }
+
+    /** Returns true if the input data type can be handled by this class */
+    static boolean isIntegral(int dataType) {
+        return dataType == DataBuffer.TYPE_BYTE || dataType == DataBuffer.TYPE_USHORT
+                || dataType == DataBuffer.TYPE_SHORT;
+    }
+
+    @Override
+    public void addSample(double sample) {
+        samples++;
+        int index = (int) sample - lowValue;
+        if (index >= 0 && index < counts.length) {
+            counts[index]++;
+            if (index < minIndex) {
+                minIndex = index;
+            }
+            if (index > maxIndex) {
+                maxIndex = index;
+            }
+        }
+    }
+
+    @Override
+    protected void accumulateStats(Statistics stats) {
+        checkSameStats(stats);
+        IntegralHistogram other = (IntegralHistogram) stats;
+        if (other.lowValue != lowValue || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("These statistics have different bounds");
+        }
+        samples += other.samples;
+        for (int i = other.minIndex; i <= other.maxIndex; i++) {
+            counts[i] += other.counts[i];
+        }
+        if (other.minIndex < minIndex) {
+            minIndex = other.minIndex;
+        }
+        if (other.maxIndex > maxIndex) {
+            maxIndex = other.maxIndex;
+        }
+    }
+
+    @Override
+    public Object getResult() {
+        switch (type) {
+        case HISTOGRAM:
+            return getHistogram();
+        case MODE:
+            // The most populated bin is returned
+            double[] bins = getHistogram();
+            double max = 0;
+            int indexMax = 0;
+            for (int i = 0; i < numBins; i++) {
+                if (bins[i] > max) {
+                    max = bins[i];
+                    indexMax = i;
+                }
+            }
+            if (max == 0) {
+                return indexMax * 1.0d;
+            } else {
+                return indexMax + minBound;
+            }
+        default:
+            return getMedian();
+        }
+    }
+
+    /** Groups the value counts into the histogram bins */
+    private double[] getHistogram() {
+        double[] bins = new double[numBins];
+        for (int i = minIndex; i <= maxIndex; i++) {
+            if (counts[i] > 0) {
+                int index = (int) ((i + lowValue - minBound) / binInterval);
+                bins[Math.min(index, numBins - 1)] += counts[i];
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * Returns the value at the position halfSize of the sorted samples, or the mean between the values at positions halfSize and halfSize + 1 if
+     * the number of samples is even, as done by {@link Median}.
+     */
+    private double getMedian() {
+        long size = 0;
+        for (int i = minIndex; i <= maxIndex; i++) {
+            size += counts[i];
+        }
+        if (size == 0) {
+            return Double.NaN;
+        }
+        long halfSize = size / 2;
+        double halfValue = getSortedValue(halfSize);
+        if (size % 2 == 1) {
+            return halfValue;
+        } else {
+            return (halfValue + getSortedValue(Math.min(halfSize + 1, size - 1))) / 2;
+        }
+    }
+
+    /** Returns the value at the input position of the sorted samples */
+    private double getSortedValue(long position) {
+        long cumulative = 0;
+        for (int i = minIndex; i <= maxIndex; i++) {
+            cumulative += counts[i];
+            if (cumulative > position) {
+                return i + lowValue;
+            }
+        }
+        return maxIndex + lowValue;
+    }
+
+    @Override
+    public Long getNumSamples() {
+        return Long.valueOf(samples);
+    }
+
+    @Override
+    protected void clearStats() {
+        if (minIndex <= maxIndex) {
+            Arrays.fill(counts, minIndex, maxIndex + 1, 0);
+        }
+        samples = 0;
+        resetIndexes();
+    }
+
+    /** Marks the counts array as not updated */
+    private void resetIndexes() {
+        minIndex = counts.length;
+        maxIndex = -1;
+    }
+}
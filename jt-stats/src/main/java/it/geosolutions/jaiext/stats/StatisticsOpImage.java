@@ -20,6 +20,7 @@ package it.geosolutions.jaiext.stats;
 import it.geosolutions.jaiext.iterators.RandomIterFactory;
 import it.geosolutions.jaiext.range.Range;
 import it.geosolutions.jaiext.stats.Statistics.StatsType;
+import it.geosolutions.jaiext.utilities.TileTraversal;
 
 import java.awt.Point;
 import java.awt.Rectangle;
@@ -117,6 +118,12 @@ public abstract class StatisticsOpImage extends OpImage {
     /** Extended ROI image*/
     protected RenderedOp srcROIImgExt;
 
+    /** ROI object used for skipping the tiles outside of it */
+    protected final ROI srcROI;
+
+    /** Number of tiles claimed at once by every worker when the statistics are calculated in parallel */
+    protected int tilesPerWorker = TileTraversal.DEFAULT_TILES_PER_WORKER;
+
     public StatisticsOpImage(RenderedImage source,
             int xPeriod, int yPeriod, ROI roi, Range noData, boolean useROIAccessor, int[] bands,
             StatsType[] statsTypes, double[] minBound, double[] maxBound, int[] numBins) {
@@ -167,7 +174,7 @@ public abstract class StatisticsOpImage extends OpImage {
         if (roi != null) {
             hasROI = true;
             // Roi object
-            ROI srcROI = roi;
+            srcROI = roi;
             // Creation of a PlanarImage containing the ROI data
             srcROIImage = srcROI.getAsImage();
             // Source Bounds
@@ -197,6 +204,7 @@ public abstract class StatisticsOpImage extends OpImage {
             this.useROIAccessor = useROIAccessor;
         } else {
             hasROI = false;
+            srcROI = null;
             this.useROIAccessor = false;
             roiBounds = null;
             srcROIImage = null;
@@ -324,20 +332,53 @@ public abstract class StatisticsOpImage extends OpImage {
             // get the tile indices
             Point[] tileIndices;
             if (hasROI) {
-                tileIndices = getTileIndices(roiBounds);
+                tileIndices = getROITileIndices();
             } else {
                 tileIndices = getTileIndices(getBounds());
             }
-            // one by one, not all together, or we'll load the entire raster in memory
-            for (Point tileIndex : tileIndices) {
-                this.getTile(tileIndex.x, tileIndex.y);
-            }
+            // the tiles are computed in parallel, each worker taking a few of them at a time,
+            // so that the entire raster is never loaded in memory
+            TileTraversal.computeTiles(this, tileIndices, isParallelSafe() ? tilesPerWorker : 0);
             return stats.clone();
         } else {
             return super.getProperty(name);
         }
     }
 
+    /** Returns the indices of the tiles intersecting the ROI, not only its bounds */
+    private Point[] getROITileIndices() {
+        Point[] tileIndices = getTileIndices(roiBounds);
+        if (tileIndices == null) {
+            return null;
+        }
+        List<Point> intersecting = new ArrayList<Point>(tileIndices.length);
+        for (Point tileIndex : tileIndices) {
+            Rectangle tileRect = getTileRect(tileIndex.x, tileIndex.y);
+            if (srcROI.intersects(tileRect)) {
+                intersecting.add(tileIndex);
+            }
+        }
+        return intersecting.toArray(new Point[intersecting.size()]);
+    }
+
+    /**
+     * Indicates if the tiles can be computed concurrently by the getProperty() method. The subclasses must return false if their statistics
+     * containers cannot be updated safely by multiple threads.
+     */
+    protected boolean isParallelSafe() {
+        return true;
+    }
+
+    /**
+     * Sets the number of tiles claimed at once by every worker when the statistics are calculated in parallel. A value lower than 1 disables the
+     * parallel calculation.
+     * 
+     * @param tilesPerWorker number of tiles per worker
+     */
+    public void setTilesPerWorker(int tilesPerWorker) {
+        this.tilesPerWorker = tilesPerWorker;
+    }
+
     protected void byteLoop(RasterAccessor src, Rectangle srcRect, RasterAccessor roi,
             Statistics[][] statArray, RandomIter roiIter) {
 
@@ -30,6 +30,7 @@ import com.sun.media.jai.opimage.RIFUtil;
 import it.geosolutions.jaiext.range.Range;
 import it.geosolutions.jaiext.range.RangeFactory;
 import it.geosolutions.jaiext.stats.Statistics.StatsType;
+import it.geosolutions.jaiext.utilities.TileTraversal;
 
 /**
  * Simple class that provides the RenderedImage create operation by calling a subclass of the {@link StatisticsOpImage}. The input parameters are:
@@ -65,17 +66,21 @@ public class StatisticsRIF implements RenderedImageFactory {
         }
 
         // Creation of the OpImage
+        StatisticsOpImage image;
         if (isSimpleStat) {
-            return new SimpleStatsOpImage(source, xPeriod, yPeriod, roi, noData,
+            image = new SimpleStatsOpImage(source, xPeriod, yPeriod, roi, noData,
                     useROIAccessor, bands, statsTypes);
         } else {
             // Selection of the bounds parameters
             double[] minBounds = (double[]) pb.getObjectParameter(7);
             double[] maxBounds = (double[]) pb.getObjectParameter(8);
             int[] numBins = (int[]) pb.getObjectParameter(9);
-            return new ComplexStatsOpImage(source, xPeriod, yPeriod, roi, noData,
+            image = new ComplexStatsOpImage(source, xPeriod, yPeriod, roi, noData,
                     useROIAccessor, bands, statsTypes, minBounds, maxBounds, numBins);
         }
+        // Selection of the parallel traversal settings
+        image.setTilesPerWorker(TileTraversal.getTilesPerWorker(hints));
+        return image;
     }
 
 }
@@ -122,4 +122,24 @@ public class StatsFactory {
             throw new IllegalArgumentException("Wrong StatsType object selected");
         }
     }
+
+    /**
+     * This method returns the complex statistic object associated to the Id returned, optimized for the input data type. For byte, ushort and
+     * short data the samples are counted for each value, which gives exact results without storing the samples.
+     */
+    public static Statistics createComplexStatisticsObjectFromInt(int value, double minBound,
+            double maxBound, int numBins, int dataType) {
+        if (IntegralHistogram.isIntegral(dataType)) {
+            StatsType type = StatsType.values()[value];
+            switch (type) {
+            case HISTOGRAM:
+            case MODE:
+            case MEDIAN:
+                return new IntegralHistogram(type, dataType, numBins, minBound, maxBound);
+            default:
+                throw new IllegalArgumentException("Wrong StatsType object selected");
+            }
+        }
+        return createComplexStatisticsObjectFromInt(value, minBound, maxBound, numBins);
+    }
 }
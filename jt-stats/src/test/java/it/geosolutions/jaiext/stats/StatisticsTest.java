@@ -19,9 +19,11 @@ package it.geosolutions.jaiext.stats;
 
 import static org.junit.Assert.*;
 
+import java.awt.image.DataBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import it.geosolutions.jaiext.range.Range;
 import it.geosolutions.jaiext.range.RangeFactory;
@@ -257,6 +259,49 @@ public class StatisticsTest {
         assertEquals(median, median2, TOLERANCE);
     }
 
+    // This test is used for checking if the histogram, mode and median objects for integral
+    // data return the same results of the generic ones, also when they are accumulated
+    @Test
+    public void testIntegralHistModeMedian() {
+        double lowBound = -100;
+        double highBound = 250;
+        int bins = 7;
+        Random random = new Random(42);
+
+        for (int id = 7; id <= 9; id++) {
+            Statistics generic = StatsFactory.createComplexStatisticsObjectFromInt(id, lowBound,
+                    highBound, bins);
+            Statistics integral1 = StatsFactory.createComplexStatisticsObjectFromInt(id, lowBound,
+                    highBound, bins, DataBuffer.TYPE_SHORT);
+            Statistics integral2 = StatsFactory.createComplexStatisticsObjectFromInt(id, lowBound,
+                    highBound, bins, DataBuffer.TYPE_SHORT);
+            assertTrue(integral1 instanceof IntegralHistogram);
+
+            for (int i = 0; i < ARRAY_DIMENSIONS * 10; i++) {
+                double sample = random.nextInt(500) - 200;
+                generic.addSample(sample);
+                if (i % 2 == 0) {
+                    integral1.addSample(sample);
+                } else {
+                    integral2.addSample(sample);
+                }
+            }
+            integral1.accumulateStats(integral2);
+
+            assertEquals(generic.getNumSamples(), integral1.getNumSamples());
+            if (id == 7) {
+                assertArrayEquals((double[]) generic.getResult(),
+                        (double[]) integral1.getResult(), 0);
+            } else {
+                assertEquals((Double) generic.getResult(), (Double) integral1.getResult(), 0);
+            }
+
+            // Clearing the integral statistics
+            integral1.clearStats();
+            assertEquals(0, integral1.getNumSamples().longValue());
+        }
+    }
+
     // This test is used for checking if the cumulation of the statistics continue to mantain
     // correct results
     @Test
@@ -18,6 +18,7 @@
 package it.geosolutions.jaiext.threshold;
 
 import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.utilities.ROITileMask;
 
 import java.awt.Rectangle;
 import java.awt.image.ColorModel;
@@ -33,7 +34,6 @@ import javax.media.jai.ImageLayout;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.PointOpImage;
 import javax.media.jai.ROI;
-import javax.media.jai.ROIShape;
 import javax.media.jai.RasterAccessor;
 import javax.media.jai.RasterFormatTag;
 
@@ -58,9 +58,6 @@ public class ThresholdOpImage extends PointOpImage {
     /** Boolean indicating if ROI is present */
     private final boolean hasROI;
 
-    /** ROI bounds as a Shape */
-    private Rectangle roiBounds;
-
     /** Boolean indicating if No Data are present */
     private final boolean hasNoData;
 
@@ -147,11 +144,9 @@ public class ThresholdOpImage extends PointOpImage {
             hasROI = true;
             // ROI object
             this.roi = roi;
-            roiBounds = roi.getBounds();
         } else {
             hasROI = false;
             this.roi = null;
-            roiBounds = null;
         }
 
         // Check if No Data control must be done
@@ -183,7 +178,7 @@ public class ThresholdOpImage extends PointOpImage {
         int destType = dest.getTransferType();
 
         // ROI fields
-        ROI roiTile = null;
+        ROITileMask roiMask = null;
 
         boolean roiContainsTile = false; // roi contains sources
         boolean roiDisjointTile = false; // source no intersects the roi
@@ -194,18 +189,10 @@ public class ThresholdOpImage extends PointOpImage {
             // The tile dimension is extended for avoiding border errors
             srcRectExpanded.setRect(srcRectExpanded.getMinX() - 1, srcRectExpanded.getMinY() - 1,
                     srcRectExpanded.getWidth() + 2, srcRectExpanded.getHeight() + 2);
-            roiTile = roi.intersect(new ROIShape(srcRectExpanded));
+            roiMask = ROITileMask.getMask(roi, srcRectExpanded);
             // Check if the Tile bounds intersects the roi otherwise the computation is skipped
-            if (!roiBounds.intersects(srcRectExpanded)) {
-                roiDisjointTile = true;
-            } else {
-                roiContainsTile = roiTile.contains(srcRectExpanded);
-                if (!roiContainsTile) {
-                    if (!roiTile.intersects(srcRectExpanded)) {
-                        roiDisjointTile = true;
-                    }
-                }
-            }
+            roiDisjointTile = roiMask.isEmpty();
+            roiContainsTile = roiMask.isFull();
         }
 
         if (!hasROI || !roiDisjointTile) {
@@ -218,22 +205,22 @@ public class ThresholdOpImage extends PointOpImage {
 
             switch (dst.getDataType()) {
             case DataBuffer.TYPE_BYTE:
-                byteLoop(src, dst, roiTile, roiContainsTile);
+                byteLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_USHORT:
-                ushortLoop(src, dst, roiTile, roiContainsTile);
+                ushortLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_SHORT:
-                shortLoop(src, dst, roiTile, roiContainsTile);
+                shortLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_INT:
-                intLoop(src, dst, roiTile, roiContainsTile);
+                intLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_FLOAT:
-                floatLoop(src, dst, roiTile, roiContainsTile);
+                floatLoop(src, dst, roiMask, roiContainsTile);
                 break;
             case DataBuffer.TYPE_DOUBLE:
-                doubleLoop(src, dst, roiTile, roiContainsTile);
+                doubleLoop(src, dst, roiMask, roiContainsTile);
                 break;
             default:
                 throw new RuntimeException("Wrong image data type");
@@ -267,7 +254,7 @@ public class ThresholdOpImage extends PointOpImage {
         }
     }
 
-    private void byteLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void byteLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
 
         int srcLineStride = src.getScanlineStride();
@@ -334,7 +321,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataByte;
                         }
@@ -411,7 +398,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataByte;
                         }
@@ -450,7 +437,7 @@ public class ThresholdOpImage extends PointOpImage {
         }
     }
 
-    private void ushortLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void ushortLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
 
         int srcLineStride = src.getScanlineStride();
@@ -518,7 +505,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataShort;
                         }
@@ -597,7 +584,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataShort;
                         }
@@ -637,7 +624,7 @@ public class ThresholdOpImage extends PointOpImage {
         }
     }
 
-    private void shortLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void shortLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
 
         int srcLineStride = src.getScanlineStride();
@@ -704,7 +691,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataShort;
                         }
@@ -781,7 +768,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataShort;
                         }
@@ -820,7 +807,7 @@ public class ThresholdOpImage extends PointOpImage {
         }
     }
 
-    private void intLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void intLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
 
         int srcLineStride = src.getScanlineStride();
@@ -887,7 +874,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataInt;
                         }
@@ -964,7 +951,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataInt;
                         }
@@ -1003,7 +990,7 @@ public class ThresholdOpImage extends PointOpImage {
         }
     }
 
-    private void floatLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void floatLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
 
         int srcLineStride = src.getScanlineStride();
@@ -1070,7 +1057,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataFloat;
                         }
@@ -1147,7 +1134,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataFloat;
                         }
@@ -1186,7 +1173,7 @@ public class ThresholdOpImage extends PointOpImage {
         }
     }
 
-    private void doubleLoop(RasterAccessor src, RasterAccessor dst, ROI roiTile,
+    private void doubleLoop(RasterAccessor src, RasterAccessor dst, ROITileMask roiMask,
             boolean roiContainsTile) {
 
         int srcLineStride = src.getScanlineStride();
@@ -1253,7 +1240,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataDouble;
                         }
@@ -1330,7 +1317,7 @@ public class ThresholdOpImage extends PointOpImage {
                     x0 = srcX + w;
                     y0 = srcY + h;
 
-                    if (!(roiBounds.contains(x0, y0))) {
+                    if (!(roiMask.contains(x0, y0))) {
                         for (int b = 0; b < dstBands; b++) {
                             dstData[b][dstPixelOffset + dstBandOffsets[b]] = destNoDataDouble;
                         }
@@ -20,22 +20,32 @@ package it.geosolutions.jaiext;
 import it.geosolutions.jaiext.interpolators.InterpolationBicubic;
 import it.geosolutions.jaiext.interpolators.InterpolationBilinear;
 import it.geosolutions.jaiext.interpolators.InterpolationNearest;
+import it.geosolutions.jaiext.metrics.InstrumentedRenderedImageFactory;
+import it.geosolutions.jaiext.metrics.TileMetrics;
 
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
 import java.awt.image.renderable.ParameterBlock;
+import java.awt.image.renderable.RenderedImageFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -165,6 +175,13 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
     /** Map of the JAI-EXT operations */
     private Map<String, OperationItem> jaiExtMap;
 
+    /**
+     * Immutable view of the rendered factory lists, used for serving the factory lookups without
+     * locking. It is replaced with an empty one by every method acquiring the write lock.
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(
+            Snapshot.EMPTY);
+
     public ConcurrentOperationRegistry() {
         super();
 
@@ -172,6 +189,61 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         lock = new ReentrantReadWriteLock();
     }
 
+    /**
+     * Discards the current {@link Snapshot}. Must be called while holding the write lock, so that no
+     * reader can publish entries computed on the old registry state after this call.
+     */
+    private void invalidateSnapshot() {
+        snapshot.set(new Snapshot(snapshot.get().generation + 1,
+                Collections.<String, FactoryEntry> emptyMap()));
+    }
+
+    /**
+     * Returns the cached {@link FactoryEntry} for the input rendered operation, computing and
+     * publishing it if not already present.
+     * 
+     * @param descriptorName
+     * @return
+     */
+    private FactoryEntry getFactoryEntry(String descriptorName) {
+        String key = descriptorName.toLowerCase(Locale.ENGLISH);
+        FactoryEntry entry = snapshot.get().entries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        Snapshot expected;
+        Lock readLock = lock.readLock();
+        try {
+            readLock.lock();
+            // Writers are excluded here, so the entry matches the snapshot generation
+            expected = snapshot.get();
+            Iterator it = super.getFactoryIterator(RenderedRegistryMode.MODE_NAME, descriptorName);
+            List<Object> factories = null;
+            if (it != null) {
+                factories = new ArrayList<Object>();
+                while (it.hasNext()) {
+                    factories.add(it.next());
+                }
+                factories = Collections.unmodifiableList(factories);
+            }
+            entry = new FactoryEntry(factories, isJAIEXTOperation(descriptorName));
+        } finally {
+            readLock.unlock();
+        }
+        // Publish the new entry unless a writer has changed the registry in the meantime
+        Snapshot current = expected;
+        while (current.generation == expected.generation) {
+            Map<String, FactoryEntry> entries = new HashMap<String, FactoryEntry>(current.entries);
+            entries.put(key, entry);
+            if (snapshot.compareAndSet(current,
+                    new Snapshot(current.generation, Collections.unmodifiableMap(entries)))) {
+                break;
+            }
+            current = snapshot.get();
+        }
+        return entry;
+    }
+
     public String toString() {
         Lock readLock = lock.readLock();
         try {
@@ -197,6 +269,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.initializeFromStream(in);
         } finally {
             writeLock.unlock();
@@ -207,6 +280,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.updateFromStream(in);
         } finally {
             writeLock.unlock();
@@ -217,6 +291,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.readExternal(in);
         } finally {
             writeLock.unlock();
@@ -238,6 +313,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.removeRegistryMode(modeName);
         } finally {
             writeLock.unlock();
@@ -260,6 +336,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         boolean changed = false;
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.registerDescriptor(descriptor);
             changed = true;
             if (LOGGER.isLoggable(Level.FINEST)) {
@@ -295,6 +372,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         boolean changed = false;
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.unregisterDescriptor(descriptor);
             changed = true;
             if (LOGGER.isLoggable(Level.FINEST)) {
@@ -387,6 +465,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.setProductPreference(modeName, descriptorName, preferredProductName,
                     otherProductName);
         } finally {
@@ -399,6 +478,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.unsetProductPreference(modeName, descriptorName, preferredProductName,
                     otherProductName);
         } finally {
@@ -410,6 +490,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.clearProductPreferences(modeName, descriptorName);
         } finally {
             writeLock.unlock();
@@ -443,6 +524,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.registerFactory(modeName, descriptorName, productName, factory);
             if (LOGGER.isLoggable(Level.FINEST)) {
                 LOGGER.log(Level.FINEST, "Registered factory for the operation: "
@@ -466,6 +548,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.unregisterFactory(modeName, descriptorName, productName, factory);
             if (LOGGER.isLoggable(Level.FINEST)) {
                 LOGGER.log(Level.FINEST, "Unregistered factory for the operation: "
@@ -489,6 +572,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.setFactoryPreference(modeName, descriptorName, productName, preferredOp, otherOp);
         } finally {
             writeLock.unlock();
@@ -500,6 +584,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.unsetFactoryPreference(modeName, descriptorName, productName, preferredOp,
                     otherOp);
         } finally {
@@ -511,6 +596,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.clearFactoryPreferences(modeName, descriptorName, productName);
         } finally {
             writeLock.unlock();
@@ -541,6 +627,10 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
     }
 
     public Iterator getFactoryIterator(String modeName, String descriptorName) {
+        if (RenderedRegistryMode.MODE_NAME.equalsIgnoreCase(modeName)) {
+            List<Object> factories = getFactoryEntry(descriptorName).factories;
+            return factories != null ? factories.iterator() : null;
+        }
         Lock readLock = lock.readLock();
         try {
             readLock.lock();
@@ -552,6 +642,10 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
     }
 
     public Object getFactory(String modeName, String descriptorName) {
+        if (RenderedRegistryMode.MODE_NAME.equalsIgnoreCase(modeName)) {
+            List<Object> factories = getFactoryEntry(descriptorName).factories;
+            return factories != null && !factories.isEmpty() ? factories.get(0) : null;
+        }
         Lock readLock = lock.readLock();
         try {
             readLock.lock();
@@ -563,6 +657,21 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
     }
 
     public Object invokeFactory(String modeName, String descriptorName, Object[] args) {
+        if (RenderedRegistryMode.MODE_NAME.equalsIgnoreCase(modeName) && isRenderedArgs(args)) {
+            FactoryEntry entry = getFactoryEntry(descriptorName);
+            if (entry.isRenderedImageFactoryList()) {
+                // For Rendered Mode, a check on the interpolations objects is made
+                // in order to convert each eventual JAI-EXT interpolation class
+                // if the Factory belongs to the JAI API
+                if (!entry.jaiext) {
+                    convertInterpolations(args);
+                }
+                // The factories are instrumented only when the tile metrics are enabled
+                List<Object> factories = TileMetrics.isEnabled() ? entry
+                        .getInstrumentedFactories(descriptorName) : entry.factories;
+                return invokeRenderedFactories(descriptorName, factories, args);
+            }
+        }
         Lock readLock = lock.readLock();
         try {
             readLock.lock();
@@ -584,6 +693,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.addPropertyGenerator(modeName, descriptorName, generator);
         } finally {
             writeLock.unlock();
@@ -595,6 +705,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.removePropertyGenerator(modeName, descriptorName, generator);
         } finally {
             writeLock.unlock();
@@ -606,6 +717,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.copyPropertyFromSource(modeName, descriptorName, propertyName, sourceIndex);
         } finally {
             writeLock.unlock();
@@ -616,6 +728,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.suppressProperty(modeName, descriptorName, propertyName);
         } finally {
             writeLock.unlock();
@@ -626,6 +739,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.suppressAllProperties(modeName, descriptorName);
         } finally {
             writeLock.unlock();
@@ -636,6 +750,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.clearPropertyState(modeName);
         } finally {
             writeLock.unlock();
@@ -680,6 +795,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.registerServices(cl);
         } finally {
             writeLock.unlock();
@@ -690,6 +806,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.unregisterOperationDescriptor(operationName);
         } finally {
             writeLock.unlock();
@@ -700,6 +817,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             super.clearOperationPreferences(operationName, productName);
         } finally {
             writeLock.unlock();
@@ -715,6 +833,7 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            invalidateSnapshot();
             this.collection = coll;
         } finally {
             writeLock.unlock();
@@ -772,6 +891,47 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
         }
     }
 
+    /**
+     * Checks if the rendered factory arguments are made of a {@link ParameterBlock} and optional
+     * {@link RenderingHints}.
+     */
+    private static boolean isRenderedArgs(Object[] args) {
+        return args != null && args.length == 2 && args[0] instanceof ParameterBlock
+                && (args[1] == null || args[1] instanceof RenderingHints);
+    }
+
+    /**
+     * Calls the input {@link RenderedImageFactory} list in preference order, returning the first
+     * non null image, in the same way of {@link OperationRegistry#invokeFactory}.
+     */
+    private Object invokeRenderedFactories(String descriptorName, List<Object> factories,
+            Object[] args) {
+        ParameterBlock block = (ParameterBlock) args[0];
+        RenderingHints hints = (RenderingHints) args[1];
+        Exception savedOne = null;
+        for (Object factory : factories) {
+            try {
+                RenderedImage image = ((RenderedImageFactory) factory).create(block, hints);
+                if (image != null) {
+                    return image;
+                }
+                savedOne = null;
+            } catch (Exception e) {
+                ImagingListener listener = JAI.getDefaultInstance().getImagingListener();
+                String message = "Error occurred while invoking the factory for the operation: "
+                        + descriptorName;
+                listener.errorOccurred(message, new ImagingException(message, e),
+                        OperationRegistry.class, false);
+                savedOne = e;
+            }
+        }
+        if (savedOne != null) {
+            throw new ImagingException("All the factories failed for the operation: "
+                    + descriptorName, savedOne);
+        }
+        return null;
+    }
+
     /**
      * This method internally check if the descriptor used is a
      * 
@@ -779,6 +939,18 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
      * @param args
      */
     void checkInterpolation(String descriptorName, Object[] args) {
+        if (!isJAIEXTOperation(descriptorName)) {
+            convertInterpolations(args);
+        }
+    }
+
+    /**
+     * Checks if the input operation belongs to JAI-EXT.
+     * 
+     * @param descriptorName
+     * @return
+     */
+    private boolean isJAIEXTOperation(String descriptorName) {
         // First check if the collection is present and then get the OperationItem associated
         OperationItem item = null;
         if (collection != null) {
@@ -796,43 +968,115 @@ public final class ConcurrentOperationRegistry extends OperationRegistry {
             String vendor = op.getResourceBundle(null).getString(VENDOR_NAME);
             jaiext = vendor.equalsIgnoreCase(JAIEXT_PRODUCT);
         }
-        // If the operation is not a JAI-EXT one then we start to check if there is any Interpolation
-        // instance
-        if (!jaiext) {
-            // Cycle on the parameterBlock parameters
-            ParameterBlock block = (ParameterBlock) args[0];
-            Vector<Object> params = block.getParameters();
-            int index = 0;
-            for (Object param : params) {
-                if (param instanceof Interpolation) {
-                    Interpolation interp = null;
-                    // If the parameter is an instance of one of the JAI-EXT Interpolation classes
-                    // then it is transformed into the related JAI Interpolation class.
-                    if (param instanceof InterpolationNearest) {
-                        interp = new javax.media.jai.InterpolationNearest();
-                    } else if (param instanceof InterpolationBilinear) {
-                        InterpolationBilinear bil = (InterpolationBilinear) param;
-                        interp = new javax.media.jai.InterpolationBilinear(bil.getSubsampleBitsH());
-                    } else if (param instanceof InterpolationBicubic) {
-                        InterpolationBicubic bic = (InterpolationBicubic) param;
-                        if (bic.isBicubic2()) {
-                            interp = new javax.media.jai.InterpolationBicubic2(
-                                    bic.getSubsampleBitsH());
-                        } else {
-                            interp = new javax.media.jai.InterpolationBicubic(
-                                    bic.getSubsampleBitsH());
-                        }
+        return jaiext;
+    }
+
+    /**
+     * Converts the first JAI-EXT {@link Interpolation} found inside the {@link ParameterBlock} into
+     * the related JAI one. Used for the operations not belonging to JAI-EXT.
+     * 
+     * @param args
+     */
+    private static void convertInterpolations(Object[] args) {
+        // Cycle on the parameterBlock parameters
+        ParameterBlock block = (ParameterBlock) args[0];
+        Vector<Object> params = block.getParameters();
+        int index = 0;
+        for (Object param : params) {
+            if (param instanceof Interpolation) {
+                Interpolation interp = null;
+                // If the parameter is an instance of one of the JAI-EXT Interpolation classes
+                // then it is transformed into the related JAI Interpolation class.
+                if (param instanceof InterpolationNearest) {
+                    interp = new javax.media.jai.InterpolationNearest();
+                } else if (param instanceof InterpolationBilinear) {
+                    InterpolationBilinear bil = (InterpolationBilinear) param;
+                    interp = new javax.media.jai.InterpolationBilinear(bil.getSubsampleBitsH());
+                } else if (param instanceof InterpolationBicubic) {
+                    InterpolationBicubic bic = (InterpolationBicubic) param;
+                    if (bic.isBicubic2()) {
+                        interp = new javax.media.jai.InterpolationBicubic2(
+                                bic.getSubsampleBitsH());
+                    } else {
+                        interp = new javax.media.jai.InterpolationBicubic(
+                                bic.getSubsampleBitsH());
                     }
-                    if (interp != null) {
-                        block.set(interp, index);
-                        if (LOGGER.isLoggable(Level.FINEST)) {
-                            LOGGER.log(Level.FINEST, "Converted JAI-EXT Interpolation object to JAI one");
-                        }
+                }
+                if (interp != null) {
+                    block.set(interp, index);
+                    if (LOGGER.isLoggable(Level.FINEST)) {
+                        LOGGER.log(Level.FINEST, "Converted JAI-EXT Interpolation object to JAI one");
                     }
-                    break;
                 }
-                index++;
+                break;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Immutable map of the rendered operation names to the related {@link FactoryEntry}, tagged with
+     * the generation of the registry state it was computed from.
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0,
+                Collections.<String, FactoryEntry> emptyMap());
+
+        final long generation;
+
+        final Map<String, FactoryEntry> entries;
+
+        Snapshot(long generation, Map<String, FactoryEntry> entries) {
+            this.generation = generation;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Ordered factory list of a rendered operation, together with the JAI-EXT flag used for the
+     * interpolation check.
+     */
+    private static final class FactoryEntry {
+
+        /** Unmodifiable factory list in preference order, or null if no iterator is available */
+        final List<Object> factories;
+
+        final boolean jaiext;
+
+        /** The same factories wrapped by {@link InstrumentedRenderedImageFactory}, lazily created */
+        private volatile List<Object> instrumented;
+
+        FactoryEntry(List<Object> factories, boolean jaiext) {
+            this.factories = factories;
+            this.jaiext = jaiext;
+        }
+
+        /** Returns the factories collecting the tile metrics, to be called on a rendered image factory list only */
+        List<Object> getInstrumentedFactories(String descriptorName) {
+            List<Object> result = instrumented;
+            if (result == null) {
+                result = new ArrayList<Object>(factories.size());
+                for (Object factory : factories) {
+                    result.add(new InstrumentedRenderedImageFactory(descriptorName,
+                            (RenderedImageFactory) factory));
+                }
+                result = Collections.unmodifiableList(result);
+                instrumented = result;
+            }
+            return result;
+        }
+
+        boolean isRenderedImageFactoryList() {
+            if (factories == null) {
+                return false;
+            }
+            for (Object factory : factories) {
+                if (!(factory instanceof RenderedImageFactory)) {
+                    return false;
+                }
             }
+            return true;
         }
     }
 
@@ -32,6 +32,12 @@ public class InterpolationBilinear extends Interpolation implements Interpolatio
     private final static int FULL_WEIGHT_SHIFT = 8; // a*256 = a<<8
     private final static double FRACTION_THRESHOLD_D = 0.5d;
 
+    /** Bit mask flags of the 4 surrounding pixel weights used by the primitive interpolation methods */
+    private final static int W00 = 1;
+    private final static int W01 = 2;
+    private final static int W10 = 4;
+    private final static int W11 = 8;
+
     /** serialVersionUID */
     private static final long serialVersionUID = 5238694001611785385L;
 
@@ -543,6 +549,309 @@ public class InterpolationBilinear extends Interpolation implements Interpolatio
         return s;
     }
 
+    /**
+     * Primitive bilinear interpolation of a byte sample. No object is allocated: the four samples starting at
+     * {@code pos} are checked against the NO DATA range and the optional ROI accessor data and then interpolated with
+     * the integral fractional values {@code xfrac} and {@code yfrac}.
+     * 
+     * @param data source band array
+     * @param pos index of the upper-left sample inside {@code data}
+     * @param pixelStride source pixel stride
+     * @param scanlineStride source scanline stride
+     * @param roiData ROI accessor data, or <code>null</code> if no ROI must be checked
+     * @param roiPos index of the ROI sample related to the upper-left sample
+     * @param roiScanlineStride ROI scanline stride
+     */
+    public int interpolateByte(byte[] data, int pos, int pixelStride, int scanlineStride,
+            int xfrac, int yfrac, byte[] roiData, int roiPos, int roiScanlineStride) {
+        int weights = roiWeights(roiData, roiPos, roiScanlineStride);
+        if (weights == 0) {
+            return (int) destinationNoData;
+        }
+        final int s00 = data[pos] & 0xff;
+        final int s01 = data[pos + pixelStride] & 0xff;
+        final int s10 = data[pos + scanlineStride] & 0xff;
+        final int s11 = data[pos + pixelStride + scanlineStride] & 0xff;
+        if (noDataRange != null) {
+            weights = noDataWeights(weights, (byte) s00, (byte) s01, (byte) s10, (byte) s11);
+        }
+        return computeValue(s00, s01, s10, s11, weights & W00, weights & W01, weights & W10,
+                weights & W11, xfrac, yfrac);
+    }
+
+    /** Primitive bilinear interpolation of an unsigned short sample (see {@link #interpolateByte}). */
+    public int interpolateUShort(short[] data, int pos, int pixelStride, int scanlineStride,
+            int xfrac, int yfrac, byte[] roiData, int roiPos, int roiScanlineStride) {
+        int weights = roiWeights(roiData, roiPos, roiScanlineStride);
+        if (weights == 0) {
+            return (int) destinationNoData;
+        }
+        final int s00 = data[pos] & 0xffff;
+        final int s01 = data[pos + pixelStride] & 0xffff;
+        final int s10 = data[pos + scanlineStride] & 0xffff;
+        final int s11 = data[pos + pixelStride + scanlineStride] & 0xffff;
+        if (noDataRange != null) {
+            weights = noDataWeights(weights, (short) s00, (short) s01, (short) s10, (short) s11);
+        }
+        return computeValue(s00, s01, s10, s11, weights & W00, weights & W01, weights & W10,
+                weights & W11, xfrac, yfrac);
+    }
+
+    /** Primitive bilinear interpolation of a short sample (see {@link #interpolateByte}). */
+    public int interpolateShort(short[] data, int pos, int pixelStride, int scanlineStride,
+            int xfrac, int yfrac, byte[] roiData, int roiPos, int roiScanlineStride) {
+        int weights = roiWeights(roiData, roiPos, roiScanlineStride);
+        if (weights == 0) {
+            return (int) destinationNoData;
+        }
+        final short s00 = data[pos];
+        final short s01 = data[pos + pixelStride];
+        final short s10 = data[pos + scanlineStride];
+        final short s11 = data[pos + pixelStride + scanlineStride];
+        if (noDataRange != null) {
+            weights = noDataWeights(weights, s00, s01, s10, s11);
+        }
+        return computeValue(s00, s01, s10, s11, weights & W00, weights & W01, weights & W10,
+                weights & W11, xfrac, yfrac);
+    }
+
+    /** Primitive bilinear interpolation of an integer sample (see {@link #interpolateByte}). */
+    public int interpolateInt(int[] data, int pos, int pixelStride, int scanlineStride,
+            int xfrac, int yfrac, byte[] roiData, int roiPos, int roiScanlineStride) {
+        int weights = roiWeights(roiData, roiPos, roiScanlineStride);
+        if (weights == 0) {
+            return (int) destinationNoData;
+        }
+        final int s00 = data[pos];
+        final int s01 = data[pos + pixelStride];
+        final int s10 = data[pos + scanlineStride];
+        final int s11 = data[pos + pixelStride + scanlineStride];
+        if (noDataRange != null) {
+            weights = noDataWeights(weights, s00, s01, s10, s11);
+        }
+        return computeValue(s00, s01, s10, s11, weights & W00, weights & W01, weights & W10,
+                weights & W11, xfrac, yfrac);
+    }
+
+    /**
+     * Primitive bilinear interpolation of a float sample (see {@link #interpolateByte}). The fractional values are
+     * expressed in the [0,1) interval.
+     */
+    public float interpolateFloat(float[] data, int pos, int pixelStride, int scanlineStride,
+            float xfrac, float yfrac, byte[] roiData, int roiPos, int roiScanlineStride) {
+        int weights = roiWeights(roiData, roiPos, roiScanlineStride);
+        if (weights == 0) {
+            return (float) destinationNoData;
+        }
+        final float s00 = data[pos];
+        final float s01 = data[pos + pixelStride];
+        final float s10 = data[pos + scanlineStride];
+        final float s11 = data[pos + pixelStride + scanlineStride];
+        if (noDataRange != null) {
+            weights = noDataWeights(weights, s00, s01, s10, s11);
+        }
+        return (float) computeDouble(s00, s01, s10, s11, (weights & W00) == 0,
+                (weights & W01) == 0, (weights & W10) == 0, (weights & W11) == 0, xfrac, yfrac,
+                destinationNoData);
+    }
+
+    /**
+     * Primitive bilinear interpolation of a double sample (see {@link #interpolateByte}). The fractional values are
+     * expressed in the [0,1) interval.
+     */
+    public double interpolateDouble(double[] data, int pos, int pixelStride, int scanlineStride,
+            double xfrac, double yfrac, byte[] roiData, int roiPos, int roiScanlineStride) {
+        int weights = roiWeights(roiData, roiPos, roiScanlineStride);
+        if (weights == 0) {
+            return destinationNoData;
+        }
+        final double s00 = data[pos];
+        final double s01 = data[pos + pixelStride];
+        final double s10 = data[pos + scanlineStride];
+        final double s11 = data[pos + pixelStride + scanlineStride];
+        if (noDataRange != null) {
+            weights = noDataWeights(weights, s00, s01, s10, s11);
+        }
+        return computeDouble(s00, s01, s10, s11, (weights & W00) == 0, (weights & W01) == 0,
+                (weights & W10) == 0, (weights & W11) == 0, xfrac, yfrac, destinationNoData);
+    }
+
+    /**
+     * Row variant of {@link #interpolateByte}: interpolates {@code count} samples whose upper-left indexes and
+     * fractional values are stored in {@code pos}, {@code xfrac} and {@code yfrac}, writing them inside {@code dest}.
+     * {@code roiPos} is ignored if {@code roiData} is <code>null</code>.
+     */
+    public void interpolateByteRow(byte[] data, int[] pos, int[] xfrac, int[] yfrac,
+            int pixelStride, int scanlineStride, byte[] roiData, int[] roiPos,
+            int roiScanlineStride, int[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateByte(data, pos[i], pixelStride, scanlineStride, xfrac[i],
+                    yfrac[i], roiData, roiData != null ? roiPos[i] : 0, roiScanlineStride);
+        }
+    }
+
+    /** Row variant of {@link #interpolateUShort} (see {@link #interpolateByteRow}). */
+    public void interpolateUShortRow(short[] data, int[] pos, int[] xfrac, int[] yfrac,
+            int pixelStride, int scanlineStride, byte[] roiData, int[] roiPos,
+            int roiScanlineStride, int[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateUShort(data, pos[i], pixelStride, scanlineStride, xfrac[i],
+                    yfrac[i], roiData, roiData != null ? roiPos[i] : 0, roiScanlineStride);
+        }
+    }
+
+    /** Row variant of {@link #interpolateShort} (see {@link #interpolateByteRow}). */
+    public void interpolateShortRow(short[] data, int[] pos, int[] xfrac, int[] yfrac,
+            int pixelStride, int scanlineStride, byte[] roiData, int[] roiPos,
+            int roiScanlineStride, int[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateShort(data, pos[i], pixelStride, scanlineStride, xfrac[i],
+                    yfrac[i], roiData, roiData != null ? roiPos[i] : 0, roiScanlineStride);
+        }
+    }
+
+    /** Row variant of {@link #interpolateInt} (see {@link #interpolateByteRow}). */
+    public void interpolateIntRow(int[] data, int[] pos, int[] xfrac, int[] yfrac,
+            int pixelStride, int scanlineStride, byte[] roiData, int[] roiPos,
+            int roiScanlineStride, int[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateInt(data, pos[i], pixelStride, scanlineStride, xfrac[i],
+                    yfrac[i], roiData, roiData != null ? roiPos[i] : 0, roiScanlineStride);
+        }
+    }
+
+    /** Row variant of {@link #interpolateFloat} (see {@link #interpolateByteRow}). */
+    public void interpolateFloatRow(float[] data, int[] pos, float[] xfrac, float[] yfrac,
+            int pixelStride, int scanlineStride, byte[] roiData, int[] roiPos,
+            int roiScanlineStride, float[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateFloat(data, pos[i], pixelStride, scanlineStride, xfrac[i],
+                    yfrac[i], roiData, roiData != null ? roiPos[i] : 0, roiScanlineStride);
+        }
+    }
+
+    /** Row variant of {@link #interpolateDouble} (see {@link #interpolateByteRow}). */
+    public void interpolateDoubleRow(double[] data, int[] pos, double[] xfrac, double[] yfrac,
+            int pixelStride, int scanlineStride, byte[] roiData, int[] roiPos,
+            int roiScanlineStride, double[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateDouble(data, pos[i], pixelStride, scanlineStride, xfrac[i],
+                    yfrac[i], roiData, roiData != null ? roiPos[i] : 0, roiScanlineStride);
+        }
+    }
+
+    /**
+     * Returns the ROI weights of the 4 surrounding pixels as a bit mask ({@link #W00}, {@link #W01}, {@link #W10},
+     * {@link #W11}). As for the ROI accessor check of {@link #interpolate}, 0 is returned when the upper-left pixel
+     * is outside of the ROI. A <code>null</code> array means that no ROI must be checked.
+     */
+    private static int roiWeights(byte[] roiData, int roiPos, int roiScanlineStride) {
+        if (roiData == null) {
+            return W00 | W01 | W10 | W11;
+        }
+        final int roiDataLength = roiData.length;
+        if (roiPos >= roiDataLength || roiData[roiPos] == 0) {
+            return 0;
+        }
+        int weights = W00;
+        if (roiPos + 1 < roiDataLength && roiData[roiPos + 1] != 0) {
+            weights |= W01;
+        }
+        if (roiPos + roiScanlineStride < roiDataLength && roiData[roiPos + roiScanlineStride] != 0) {
+            weights |= W10;
+        }
+        if (roiPos + 1 + roiScanlineStride < roiDataLength
+                && roiData[roiPos + 1 + roiScanlineStride] != 0) {
+            weights |= W11;
+        }
+        return weights;
+    }
+
+    /** Removes from the weight mask the pixels contained in the NO DATA range. */
+    private int noDataWeights(int weights, byte s00, byte s01, byte s10, byte s11) {
+        if (noDataRange.contains(s00)) {
+            weights &= ~W00;
+        }
+        if (noDataRange.contains(s01)) {
+            weights &= ~W01;
+        }
+        if (noDataRange.contains(s10)) {
+            weights &= ~W10;
+        }
+        if (noDataRange.contains(s11)) {
+            weights &= ~W11;
+        }
+        return weights;
+    }
+
+    /** Removes from the weight mask the pixels contained in the NO DATA range. */
+    private int noDataWeights(int weights, short s00, short s01, short s10, short s11) {
+        if (noDataRange.contains(s00)) {
+            weights &= ~W00;
+        }
+        if (noDataRange.contains(s01)) {
+            weights &= ~W01;
+        }
+        if (noDataRange.contains(s10)) {
+            weights &= ~W10;
+        }
+        if (noDataRange.contains(s11)) {
+            weights &= ~W11;
+        }
+        return weights;
+    }
+
+    /** Removes from the weight mask the pixels contained in the NO DATA range. */
+    private int noDataWeights(int weights, int s00, int s01, int s10, int s11) {
+        if (noDataRange.contains(s00)) {
+            weights &= ~W00;
+        }
+        if (noDataRange.contains(s01)) {
+            weights &= ~W01;
+        }
+        if (noDataRange.contains(s10)) {
+            weights &= ~W10;
+        }
+        if (noDataRange.contains(s11)) {
+            weights &= ~W11;
+        }
+        return weights;
+    }
+
+    /** Removes from the weight mask the pixels contained in the NO DATA range or NaN. */
+    private int noDataWeights(int weights, float s00, float s01, float s10, float s11) {
+        if (noDataRange.contains(s00) || (isNotPointRange && Float.isNaN(s00))) {
+            weights &= ~W00;
+        }
+        if (noDataRange.contains(s01) || (isNotPointRange && Float.isNaN(s01))) {
+            weights &= ~W01;
+        }
+        if (noDataRange.contains(s10) || (isNotPointRange && Float.isNaN(s10))) {
+            weights &= ~W10;
+        }
+        if (noDataRange.contains(s11) || (isNotPointRange && Float.isNaN(s11))) {
+            weights &= ~W11;
+        }
+        return weights;
+    }
+
+    /** Removes from the weight mask the pixels contained in the NO DATA range or NaN. */
+    private int noDataWeights(int weights, double s00, double s01, double s10, double s11) {
+        if (noDataRange.contains(s00) || (isNotPointRange && Double.isNaN(s00))) {
+            weights &= ~W00;
+        }
+        if (noDataRange.contains(s01) || (isNotPointRange && Double.isNaN(s01))) {
+            weights &= ~W01;
+        }
+        if (noDataRange.contains(s10) || (isNotPointRange && Double.isNaN(s10))) {
+            weights &= ~W10;
+        }
+        if (noDataRange.contains(s11) || (isNotPointRange && Double.isNaN(s11))) {
+            weights &= ~W11;
+        }
+        return weights;
+    }
+
     /** This method performs a bilinear interpolation of a pixel inside a binary image. */
     public int interpolateBinary(int xNextBitNo, Number[] sourceData, int xfrac, int yfrac,
             int sourceYOffset, int sourceScanlineStride, int[] coordinates, int[] roiDataArray,
@@ -880,8 +1189,8 @@ public class InterpolationBilinear extends Interpolation implements Interpolatio
         long s1L = 0;
 
         // Complementary values of the fractional part
-        int xfracCompl = (int) Math.pow(2, subsampleBits) - xfrac;
-        int yfracCompl = (int) Math.pow(2, subsampleBits) - yfrac;
+        int xfracCompl = (1 << subsampleBits) - xfrac;
+        int yfracCompl = (1 << subsampleBits) - yfrac;
 
         // Boolean indicating if a pixel weight is 0
         boolean w00z = w00 == 0;
@@ -1110,10 +1419,6 @@ public class InterpolationBilinear extends Interpolation implements Interpolatio
     public static Number computeValueDouble(double s00, double s01, double s10, double s11, boolean w00z,
             boolean w01z, boolean w10z, boolean w11z, double xfrac, double yfrac, int dataType, double destinationNoData) {
 
-        double s0 = 0;
-        double s1 = 0;
-        double s = 0;
-
         if (w00z && w01z && w10z && w11z) {
             switch (dataType) {
             case DataBuffer.TYPE_FLOAT:
@@ -1130,6 +1435,25 @@ public class InterpolationBilinear extends Interpolation implements Interpolatio
                 return (short)(((short) destinationNoData) & 0xFFFF);
             }
         }
+        return computeDouble(s00, s01, s10, s11, w00z, w01z, w10z, w11z, xfrac, yfrac,
+                destinationNoData);
+    }
+
+    /**
+     * Primitive version of {@link #computeValueDouble}: calculates bilinear interpolation for float/double dataType
+     * returning the destination NO DATA value when all the pixel weights are 0.
+     */
+    public static double computeDouble(double s00, double s01, double s10, double s11,
+            boolean w00z, boolean w01z, boolean w10z, boolean w11z, double xfrac, double yfrac,
+            double destinationNoData) {
+
+        double s0 = 0;
+        double s1 = 0;
+        double s = 0;
+
+        if (w00z && w01z && w10z && w11z) {
+            return destinationNoData;
+        }
 
         // Boolean indicating if 2 same line-pixel weights are 0
         final boolean w0z = w00z && w01z;
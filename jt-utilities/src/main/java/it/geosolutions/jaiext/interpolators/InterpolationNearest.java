@@ -254,6 +254,126 @@ public class InterpolationNearest extends Interpolation implements Interpolation
         return destData;
     }
 
+    /**
+     * Primitive nearest-neighbor interpolation of a byte sample. No object is allocated: the sample at {@code pos} is
+     * returned as an unsigned value, or the destination NO DATA when it is NO DATA or outside of the ROI.
+     * 
+     * @param data source band array
+     * @param pos index of the sample inside {@code data}
+     * @param roiData ROI accessor data, or <code>null</code> if no ROI must be checked
+     * @param roiPos index of the ROI sample related to {@code pos}
+     */
+    public int interpolateByte(byte[] data, int pos, byte[] roiData, int roiPos) {
+        final byte s = data[pos];
+        if ((noDataRange != null && noDataRange.contains(s)) || !insideROI(roiData, roiPos)) {
+            return (int) destinationNoData;
+        }
+        return s & 0xff;
+    }
+
+    /** Primitive nearest-neighbor interpolation of an unsigned short sample (see {@link #interpolateByte}). */
+    public int interpolateUShort(short[] data, int pos, byte[] roiData, int roiPos) {
+        final short s = data[pos];
+        if ((noDataRange != null && noDataRange.contains(s)) || !insideROI(roiData, roiPos)) {
+            return (int) destinationNoData;
+        }
+        return s & 0xffff;
+    }
+
+    /** Primitive nearest-neighbor interpolation of a short sample (see {@link #interpolateByte}). */
+    public int interpolateShort(short[] data, int pos, byte[] roiData, int roiPos) {
+        final short s = data[pos];
+        if ((noDataRange != null && noDataRange.contains(s)) || !insideROI(roiData, roiPos)) {
+            return (int) destinationNoData;
+        }
+        return s;
+    }
+
+    /** Primitive nearest-neighbor interpolation of an integer sample (see {@link #interpolateByte}). */
+    public int interpolateInt(int[] data, int pos, byte[] roiData, int roiPos) {
+        final int s = data[pos];
+        if ((noDataRange != null && noDataRange.contains(s)) || !insideROI(roiData, roiPos)) {
+            return (int) destinationNoData;
+        }
+        return s;
+    }
+
+    /** Primitive nearest-neighbor interpolation of a float sample (see {@link #interpolateByte}). */
+    public float interpolateFloat(float[] data, int pos, byte[] roiData, int roiPos) {
+        final float s = data[pos];
+        if ((noDataRange != null && (noDataRange.contains(s) || (isNotPointRange && Float.isNaN(s))))
+                || !insideROI(roiData, roiPos)) {
+            return (float) destinationNoData;
+        }
+        return s;
+    }
+
+    /** Primitive nearest-neighbor interpolation of a double sample (see {@link #interpolateByte}). */
+    public double interpolateDouble(double[] data, int pos, byte[] roiData, int roiPos) {
+        final double s = data[pos];
+        if ((noDataRange != null && (noDataRange.contains(s) || (isNotPointRange && Double.isNaN(s))))
+                || !insideROI(roiData, roiPos)) {
+            return destinationNoData;
+        }
+        return s;
+    }
+
+    /**
+     * Row variant of {@link #interpolateByte}: interpolates {@code count} samples whose indexes are stored in
+     * {@code pos} and writes them inside {@code dest}. {@code roiPos} is ignored if {@code roiData} is <code>null</code>.
+     */
+    public void interpolateByteRow(byte[] data, int[] pos, byte[] roiData, int[] roiPos,
+            int[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateByte(data, pos[i], roiData, roiData != null ? roiPos[i] : 0);
+        }
+    }
+
+    /** Row variant of {@link #interpolateUShort} (see {@link #interpolateByteRow}). */
+    public void interpolateUShortRow(short[] data, int[] pos, byte[] roiData, int[] roiPos,
+            int[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateUShort(data, pos[i], roiData, roiData != null ? roiPos[i] : 0);
+        }
+    }
+
+    /** Row variant of {@link #interpolateShort} (see {@link #interpolateByteRow}). */
+    public void interpolateShortRow(short[] data, int[] pos, byte[] roiData, int[] roiPos,
+            int[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateShort(data, pos[i], roiData, roiData != null ? roiPos[i] : 0);
+        }
+    }
+
+    /** Row variant of {@link #interpolateInt} (see {@link #interpolateByteRow}). */
+    public void interpolateIntRow(int[] data, int[] pos, byte[] roiData, int[] roiPos,
+            int[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateInt(data, pos[i], roiData, roiData != null ? roiPos[i] : 0);
+        }
+    }
+
+    /** Row variant of {@link #interpolateFloat} (see {@link #interpolateByteRow}). */
+    public void interpolateFloatRow(float[] data, int[] pos, byte[] roiData, int[] roiPos,
+            float[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateFloat(data, pos[i], roiData, roiData != null ? roiPos[i] : 0);
+        }
+    }
+
+    /** Row variant of {@link #interpolateDouble} (see {@link #interpolateByteRow}). */
+    public void interpolateDoubleRow(double[] data, int[] pos, byte[] roiData, int[] roiPos,
+            double[] dest, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[i] = interpolateDouble(data, pos[i], roiData, roiData != null ? roiPos[i] : 0);
+        }
+    }
+
+    /** Checks if the ROI accessor sample at {@code roiPos} is inside the ROI; a <code>null</code> array means no ROI. */
+    private static boolean insideROI(byte[] roiData, int roiPos) {
+        return roiData == null || (roiPos < roiData.length && roiData[roiPos] != 0);
+    }
+
     // Interpolation operation for Binary images (coordinates are useful only if ROI is present)
     public int interpolateBinary(int xNextBitNo, Number[] sourceData, int sourceYOffset,
             int sourceScanlineStride, int[] coordinates, int[] roiDataArray, int roiYOffset,
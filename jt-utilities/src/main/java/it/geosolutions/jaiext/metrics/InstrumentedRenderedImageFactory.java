@@ -0,0 +1,77 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.metrics;
+
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.awt.image.renderable.RenderedImageFactory;
+
+import javax.media.jai.JAI;
+import javax.media.jai.TileScheduler;
+
+/**
+ * {@link RenderedImageFactory} collecting the {@link OperationMetrics} of the images created by another factory. The created images are not
+ * wrapped: they are handed an {@link InstrumentedTileScheduler} through the {@link JAI#KEY_TILE_SCHEDULER} hint, so that their type and
+ * properties are left untouched. When the statistics are disabled the call is just forwarded to the wrapped factory.
+ */
+public final class InstrumentedRenderedImageFactory implements RenderedImageFactory {
+
+    private final String operationName;
+
+    private final RenderedImageFactory delegate;
+
+    /**
+     * Creates a new factory instrumenting the images created by the input one
+     * 
+     * @param operationName the name of the operation the statistics are collected for
+     * @param delegate the factory creating the images
+     */
+    public InstrumentedRenderedImageFactory(String operationName, RenderedImageFactory delegate) {
+        if (operationName == null || delegate == null) {
+            throw new IllegalArgumentException("Null operation name or factory");
+        }
+        this.operationName = operationName;
+        this.delegate = delegate;
+    }
+
+    /** Returns the wrapped factory */
+    public RenderedImageFactory getDelegate() {
+        return delegate;
+    }
+
+    public RenderedImage create(ParameterBlock paramBlock, RenderingHints hints) {
+        if (!TileMetrics.isEnabled()) {
+            return delegate.create(paramBlock, hints);
+        }
+        OperationMetrics metrics = TileMetrics.getOperationMetrics(operationName);
+        TileScheduler scheduler = hints != null ? (TileScheduler) hints
+                .get(JAI.KEY_TILE_SCHEDULER) : null;
+        if (scheduler == null) {
+            scheduler = JAI.getDefaultInstance().getTileScheduler();
+        }
+        RenderingHints instrumented = hints != null ? (RenderingHints) hints.clone()
+                : new RenderingHints(null);
+        instrumented.put(JAI.KEY_TILE_SCHEDULER, metrics.getTileScheduler(scheduler));
+        RenderedImage image = delegate.create(paramBlock, instrumented);
+        if (image != null) {
+            metrics.imageCreated();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,161 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.metrics;
+
+import java.awt.Point;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+
+import javax.media.jai.OpImage;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.TileComputationListener;
+import javax.media.jai.TileRequest;
+import javax.media.jai.TileScheduler;
+
+/**
+ * {@link TileScheduler} timing the tile computations of the images of a single operation and delegating the actual work to another scheduler.
+ * The {@link OpImage} tiles missing from the cache are computed through their scheduler, so handing this scheduler to the images created by an
+ * operation is enough to time their tile computations without wrapping the images.
+ * <p>
+ * The time spent computing the tiles of the other instrumented images on the same thread, which are usually the sources, is accounted both in
+ * the total and in the source computation time of the operation. The asynchronous requests are not timed here, but the tiles they compute go
+ * through {@link #scheduleTile(OpImage, int, int)} when the image tile computation is routed to its own scheduler.
+ */
+final class InstrumentedTileScheduler implements TileScheduler {
+
+    /** Time spent in the nested instrumented computations of the current thread */
+    private static final ThreadLocal<long[]> NESTED_TIME = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private final TileScheduler delegate;
+
+    private final OperationMetrics metrics;
+
+    InstrumentedTileScheduler(TileScheduler delegate, OperationMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    TileScheduler getDelegate() {
+        return delegate;
+    }
+
+    public Raster scheduleTile(OpImage owner, int tileX, int tileY) {
+        if (!TileMetrics.isEnabled()) {
+            return delegate.scheduleTile(owner, tileX, tileY);
+        }
+        long[] nested = NESTED_TIME.get();
+        long outer = nested[0];
+        nested[0] = 0;
+        long start = System.nanoTime();
+        try {
+            Raster tile = delegate.scheduleTile(owner, tileX, tileY);
+            metrics.record(1, System.nanoTime() - start, nested[0], getSize(tile));
+            return tile;
+        } finally {
+            // report the whole computation to the enclosing one, if any
+            nested[0] = outer + System.nanoTime() - start;
+        }
+    }
+
+    public Raster[] scheduleTiles(OpImage owner, Point[] tileIndices) {
+        if (!TileMetrics.isEnabled() || tileIndices == null) {
+            return delegate.scheduleTiles(owner, tileIndices);
+        }
+        long[] nested = NESTED_TIME.get();
+        long outer = nested[0];
+        nested[0] = 0;
+        long start = System.nanoTime();
+        try {
+            Raster[] tiles = delegate.scheduleTiles(owner, tileIndices);
+            long elapsed = System.nanoTime() - start;
+            long size = 0;
+            if (tiles != null) {
+                for (Raster tile : tiles) {
+                    size += getSize(tile);
+                }
+            }
+            metrics.record(tileIndices.length, elapsed, nested[0], size);
+            return tiles;
+        } finally {
+            nested[0] = outer + System.nanoTime() - start;
+        }
+    }
+
+    public TileRequest scheduleTiles(PlanarImage target, Point[] tileIndices,
+            TileComputationListener[] tileListeners) {
+        return delegate.scheduleTiles(target, tileIndices, tileListeners);
+    }
+
+    public void cancelTiles(TileRequest request, Point[] tileIndices) {
+        delegate.cancelTiles(request, tileIndices);
+    }
+
+    public void prefetchTiles(PlanarImage target, Point[] tileIndices) {
+        delegate.prefetchTiles(target, tileIndices);
+    }
+
+    public void setParallelism(int parallelism) {
+        delegate.setParallelism(parallelism);
+    }
+
+    public int getParallelism() {
+        return delegate.getParallelism();
+    }
+
+    public void setPrefetchParallelism(int parallelism) {
+        delegate.setPrefetchParallelism(parallelism);
+    }
+
+    public int getPrefetchParallelism() {
+        return delegate.getPrefetchParallelism();
+    }
+
+    public void setPriority(int priority) {
+        delegate.setPriority(priority);
+    }
+
+    public int getPriority() {
+        return delegate.getPriority();
+    }
+
+    public void setPrefetchPriority(int priority) {
+        delegate.setPrefetchPriority(priority);
+    }
+
+    public int getPrefetchPriority() {
+        return delegate.getPrefetchPriority();
+    }
+
+    /** Returns the size in bytes of the pixels of the input tile */
+    static long getSize(Raster tile) {
+        if (tile == null) {
+            return 0;
+        }
+        SampleModel sm = tile.getSampleModel();
+        long bits = 0;
+        for (int size : sm.getSampleSize()) {
+            bits += size;
+        }
+        return ((long) tile.getWidth() * tile.getHeight() * bits + 7) / 8;
+    }
+}
@@ -0,0 +1,116 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with logarithmic buckets, in the spirit of the HDR histograms: every power of two is split in
+ * {@link #SUB_BUCKETS} linear sub buckets, so that the reported percentiles have a relative error lower than 1/{@link #SUB_BUCKETS} whatever the
+ * recorded magnitude, while the memory footprint is fixed.
+ */
+final class LatencyHistogram {
+
+    /** Number of bits of precision kept for every recorded value */
+    static final int SUB_BUCKET_BITS = 3;
+
+    /** Number of linear sub buckets for every power of two */
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS);
+
+    private final AtomicLong max = new AtomicLong();
+
+    /** Records the input value, negative values being recorded as zero */
+    void record(long value) {
+        record(value, 1);
+    }
+
+    /** Records the input value the given number of times */
+    void record(long value, int count) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.addAndGet(getIndex(value), count);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    /** Returns the maximum recorded value */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall, rounded up to the upper bound of its bucket.
+     * 
+     * @param percentile the percentile, between 0 and 100
+     * @return the percentile value, or 0 if nothing has been recorded
+     */
+    long getPercentile(double percentile) {
+        int length = counts.length();
+        long total = 0;
+        for (int i = 0; i < length; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(getLowerBound(i + 1) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** Clears the recorded values */
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    static int getIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        if (exponent >= Long.SIZE - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,152 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.media.jai.TileScheduler;
+
+/**
+ * Tile computation statistics of a single operation, collected by the {@link InstrumentedTileScheduler} of the images created by the operation.
+ * The counters are striped, so that the threads computing tiles in parallel do not contend on them.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1000000d;
+
+    private final String operationName;
+
+    private final LongAdder images = new LongAdder();
+
+    private final LongAdder tiles = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder computeTime = new LongAdder();
+
+    private final LongAdder sourceComputeTime = new LongAdder();
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /** Scheduler handed to the last created images, reused as long as the wrapped scheduler does not change */
+    private volatile InstrumentedTileScheduler scheduler;
+
+    OperationMetrics(String operationName) {
+        this.operationName = operationName;
+    }
+
+    /** Records the creation of a new image */
+    void imageCreated() {
+        images.increment();
+    }
+
+    /**
+     * Records the computation of a set of tiles.
+     * 
+     * @param tileCount the number of computed tiles
+     * @param elapsed the overall computation time in nanoseconds
+     * @param sourceElapsed the part of the computation time spent computing the source tiles, in nanoseconds
+     * @param byteCount the overall size of the computed tiles
+     */
+    void record(int tileCount, long elapsed, long sourceElapsed, long byteCount) {
+        if (tileCount <= 0) {
+            return;
+        }
+        tiles.add(tileCount);
+        bytes.add(byteCount);
+        computeTime.add(elapsed);
+        sourceComputeTime.add(sourceElapsed);
+        // tiles computed in a single batch are accounted with their average time
+        histogram.record(elapsed / tileCount, tileCount);
+    }
+
+    /**
+     * Returns a {@link TileScheduler} collecting the statistics of this operation and delegating the computations to the input one.
+     */
+    TileScheduler getTileScheduler(TileScheduler delegate) {
+        if (delegate instanceof InstrumentedTileScheduler) {
+            delegate = ((InstrumentedTileScheduler) delegate).getDelegate();
+        }
+        InstrumentedTileScheduler current = scheduler;
+        if (current == null || current.getDelegate() != delegate) {
+            current = new InstrumentedTileScheduler(delegate, this);
+            scheduler = current;
+        }
+        return current;
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    public long getImageCount() {
+        return images.sum();
+    }
+
+    public long getTileCount() {
+        return tiles.sum();
+    }
+
+    public long getBytesProduced() {
+        return bytes.sum();
+    }
+
+    public double getTotalComputeTime() {
+        return computeTime.sum() / NANOS_PER_MILLI;
+    }
+
+    public double getTotalSourceComputeTime() {
+        return sourceComputeTime.sum() / NANOS_PER_MILLI;
+    }
+
+    public double getMeanComputeTime() {
+        long count = tiles.sum();
+        return count > 0 ? computeTime.sum() / NANOS_PER_MILLI / count : 0;
+    }
+
+    public double getMedianComputeTime() {
+        return histogram.getPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    public double getComputeTime90thPercentile() {
+        return histogram.getPercentile(90) / NANOS_PER_MILLI;
+    }
+
+    public double getComputeTime99thPercentile() {
+        return histogram.getPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    public double getMaxComputeTime() {
+        return histogram.getMax() / NANOS_PER_MILLI;
+    }
+
+    public void reset() {
+        images.reset();
+        tiles.reset();
+        bytes.reset();
+        computeTime.reset();
+        sourceComputeTime.reset();
+        histogram.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "OperationMetrics[" + operationName + ", tiles=" + getTileCount() + ", mean="
+                + getMeanComputeTime() + "ms]";
+    }
+}
@@ -0,0 +1,60 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.metrics;
+
+/**
+ * Management interface exposing the tile computation statistics of a single operation. The times are expressed in milliseconds.
+ */
+public interface OperationMetricsMXBean {
+
+    /** Returns the name of the operation */
+    String getOperationName();
+
+    /** Returns the number of images created by the operation */
+    long getImageCount();
+
+    /** Returns the number of computed tiles */
+    long getTileCount();
+
+    /** Returns the number of bytes of the computed tiles */
+    long getBytesProduced();
+
+    /** Returns the overall time spent computing the tiles, including the time spent computing the source tiles */
+    double getTotalComputeTime();
+
+    /** Returns the overall time spent computing the source tiles needed by the operation tiles */
+    double getTotalSourceComputeTime();
+
+    /** Returns the mean computation time of a tile */
+    double getMeanComputeTime();
+
+    /** Returns the median computation time of a tile */
+    double getMedianComputeTime();
+
+    /** Returns the 90th percentile of the tile computation time */
+    double getComputeTime90thPercentile();
+
+    /** Returns the 99th percentile of the tile computation time */
+    double getComputeTime99thPercentile();
+
+    /** Returns the maximum computation time of a tile */
+    double getMaxComputeTime();
+
+    /** Clears the statistics */
+    void reset();
+}
@@ -0,0 +1,127 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Entry point of the optional per operation tile computation statistics. When enabled, the images created through the
+ * {@link it.geosolutions.jaiext.ConcurrentOperationRegistry} are instrumented by an {@link InstrumentedRenderedImageFactory}, and the statistics
+ * of every operation are published as an {@link OperationMetricsMXBean} on the platform MBean server, with the name returned by
+ * {@link #getObjectName(String)}. When disabled, which is the default, the only overhead is a volatile read for every created image.
+ * <p>
+ * The statistics can be enabled at startup by setting the {@link #ENABLED_PROPERTY} system property to true.
+ */
+public final class TileMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(TileMetrics.class.getName());
+
+    /** System property enabling the statistics at startup */
+    public static final String ENABLED_PROPERTY = "jaiext.metrics";
+
+    /** Domain of the published MBeans */
+    public static final String DOMAIN = "it.geosolutions.jaiext";
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final ConcurrentMap<String, OperationMetrics> METRICS = new ConcurrentHashMap<String, OperationMetrics>();
+
+    private TileMetrics() {
+    }
+
+    /** Tells whether the statistics are being collected */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the collection of the statistics. Only the images created while the statistics are enabled are instrumented, and the
+     * collected statistics are kept when disabling.
+     */
+    public static void setEnabled(boolean enabled) {
+        TileMetrics.enabled = enabled;
+    }
+
+    /**
+     * Returns the statistics of the input operation, creating and publishing them if needed.
+     * 
+     * @param operationName the operation name, case insensitive
+     * @return the operation statistics
+     */
+    public static OperationMetrics getOperationMetrics(String operationName) {
+        String key = operationName.toLowerCase(Locale.ENGLISH);
+        OperationMetrics metrics = METRICS.get(key);
+        if (metrics == null) {
+            OperationMetrics created = new OperationMetrics(operationName);
+            metrics = METRICS.putIfAbsent(key, created);
+            if (metrics == null) {
+                metrics = created;
+                register(created);
+            }
+        }
+        return metrics;
+    }
+
+    /** Returns the statistics of all the operations used since the statistics have been enabled */
+    public static Collection<OperationMetrics> getOperationMetrics() {
+        return Collections.unmodifiableCollection(new ArrayList<OperationMetrics>(METRICS.values()));
+    }
+
+    /** Clears the statistics of all the operations */
+    public static void reset() {
+        for (OperationMetrics metrics : METRICS.values()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Returns the name used to publish the statistics of the input operation
+     * 
+     * @param operationName the operation name
+     * @return the MBean name
+     * @throws JMException if the operation name cannot be used in a MBean name
+     */
+    public static ObjectName getObjectName(String operationName) throws JMException {
+        return new ObjectName(DOMAIN + ":type=OperationMetrics,name=" + ObjectName.quote(operationName));
+    }
+
+    private static void register(OperationMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = getObjectName(metrics.getOperationName());
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Unable to publish the statistics of the operation "
+                    + metrics.getOperationName(), e);
+        }
+    }
+}
@@ -362,4 +362,293 @@ public class SampleStats {
         
         return sum;
     }
+
+    /*
+     * Primitive overloads. These work on the first n elements of a double[]
+     * without boxing and are used by Jiffle for list and neighbourhood
+     * statistics evaluated at every pixel. Unlike the Double[] versions, they
+     * return Double.NaN (rather than failing) when no valid values remain
+     * after NaN removal.
+     */
+
+    /**
+     * Return the maximum of the first {@code n} values.
+     *
+     * @param values sample values
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return max value or Double.NaN if the sample is empty
+     */
+    public static double max(double[] values, int n, boolean ignoreNaN) {
+        double max = Double.NaN;
+        boolean found = false;
+        for (int i = 0; i < n; i++) {
+            final double val = values[i];
+            if (Double.isNaN(val)) {
+                if (!ignoreNaN) return Double.NaN;
+            } else if (!found || val > max) {
+                max = val;
+                found = true;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Return the mean of the first {@code n} values.
+     *
+     * @param values sample values
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return mean value or Double.NaN if the sample is empty
+     */
+    public static double mean(double[] values, int n, boolean ignoreNaN) {
+        double sum = 0.0d;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            final double val = values[i];
+            if (Double.isNaN(val)) {
+                if (!ignoreNaN) return Double.NaN;
+            } else {
+                sum += val;
+                count++ ;
+            }
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Calculates the minimum of the first {@code n} values.
+     *
+     * @param values sample values
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return min value or Double.NaN if the sample is empty
+     */
+    public static double min(double[] values, int n, boolean ignoreNaN) {
+        double min = Double.NaN;
+        boolean found = false;
+        for (int i = 0; i < n; i++) {
+            final double val = values[i];
+            if (Double.isNaN(val)) {
+                if (!ignoreNaN) return Double.NaN;
+            } else if (!found || val < min) {
+                min = val;
+                found = true;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Calculates the median of the first {@code n} values. See 
+     * {@linkplain #median(Double[], boolean)} for the definition used.
+     * <p>
+     * <b>Note:</b> the first {@code n} elements of the array are reordered
+     * by this method. Pass a copy if the original order matters.
+     *
+     * @param values sample values (need not be pre-sorted)
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return median value or Double.NaN if the sample is empty
+     */
+    public static double median(double[] values, int n, boolean ignoreNaN) {
+        final int count = compactAndSort(values, n, ignoreNaN);
+        if (count <= 0) {
+            return Double.NaN;
+        }
+        
+        final int midHi = count / 2;
+        if (count % 2 == 0) {
+            return (values[midHi - 1] + values[midHi]) / 2;
+        }
+        return values[midHi];
+    }
+
+    /**
+     * Calculates the empirical mode of the first {@code n} values using the
+     * same tie-break rules as {@linkplain #mode(Double[], boolean)}.
+     * <p>
+     * <b>Note:</b> the first {@code n} elements of the array are reordered
+     * by this method. Pass a copy if the original order matters.
+     *
+     * @param values sample values
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return calculated mode or Double.NaN if the sample is empty
+     */
+    public static double mode(double[] values, int n, boolean ignoreNaN) {
+        final int count = compactAndSort(values, n, ignoreNaN);
+        if (count <= 0) {
+            return Double.NaN;
+        } else if (count == 1) {
+            return values[0];
+        }
+        
+        // first pass: find the maximum frequency and the number of 
+        // unique values that share it
+        int maxFreq = 0;
+        int numTied = 0;
+        int i = 0;
+        while (i < count) {
+            int j = i + 1;
+            while (j < count && CompareOp.aequal(values[i], values[j])) j++ ;
+            final int freq = j - i;
+            if (freq > maxFreq) {
+                maxFreq = freq;
+                numTied = 1;
+            } else if (freq == maxFreq) {
+                numTied++ ;
+            }
+            i = j;
+        }
+        
+        // second pass: pick the tied value as the Double[] version does
+        int target = numTied / 2;
+        if (numTied % 2 == 0) target-- ;
+        
+        int k = 0;
+        i = 0;
+        while (i < count) {
+            int j = i + 1;
+            while (j < count && CompareOp.aequal(values[i], values[j])) j++ ;
+            if (j - i == maxFreq) {
+                if (k == target) {
+                    return values[i];
+                }
+                k++ ;
+            }
+            i = j;
+        }
+        
+        return Double.NaN;  // not reached
+    }
+
+    /**
+     * Calculates the range (max - min) of the first {@code n} values.
+     *
+     * @param values sample values
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return the range or Double.NaN if the sample is empty
+     */
+    public static double range(double[] values, int n, boolean ignoreNaN) {
+        double min = Double.NaN;
+        double max = Double.NaN;
+        boolean found = false;
+        for (int i = 0; i < n; i++) {
+            final double val = values[i];
+            if (Double.isNaN(val)) {
+                if (!ignoreNaN) return Double.NaN;
+            } else if (!found) {
+                min = max = val;
+                found = true;
+            } else if (val < min) {
+                min = val;
+            } else if (val > max) {
+                max = val;
+            }
+        }
+        return max - min;
+    }
+
+    /**
+     * Calculates the sample variance of the first {@code n} values using
+     * the Welford algorithm as in {@linkplain #variance(Double[], boolean)}.
+     *
+     * @param values sample values
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return sample variance
+     */
+    public static double variance(double[] values, int n, boolean ignoreNaN) {
+        if (n < 2) {
+            return Double.NaN;
+        }
+        
+        double mNew, mOld = 0.0d, s = 0.0d;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            final double val = values[i];
+            if (Double.isNaN(val)) {
+                if (!ignoreNaN) {
+                    return Double.NaN;
+                }
+            } else {
+                count++ ;
+                if (count == 1) {
+                    mOld = val;
+                } else {
+                    mNew = mOld + (val - mOld) / count;
+                    s = s + (val - mOld) * (val - mNew);
+                    mOld = mNew;
+                }
+            }
+        }
+
+        if (count > 1) {
+            return s / (count - 1);
+        } else if (count == 1) {
+            return 0.0d;
+        } else {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Calculates the sample standard deviation of the first {@code n} values.
+     *
+     * @param values sample values
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return sample standard deviation as a double
+     */
+    public static double sdev(double[] values, int n, boolean ignoreNaN) {
+        double var = variance(values, n, ignoreNaN);
+        return (Double.isNaN(var) ? Double.NaN : Math.sqrt(var));
+    }
+
+    /**
+     * Calculates the sum of the first {@code n} values.
+     *
+     * @param values sample values
+     * @param n number of values to consider
+     * @param ignoreNaN specifies whether to ignore NaN values
+     * @return sum of the values
+     */
+    public static double sum(double[] values, int n, boolean ignoreNaN) {
+        double sum = 0.0d;
+        for (int i = 0; i < n; i++) {
+            final double val = values[i];
+            if (Double.isNaN(val)) {
+                if (!ignoreNaN) {
+                    return Double.NaN;
+                }
+            } else {
+                sum += val;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Moves the non-NaN values among the first {@code n} elements to the
+     * start of the array and sorts them.
+     *
+     * @return the number of sorted values, or -1 if a NaN value was found
+     *         and {@code ignoreNaN} is false
+     */
+    private static int compactAndSort(double[] values, int n, boolean ignoreNaN) {
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            final double val = values[i];
+            if (Double.isNaN(val)) {
+                if (!ignoreNaN) return -1;
+            } else {
+                values[count++] = val;
+            }
+        }
+        Arrays.sort(values, 0, count);
+        return count;
+    }
 }
@@ -0,0 +1,164 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities;
+
+import java.awt.Point;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.SourcelessOpImage;
+
+/**
+ * An image with the same value(s) at every pixel that never materialises more
+ * than one tile of data. All tiles returned by {@link #getTile(int, int)} are
+ * children of a single shared raster, translated to the tile position, so the
+ * memory used does not depend on the image size and the tile cache is never
+ * involved.
+ * <p>
+ * The returned tiles share their data buffer and <b>must not be written</b>:
+ * they are plain {@link Raster}s, which cannot be cast to {@link WritableRaster}.
+ * Use {@link ImageUtilities#createConstantImage(int, int, int, int, Number[])}
+ * when a writable image is required.
+ * <p>
+ * The tiles are never recycled by {@link #recycleTile(Raster)}, and the shared
+ * data buffer is registered so that tile recyclers can refuse it through
+ * {@link #isSharedDataBuffer(DataBuffer)}.
+ */
+public class ConstantImage extends SourcelessOpImage {
+
+    /** Data buffers shared by the tiles of the live constant images */
+    private static final Map<DataBuffer, Boolean> SHARED_BUFFERS = Collections
+            .synchronizedMap(new WeakHashMap<DataBuffer, Boolean>());
+
+    /** The shared tile, located at the image tile grid origin */
+    private final Raster constantTile;
+
+    /**
+     * Creates a new constant image.
+     * 
+     * @param minX minimum image X ordinate
+     * @param minY minimum image Y ordinate
+     * @param width image width
+     * @param height image height
+     * @param sampleModel sample model of the image tiles, whose size defines the tile size
+     * @param colorModel color model (may be {@code null})
+     * @param configuration optional configuration (may be {@code null})
+     * @param values the pixel values, one per band, as an array of the
+     *        primitive type matching the sample model data type 
+     *        ({@code double[]}, {@code float[]} or {@code int[]})
+     */
+    public ConstantImage(int minX, int minY, int width, int height, SampleModel sampleModel,
+            ColorModel colorModel, Map configuration, Object values) {
+        super(buildLayout(minX, minY, width, height, sampleModel, colorModel), configuration,
+                sampleModel, minX, minY, width, height);
+
+        WritableRaster raster = RasterFactory.createWritableRaster(sampleModel,
+                new Point(tileXToX(getMinTileX()), tileYToY(getMinTileY())));
+        ImageUtilities.fillRaster(raster, values);
+        this.constantTile = new ConstantRaster(sampleModel, raster.getDataBuffer(),
+                new Point(raster.getMinX(), raster.getMinY()));
+        SHARED_BUFFERS.put(raster.getDataBuffer(), Boolean.TRUE);
+    }
+
+    /**
+     * Returns true if the data buffer is shared by the tiles of a constant image,
+     * and must therefore never be recycled.
+     * 
+     * @param buffer the data buffer to check
+     */
+    public static boolean isSharedDataBuffer(DataBuffer buffer) {
+        return SHARED_BUFFERS.containsKey(buffer);
+    }
+
+    private static ImageLayout buildLayout(int minX, int minY, int width, int height,
+            SampleModel sm, ColorModel cm) {
+        ImageLayout il = new ImageLayout();
+        il.setMinX(minX);
+        il.setMinY(minY);
+        il.setWidth(width);
+        il.setHeight(height);
+        il.setTileGridXOffset(minX);
+        il.setTileGridYOffset(minY);
+        il.setTileWidth(sm.getWidth());
+        il.setTileHeight(sm.getHeight());
+        il.setSampleModel(sm);
+        if (cm != null) {
+            il.setColorModel(cm);
+        }
+        return il;
+    }
+
+    /**
+     * Returns a read-only child of the shared tile translated to the 
+     * requested tile position. The tile cache is not used.
+     */
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        if (tileX < getMinTileX() || tileX > getMaxTileX() || tileY < getMinTileY()
+                || tileY > getMaxTileY()) {
+            return null;
+        }
+        return computeTile(tileX, tileY);
+    }
+
+    @Override
+    public Raster computeTile(int tileX, int tileY) {
+        return constantTile.createChild(constantTile.getMinX(), constantTile.getMinY(), 
+                tileWidth, tileHeight, tileXToX(tileX), tileYToY(tileY), null);
+    }
+
+    /**
+     * Ignores the tiles of this image, which share their data buffer with all 
+     * the other tiles.
+     */
+    @Override
+    public void recycleTile(Raster tile) {
+        if (tile == null) {
+            throw new IllegalArgumentException("Tile should not be null");
+        }
+        if (tile.getDataBuffer() != constantTile.getDataBuffer()) {
+            super.recycleTile(tile);
+        }
+    }
+
+    /**
+     * Tiles are views on shared data, so there is nothing worth caching.
+     */
+    @Override
+    public boolean computesUniqueTiles() {
+        return false;
+    }
+
+    /**
+     * Read-only raster holding the constant data. Unlike the rasters created by
+     * {@link RasterFactory}, it and its children are not {@link WritableRaster}s.
+     */
+    private static final class ConstantRaster extends Raster {
+
+        ConstantRaster(SampleModel sampleModel, DataBuffer dataBuffer, Point origin) {
+            super(sampleModel, dataBuffer, origin);
+        }
+    }
+}
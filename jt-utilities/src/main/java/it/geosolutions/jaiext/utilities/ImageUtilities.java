@@ -600,62 +600,17 @@ public class ImageUtilities {
      */
     public static TiledImage createConstantImage(int minx, int miny, int width, int height,
             int tileWidth, int tileHeight, Number[] values) {
-        if (values == null || values.length < 1) {
-            throw new IllegalArgumentException("values array must contain at least 1 value");
-        }
-
-        final int numBands = values.length;
-
-        double[] doubleValues = null;
-        float[] floatValues = null;
-        int[] intValues = null;
-        Object typedValues = null;
-        int dataType = DataBuffer.TYPE_UNDEFINED;
-
-        if (values[0] instanceof Double) {
-            doubleValues = new double[values.length];
-            dataType = DataBuffer.TYPE_DOUBLE;
-            for (int i = 0; i < numBands; i++) doubleValues[i] = (Double) values[i];
-            typedValues = doubleValues;
-
-        } else if (values[0] instanceof Float) {
-            floatValues = new float[values.length];
-            dataType = DataBuffer.TYPE_FLOAT;
-            for (int i = 0; i < numBands; i++) floatValues[i] = (Float) values[i];
-            typedValues = floatValues;
-
-        } else if (values[0] instanceof Integer) {
-            intValues = new int[values.length];
-            dataType = DataBuffer.TYPE_INT;
-            for (int i = 0; i < numBands; i++) intValues[i] = (Integer) values[i];
-            typedValues = intValues;
-
-        } else if (values[0] instanceof Short) {
-            intValues = new int[values.length];
-            dataType = DataBuffer.TYPE_SHORT;
-            for (int i = 0; i < numBands; i++) intValues[i] = (Short) values[i];
-            typedValues = intValues;
-
-        } else if (values[0] instanceof Byte) {
-            intValues = new int[values.length];
-            dataType = DataBuffer.TYPE_BYTE;
-            for (int i = 0; i < numBands; i++) intValues[i] = (Byte) values[i];
-            typedValues = intValues;
-
-        } else {
-            throw new UnsupportedOperationException("Unsupported data type: " +
-                    values[0].getClass().getName());
-        }
+        final Object typedValues = toTypedValues(values);
+        final int dataType = getConstantDataType(values[0]);
 
         SampleModel sm = RasterFactory.createPixelInterleavedSampleModel(
-                dataType, tileWidth, tileHeight, numBands);
+                dataType, tileWidth, tileHeight, values.length);
 
         ColorModel cm = PlanarImage.createColorModel(sm);
 
         TiledImage tImg = new TiledImage(minx, miny, width, height, 0, 0, sm, cm);
 
         WritableRaster tile0 = null;
-        int tileW = 0, tileH = 0;
         for (int tileY = tImg.getMinTileY(); tileY <= tImg.getMaxTileY(); tileY++) {
             for (int tileX = tImg.getMinTileX(); tileX <= tImg.getMaxTileX(); tileX++) {
                 WritableRaster raster = tImg.getWritableTile(tileX, tileY);
@@ -663,9 +618,7 @@ public class ImageUtilities {
 
                 if (tile0 == null) {
                     tile0 = child;
-                    tileW = tile0.getWidth();
-                    tileH = tile0.getHeight();
-                    fillRaster(tile0, tileW, tileH, dataType, typedValues);
+                    fillRaster(tile0, typedValues);
                 } else {
                     child.setDataElements(0, 0, tile0);
                 }
@@ -676,6 +629,140 @@ public class ImageUtilities {
         return tImg;
     }
 
+    /**
+     * Creates a new image with one or more bands of constant value, choosing
+     * between a writable {@code TiledImage} and a read-only {@link ConstantImage}.
+     * The latter holds a single tile of data shared by all tiles, so its memory
+     * footprint does not depend on the image size: use it for large constant
+     * backgrounds that are only read.
+     *
+     * @param minx minimum image X ordinate
+     *
+     * @param miny minimum image Y ordinate
+     *
+     * @param width image width
+     *
+     * @param height image height
+     *
+     * @param tileWidth width of image tiles
+     *
+     * @param tileHeight height of image tiles
+     *
+     * @param values array of values (must contain at least one element)
+     *
+     * @param readOnly if {@code true} a {@link ConstantImage} is returned,
+     *        otherwise a fully allocated {@code TiledImage}
+     *
+     * @return a new image
+     */
+    public static PlanarImage createConstantImage(int minx, int miny, int width, int height,
+            int tileWidth, int tileHeight, Number[] values, boolean readOnly) {
+        if (!readOnly) {
+            return createConstantImage(minx, miny, width, height, tileWidth, tileHeight, values);
+        }
+        final Object typedValues = toTypedValues(values);
+        final int dataType = getConstantDataType(values[0]);
+
+        // no point in a shared tile larger than the image itself
+        SampleModel sm = RasterFactory.createPixelInterleavedSampleModel(dataType,
+                Math.min(tileWidth, width), Math.min(tileHeight, height), values.length);
+        ColorModel cm = PlanarImage.createColorModel(sm);
+
+        return new ConstantImage(minx, miny, width, height, sm, cm, null, typedValues);
+    }
+
+    /**
+     * Creates a new read-only {@link ConstantImage} with one or more bands of constant
+     * value, using the JAI default tile size.
+     *
+     * @param minx minimum image X ordinate
+     *
+     * @param miny minimum image Y ordinate
+     *
+     * @param width image width
+     *
+     * @param height image height
+     *
+     * @param values array of values (must contain at least one element)
+     *
+     * @return a new image
+     */
+    public static PlanarImage createReadOnlyConstantImage(int minx, int miny, int width,
+            int height, Number[] values) {
+        Dimension tileSize = JAI.getDefaultTileSize();
+        return createConstantImage(minx, miny, width, height, tileSize.width, tileSize.height,
+                values, true);
+    }
+
+    /**
+     * Returns the DataBuffer type used for constant images holding values of the 
+     * same class as {@code value}.
+     */
+    private static int getConstantDataType(Number value) {
+        if (value instanceof Double) {
+            return DataBuffer.TYPE_DOUBLE;
+        } else if (value instanceof Float) {
+            return DataBuffer.TYPE_FLOAT;
+        } else if (value instanceof Integer) {
+            return DataBuffer.TYPE_INT;
+        } else if (value instanceof Short) {
+            return DataBuffer.TYPE_SHORT;
+        } else if (value instanceof Byte) {
+            return DataBuffer.TYPE_BYTE;
+        } else {
+            throw new UnsupportedOperationException("Unsupported data type: " +
+                    value.getClass().getName());
+        }
+    }
+
+    /**
+     * Converts constant image values to a primitive array: {@code double[]}, 
+     * {@code float[]} or {@code int[]} depending on the class of the first value.
+     */
+    private static Object toTypedValues(Number[] values) {
+        if (values == null || values.length < 1) {
+            throw new IllegalArgumentException("values array must contain at least 1 value");
+        }
+
+        final int numBands = values.length;
+        switch (getConstantDataType(values[0])) {
+            case DataBuffer.TYPE_DOUBLE:
+            {
+                double[] doubleValues = new double[numBands];
+                for (int i = 0; i < numBands; i++) doubleValues[i] = (Double) values[i];
+                return doubleValues;
+            }
+            
+            case DataBuffer.TYPE_FLOAT:
+            {
+                float[] floatValues = new float[numBands];
+                for (int i = 0; i < numBands; i++) floatValues[i] = (Float) values[i];
+                return floatValues;
+            }
+            
+            case DataBuffer.TYPE_INT:
+            {
+                int[] intValues = new int[numBands];
+                for (int i = 0; i < numBands; i++) intValues[i] = (Integer) values[i];
+                return intValues;
+            }
+            
+            case DataBuffer.TYPE_SHORT:
+            {
+                int[] intValues = new int[numBands];
+                for (int i = 0; i < numBands; i++) intValues[i] = (Short) values[i];
+                return intValues;
+            }
+            
+            default:
+            {
+                int[] intValues = new int[numBands];
+                for (int i = 0; i < numBands; i++) intValues[i] = (Byte) values[i];
+                return intValues;
+            }
+        }
+    }
+
     /**
      * Creates a new single-band TiledImage with the provided values. The
      * {@code array} argument must be of length {@code width} x {@code height}.
@@ -965,30 +1052,19 @@ public class ImageUtilities {
         return images;
     }
 
-    private static void fillRaster(WritableRaster wr, int w, int h, int dataType, Object typedValues) {
-        switch (dataType) {
-            case DataBuffer.TYPE_DOUBLE:
-            {
-                double[] values = (double[]) typedValues;
-                fillRasterDouble(wr, w, h, values);
-            }
-            break;
-
-            case DataBuffer.TYPE_FLOAT:
-            {
-                float[] values = (float[]) typedValues;
-                fillRasterFloat(wr, w, h, values);
-            }
-            break;
-
-            case DataBuffer.TYPE_BYTE:
-            case DataBuffer.TYPE_SHORT:
-            case DataBuffer.TYPE_INT:
-            {
-                int[] values = (int[]) typedValues;
-                fillRasterInt(wr, w, h, values);
-            }
-            break;
+    /**
+     * Fills a raster with constant values, given as a {@code double[]}, 
+     * {@code float[]} or {@code int[]} array with one element per band.
+     */
+    static void fillRaster(WritableRaster wr, Object typedValues) {
+        final int w = wr.getWidth();
+        final int h = wr.getHeight();
+        if (typedValues instanceof double[]) {
+            fillRasterDouble(wr, w, h, (double[]) typedValues);
+        } else if (typedValues instanceof float[]) {
+            fillRasterFloat(wr, w, h, (float[]) typedValues);
+        } else {
+            fillRasterInt(wr, w, h, (int[]) typedValues);
         }
     }
 
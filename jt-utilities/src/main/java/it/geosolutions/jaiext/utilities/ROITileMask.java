@@ -0,0 +1,279 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.ROI;
+import javax.media.jai.ROIShape;
+
+/**
+ * Materialisation of a {@link ROI} over a single tile, stored as a packed bit mask (one bit per pixel, most
+ * significant bit first, rows padded to a byte boundary, as in a binary {@code MultiPixelPackedSampleModel}).
+ * <p>
+ * Operations can replace the per tile {@code roi.intersect(new ROIShape(rect))} call and the per pixel
+ * {@code contains(x, y)} or {@code RandomIter.getSample(x, y, 0)} checks with a single lookup of the mask, using
+ * {@link #isEmpty()} and {@link #isFull()} for skipping the tiles disjoint from the ROI or fully contained in it.
+ * <p>
+ * Masks are immutable and are cached per ROI instance and tile rectangle, so chained operations sharing the same ROI
+ * compute each tile mask only once. The cache does not prevent the ROI from being garbage collected and the masks are
+ * softly referenced.
+ */
+public final class ROITileMask {
+
+    /** Maximum number of masks cached for a single ROI */
+    private static final int MAX_CACHED_TILES = 1024;
+
+    /** Cache of the computed masks, weakly keyed by ROI instance */
+    private static final Map<ROI, Map<Rectangle, SoftReference<ROITileMask>>> CACHE = Collections
+            .synchronizedMap(new WeakHashMap<ROI, Map<Rectangle, SoftReference<ROITileMask>>>());
+
+    /** Mask bounds */
+    private final int minX;
+
+    private final int minY;
+
+    private final int width;
+
+    private final int height;
+
+    /** Number of bytes of a mask row */
+    private final int lineStride;
+
+    /** Packed mask data, <code>null</code> for empty or full masks */
+    private final byte[] data;
+
+    /** Whether all the pixels of the mask are inside the ROI */
+    private final boolean full;
+
+    /** Whether no pixel of the mask is inside the ROI */
+    private final boolean empty;
+
+    private ROITileMask(Rectangle rect, byte[] data, boolean full, boolean empty) {
+        this.minX = rect.x;
+        this.minY = rect.y;
+        this.width = rect.width;
+        this.height = rect.height;
+        this.lineStride = (rect.width + 7) >> 3;
+        this.data = data;
+        this.full = full;
+        this.empty = empty;
+    }
+
+    /**
+     * Returns the mask of the input ROI over the rectangle {@code rect}, computing it if it is not already cached.
+     * 
+     * @param roi the ROI to materialise
+     * @param rect the tile rectangle
+     * @return the tile mask
+     */
+    public static ROITileMask getMask(ROI roi, Rectangle rect) {
+        Map<Rectangle, SoftReference<ROITileMask>> masks;
+        synchronized (CACHE) {
+            masks = CACHE.get(roi);
+            if (masks == null) {
+                masks = new LinkedHashMap<Rectangle, SoftReference<ROITileMask>>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<Rectangle, SoftReference<ROITileMask>> eldest) {
+                        return size() > MAX_CACHED_TILES;
+                    }
+                };
+                CACHE.put(roi, masks);
+            }
+        }
+        synchronized (masks) {
+            SoftReference<ROITileMask> ref = masks.get(rect);
+            ROITileMask mask = ref != null ? ref.get() : null;
+            if (mask != null) {
+                return mask;
+            }
+        }
+        // Computed outside of the lock: concurrent requests of the same tile may both compute it
+        ROITileMask mask = createMask(roi, rect);
+        synchronized (masks) {
+            masks.put(new Rectangle(rect), new SoftReference<ROITileMask>(mask));
+        }
+        return mask;
+    }
+
+    /**
+     * Computes the mask of the input ROI over the rectangle {@code rect} without using the cache.
+     * 
+     * @param roi the ROI to materialise
+     * @param rect the tile rectangle
+     * @return the tile mask
+     */
+    public static ROITileMask createMask(ROI roi, Rectangle rect) {
+        Rectangle bounds = new Rectangle(rect);
+        Rectangle inside = roi.getBounds().intersection(bounds);
+        if (inside.isEmpty()) {
+            return new ROITileMask(bounds, null, false, true);
+        }
+        if (roi instanceof ROIShape) {
+            Shape shape = roi.getAsShape();
+            if (shape instanceof Rectangle) {
+                // Rectangular ROI: the mask is the intersection of the two rectangles
+                if (inside.equals(bounds)) {
+                    return new ROITileMask(bounds, null, true, false);
+                }
+                return fromRectangle(bounds, inside);
+            }
+            return fromShape(bounds, shape);
+        }
+        // ROIGeometry and raster ROIs are read from their image representation, which is the one used by the
+        // RandomIter based checks
+        return fromImage(bounds, inside, roi.getAsImage());
+    }
+
+    private static ROITileMask fromRectangle(Rectangle bounds, Rectangle inside) {
+        int stride = (bounds.width + 7) >> 3;
+        byte[] data = new byte[stride * bounds.height];
+        int x0 = inside.x - bounds.x;
+        int x1 = x0 + inside.width;
+        for (int y = inside.y - bounds.y, yEnd = y + inside.height; y < yEnd; y++) {
+            setBits(data, y * stride, x0, x1);
+        }
+        return new ROITileMask(bounds, data, false, false);
+    }
+
+    private static ROITileMask fromShape(Rectangle bounds, Shape shape) {
+        // Same rasterization used by ROIShape.getAsImage(), restricted to the tile
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height,
+                BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.translate(-bounds.x, -bounds.y);
+            graphics.setColor(Color.WHITE);
+            graphics.fill(shape);
+        } finally {
+            graphics.dispose();
+        }
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        return build(bounds, data);
+    }
+
+    private static ROITileMask fromImage(Rectangle bounds, Rectangle inside, PlanarImage roiImage) {
+        inside = inside.intersection(roiImage.getBounds());
+        if (inside.isEmpty()) {
+            return new ROITileMask(bounds, null, false, true);
+        }
+        Raster raster = roiImage.getData(inside);
+        int stride = (bounds.width + 7) >> 3;
+        byte[] data = new byte[stride * bounds.height];
+        int[] row = new int[inside.width];
+        int xOffset = inside.x - bounds.x;
+        for (int y = 0; y < inside.height; y++) {
+            raster.getSamples(inside.x, inside.y + y, inside.width, 1, 0, row);
+            int lineOffset = (inside.y - bounds.y + y) * stride;
+            for (int x = 0; x < inside.width; x++) {
+                if (row[x] > 0) {
+                    int bit = x + xOffset;
+                    data[lineOffset + (bit >> 3)] |= 0x80 >> (bit & 7);
+                }
+            }
+        }
+        return build(bounds, data);
+    }
+
+    /** Creates the mask, collapsing it to an empty or full mask if possible */
+    private static ROITileMask build(Rectangle bounds, byte[] data) {
+        int stride = (bounds.width + 7) >> 3;
+        int lastBits = bounds.width & 7;
+        int lastMask = lastBits == 0 ? 0xFF : (0xFF << (8 - lastBits)) & 0xFF;
+        boolean full = true;
+        boolean empty = true;
+        for (int y = 0; y < bounds.height && (full || empty); y++) {
+            int offset = y * stride;
+            for (int i = 0; i < stride; i++) {
+                int mask = i == stride - 1 ? lastMask : 0xFF;
+                int value = data[offset + i] & mask;
+                full &= value == mask;
+                empty &= value == 0;
+            }
+        }
+        if (full || empty) {
+            return new ROITileMask(bounds, null, full, empty);
+        }
+        return new ROITileMask(bounds, data, false, false);
+    }
+
+    /** Sets the bits in the [x0, x1) interval of the row starting at {@code offset} */
+    private static void setBits(byte[] data, int offset, int x0, int x1) {
+        for (int x = x0; x < x1; x++) {
+            data[offset + (x >> 3)] |= 0x80 >> (x & 7);
+        }
+    }
+
+    /**
+     * Checks if the pixel is inside the ROI. Pixels outside of the mask bounds are considered outside of the ROI.
+     * 
+     * @param x pixel X ordinate
+     * @param y pixel Y ordinate
+     */
+    public boolean contains(int x, int y) {
+        int dx = x - minX;
+        int dy = y - minY;
+        if (dx < 0 || dy < 0 || dx >= width || dy >= height) {
+            return false;
+        }
+        if (data == null) {
+            return full;
+        }
+        return (data[dy * lineStride + (dx >> 3)] & (0x80 >> (dx & 7))) != 0;
+    }
+
+    /** Returns <code>true</code> if every pixel of the mask is inside the ROI */
+    public boolean isFull() {
+        return full;
+    }
+
+    /** Returns <code>true</code> if no pixel of the mask is inside the ROI */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /** Returns the mask bounds */
+    public Rectangle getBounds() {
+        return new Rectangle(minX, minY, width, height);
+    }
+
+    /**
+     * Returns the packed mask data (one bit per pixel, most significant bit first, {@link #getLineStride()} bytes per
+     * row), or <code>null</code> for an empty or full mask. The array is shared and must not be modified.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /** Returns the number of bytes of a mask row */
+    public int getLineStride() {
+        return lineStride;
+    }
+}
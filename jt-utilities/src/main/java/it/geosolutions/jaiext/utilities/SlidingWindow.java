@@ -0,0 +1,206 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities;
+
+import it.geosolutions.jaiext.range.Range;
+
+/**
+ * Sliding NxN window over the rows of a source data array, for area operations computing a value
+ * from the neighbourhood of each pixel.
+ * <p>
+ * The window keeps the last N source rows, converted to double together with their NoData
+ * validity, in a ring buffer. Moving one line down only loads the new bottom row and moving one
+ * pixel right only copies in the new right column, so each source sample is read and checked
+ * against NoData once per tile, instead of once per window it belongs to.
+ * <p>
+ * Typical usage, for each destination row: {@link #setRows(int)} with the offset of the first
+ * window row, then {@link #moveTo(int)} for each column and {@link #getWindow()} and
+ * {@link #getValidMask()} for the row major window samples.
+ */
+public final class SlidingWindow {
+
+    /** Provides the samples of the source data array */
+    public interface SampleReader {
+
+        /** Returns the sample at the given index of the source data array */
+        double getSample(int index);
+    }
+
+    /** Window size */
+    private final int size;
+
+    /** Number of samples of each row */
+    private final int length;
+
+    private final int pixelStride;
+
+    private final int scanlineStride;
+
+    /** NoData range, <code>null</code> if all the samples are valid */
+    private final Range noData;
+
+    private final SampleReader reader;
+
+    /** Ring buffer of the converted rows */
+    private final double[][] rows;
+
+    /** Ring buffer of the row validity masks */
+    private final boolean[][] validRows;
+
+    /** Current window samples, row major */
+    private final double[] window;
+
+    /** Current window validity mask, row major */
+    private final boolean[] validWindow;
+
+    /** Ring index of the first window row */
+    private int top;
+
+    /** Offset of the first window row, or -1 when no row has been loaded */
+    private int rowOffset = -1;
+
+    /** Column of the current window, or -1 when the window must be filled */
+    private int column = -1;
+
+    /** Number of NoData samples in the current window */
+    private int invalidCount;
+
+    /**
+     * @param size the window size
+     * @param length the number of samples of each row, i.e. the destination width plus size - 1
+     * @param pixelStride the pixel stride of the source data array
+     * @param scanlineStride the scanline stride of the source data array
+     * @param noData the NoData range, or <code>null</code> if all the samples are valid
+     * @param reader the reader of the source data array samples
+     */
+    public SlidingWindow(int size, int length, int pixelStride, int scanlineStride, Range noData,
+            SampleReader reader) {
+        if (size < 1 || length < size) {
+            throw new IllegalArgumentException("Wrong window size " + size + " for rows of "
+                    + length + " samples");
+        }
+        this.size = size;
+        this.length = length;
+        this.pixelStride = pixelStride;
+        this.scanlineStride = scanlineStride;
+        this.noData = noData;
+        this.reader = reader;
+        this.rows = new double[size][length];
+        this.validRows = new boolean[size][length];
+        this.window = new double[size * size];
+        this.validWindow = new boolean[size * size];
+    }
+
+    /**
+     * Positions the window on the rows starting at the given offset of the source data array.
+     * When the offset is one line below the current one only the new bottom row is loaded.
+     * 
+     * @param offset the offset of the first sample of the first window row
+     */
+    public void setRows(int offset) {
+        if (rowOffset >= 0 && offset == rowOffset + scanlineStride) {
+            top = (top + 1) % size;
+            loadRow((top + size - 1) % size, offset + (size - 1) * scanlineStride);
+        } else if (offset != rowOffset) {
+            top = 0;
+            for (int r = 0; r < size; r++) {
+                loadRow(r, offset + r * scanlineStride);
+            }
+        }
+        rowOffset = offset;
+        column = -1;
+    }
+
+    /**
+     * Moves the window to the given column of the current rows. Moving one column right only
+     * copies in the new right column.
+     * 
+     * @param col the column of the first window sample, between 0 and length - size
+     */
+    public void moveTo(int col) {
+        if (col == column) {
+            return;
+        }
+        if (column >= 0 && col == column + 1) {
+            shift(col);
+        } else {
+            fill(col);
+        }
+        column = col;
+    }
+
+    /** Returns the current window samples, row major. The array must not be modified */
+    public double[] getWindow() {
+        return window;
+    }
+
+    /** Returns the current window validity mask, row major. The array must not be modified */
+    public boolean[] getValidMask() {
+        return validWindow;
+    }
+
+    /** Returns whether no sample of the current window is NoData */
+    public boolean isAllValid() {
+        return invalidCount == 0;
+    }
+
+    private void loadRow(int ringIndex, int offset) {
+        double[] row = rows[ringIndex];
+        boolean[] valid = validRows[ringIndex];
+        for (int i = 0, index = offset; i < length; i++, index += pixelStride) {
+            double value = reader.getSample(index);
+            row[i] = value;
+            valid[i] = noData == null || !noData.contains(value);
+        }
+    }
+
+    private void fill(int col) {
+        invalidCount = 0;
+        for (int r = 0, k = 0; r < size; r++) {
+            int ringIndex = (top + r) % size;
+            double[] row = rows[ringIndex];
+            boolean[] valid = validRows[ringIndex];
+            for (int c = 0; c < size; c++, k++) {
+                window[k] = row[col + c];
+                validWindow[k] = valid[col + c];
+                if (!validWindow[k]) {
+                    invalidCount++;
+                }
+            }
+        }
+    }
+
+    private void shift(int col) {
+        int last = col + size - 1;
+        for (int r = 0, k = 0; r < size; r++, k += size) {
+            int ringIndex = (top + r) % size;
+            // Leaving column
+            if (!validWindow[k]) {
+                invalidCount--;
+            }
+            System.arraycopy(window, k + 1, window, k, size - 1);
+            System.arraycopy(validWindow, k + 1, validWindow, k, size - 1);
+            // Entering column
+            int right = k + size - 1;
+            window[right] = rows[ringIndex][last];
+            validWindow[right] = validRows[ringIndex][last];
+            if (!validWindow[right]) {
+                invalidCount++;
+            }
+        }
+    }
+}
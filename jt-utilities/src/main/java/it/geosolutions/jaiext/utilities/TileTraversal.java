@@ -0,0 +1,135 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities;
+
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.media.jai.OpImage;
+
+/**
+ * Utility class computing a set of tiles of an {@link OpImage} in parallel, as done by the statistical operations which only need the side effects
+ * of the tile computation. The tiles are claimed by a limited number of workers, each one taking a small batch of consecutive tiles at a time and
+ * computing them one by one, so that the number of tiles in flight is bounded by the number of workers while all the cores are used. The tile
+ * references are not retained by this class.
+ */
+public final class TileTraversal {
+
+    /**
+     * {@link RenderingHints} key defining the number of tiles claimed at once by every worker, as an {@link Integer}. A value lower than 1 disables
+     * the parallel traversal and the tiles are computed one by one on the calling thread.
+     */
+    public static final RenderingHints.Key KEY_TILES_PER_WORKER = new IntegerKey(0);
+
+    /** Default number of tiles claimed at once by every worker */
+    public static final int DEFAULT_TILES_PER_WORKER = 4;
+
+    /** {@link RenderingHints} key accepting {@link Integer} values */
+    private static final class IntegerKey extends RenderingHints.Key {
+
+        IntegerKey(int privateKey) {
+            super(privateKey);
+        }
+
+        @Override
+        public boolean isCompatibleValue(Object val) {
+            return val instanceof Integer;
+        }
+    }
+
+    private TileTraversal() {
+    }
+
+    /**
+     * Returns the number of tiles claimed at once by every worker, as defined by the {@link #KEY_TILES_PER_WORKER} hint if present.
+     * 
+     * @param hints the rendering hints or the image configuration, may be null
+     * @return the number of tiles per worker
+     */
+    public static int getTilesPerWorker(Map hints) {
+        Object value = hints != null ? hints.get(KEY_TILES_PER_WORKER) : null;
+        return value instanceof Integer ? (Integer) value : DEFAULT_TILES_PER_WORKER;
+    }
+
+    /**
+     * Computes the tiles at the input indices by calling {@link OpImage#getTile(int, int)}. The calling thread takes part in the computation and the
+     * method returns when all the tiles have been computed; the first exception thrown by a worker is rethrown.
+     * 
+     * @param image the image whose tiles must be computed
+     * @param tileIndices the indices of the tiles to compute
+     * @param tilesPerWorker the number of consecutive tiles claimed at once by every worker; a value lower than 1 computes the tiles serially
+     */
+    public static void computeTiles(final OpImage image, final Point[] tileIndices,
+            final int tilesPerWorker) {
+        if (tileIndices == null || tileIndices.length == 0) {
+            return;
+        }
+        int batches = tilesPerWorker > 0 ? (tileIndices.length + tilesPerWorker - 1)
+                / tilesPerWorker : 1;
+        int workers = Math.min(batches, Runtime.getRuntime().availableProcessors());
+        if (workers <= 1) {
+            // one by one, not all together, or we'll load the entire raster in memory
+            for (Point tileIndex : tileIndices) {
+                image.getTile(tileIndex.x, tileIndex.y);
+            }
+            return;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int start;
+                while ((start = next.getAndAdd(tilesPerWorker)) < tileIndices.length) {
+                    int end = Math.min(start + tilesPerWorker, tileIndices.length);
+                    for (int i = start; i < end; i++) {
+                        image.getTile(tileIndices[i].x, tileIndices[i].y);
+                    }
+                }
+            }
+        };
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workers - 1];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = ForkJoinPool.commonPool().submit(worker);
+        }
+        RuntimeException error = null;
+        try {
+            worker.run();
+        } catch (RuntimeException e) {
+            // Stop the other workers as soon as possible
+            next.set(tileIndices.length);
+            error = e;
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException e) {
+                next.set(tileIndices.length);
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
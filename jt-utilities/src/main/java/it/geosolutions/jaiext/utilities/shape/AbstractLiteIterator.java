@@ -17,8 +17,11 @@
  */
 package it.geosolutions.jaiext.utilities.shape;
 
+import java.awt.geom.AffineTransform;
 import java.awt.geom.PathIterator;
 
+import org.locationtech.jts.geom.CoordinateSequence;
+
 /**
  * Subclass that provides a convenient efficient currentSegment(float[] coords) implementation that reuses always the same double array. This class
  * and the associated subclasses are not thread safe. This class was ported back and simplified from GeoTools, with permission from the author(s)
@@ -29,6 +32,48 @@ public abstract class AbstractLiteIterator implements PathIterator {
     /** Segment coordinates*/
     protected double[] dcoords = new double[2];
 
+    /** True if the vertices closer than maxDistance to the previous one must be skipped */
+    protected boolean generalize = false;
+
+    /** Maximum distance between the skipped vertices and the previous one, after the transformation */
+    protected double maxDistance = 1;
+
+    /** Coordinates used to compute the distances between the transformed vertices */
+    private double[] gcoords = new double[4];
+
+    /**
+     * Returns the index of the vertex following the one at the given index. When generalizing, the vertices whose distance from the given one is
+     * less than maxDistance along both axes, once transformed, are skipped. The last vertex is never skipped.
+     * 
+     * @param coords the vertices
+     * @param index the index of the current vertex
+     * @param lastIndex the index of the last vertex
+     * @param at the transform applied to the vertices
+     * 
+     * @return the index of the next vertex to return
+     */
+    protected int nextVertex(CoordinateSequence coords, int index, int lastIndex,
+            AffineTransform at) {
+        int next = index + 1;
+        if (!generalize || next >= lastIndex) {
+            return next;
+        }
+        gcoords[0] = coords.getX(index);
+        gcoords[1] = coords.getY(index);
+        at.transform(gcoords, 0, gcoords, 0, 1);
+        while (next < lastIndex) {
+            gcoords[2] = coords.getX(next);
+            gcoords[3] = coords.getY(next);
+            at.transform(gcoords, 2, gcoords, 2, 1);
+            if (Math.abs(gcoords[2] - gcoords[0]) >= maxDistance
+                    || Math.abs(gcoords[3] - gcoords[1]) >= maxDistance) {
+                break;
+            }
+            next++;
+        }
+        return next;
+    }
+
     /**
      * @see java.awt.geom.PathIterator#currentSegment(float[])
      */
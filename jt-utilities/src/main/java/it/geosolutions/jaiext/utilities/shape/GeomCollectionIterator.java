@@ -58,6 +58,19 @@ public final class GeomCollectionIterator extends AbstractLiteIterator {
      * @param at
      */
     public void init(GeometryCollection gc, AffineTransform at) {
+        init(gc, at, false, 1);
+    }
+
+    /**
+     * @param gc
+     * @param at
+     * @param generalize
+     * @param maxDistance
+     */
+    public void init(GeometryCollection gc, AffineTransform at, boolean generalize,
+            double maxDistance) {
+        this.generalize = generalize;
+        this.maxDistance = maxDistance;
         this.gc = gc;
         this.at = at == null ? new AffineTransform() : at;
         currentGeom = 0;
@@ -75,6 +88,19 @@ public final class GeomCollectionIterator extends AbstractLiteIterator {
         init(gc, at);
     }
 
+    /**
+     * Creates a new instance of GeomCollectionIterator
+     * 
+     * @param gc The geometry collection the iterator will use
+     * @param at The affine transform applied to coordinates during iteration
+     * @param generalize if true, the vertices whose distance from the previous one is less than maxDistance are skipped
+     * @param maxDistance the generalization distance, after the transformation
+     */
+    public GeomCollectionIterator(GeometryCollection gc, AffineTransform at, boolean generalize,
+            double maxDistance) {
+        init(gc, at, generalize, maxDistance);
+    }
+
     /**
      * Returns the specific iterator for the geometry passed.
      * 
@@ -89,13 +115,13 @@ public final class GeomCollectionIterator extends AbstractLiteIterator {
             return EmptyIterator.INSTANCE;
         if (g instanceof Polygon) {
             Polygon p = (Polygon) g;
-            pi = new PolygonIterator(p, at);
+            pi = new PolygonIterator(p, at, generalize, maxDistance);
         } else if (g instanceof GeometryCollection) {
             GeometryCollection gc = (GeometryCollection) g;
-            pi = new GeomCollectionIterator(gc, at);
+            pi = new GeomCollectionIterator(gc, at, generalize, maxDistance);
         } else if (g instanceof LineString || g instanceof LinearRing) {
             LineString ls = (LineString) g;
-            pi = new LineIterator(ls, at);
+            pi = new LineIterator(ls, at, generalize, maxDistance);
         } else if (g instanceof Point) {
             Point p = (Point) g;
             pi = new PointIterator(p, at);
@@ -66,11 +66,35 @@ public final class LineIterator extends AbstractLiteIterator {
         init(ls, at);
     }
 
+    /**
+     * Creates a new instance of LineIterator
+     * 
+     * @param ls The line string the iterator will use
+     * @param at The affine transform applied to coordinates during iteration
+     * @param generalize if true, the vertices whose distance from the previous one is less than maxDistance are skipped
+     * @param maxDistance the generalization distance, after the transformation
+     */
+    public LineIterator(LineString ls, AffineTransform at, boolean generalize, double maxDistance) {
+        init(ls, at, generalize, maxDistance);
+    }
+
     /**
      * @param ls
      * @param at
      */
     public void init(LineString ls, AffineTransform at) {
+        init(ls, at, false, 1);
+    }
+
+    /**
+     * @param ls
+     * @param at
+     * @param generalize
+     * @param maxDistance
+     */
+    public void init(LineString ls, AffineTransform at, boolean generalize, double maxDistance) {
+        this.generalize = generalize;
+        this.maxDistance = maxDistance;
         if (at == null) {
             at = NO_TRANSFORM;
         }
@@ -115,7 +139,7 @@ public final class LineIterator extends AbstractLiteIterator {
                 || ((currentCoord == coordinateCount) && isClosed)) {
             done = true;
         } else {
-            currentCoord++;
+            currentCoord = nextVertex(coordinates, currentCoord, coordinateCount - 1, at);
         }
     }
 
@@ -25,25 +25,56 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.LinearRing;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 
 /**
  * A thin wrapper that adapts a JTS geometry to the Shape interface so that the geometry can be used by java2d without coordinate cloning.
  * <p>
+ * Optionally the point and rectangle tests can be run against a {@link PreparedGeometry}, using a reusable point per thread, and the path
+ * iterators can be asked to generalize the geometry, skipping the vertices closer than a given distance, expressed after the transformation, to
+ * the previous one.
+ * <p>
  * This class was ported back and simplified from GeoTools, with permission from the author(s).
  * 
  * @author Andrea Aime
  */
 public class LiteShape implements Shape, Cloneable {
+    /** Factory of the points used to test the containment of coordinates */
+    private static final GeometryFactory PROBE_FACTORY = new GeometryFactory();
+
+    /** Point used by each thread to test the containment of coordinates */
+    private static final ThreadLocal<Point> PROBE = new ThreadLocal<Point>() {
+        @Override
+        protected Point initialValue() {
+            return PROBE_FACTORY.createPoint(new Coordinate());
+        }
+    };
+
     /** The wrapped JTS geometry */
     private Geometry geometry;
 
+    /** The prepared version of the wrapped geometry, or null if the geometry is not prepared */
+    private PreparedGeometry preparedGeometry;
+
+    /** True if the point and rectangle tests must use the prepared geometry */
+    private boolean prepared;
+
+    /** True if the generalization must be applied by the path iterators */
+    private boolean generalize;
+
+    /** Maximum distance between the skipped vertices and the previous one, after the transformation */
+    private double maxDistance;
+
     /**
      * Creates a new LiteShape object.
      * 
@@ -51,11 +82,42 @@ public class LiteShape implements Shape, Cloneable {
      * 
      */
     public LiteShape(Geometry geom) {
+        this(geom, false, false, 0);
+    }
+
+    /**
+     * Creates a new LiteShape object.
+     * 
+     * @param geom - the wrapped geometry
+     * @param prepared - if true, the point and rectangle tests are run against a prepared version of the geometry
+     * @param generalize - if true, the path iterators skip the vertices closer than maxDistance to the previous one
+     * @param maxDistance - the generalization distance, expressed after the transformation given to the path iterator (e.g. in pixels)
+     */
+    public LiteShape(Geometry geom, boolean prepared, boolean generalize, double maxDistance) {
+        this.prepared = prepared;
+        this.generalize = generalize && maxDistance > 0;
+        this.maxDistance = maxDistance;
         if (geom != null) {
-            this.geometry = (Geometry) geom.clone();
+            setGeometry(geom);
         }
     }
 
+    /**
+     * Creates a new LiteShape object running the point and rectangle tests against an existing prepared geometry. Neither the prepared geometry
+     * nor its geometry are cloned, so they must not be modified while the shape is in use.
+     * 
+     * @param preparedGeom - the prepared geometry to wrap
+     * @param generalize - if true, the path iterators skip the vertices closer than maxDistance to the previous one
+     * @param maxDistance - the generalization distance, expressed after the transformation given to the path iterator (e.g. in pixels)
+     */
+    public LiteShape(PreparedGeometry preparedGeom, boolean generalize, double maxDistance) {
+        this.prepared = true;
+        this.generalize = generalize && maxDistance > 0;
+        this.maxDistance = maxDistance;
+        this.geometry = preparedGeom.getGeometry();
+        this.preparedGeometry = preparedGeom;
+    }
+
     /**
      * Sets the geometry contained in this lite shape. Convenient to reuse this object instead of creating it again and again during rendering
      * 
@@ -63,6 +125,7 @@ public class LiteShape implements Shape, Cloneable {
      */
     public void setGeometry(Geometry g) {
         this.geometry = (Geometry) g.clone();
+        this.preparedGeometry = prepared ? PreparedGeometryFactory.prepare(geometry) : null;
     }
 
     /**
@@ -92,6 +155,9 @@ public class LiteShape implements Shape, Cloneable {
     public boolean contains(Rectangle2D r) {
         Geometry rect = rectangleToGeometry(r);
 
+        if (preparedGeometry != null) {
+            return preparedGeometry.contains(rect);
+        }
         return geometry.contains(rect);
     }
 
@@ -103,10 +169,7 @@ public class LiteShape implements Shape, Cloneable {
      * @return <code>true</code> if the specified <code>Point2D</code> is inside the boundary of the <code>Shape</code>; <code>false</code> otherwise.
      */
     public boolean contains(Point2D p) {
-        Coordinate coord = new Coordinate(p.getX(), p.getY());
-        Geometry point = geometry.getFactory().createPoint(coord);
-
-        return geometry.contains(point);
+        return contains(p.getX(), p.getY());
     }
 
     /**
@@ -118,6 +181,18 @@ public class LiteShape implements Shape, Cloneable {
      * @return <code>true</code> if the specified coordinates are inside the <code>Shape</code> boundary; <code>false</code> otherwise.
      */
     public boolean contains(double x, double y) {
+        if (preparedGeometry != null) {
+            if (!geometry.getEnvelopeInternal().contains(x, y)) {
+                return false;
+            }
+            Point point = PROBE.get();
+            CoordinateSequence cs = point.getCoordinateSequence();
+            cs.setOrdinate(0, CoordinateSequence.X, x);
+            cs.setOrdinate(0, CoordinateSequence.Y, y);
+            point.geometryChanged();
+
+            return preparedGeometry.contains(point);
+        }
         Coordinate coord = new Coordinate(x, y);
         Geometry point = geometry.getFactory().createPoint(coord);
 
@@ -159,6 +234,9 @@ public class LiteShape implements Shape, Cloneable {
     public boolean contains(double x, double y, double w, double h) {
         Geometry rect = createRectangle(x, y, w, h);
 
+        if (preparedGeometry != null) {
+            return preparedGeometry.contains(rect);
+        }
         return geometry.contains(rect);
     }
 
@@ -236,13 +314,14 @@ public class LiteShape implements Shape, Cloneable {
         }
 
         if (this.geometry instanceof Polygon) {
-            pi = new PolygonIterator((Polygon) geometry, combined);
+            pi = new PolygonIterator((Polygon) geometry, combined, generalize, maxDistance);
         } else if (this.geometry instanceof LinearRing) {
-            pi = new LineIterator((LinearRing) geometry, combined);
+            pi = new LineIterator((LinearRing) geometry, combined, generalize, maxDistance);
         } else if (this.geometry instanceof LineString) {
-            pi = new LineIterator((LineString) geometry, combined);
+            pi = new LineIterator((LineString) geometry, combined, generalize, maxDistance);
         } else if (this.geometry instanceof GeometryCollection) {
-            pi = new GeomCollectionIterator((GeometryCollection) geometry, combined);
+            pi = new GeomCollectionIterator((GeometryCollection) geometry, combined, generalize,
+                    maxDistance);
         }
 
         return pi;
@@ -316,6 +395,9 @@ public class LiteShape implements Shape, Cloneable {
     public boolean intersects(Rectangle2D r) {
         Geometry rect = rectangleToGeometry(r);
 
+        if (preparedGeometry != null) {
+            return preparedGeometry.intersects(rect);
+        }
         return geometry.intersects(rect);
     }
 
@@ -351,6 +433,9 @@ public class LiteShape implements Shape, Cloneable {
     public boolean intersects(double x, double y, double w, double h) {
         Geometry rect = createRectangle(x, y, w, h);
 
+        if (preparedGeometry != null) {
+            return preparedGeometry.intersects(rect);
+        }
         return geometry.intersects(rect);
     }
 
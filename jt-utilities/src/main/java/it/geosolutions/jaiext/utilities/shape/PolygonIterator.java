@@ -56,6 +56,20 @@ public final class PolygonIterator extends AbstractLiteIterator {
      * @param at The affine transform applied to coordinates during iteration
      */
     public PolygonIterator(Polygon p, AffineTransform at) {
+        this(p, at, false, 1);
+    }
+
+    /**
+     * Creates a new PolygonIterator object.
+     * 
+     * @param p The polygon
+     * @param at The affine transform applied to coordinates during iteration
+     * @param generalize if true, the vertices whose distance from the previous one is less than maxDistance are skipped
+     * @param maxDistance the generalization distance, after the transformation
+     */
+    public PolygonIterator(Polygon p, AffineTransform at, boolean generalize, double maxDistance) {
+        this.generalize = generalize;
+        this.maxDistance = maxDistance;
         int numInteriorRings = p.getNumInteriorRing();
         rings = new LineString[numInteriorRings + 1];
         rings[0] = p.getExteriorRing();
@@ -144,7 +158,7 @@ public final class PolygonIterator extends AbstractLiteIterator {
                 done = true;
             }
         } else {
-            currentCoord++;
+            currentCoord = nextVertex(coords, currentCoord, coords.size() - 1, at);
         }
     }
 
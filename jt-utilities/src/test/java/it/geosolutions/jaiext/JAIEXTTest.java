@@ -17,6 +17,7 @@
  */
 package it.geosolutions.jaiext;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import it.geosolutions.jaiext.ConcurrentOperationRegistry.OperationCollection;
 import it.geosolutions.jaiext.ConcurrentOperationRegistry.OperationItem;
@@ -29,8 +30,10 @@ import java.awt.image.renderable.ParameterBlock;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Iterator;
 
 import javax.media.jai.JAI;
+import javax.media.jai.registry.RenderedRegistryMode;
 import javax.media.jai.operator.ScaleDescriptor;
 
 import org.apache.commons.io.FileUtils;
@@ -80,6 +83,8 @@ public class JAIEXTTest {
         // Also check that the associated RIF is an instance of the DummyScaleCRIF class
         assertTrue(operationItem.getCurrentFactory().getClass()
                 .isAssignableFrom(DummyScaleCRIF.class));
+        // Ensure that the factory lookup sees the new factory
+        assertTrue(registry.getFactory(RenderedRegistryMode.MODE_NAME, SCALE) instanceof DummyScaleCRIF);
 
         // Using JAI-EXT for changing the descriptor from JAI-EXT to JAI
         JAIExt.registerJAIDescriptor(SCALE);
@@ -87,6 +92,12 @@ public class JAIEXTTest {
         operations = registry.getOperationCollection();
         operationItem = operations.get(SCALE);
         assertTrue(operationItem.getDescriptor().getClass().isAssignableFrom(ScaleDescriptor.class));
+        // Ensure that the cached factory list has been discarded
+        Iterator factories = registry.getFactoryIterator(RenderedRegistryMode.MODE_NAME, SCALE);
+        assertTrue(factories.hasNext());
+        while (factories.hasNext()) {
+            assertFalse(factories.next() instanceof DummyScaleCRIF);
+        }
         // Also check that the associated RIF is an instance of the ScaleCRIF class
         assertTrue(operationItem.getCurrentFactory().getClass().isAssignableFrom(ScaleCRIF.class));
 
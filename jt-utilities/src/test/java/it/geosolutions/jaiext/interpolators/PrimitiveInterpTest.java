@@ -0,0 +1,130 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.interpolators;
+
+import static org.junit.Assert.assertEquals;
+
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.range.RangeFactory;
+
+import java.awt.image.DataBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the primitive interpolation methods of the Nearest-Neighbor and Bilinear interpolators.
+ */
+public class PrimitiveInterpTest {
+
+    private static final int WIDTH = 16;
+
+    private static final int HEIGHT = 16;
+
+    private static final double DEST_NODATA = 7;
+
+    @Test
+    public void nearestNoDataAndROI() {
+        byte[] data = new byte[] { (byte) 200, 5, 10, 0 };
+        Range noData = RangeFactory.create((byte) 5, true, (byte) 5, true);
+        InterpolationNearest interpN = new InterpolationNearest(noData, false, DEST_NODATA,
+                DataBuffer.TYPE_BYTE);
+
+        assertEquals(200, interpN.interpolateByte(data, 0, null, 0));
+        assertEquals(7, interpN.interpolateByte(data, 1, null, 0));
+
+        byte[] roi = new byte[] { 1, 1, 0, 1 };
+        assertEquals(200, interpN.interpolateByte(data, 0, roi, 0));
+        assertEquals(7, interpN.interpolateByte(data, 2, roi, 2));
+        assertEquals(7, interpN.interpolateByte(data, 3, roi, 4));
+
+        int[] pos = new int[] { 0, 1, 2, 3 };
+        int[] dest = new int[4];
+        interpN.interpolateByteRow(data, pos, roi, pos, dest, 4);
+        assertEquals(200, dest[0]);
+        assertEquals(7, dest[1]);
+        assertEquals(7, dest[2]);
+        assertEquals(0, dest[3]);
+
+        double[] dData = new double[] { Double.NaN, 3.5 };
+        Range dNoData = RangeFactory.create(-1d, true, 1d, true, true);
+        interpN = new InterpolationNearest(dNoData, false, DEST_NODATA, DataBuffer.TYPE_DOUBLE);
+        assertEquals(DEST_NODATA, interpN.interpolateDouble(dData, 0, null, 0), 0);
+        assertEquals(3.5, interpN.interpolateDouble(dData, 1, null, 0), 0);
+    }
+
+    @Test
+    public void bilinearMatchesComputeValue() {
+        Random random = new Random(42);
+        byte[] data = new byte[WIDTH * HEIGHT];
+        random.nextBytes(data);
+        byte noDataValue = data[WIDTH + 1];
+        Range noData = RangeFactory.create(noDataValue, true, noDataValue, true);
+        InterpolationBilinear interpB = new InterpolationBilinear(
+                InterpolationBilinear.DEFAULT_SUBSAMPLE_BITS, noData, false, DEST_NODATA,
+                DataBuffer.TYPE_BYTE);
+
+        int[] pos = new int[WIDTH - 1];
+        int[] xfrac = new int[WIDTH - 1];
+        int[] yfrac = new int[WIDTH - 1];
+        int[] row = new int[WIDTH - 1];
+        for (int y = 0; y < HEIGHT - 1; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                pos[x] = y * WIDTH + x;
+                xfrac[x] = random.nextInt(256);
+                yfrac[x] = random.nextInt(256);
+            }
+            interpB.interpolateByteRow(data, pos, xfrac, yfrac, 1, WIDTH, null, null, 0, row,
+                    WIDTH - 1);
+            for (int x = 0; x < WIDTH - 1; x++) {
+                int p = pos[x];
+                int s00 = data[p] & 0xff;
+                int s01 = data[p + 1] & 0xff;
+                int s10 = data[p + WIDTH] & 0xff;
+                int s11 = data[p + WIDTH + 1] & 0xff;
+                int expected = interpB.computeValue(s00, s01, s10, s11, weight(data[p], noDataValue),
+                        weight(data[p + 1], noDataValue), weight(data[p + WIDTH], noDataValue),
+                        weight(data[p + WIDTH + 1], noDataValue), xfrac[x], yfrac[x]);
+                assertEquals(expected, interpB.interpolateByte(data, p, 1, WIDTH, xfrac[x],
+                        yfrac[x], null, 0, 0));
+                assertEquals(expected, row[x]);
+            }
+        }
+    }
+
+    @Test
+    public void bilinearROI() {
+        double[] data = new double[] { 1, 3, 5, 7 };
+        InterpolationBilinear interpB = new InterpolationBilinear(
+                InterpolationBilinear.DEFAULT_SUBSAMPLE_BITS, null, false, DEST_NODATA,
+                DataBuffer.TYPE_DOUBLE);
+
+        assertEquals(4, interpB.interpolateDouble(data, 0, 1, 2, 0.5, 0.5, null, 0, 0), 1E-9);
+        // Upper-left pixel outside of the ROI
+        assertEquals(DEST_NODATA, interpB.interpolateDouble(data, 0, 1, 2, 0.5, 0.5,
+                new byte[] { 0, 1, 1, 1 }, 0, 2), 0);
+        // Only the right column is inside the ROI
+        double expected = InterpolationBilinear.computeValueDouble(1, 3, 5, 7, false, false,
+                true, true, 0.25, 0.25, DataBuffer.TYPE_DOUBLE, DEST_NODATA).doubleValue();
+        assertEquals(expected, interpB.interpolateDouble(data, 0, 1, 2, 0.25, 0.25,
+                new byte[] { 1, 1, 0, 0 }, 0, 2), 0);
+    }
+
+    private static int weight(byte value, byte noDataValue) {
+        return value == noDataValue ? 0 : 1;
+    }
+}
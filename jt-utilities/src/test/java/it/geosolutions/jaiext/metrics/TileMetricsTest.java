@@ -0,0 +1,121 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+*    http://www.geo-solutions.it/
+*    Copyright 2014 GeoSolutions
+
+
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+
+* http://www.apache.org/licenses/LICENSE-2.0
+
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package it.geosolutions.jaiext.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+import java.lang.management.ManagementFactory;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+import javax.media.jai.operator.ConstantDescriptor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.media.jai.opimage.InvertRIF;
+
+public class TileMetricsTest {
+
+    private static final int SIZE = 512;
+
+    private static final int TILE_SIZE = 128;
+
+    @After
+    public void disable() {
+        TileMetrics.setEnabled(false);
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000000, histogram.getMax());
+        // the relative error is bounded by the bucket width
+        assertEquals(500000, histogram.getPercentile(50), 500000d / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(990000, histogram.getPercentile(99), 990000d / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(1000000, histogram.getPercentile(100));
+
+        // small values are recorded exactly
+        for (long value = 0; value < 4 * LatencyHistogram.SUB_BUCKETS; value++) {
+            int index = LatencyHistogram.getIndex(value);
+            assertTrue(LatencyHistogram.getLowerBound(index) <= value);
+            assertTrue(LatencyHistogram.getLowerBound(index + 1) > value);
+        }
+        histogram.reset();
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testOperationMetrics() throws Exception {
+        TileMetrics.setEnabled(true);
+        OperationMetrics inner = TileMetrics.getOperationMetrics("InnerInvert");
+        OperationMetrics outer = TileMetrics.getOperationMetrics("OuterInvert");
+        inner.reset();
+        outer.reset();
+        assertSame(inner, TileMetrics.getOperationMetrics("innerinvert"));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                TileMetrics.getObjectName("InnerInvert")));
+
+        ImageLayout layout = new ImageLayout().setTileWidth(TILE_SIZE).setTileHeight(TILE_SIZE);
+        RenderingHints hints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT, layout);
+        RenderedImage source = ConstantDescriptor.create((float) SIZE, (float) SIZE,
+                new Byte[] { 1 }, hints);
+        RenderedImage image = new InstrumentedRenderedImageFactory("InnerInvert", new InvertRIF())
+                .create(new ParameterBlock().addSource(source), hints);
+        image = new InstrumentedRenderedImageFactory("OuterInvert", new InvertRIF()).create(
+                new ParameterBlock().addSource(image), hints);
+        assertEquals(1, inner.getImageCount());
+        assertEquals(1, outer.getImageCount());
+
+        computeTiles(image);
+        int tiles = (SIZE / TILE_SIZE) * (SIZE / TILE_SIZE);
+        assertEquals(tiles, outer.getTileCount());
+        assertEquals(SIZE * SIZE, outer.getBytesProduced());
+        assertEquals(tiles, inner.getTileCount());
+        assertTrue(outer.getTotalComputeTime() > 0);
+        assertTrue(outer.getMaxComputeTime() >= outer.getMedianComputeTime());
+        // the inner tiles are computed on demand by the outer image
+        assertTrue(outer.getTotalSourceComputeTime() > 0);
+        assertTrue(outer.getTotalSourceComputeTime() <= outer.getTotalComputeTime());
+
+        // nothing is recorded once disabled
+        TileMetrics.setEnabled(false);
+        new InstrumentedRenderedImageFactory("OuterInvert", new InvertRIF()).create(
+                new ParameterBlock().addSource(source), hints).getTile(0, 0);
+        assertEquals(1, outer.getImageCount());
+        assertEquals(tiles, outer.getTileCount());
+    }
+
+    /** Computes the tiles one by one on the current thread */
+    private static void computeTiles(RenderedImage image) {
+        for (int y = 0; y < image.getNumYTiles(); y++) {
+            for (int x = 0; x < image.getNumXTiles(); x++) {
+                image.getTile(image.getMinTileX() + x, image.getMinTileY() + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+import javax.media.jai.JAI;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TileRecycler;
+import javax.media.jai.TiledImage;
+
+import org.junit.Test;
+
+/**
+ * Tests for the read-only constant image.
+ */
+public class ConstantImageTest {
+
+    @Test
+    public void tilesShareData() {
+        PlanarImage image = ImageUtilities.createConstantImage(10, 20, 1000, 700, 256, 256,
+                new Number[] {Integer.valueOf(3), Integer.valueOf(7)}, true);
+        assertTrue(image instanceof ConstantImage);
+        assertEquals(DataBuffer.TYPE_INT, image.getSampleModel().getDataType());
+        assertEquals(2, image.getSampleModel().getNumBands());
+
+        Raster first = image.getTile(image.getMinTileX(), image.getMinTileY());
+        Raster last = image.getTile(image.getMaxTileX(), image.getMaxTileY());
+        assertSame(first.getDataBuffer(), last.getDataBuffer());
+        assertEquals(image.tileXToX(image.getMaxTileX()), last.getMinX());
+        assertEquals(image.tileYToY(image.getMaxTileY()), last.getMinY());
+        assertEquals(256, last.getWidth());
+        assertEquals(256, last.getHeight());
+        
+        assertNull(image.getTile(image.getMaxTileX() + 1, image.getMinTileY()));
+    }
+
+    @Test
+    public void sameValuesAsTiledImage() {
+        Number[] values = {Double.valueOf(1.5), Double.valueOf(-2)};
+        PlanarImage lazy = ImageUtilities.createConstantImage(0, 0, 100, 60, 32, 32, values, true);
+        PlanarImage tiled = ImageUtilities.createConstantImage(0, 0, 100, 60, 32, 32, values, false);
+        assertTrue(tiled instanceof TiledImage);
+        assertFalse(lazy instanceof TiledImage);
+
+        Rectangle bounds = new Rectangle(0, 0, 100, 60);
+        Raster expected = tiled.getData(bounds);
+        Raster actual = lazy.getData(bounds);
+        for (int y = 0; y < bounds.height; y++) {
+            for (int x = 0; x < bounds.width; x++) {
+                for (int b = 0; b < values.length; b++) {
+                    assertEquals(expected.getSampleDouble(x, y, b),
+                            actual.getSampleDouble(x, y, b), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void hugeImage() {
+        // would need tens of gigabytes if materialised
+        PlanarImage image = ImageUtilities.createReadOnlyConstantImage(0, 0, 100000, 100000,
+                new Number[] {Byte.valueOf((byte) 42)});
+        Raster tile = image.getTile(image.getMaxTileX() / 2, image.getMaxTileY() / 2);
+        assertEquals(42, tile.getSample(tile.getMinX(), tile.getMinY(), 0));
+    }
+
+    @Test
+    public void smallImageDoesNotAllocateFullTile() {
+        PlanarImage image = ImageUtilities.createConstantImage(0, 0, 10, 5, 512, 512,
+                new Number[] {Float.valueOf(1f)}, true);
+        assertEquals(10, image.getTileWidth());
+        assertEquals(5, image.getTileHeight());
+        assertEquals(50, image.getTile(0, 0).getDataBuffer().getSize());
+    }
+
+    @Test
+    public void tilesAreReadOnly() {
+        PlanarImage image = ImageUtilities.createReadOnlyConstantImage(0, 0, 100, 100,
+                new Number[] {Byte.valueOf((byte) 42)});
+        Raster tile = image.getTile(0, 0);
+        assertFalse(tile instanceof WritableRaster);
+        assertFalse(tile.createChild(tile.getMinX(), tile.getMinY(), 1, 1, 0, 0, null) 
+                instanceof WritableRaster);
+        assertTrue(ConstantImage.isSharedDataBuffer(tile.getDataBuffer()));
+    }
+
+    @Test
+    public void recycledTileDoesNotChangeOtherTiles() {
+        // a recycler clearing the arrays, as a recycling tile factory does before reuse
+        TileRecycler recycler = new TileRecycler() {
+            public void recycleTile(Raster tile) {
+                Arrays.fill(((DataBufferByte) tile.getDataBuffer()).getData(), (byte) 0);
+            }
+        };
+        SampleModel sm = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_BYTE, 16, 16, 1);
+        ConstantImage image = new ConstantImage(0, 0, 64, 64, sm, null,
+                new RenderingHints(JAI.KEY_TILE_RECYCLER, recycler), new int[] {42});
+
+        image.recycleTile(image.getTile(0, 0));
+        Raster other = image.getTile(1, 1);
+        assertEquals(42, other.getSample(other.getMinX(), other.getMinY(), 0));
+    }
+}
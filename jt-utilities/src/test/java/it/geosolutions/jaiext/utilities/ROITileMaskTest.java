@@ -0,0 +1,103 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.ROI;
+import javax.media.jai.ROIShape;
+import javax.media.jai.TiledImage;
+
+import org.junit.Test;
+
+/**
+ * Tests for the per tile ROI masks.
+ */
+public class ROITileMaskTest {
+
+    @Test
+    public void rectangle() {
+        ROI roi = new ROIShape(new Rectangle(10, 10, 20, 20));
+
+        ROITileMask full = ROITileMask.createMask(roi, new Rectangle(12, 12, 5, 5));
+        assertTrue(full.isFull());
+        assertFalse(full.isEmpty());
+        assertNull(full.getData());
+        assertTrue(full.contains(12, 16));
+        assertFalse(full.contains(17, 16));
+
+        ROITileMask empty = ROITileMask.createMask(roi, new Rectangle(40, 40, 5, 5));
+        assertTrue(empty.isEmpty());
+        assertFalse(empty.contains(41, 41));
+
+        ROITileMask partial = ROITileMask.createMask(roi, new Rectangle(0, 0, 16, 16));
+        assertFalse(partial.isFull());
+        assertFalse(partial.isEmpty());
+        assertMatchesImage(roi, partial);
+    }
+
+    @Test
+    public void polygon() {
+        Polygon triangle = new Polygon(new int[] { 3, 60, 3 }, new int[] { 2, 2, 50 }, 3);
+        ROI roi = new ROIShape(triangle);
+        assertMatchesImage(roi, ROITileMask.createMask(roi, new Rectangle(0, 0, 64, 64)));
+        assertMatchesImage(roi, ROITileMask.createMask(roi, new Rectangle(17, 5, 13, 9)));
+    }
+
+    @Test
+    public void raster() {
+        TiledImage image = ImageUtilities.createConstantImage(0, 0, 32, 32,
+                new Number[] { Byte.valueOf((byte) 0) });
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                image.setSample(x, y, 0, (x * y) % 3 == 0 ? 1 : 0);
+            }
+        }
+        ROI roi = new ROI(image, 1);
+        assertMatchesImage(roi, ROITileMask.createMask(roi, new Rectangle(-4, -4, 20, 20)));
+        assertMatchesImage(roi, ROITileMask.createMask(roi, new Rectangle(5, 7, 11, 3)));
+    }
+
+    @Test
+    public void cached() {
+        ROI roi = new ROIShape(new Rectangle(10, 10, 20, 20));
+        Rectangle rect = new Rectangle(0, 0, 16, 16);
+        ROITileMask mask = ROITileMask.getMask(roi, rect);
+        assertSame(mask, ROITileMask.getMask(roi, new Rectangle(rect)));
+    }
+
+    private static void assertMatchesImage(ROI roi, ROITileMask mask) {
+        Rectangle bounds = mask.getBounds();
+        PlanarImage roiImage = roi.getAsImage();
+        Raster data = roiImage.getData();
+        for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+            for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                boolean expected = data.getBounds().contains(x, y) && data.getSample(x, y, 0) > 0;
+                assertEquals("Pixel " + x + "," + y, expected, mask.contains(x, y));
+            }
+        }
+    }
+}
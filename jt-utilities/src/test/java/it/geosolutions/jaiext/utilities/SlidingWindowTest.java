@@ -0,0 +1,86 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.range.RangeFactory;
+
+import org.junit.Test;
+
+/**
+ * Tests for the sliding window over the source rows.
+ */
+public class SlidingWindowTest {
+
+    private static final int WIDTH = 12;
+
+    private static final int HEIGHT = 9;
+
+    /** Interleaved two band data, the window reads the first band */
+    private static final int PIXEL_STRIDE = 2;
+
+    private static final int SCANLINE_STRIDE = WIDTH * PIXEL_STRIDE;
+
+    @Test
+    public void windows() {
+        final float[] data = new float[SCANLINE_STRIDE * HEIGHT];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i % 7 == 0 ? -1 : i;
+        }
+        Range noData = RangeFactory.create(-1f, true, -1f, true, false);
+        SlidingWindow.SampleReader reader = new SlidingWindow.SampleReader() {
+            public double getSample(int index) {
+                return data[index];
+            }
+        };
+
+        for (int size = 1; size <= 5; size += 2) {
+            SlidingWindow sliding = new SlidingWindow(size, WIDTH, PIXEL_STRIDE,
+                    SCANLINE_STRIDE, noData, reader);
+            for (int y = 0; y <= HEIGHT - size; y++) {
+                sliding.setRows(y * SCANLINE_STRIDE);
+                // Sequential columns, then a jump back
+                for (int x = 0; x <= WIDTH - size; x++) {
+                    sliding.moveTo(x);
+                    assertWindow(data, size, x, y, sliding);
+                }
+                sliding.moveTo(0);
+                assertWindow(data, size, 0, y, sliding);
+            }
+            // Jump back to the first rows
+            sliding.setRows(0);
+            sliding.moveTo(1);
+            assertWindow(data, size, 1, 0, sliding);
+        }
+    }
+
+    private void assertWindow(float[] data, int size, int x, int y, SlidingWindow sliding) {
+        boolean allValid = true;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                float expected = data[(y + r) * SCANLINE_STRIDE + (x + c) * PIXEL_STRIDE];
+                int k = r * size + c;
+                assertEquals(expected, sliding.getWindow()[k], 0d);
+                assertEquals(expected != -1, sliding.getValidMask()[k]);
+                allValid &= expected != -1;
+            }
+        }
+        assertEquals(allValid, sliding.isAllValid());
+    }
+}
@@ -0,0 +1,97 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.SourcelessOpImage;
+
+import org.junit.Test;
+
+/**
+ * Tests for the parallel computation of the image tiles.
+ */
+public class TileTraversalTest {
+
+    /** Image counting how many times each tile is computed */
+    private static class CountingImage extends SourcelessOpImage {
+
+        private final ConcurrentHashMap<Point, AtomicInteger> counts = new ConcurrentHashMap<Point, AtomicInteger>();
+
+        CountingImage(SampleModel sm) {
+            super(null, new RenderingHints(JAI.KEY_TILE_CACHE, JAI.createTileCache(1L)), sm, 0,
+                    0, 100, 70);
+        }
+
+        @Override
+        protected void computeRect(PlanarImage[] sources, WritableRaster dest, Rectangle destRect) {
+            Point index = new Point(XToTileX(destRect.x), YToTileY(destRect.y));
+            counts.putIfAbsent(index, new AtomicInteger());
+            counts.get(index).incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testAllTilesComputedOnce() {
+        SampleModel sm = RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, 16,
+                16, 1);
+        for (int tilesPerWorker : new int[] { 0, 1, 3, 100 }) {
+            CountingImage image = new CountingImage(sm);
+            Point[] tileIndices = image.getTileIndices(image.getBounds());
+            TileTraversal.computeTiles(image, tileIndices, tilesPerWorker);
+
+            assertEquals(tileIndices.length, image.counts.size());
+            for (Point tileIndex : tileIndices) {
+                assertEquals(1, image.counts.get(tileIndex).get());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testErrorPropagation() {
+        SampleModel sm = RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, 16,
+                16, 1);
+        CountingImage image = new CountingImage(sm) {
+            @Override
+            protected void computeRect(PlanarImage[] sources, WritableRaster dest,
+                    Rectangle destRect) {
+                throw new IllegalStateException("Failed tile");
+            }
+        };
+        TileTraversal.computeTiles(image, image.getTileIndices(image.getBounds()), 1);
+    }
+
+    @Test
+    public void testHint() {
+        assertEquals(TileTraversal.DEFAULT_TILES_PER_WORKER, TileTraversal.getTilesPerWorker(null));
+        RenderingHints hints = new RenderingHints(TileTraversal.KEY_TILES_PER_WORKER, 7);
+        assertEquals(7, TileTraversal.getTilesPerWorker(hints));
+    }
+}
@@ -0,0 +1,145 @@
+/* JAI-Ext - OpenSource Java Advanced Image Extensions Library
+ *    http://www.geo-solutions.it/
+ *    Copyright 2014 GeoSolutions
+ *    
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package it.geosolutions.jaiext.utilities.shape;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.Random;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+public class LiteShapeTest {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+
+    /** A star shaped polygon with many vertices, the densest ones along the edge of a circle */
+    private static Polygon buildPolygon(int numVertices) {
+        Coordinate[] coords = new Coordinate[numVertices + 1];
+        for (int i = 0; i < numVertices; i++) {
+            double angle = 2 * Math.PI * i / numVertices;
+            double radius = i % 100 == 0 ? 50 : 100;
+            coords[i] = new Coordinate(200 + radius * Math.cos(angle), 200 + radius
+                    * Math.sin(angle));
+        }
+        coords[numVertices] = coords[0];
+        return GF.createPolygon(coords);
+    }
+
+    @Test
+    public void preparedContains() {
+        Polygon polygon = buildPolygon(1000);
+        Geometry holed = polygon.difference(GF.createPolygon(new Coordinate[] {
+                new Coordinate(180, 180), new Coordinate(180, 220), new Coordinate(220, 220),
+                new Coordinate(220, 180), new Coordinate(180, 180) }));
+        LiteShape plain = new LiteShape(holed);
+        LiteShape prepared = new LiteShape(holed, true, false, 0);
+        Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            double x = random.nextDouble() * 300 + 50;
+            double y = random.nextDouble() * 300 + 50;
+            assertEquals(plain.contains(x, y), prepared.contains(x, y));
+            assertEquals(plain.intersects(x, y, 3, 3), prepared.intersects(x, y, 3, 3));
+            assertEquals(plain.contains(x, y, 3, 3), prepared.contains(x, y, 3, 3));
+        }
+        assertTrue(prepared.contains(170, 200));
+        assertTrue(!prepared.contains(200, 200));
+        assertTrue(!prepared.contains(1000, 1000));
+    }
+
+    @Test
+    public void sharedPreparedGeometry() {
+        Polygon polygon = buildPolygon(1000);
+        PreparedGeometry preparedGeom = PreparedGeometryFactory.prepare(polygon);
+        LiteShape shared = new LiteShape(preparedGeom, false, 0);
+        // the geometry is wrapped as is, without cloning
+        assertSame(polygon, shared.getGeometry());
+
+        LiteShape prepared = new LiteShape(polygon, true, false, 0);
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            double x = random.nextDouble() * 300 + 50;
+            double y = random.nextDouble() * 300 + 50;
+            assertEquals(prepared.contains(x, y), shared.contains(x, y));
+            assertEquals(prepared.intersects(x, y, 3, 3), shared.intersects(x, y, 3, 3));
+        }
+    }
+
+    @Test
+    public void generalize() {
+        Polygon polygon = buildPolygon(10000);
+        AffineTransform at = AffineTransform.getTranslateInstance(-10, -10);
+
+        int[] full = countSegments(new LiteShape(polygon).getPathIterator(at));
+        assertEquals(1, full[PathIterator.SEG_MOVETO]);
+        assertEquals(10000, full[PathIterator.SEG_LINETO]);
+        assertEquals(1, full[PathIterator.SEG_CLOSE]);
+
+        LiteShape generalized = new LiteShape(polygon, false, true, 1);
+        int[] reduced = countSegments(generalized.getPathIterator(at));
+        assertEquals(1, reduced[PathIterator.SEG_MOVETO]);
+        assertEquals(1, reduced[PathIterator.SEG_CLOSE]);
+        assertTrue(reduced[PathIterator.SEG_LINETO] < 2000);
+
+        // consecutive vertices are at least one pixel apart, the ring is still closed
+        PathIterator pi = generalized.getPathIterator(at);
+        double[] coords = new double[6];
+        double[] first = null;
+        double[] previous = null;
+        int remaining = reduced[PathIterator.SEG_LINETO];
+        while (!pi.isDone()) {
+            int type = pi.currentSegment(coords);
+            if (type != PathIterator.SEG_CLOSE) {
+                if (previous != null && --remaining > 0) {
+                    assertTrue(Math.abs(coords[0] - previous[0]) >= 1
+                            || Math.abs(coords[1] - previous[1]) >= 1);
+                }
+                previous = new double[] { coords[0], coords[1] };
+                if (first == null) {
+                    first = previous;
+                }
+            }
+            pi.next();
+        }
+        assertEquals(first[0], previous[0], 0);
+        assertEquals(first[1], previous[1], 0);
+
+        // a scale up makes the same vertices far apart again
+        int[] zoomed = countSegments(generalized.getPathIterator(AffineTransform
+                .getScaleInstance(100, 100)));
+        assertEquals(10000, zoomed[PathIterator.SEG_LINETO]);
+    }
+
+    private int[] countSegments(PathIterator pi) {
+        int[] counts = new int[5];
+        double[] coords = new double[6];
+        while (!pi.isDone()) {
+            counts[pi.currentSegment(coords)]++;
+            pi.next();
+        }
+        return counts;
+    }
+}
@@ -517,7 +517,9 @@ public class ROIGeometry extends ROI {
      */
     @Override
     public Shape getAsShape() {
-        return new LiteShape(theGeom.getGeometry());
+        // point and rectangle tests on the shape use the prepared geometry of this ROI, which is
+        // never modified, so it is shared instead of being cloned and prepared again
+        return new LiteShape(theGeom, false, 0);
     }
     
     /**
@@ -17,6 +17,7 @@
  */
 package it.geosolutions.jaiext.vectorbin;
 
+import java.awt.RenderingHints;
 import java.awt.image.renderable.ParameterBlock;
 
 import javax.media.jai.OperationDescriptorImpl;
@@ -66,6 +67,9 @@ import org.locationtech.jts.geom.prep.PreparedGeometry;
  * </code>
  * </pre>
  * 
+ * Detailed geometries can be generalized while they are rendered by setting the {@link #KEY_GENERALIZATION_DISTANCE} hint: the vertices closer
+ * than the given number of pixels to the previous one are then skipped.
+ * 
  * <b>Summary of parameters:</b>
  * <table border="1", cellpadding="3">
  * <tr>
@@ -135,6 +139,25 @@ public class VectorBinarizeDescriptor extends OperationDescriptorImpl {
 
     static final int ANTIALIASING_ARG = 5;
 
+    /**
+     * {@link RenderingHints} key setting the distance, in pixels, below which the vertices of the reference geometry are skipped when it is
+     * rendered. If not set, or not positive, all the vertices are used.
+     */
+    public static final RenderingHints.Key KEY_GENERALIZATION_DISTANCE = new DoubleKey(0);
+
+    /** {@link RenderingHints} key accepting {@link Double} values */
+    private static final class DoubleKey extends RenderingHints.Key {
+
+        DoubleKey(int privateKey) {
+            super(privateKey);
+        }
+
+        @Override
+        public boolean isCompatibleValue(Object val) {
+            return val instanceof Double;
+        }
+    }
+
     private static final String[] paramNames = { "minx", "miny", "width", "height", "geometry",
             "antiAliasing" };
 
@@ -69,11 +69,31 @@ public class VectorBinarizeOpImage extends SourcelessOpImage {
      */
     public VectorBinarizeOpImage(SampleModel sm, Map configuration, int minX, int minY, int width,
             int height, PreparedGeometry geom, boolean antiAliasing) {
+        this(sm, configuration, minX, minY, width, height, geom, antiAliasing, 0);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param sm the {@code SampleModel} used to create tiles
+     * @param configuration rendering hints
+     * @param minX origin X ordinate
+     * @param minY origin Y ordinate
+     * @param width image width
+     * @param height image height
+     * @param geom reference polygonal geometry
+     * @param antiAliasing whether to use anti-aliasing when rendering the reference geometry
+     * @param generalizationDistance distance in pixels below which the vertices of the geometry are skipped when rendering it, if positive
+     */
+    public VectorBinarizeOpImage(SampleModel sm, Map configuration, int minX, int minY, int width,
+            int height, PreparedGeometry geom, boolean antiAliasing, double generalizationDistance) {
         super(buildLayout(minX, minY, width, height, sm), configuration, sm, minX, minY, width,
                 height);
 
         this.geom = geom;
-        this.shape = new LiteShape(geom.getGeometry());
+        // the shape is rendered with a pure translation, so the distance is in pixels
+        this.shape = new LiteShape(geom.getGeometry(), false, generalizationDistance > 0,
+                generalizationDistance);
         this.antiAliasing = antiAliasing;
     }
 
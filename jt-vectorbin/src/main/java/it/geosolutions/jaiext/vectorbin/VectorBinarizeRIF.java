@@ -93,7 +93,15 @@ public class VectorBinarizeRIF implements RenderedImageFactory {
             antiAliasing = ((Boolean) antiAlias).booleanValue();
         }
 
+        double generalizationDistance = 0;
+        if (renderHints != null) {
+            Object distance = renderHints.get(VectorBinarizeDescriptor.KEY_GENERALIZATION_DISTANCE);
+            if (distance instanceof Double) {
+                generalizationDistance = ((Double) distance).doubleValue();
+            }
+        }
+
         return new VectorBinarizeOpImage(sm, renderHints, minx, miny, width, height, pg,
-                antiAliasing);
+                antiAliasing, generalizationDistance);
     }
 }
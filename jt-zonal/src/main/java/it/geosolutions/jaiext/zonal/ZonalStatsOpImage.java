@@ -22,6 +22,7 @@ import it.geosolutions.jaiext.range.Range;
 import it.geosolutions.jaiext.range.Range.DataType;
 import it.geosolutions.jaiext.range.RangeFactory;
 import it.geosolutions.jaiext.stats.Statistics.StatsType;
+import it.geosolutions.jaiext.utilities.TileTraversal;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
@@ -158,6 +159,9 @@ public class ZonalStatsOpImage extends OpImage {
 
     private RenderedOp srcROIImgExt;
 
+    /** Number of tiles claimed at once by every worker when the statistics are calculated in parallel */
+    private final int tilesPerWorker;
+
     public ZonalStatsOpImage(RenderedImage source, ImageLayout layout, Map configuration,
             RenderedImage classifier, AffineTransform transform, List<ROI> rois, Range noData,
             ROI mask, boolean useROIAccessor, int[] bands, StatsType[] statsTypes,
@@ -165,6 +169,9 @@ public class ZonalStatsOpImage extends OpImage {
             boolean localStats) {
         super(vectorize(source), layout, configuration, true);
 
+        // Selection of the parallel traversal settings
+        tilesPerWorker = TileTraversal.getTilesPerWorker(configuration);
+
         // Check if the classifier is present
         classPresent = classifier != null && classifier instanceof RenderedImage;
         // Check if the classifier is integral
@@ -4971,11 +4978,12 @@ public class ZonalStatsOpImage extends OpImage {
         // If the specified property is "JAI-EXT.stats", the calculations are performed.
         if (ZonalStatsDescriptor.ZS_PROPERTY.equalsIgnoreCase(name)) {
 
-            Point[] tileIndices = getTileIndices(union);
-            // one by one, not all together, or we'll load the entire raster in memory
-            for (Point tileIndex : tileIndices) {
-                this.getTile(tileIndex.x, tileIndex.y);
-            }
+            Point[] tileIndices = getZoneTileIndices();
+            // the tiles are computed in parallel, each worker taking a few of them at a time, so
+            // that the entire raster is never loaded in memory. The random iterator on the
+            // classifier is not thread safe, so in that case the tiles are computed serially
+            boolean parallelSafe = !(classPresent && isNotIdentity);
+            TileTraversal.computeTiles(this, tileIndices, parallelSafe ? tilesPerWorker : 0);
 
             return Collections.unmodifiableList(zoneList);
         } else {
@@ -4983,6 +4991,32 @@ public class ZonalStatsOpImage extends OpImage {
         }
     }
     
+    /** Returns the indices of the tiles intersecting at least one zone and the ROI, if present */
+    private Point[] getZoneTileIndices() {
+        Point[] tileIndices = getTileIndices(union);
+        if (tileIndices == null) {
+            return null;
+        }
+        List<Point> intersecting = new ArrayList<Point>(tileIndices.length);
+        for (Point tileIndex : tileIndices) {
+            Rectangle tileRect = getTileRect(tileIndex.x, tileIndex.y);
+            if (hasROI && !srcROI.intersects(tileRect)) {
+                continue;
+            }
+            // Only the zones whose bounds intersect the tile are checked
+            Envelope tileEnv = new Envelope(tileRect.getMinX(), tileRect.getMaxX(),
+                    tileRect.getMinY(), tileRect.getMaxY());
+            List<ZoneGeometry> candidates = spatialIndex.query(tileEnv);
+            for (ZoneGeometry zone : candidates) {
+                if (zone.getROI().intersects(tileRect)) {
+                    intersecting.add(tileIndex);
+                    break;
+                }
+            }
+        }
+        return intersecting.toArray(new Point[intersecting.size()]);
+    }
+
     @Override
     public synchronized void dispose() {
         if(srcROIImgExt != null) {